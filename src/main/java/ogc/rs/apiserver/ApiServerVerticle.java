@@ -1,12 +1,12 @@
 package ogc.rs.apiserver;
 
+import io.netty.handler.codec.http.QueryStringEncoder;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileSystem;
 import io.vertx.core.http.*;
-import io.vertx.core.streams.WriteStream;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Route;
@@ -14,44 +14,52 @@ import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.validation.RequestParameters;
 import io.vertx.ext.web.validation.ValidationHandler;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PoolOptions;
 import ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler;
+import ogc.rs.apiserver.router.gisentities.ogcfeatures.OgcFeaturesMetadata;
+import ogc.rs.apiserver.router.gisentities.ogcfeatures.OgcFeaturesSchemaRegistry;
+import ogc.rs.apiserver.router.gisentities.ogcfeatures.PostgisGeomTypes;
 import ogc.rs.apiserver.util.AuthInfo.RoleEnum;
 import ogc.rs.apiserver.util.AuthInfo;
 import ogc.rs.apiserver.util.Limits;
+import ogc.rs.apiserver.util.MapRenderCache;
+import ogc.rs.apiserver.util.MapRenderPool;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.apiserver.util.StacCatalogCache;
+import ogc.rs.apiserver.util.StacCatalogCache.StacCatalog;
 import ogc.rs.apiserver.util.StacItemSearchParams;
+import ogc.rs.apiserver.util.StacSearchCursor;
+import ogc.rs.apiserver.util.TileCache;
+import ogc.rs.apiserver.util.TileCache.CachedObject;
+import ogc.rs.apiserver.util.TileRoutingCache;
 import ogc.rs.catalogue.CatalogueService;
 import ogc.rs.common.DataFromS3;
+import ogc.rs.common.awss3.AWS4SignerBase;
+import ogc.rs.common.awss3.BinaryUtils;
 import ogc.rs.common.S3BucketReadAccess;
+import ogc.rs.common.S3ClientRegistry;
 import ogc.rs.common.S3Config;
 import ogc.rs.common.S3ConfigsHolder;
 import ogc.rs.database.DatabaseService;
+import ogc.rs.database.DatabaseServiceImpl;
+import ogc.rs.database.util.FeatureCollectionStream;
+import ogc.rs.database.util.FeatureQueryBuilder;
 import ogc.rs.jobs.JobsService;
 import ogc.rs.metering.MeteringService;
 import ogc.rs.processes.ProcessesRunnerService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -68,6 +76,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.TOKEN_LIMITS_KEY;
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
 import static ogc.rs.apiserver.handlers.StacItemByIdAuthZHandler.SHOULD_CREATE_KEY;
 import static ogc.rs.apiserver.handlers.TokenLimitsEnforcementHandler.getLimitsFromContext;
@@ -110,11 +119,30 @@ public class ApiServerVerticle extends AbstractVerticle {
   private HttpClient httpClient;
   private ProcessesRunnerService processService;
   private JobsService jobsService;
+  private PgPool featureStreamPool;
+  private DatabaseServiceImpl featureStreamDbService;
+  private StacSearchCursor stacSearchCursor;
+  private StacCatalogCache stacCatalogCache;
+  private OgcFeaturesSchemaRegistry featureSchemaRegistry;
+  private Map<PostgisGeomTypes, Integer> geomSpecificMaxLimits;
+  private int featureStreamFetchSize;
+  private boolean aggregateFeatures;
+  private boolean dynamicFeatureTiles;
+  private TileRoutingCache tileRoutingCache;
+  private TileCache tileCache;
+  private MapRenderPool mapRenderPool;
+  private MapRenderCache mapRenderCache;
+  private S3ClientRegistry s3ClientRegistry;
 
   String tileMatrixSetUrl = "https://raw.githubusercontent.com/opengeospatial/2D-Tile-Matrix-Set/master/registry" +
       "/json/$.json";
   JsonArray allCrsSupported = new JsonArray();
   private static final int ROUTER_CREATION_WAIT_TIME_SEC = 60;
+  private static final String RESPONSE_STREAM_KEY = "responseStream";
+  private static final String FEATURE_QUERY_PARAMS_KEY = "featureQueryParams";
+  private static final String OPENAPI_V3_JSON_CONTENT_TYPE = "application/vnd.oai.openapi+json;version=3.0";
+  private static final int DEFAULT_FEATURE_STREAM_FETCH_SIZE = 500;
+  private static final int DEFAULT_FEATURE_STREAM_POOL_SIZE = 5;
 
   /**
    * This method is used to start the Verticle. It deploys a verticle in a cluster/single instance, reads the
@@ -130,7 +158,7 @@ public class ApiServerVerticle extends AbstractVerticle {
     ogcBasePath = config().getString("ogcBasePath");
     hostName = config().getString("hostName");
 
-    catalogueService = new CatalogueService(vertx, config());
+    catalogueService = CatalogueService.getOrCreate(vertx, config());
     meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
 
     /* Initialize OGC landing page buffer - since configured hostname needs to be in it */
@@ -146,9 +174,75 @@ public class ApiServerVerticle extends AbstractVerticle {
     s3conf = S3ConfigsHolder.createFromServerConfig(config().getJsonObject(S3ConfigsHolder.S3_CONFIGS_BLOCK_KEY_NAME));
 
     processService = ProcessesRunnerService.createProxy(vertx,PROCESSING_SERVICE_ADDRESS);
-    dbService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+    dbService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
     jobsService = JobsService.createProxy(vertx,JOBS_SERVICE_ADDRESS);
 
+    tileRoutingCache = new TileRoutingCache(dbService, s3conf, config());
+    tileCache = new TileCache(vertx, config());
+    mapRenderPool = MapRenderPool.getOrCreate(vertx, config());
+    mapRenderCache = MapRenderCache.getOrCreate(vertx, config());
+    s3ClientRegistry = S3ClientRegistry.getOrCreate(vertx, config());
+    stacSearchCursor = StacSearchCursor.getOrCreate(vertx, config());
+    stacCatalogCache = new StacCatalogCache(config(), this::buildStacCatalog);
+    featureSchemaRegistry = new OgcFeaturesSchemaRegistry(dbService, config());
+    geomSpecificMaxLimits = OgcFeaturesMetadata.getGeomSpecificMaxLimits(config());
+    vertx.eventBus().<String>consumer(COLLECTION_METADATA_INVALIDATION_ADDRESS, msg -> {
+      tileRoutingCache.invalidateAll();
+      // the notification carries the ID of the onboarded or updated collection, if known
+      if (msg.body() != null && msg.body().matches(UUID_REGEX)) {
+        tileCache.invalidateCollection(msg.body());
+      } else {
+        tileCache.invalidateAll();
+      }
+      stacCatalogCache.invalidateAll();
+      featureSchemaRegistry.invalidateAll();
+    });
+
+    /*
+     * Initialize a local DB pool for streaming OGC Features /items responses if enabled. A stream
+     * cannot be sent over the event bus, so the DatabaseService proxy cannot be used for it.
+     */
+    if (config().getBoolean("streamFeatures", false)) {
+      PgConnectOptions connectOptions = new PgConnectOptions()
+          .setPort(config().getInteger("databasePort"))
+          .setHost(config().getString("databaseHost"))
+          .setDatabase(config().getString("databaseName"))
+          .setUser(config().getString("databaseUser"))
+          .setPassword(config().getString("databasePassword"))
+          .setReconnectAttempts(2)
+          .setReconnectInterval(1000L)
+          // only the STAC Item Search statement is cached, it is the same for every page of a search
+          .setCachePreparedStatements(true)
+          .setPreparedStatementCacheSqlFilter(
+              sql -> sql.startsWith(FeatureQueryBuilder.STAC_ITEM_SEARCH_QUERY_PREFIX));
+      PoolOptions poolOptions = new PoolOptions()
+          .setMaxSize(config().getInteger("streamFeaturesPoolSize", DEFAULT_FEATURE_STREAM_POOL_SIZE));
+
+      featureStreamPool = PgPool.pool(vertx, connectOptions, poolOptions);
+      featureStreamDbService = new DatabaseServiceImpl(featureStreamPool, config());
+      vertx.eventBus().consumer(COLLECTION_METADATA_INVALIDATION_ADDRESS,
+          msg -> featureStreamDbService.invalidateCollectionMetadataCache());
+      featureStreamFetchSize =
+          config().getInteger("streamFeaturesFetchSize", DEFAULT_FEATURE_STREAM_FETCH_SIZE);
+      LOGGER.info("Streaming of OGC Features /items responses enabled, fetch size {}",
+          featureStreamFetchSize);
+    }
+
+    /*
+     * If enabled, the features array of OGC Features /items responses is built by Postgres and
+     * put in the response as is. Streaming is used instead if both are enabled.
+     */
+    aggregateFeatures = config().getBoolean("aggregateFeaturesInDb", false);
+
+    /*
+     * If enabled, vector tiles of feature collections without pre-generated tiles for a tile matrix
+     * set are generated from the features. Tiles of a collection are dropped from the tile cache
+     * when features are added to it.
+     */
+    dynamicFeatureTiles = config().getBoolean("dynamicFeatureTiles", false);
+    vertx.eventBus().<String>consumer(FEATURE_COLLECTION_UPDATED_ADDRESS,
+        msg -> tileCache.invalidateCollection(msg.body()));
+
     // TODO: ssl configuration
     HttpServerOptions serverOptions = new HttpServerOptions();
     serverOptions.setCompressionSupported(true).setCompressionLevel(5);
@@ -190,6 +284,18 @@ public class ApiServerVerticle extends AbstractVerticle {
     httpClient = vertx.createHttpClient();
   }
 
+  @Override
+  public void stop(Promise<Void> stopPromise) {
+    if (s3ClientRegistry != null) {
+      s3ClientRegistry.release();
+    }
+    Future<Void> tileCacheClosed = tileCache == null ? Future.succeededFuture() : tileCache.close();
+    Future<Void> featureStreamPoolClosed =
+        featureStreamPool == null ? Future.succeededFuture() : featureStreamPool.close();
+    Future.join(tileCacheClosed, featureStreamPoolClosed)
+        .onComplete(ar -> stopPromise.complete());
+  }
+
   /**
    * Reset {@link ApiServerVerticle#router} by clearing it and then adding all routers in
    * <code>routerList</code> as sub-routers at the root path. Also adds a handler for
@@ -212,6 +318,16 @@ public class ApiServerVerticle extends AbstractVerticle {
     });
   }
 
+  /**
+   * Add sub-routers after the existing ones, without rebuilding them. Used to route the paths of
+   * new collections; the existing sub-routers are matched first.
+   *
+   * @param routerList the sub-routers to add
+   */
+  public void addRouters(List<Router> routerList) {
+    routerList.forEach(subrouter -> router.route("/*").subRouter(subrouter));
+  }
+
   public void sendOgcLandingPage(RoutingContext routingContext) {
     HttpServerResponse response = routingContext.response();
     response.end(ogcLandingPageBuf);
@@ -223,7 +339,8 @@ public class ApiServerVerticle extends AbstractVerticle {
    * <p>Loads map raster metadata from {@code collection_map_metadata} and CRS from
    * {@code collections_details}, verifies the COG in S3, streams a
    * rendered GeoTIFF via {@code gdal_translate} (chunked response), and sets {@code Content-Crs},
-   * {@code Content-Bbox}, and optional {@code Content-Datetime}.
+   * {@code Content-Bbox}, and optional {@code Content-Datetime}. Renders run in the bounded
+   * {@link MapRenderPool}, so the request is rejected with a 503 when the server is saturated.
    *
    * @param routingContext request context (must pass {@link ogc.rs.apiserver.handlers.OgcMapsAuthZHandler})
    */
@@ -325,10 +442,10 @@ public class ApiServerVerticle extends AbstractVerticle {
                 return;
               }
 
-              mapAssetExistsInS3(s3c, objectKey)
+              getMapAssetETag(s3c, objectKey)
                   .onSuccess(
-                      exists -> {
-                        if (!exists) {
+                      etag -> {
+                        if (etag.isEmpty()) {
                           routingContext.fail(new OgcException(404, "Not Found", "Not Found"));
                           return;
                         }
@@ -342,43 +459,48 @@ public class ApiServerVerticle extends AbstractVerticle {
                             "getCollectionMap: starting GDAL render collectionId={}",
                             collectionId);
 
-                        applyMapResponseHeaders(response, geoHeaders);
-                        response.setChunked(true);
-                        response.setStatusCode(200);
-
-                        vertx
-                            .<Void>executeBlocking(
-                                p -> {
-                                  try {
-                                    long bytesSent =
-                                        streamGdalTranslateToResponse(
-                                            routingContext, response, s3c, vsis3Path);
-                                    endMapResponseOnContext(
-                                        response,
+                        List<String> cmd = buildGdalTranslateCommand(vsis3Path);
+                        Map<String, String> env = new HashMap<>();
+                        configureGdalS3Environment(env, s3c);
+                        LOGGER.info("getCollectionMap: gdal_translate command: {}", cmd);
+
+                        if (mapRenderCache.isEnabled()) {
+                          String cacheKey = String.join("|", collectionId, s3c.getBucket(),
+                              objectKey, etag.get(), String.join(" ", cmd));
+                          mapRenderCache
+                              .getOrRender(
+                                  collectionId,
+                                  cacheKey,
+                                  path -> mapRenderPool.renderToFile(cmd, env, path))
+                              .compose(
+                                  path -> {
+                                    applyMapResponseHeaders(response, geoHeaders);
+                                    response.setStatusCode(200);
+                                    return response.sendFile(path);
+                                  })
+                              .onFailure(err -> failMapResponse(routingContext, err));
+                          return;
+                        }
+
+                        mapRenderPool
+                            .render(
+                                cmd,
+                                env,
+                                response,
+                                res -> {
+                                  applyMapResponseHeaders(res, geoHeaders);
+                                  res.setChunked(true);
+                                  res.setStatusCode(200);
+                                })
+                            .onSuccess(
+                                bytesSent ->
+                                    LOGGER.info(
+                                        "getCollectionMap: response sent 200 OK collectionId={} bytes={} crs={} Content-Bbox={}",
                                         collectionId,
-                                        geoHeaders,
                                         bytesSent,
-                                        p);
-                                  } catch (Exception ex) {
-                                    p.fail(ex);
-                                  }
-                                },
-                                false)
-                            .onFailure(
-                                err -> {
-                                  if (response.ended() || response.closed()) {
-                                    return;
-                                  }
-                                  Throwable cause = err.getCause() == null ? err : err.getCause();
-                                  if (cause instanceof OgcException) {
-                                    routingContext.fail(cause);
-                                  } else {
-                                    LOGGER.error("getCollectionMap: GDAL map render failed", cause);
-                                    routingContext.fail(
-                                        new OgcException(
-                                            500, "Internal Server Error", "Internal Server Error"));
-                                  }
-                                });
+                                        geoHeaders.getResponseCrsUri(),
+                                        geoHeaders.getContentBbox()))
+                            .onFailure(err -> failMapResponse(routingContext, err));
                       })
                   .onFailure(
                       err -> {
@@ -402,58 +524,51 @@ public class ApiServerVerticle extends AbstractVerticle {
   }
 
   /**
-   * Checks that the map COG object exists in S3 before starting GDAL.
+   * Checks that the map COG object exists in S3 before starting GDAL. Uses the shared S3 client
+   * and its HEAD cache, so repeated map requests for a collection usually skip the round-trip.
    *
    * @param s3c bucket configuration
    * @param objectKey object key (href from map metadata)
-   * @return {@code true} if {@code headObject} succeeds, {@code false} on 404
+   * @return the ETag of the object if {@code headObject} succeeds, empty on 404
    */
-  private Future<Boolean> mapAssetExistsInS3(S3Config s3c, String objectKey) {
-    return vertx.executeBlocking(
-        () -> {
-          try (S3Client s3Client = buildS3ClientForMap(s3c)) {
-            s3Client.headObject(
-                HeadObjectRequest.builder().bucket(s3c.getBucket()).key(objectKey).build());
-            LOGGER.info(
-                "mapAssetExistsInS3: HEAD succeeded bucket={} key={}",
-                s3c.getBucket(),
-                objectKey);
-            return true;
-          } catch (S3Exception e) {
-            if (e.statusCode() == 404) {
-              LOGGER.error("file not found in s3 for bucket {} key {}", s3c.getBucket(), objectKey);
-              return false;
-            }
-            LOGGER.error(
-                "S3 headObject failed for bucket {} key {}: {}", s3c.getBucket(), objectKey, e.getMessage());
-            throw new OgcException(500, "Internal Server Error", "Internal Server Error");
-          }
-        },
-        false);
+  private Future<Optional<String>> getMapAssetETag(S3Config s3c, String objectKey) {
+    return s3ClientRegistry
+        .getObjectETag(s3c, objectKey)
+        .map(
+            etag -> {
+              if (etag.isEmpty()) {
+                LOGGER.error("file not found in s3 for bucket {} key {}", s3c.getBucket(), objectKey);
+              }
+              return etag;
+            })
+        .recover(
+            err -> {
+              LOGGER.error(
+                  "S3 headObject failed for bucket {} key {}: {}", s3c.getBucket(), objectKey, err.getMessage());
+              return Future.failedFuture(
+                  new OgcException(500, "Internal Server Error", "Internal Server Error"));
+            });
   }
 
   /**
-   * Builds a synchronous AWS SDK S3 client for map asset HEAD checks.
+   * Fails a map request, unless the map response has already been started, in which case the
+   * render pool has already reset it.
    *
-   * @param s3Config bucket configuration
-   * @return configured {@link S3Client} (caller must close)
+   * @param routingContext request context
+   * @param err cause of the failure
    */
-  private static S3Client buildS3ClientForMap(S3Config s3Config) {
-    return S3Client.builder()
-        .region(Region.of(s3Config.getRegion()))
-        .endpointOverride(URI.create(s3Config.getEndpoint()))
-        .credentialsProvider(
-            StaticCredentialsProvider.create(
-                AwsBasicCredentials.create(s3Config.getAccessKey(), s3Config.getSecretKey())))
-        .serviceConfiguration(
-            S3Configuration.builder()
-                .pathStyleAccessEnabled(s3Config.isPathBasedAccess())
-                .build())
-        .build();
-  }
-
-  /** Maximum time to wait for {@code gdal_translate} to finish after stdout is drained. */
-  private static final long GDAL_TRANSLATE_TIMEOUT_SECONDS = 120;
+  private static void failMapResponse(RoutingContext routingContext, Throwable err) {
+    HttpServerResponse response = routingContext.response();
+    if (response.ended() || response.closed() || response.headWritten()) {
+      return;
+    }
+    if (err instanceof OgcException) {
+      routingContext.fail(err);
+    } else {
+      LOGGER.error("getCollectionMap: GDAL map render failed", err);
+      routingContext.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
+    }
+  }
 
   /**
    * Sets OGC API Maps core response headers on a chunked map response before the body is streamed.
@@ -473,183 +588,6 @@ public class ApiServerVerticle extends AbstractVerticle {
     }
   }
 
-  /**
-   * Completes the map HTTP response on the Vert.x event loop after all GDAL output has been
-   * written.
-   *
-   * @param response chunked response to end
-   * @param collectionId collection identifier (for logging)
-   * @param geoHeaders headers already applied before streaming
-   * @param bytesSent total bytes written to the response body
-   * @param workerPromise {@code executeBlocking} promise to complete when {@code response.end()}
-   *     finishes
-   */
-  private void endMapResponseOnContext(
-      HttpServerResponse response,
-      String collectionId,
-      MapResponseGeoHeaders geoHeaders,
-      long bytesSent,
-      Promise<Void> workerPromise) {
-    vertx.runOnContext(
-        v ->
-            response.end(
-                ar -> {
-                  if (ar.failed()) {
-                    workerPromise.fail(ar.cause());
-                    return;
-                  }
-                  LOGGER.info(
-                      "getCollectionMap: response sent 200 OK collectionId={} bytes={} crs={} Content-Bbox={}",
-                      collectionId,
-                      bytesSent,
-                      geoHeaders.getResponseCrsUri(),
-                      geoHeaders.getContentBbox());
-                  workerPromise.complete(null);
-                }));
-  }
-
-  /**
-   * Writes one map body chunk on the event loop from a worker thread.
-   *
-   * <p>{@link WriteStream#write} must run on the Vert.x context;
-   * this method blocks the caller until the write completes or fails.
-   *
-   * @param response chunked HTTP response
-   * @param chunk GDAL stdout bytes to send
-   * @throws IOException if the write fails or the response is no longer writable
-   * @throws InterruptedException if interrupted while waiting for the event-loop write
-   */
-  private void writeMapChunkOnContext(HttpServerResponse response, Buffer chunk)
-      throws IOException, InterruptedException {
-    CountDownLatch latch = new CountDownLatch(1);
-    AtomicReference<Throwable> writeError = new AtomicReference<>();
-    vertx.runOnContext(
-        v -> {
-          if (response.closed() || response.ended()) {
-            latch.countDown();
-            return;
-          }
-          WriteStream<Buffer> body = response;
-          body.write(chunk)
-              .onComplete(
-                  ar -> {
-                    if (ar.failed()) {
-                      writeError.set(ar.cause());
-                    }
-                    latch.countDown();
-                  });
-        });
-    latch.await();
-    if (writeError.get() != null) {
-      throw new IOException("Failed to write map chunk to response", writeError.get());
-    }
-  }
-
-  /**
-   * Runs {@code gdal_translate} and pipes stdout to the HTTP response via {@link InputStream#transferTo(OutputStream)}.
-   *
-   * <p>Executes on a worker thread. GDAL stdout is copied with {@code transferTo} into a {@link
-   * VertxMapResponseOutputStream} that dispatches {@link WriteStream#write} on the event
-   * loop.
-   *
-   * @param routingContext used for connection close handling
-   * @param response chunked response with map headers already set
-   * @param s3c S3 credentials and endpoint for {@code /vsis3/} access
-   * @param cogPath GDAL virtual file path (e.g. {@code /vsis3/bucket/key.tif})
-   * @return number of bytes streamed to the response
-   * @throws IOException if GDAL fails, times out, or the client disconnects
-   * @throws InterruptedException if interrupted while waiting for the process or writes
-   */
-  private long streamGdalTranslateToResponse(
-      RoutingContext routingContext,
-      HttpServerResponse response,
-      S3Config s3c,
-      String cogPath)
-      throws IOException, InterruptedException {
-
-    List<String> cmd = buildGdalTranslateCommand(cogPath);
-
-    LOGGER.info("getCollectionMap: gdal_translate command: {}", cmd);
-
-    ProcessBuilder pb = new ProcessBuilder(cmd);
-    configureGdalS3Environment(pb.environment(), s3c);
-
-    Process process = pb.start();
-    routingContext
-        .request()
-        .connection()
-        .closeHandler(
-            v -> {
-              if (process.isAlive()) {
-                process.destroyForcibly();
-              }
-            });
-
-    consumeGdalErrorStream(process);
-
-    long bytesSent;
-    try (InputStream stdout = process.getInputStream();
-        OutputStream responseOut = new VertxMapResponseOutputStream(response)) {
-      bytesSent = stdout.transferTo(responseOut);
-    }
-
-    boolean finished = process.waitFor(GDAL_TRANSLATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-    if (!finished) {
-      process.destroyForcibly();
-      throw new IOException("gdal_translate timed out after " + GDAL_TRANSLATE_TIMEOUT_SECONDS + "s");
-    }
-
-    int exitCode = process.exitValue();
-    if (exitCode != 0) {
-      throw new IOException("gdal_translate failed with exit code " + exitCode);
-    }
-
-    LOGGER.info("getCollectionMap: gdal_translate stream completed bytes={}", bytesSent);
-    return bytesSent;
-  }
-
-  /**
-   * {@link OutputStream} adapter that writes GDAL (or any) bytes to a chunked Vert.x HTTP response.
-   *
-   * <p>Used with {@link InputStream#transferTo(OutputStream)} from a worker thread. Does not call
-   * {@link HttpServerResponse#end()} on close; the caller ends the response separately.
-   */
-  private final class VertxMapResponseOutputStream extends OutputStream {
-
-    private final HttpServerResponse response;
-    private boolean closed;
-
-    private VertxMapResponseOutputStream(HttpServerResponse response) {
-      this.response = response;
-    }
-
-    @Override
-    public void write(int b) throws IOException {
-      write(new byte[] {(byte) b}, 0, 1);
-    }
-
-    @Override
-    public void write(byte[] buffer, int offset, int length) throws IOException {
-      if (closed) {
-        throw new IOException("Map response output stream is closed");
-      }
-      if (response.closed()) {
-        throw new IOException("Client closed connection during map streaming");
-      }
-      try {
-        writeMapChunkOnContext(response, Buffer.buffer(Arrays.copyOfRange(buffer, offset, offset + length)));
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        throw new IOException("Interrupted while writing map response", e);
-      }
-    }
-
-    @Override
-    public void close() {
-      closed = true;
-    }
-  }
-
   /**
    * Builds the {@code gdal_translate} argument list for map rendering (8-bit GTiff to stdout).
    *
@@ -695,28 +633,6 @@ public class ApiServerVerticle extends AbstractVerticle {
     env.put("CPL_VSIL_USE_TEMP_FILE_FOR_RANDOM_WRITE", "NO");
   }
 
-  /**
-   * Drains {@code gdal_translate} stderr on a daemon thread so the process does not block on a full
-   * stderr pipe.
-   *
-   * @param process running GDAL process
-   */
-  private void consumeGdalErrorStream(Process process) {
-    Thread stderrConsumer =
-        new Thread(
-            () -> {
-              try (BufferedReader reader =
-                  new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-                reader.lines().forEach(line -> LOGGER.debug("gdal_translate stderr: {}", line));
-              } catch (IOException e) {
-                LOGGER.debug("gdal_translate stderr consumer closed: {}", e.getMessage());
-              }
-            },
-            "gdal-stderr-consumer");
-    stderrConsumer.setDaemon(true);
-    stderrConsumer.start();
-  }
-
   /**
    * Values for OGC API Maps core response headers ({@code Content-Crs}, {@code Content-Bbox},
    * {@code Content-Datetime}).
@@ -1020,10 +936,13 @@ public class ApiServerVerticle extends AbstractVerticle {
     RequestParameters requestParameters = routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
     String collectionId = routingContext.request().path().split("/")[2];
     Integer featureId = requestParameters.pathParameter("featureId").getInteger();
-    Map<String, Object> queryParams = requestParameters.toJson().getJsonObject("query").getMap();
-    Map<String, String> queryParamsMap = queryParams.entrySet()
-            .stream()
-            .collect(Collectors.toMap(Map.Entry::getKey, e -> (String) e.getValue()));
+    Map<String, String> queryParamsMap = routingContext.get(FEATURE_QUERY_PARAMS_KEY);
+    if (queryParamsMap == null) {
+      Map<String, Object> queryParams = requestParameters.toJson().getJsonObject("query").getMap();
+      queryParamsMap = queryParams.entrySet()
+              .stream()
+              .collect(Collectors.toMap(Map.Entry::getKey, e -> (String) e.getValue()));
+    }
 
     // Get validated limits from context (set by TokenLimitsEnforcementHandler)
     Limits limits = getLimitsFromContext(routingContext);
@@ -1031,9 +950,10 @@ public class ApiServerVerticle extends AbstractVerticle {
     LOGGER.debug("<APIServer> QP- {}", queryParamsMap);
     LOGGER.debug("<APIServer> Limits- {}", limits);
 
+    Map<String, String> featureQueryParams = queryParamsMap;
     Future<Map<String, Integer>> isCrsValid = dbService.isCrsValid(collectionId, queryParamsMap);
     isCrsValid
-            .compose(crs -> dbService.getFeature(collectionId, featureId, queryParamsMap, limits, crs))
+            .compose(crs -> dbService.getFeature(collectionId, featureId, featureQueryParams, limits, crs))
             .onSuccess(success -> {
               // TODO: Add base_path from config
               success.put("links", new JsonArray()
@@ -1048,7 +968,7 @@ public class ApiServerVerticle extends AbstractVerticle {
               routingContext.put("response", success.toString());
               routingContext.put("statusCode", 200);
               routingContext.put(
-                      "crs", "<" + queryParamsMap.getOrDefault("crs", DEFAULT_SERVER_CRS) + ">");
+                      "crs", "<" + featureQueryParams.getOrDefault("crs", DEFAULT_SERVER_CRS) + ">");
               routingContext.next();
             })
             .onFailure(failed -> routingContext.fail(failed));
@@ -1059,9 +979,10 @@ public class ApiServerVerticle extends AbstractVerticle {
     RequestParameters requestParameters = routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
     String collectionId = routingContext.request().path().split("/")[2];
 
-    // Extract query parameters as a mutable map
-    Map<String, Object> queryParams = requestParameters.toJson().getJsonObject("query").getMap();
-    Map<String, String> queryParamsMap = queryParams.entrySet()
+    // Extract query parameters as a mutable map, already validated if it is a parameterized route
+    Map<String, String> validatedQueryParams = routingContext.get(FEATURE_QUERY_PARAMS_KEY);
+    Map<String, String> queryParamsMap = validatedQueryParams != null ? validatedQueryParams
+        : requestParameters.toJson().getJsonObject("query").getMap().entrySet()
             .stream()
             .filter(i -> i.getValue() != null)
             .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toString()));
@@ -1073,7 +994,7 @@ public class ApiServerVerticle extends AbstractVerticle {
     LOGGER.debug("<APIServer> Limits- {}", limits);
 
     Future<Map<String, Integer>> isCrsValid = dbService.isCrsValid(collectionId, queryParamsMap);
-    isCrsValid
+    Future<Void> isRequestValid = isCrsValid
             .compose(datetimeCheck -> {
               try {
                 String datetime;
@@ -1112,44 +1033,51 @@ public class ApiServerVerticle extends AbstractVerticle {
                 return Future.failedFuture(ogcException);
               }
               return Future.succeededFuture();
-            })
+            });
+
+    if (featureStreamDbService != null) {
+      isRequestValid
+          .compose(dbCall -> featureStreamDbService.streamFeatures(collectionId, queryParamsMap,
+              limits, isCrsValid.result(), featureStreamFetchSize))
+          .onSuccess(featureStream -> {
+            featureStream.trailer(stream -> new JsonObject()
+                .put("links", buildFeaturesLinks(routingContext, collectionId, queryParamsMap,
+                    stream.hasMore(), stream.getLastId()))
+                .put("timeStamp", Instant.now().toString()));
+            routingContext.put(RESPONSE_STREAM_KEY, featureStream);
+            routingContext.put("statusCode", 200);
+            routingContext.put("crs", "<" + queryParamsMap.getOrDefault("crs", DEFAULT_SERVER_CRS) + ">");
+            routingContext.next();
+          })
+          .onFailure(failed -> routingContext.fail(failed));
+      return;
+    }
+
+    if (aggregateFeatures) {
+      isRequestValid
+          .compose(dbCall -> dbService.getAggregatedFeatures(collectionId, queryParamsMap, limits,
+              isCrsValid.result()))
+          .onSuccess(success -> {
+            JsonArray links = buildFeaturesLinks(routingContext, collectionId, queryParamsMap,
+                success.getBoolean(HAS_MORE_FEATURES_KEY), success.getInteger(LAST_FEATURE_ID_KEY));
+            routingContext.put("response", buildFeatureCollection(success, links));
+            routingContext.put("statusCode", 200);
+            routingContext.put("crs", "<" + queryParamsMap.getOrDefault("crs", DEFAULT_SERVER_CRS) + ">");
+            routingContext.next();
+          })
+          .onFailure(failed -> routingContext.fail(failed));
+      return;
+    }
+
+    isRequestValid
             .compose(dbCall -> dbService.getFeatures(collectionId, queryParamsMap, limits, isCrsValid.result()))
             .onSuccess(success -> {
-              success.put("links", new JsonArray());
-              int limit = Integer.parseInt(queryParamsMap.get("limit"));
-              String nextLink = "";
               JsonArray features = success.getJsonArray("features");
-              if (!features.isEmpty()) {
-                int lastIdOffset = features.getJsonObject(features.size() - 1).getInteger("id") + 1;
-                queryParamsMap.put("offset", String.valueOf(lastIdOffset));
-                AtomicReference<String> requestPath = new AtomicReference<>(routingContext.request().path());
-                if (!queryParamsMap.isEmpty()) {
-                  requestPath.set(requestPath + "?");
-                  queryParamsMap.forEach((key, value) -> requestPath.set(requestPath + key + "=" + value + "&"));
-                }
-                nextLink = requestPath.toString().substring(0, requestPath.toString().length() - 1);
-                nextLink = nextLink.replace("[", "").replace("]","");
-                LOGGER.debug("**** nextLink- {}", nextLink);
-                if ( limit < success.getInteger("numberMatched")
-                        && (success.getInteger("numberMatched") > success.getInteger("numberReturned"))
-                        && success.getInteger("numberReturned") != 0 ) {
-                  success.getJsonArray("links")
-                          .add(new JsonObject()
-                                  .put("href",
-                                          hostName + nextLink)
-                                  .put("rel", "next")
-                                  .put("type", "application/geo+json" ));
-                }
-              }
-              success.getJsonArray("links")
-                      .add(new JsonObject()
-                              .put("href", hostName + ogcBasePath + COLLECTIONS + "/" + collectionId + "/items")
-                              .put("rel", "self")
-                              .put("type", "application/geo+json"))
-                      .add(new JsonObject()
-                              .put("href", hostName + ogcBasePath  + COLLECTIONS + "/" + collectionId + "/items")
-                              .put("rel", "alternate")
-                              .put("type", "application/geo+json"));
+              Integer lastId = features.isEmpty() ? null
+                  : features.getJsonObject(features.size() - 1).getInteger("id");
+              boolean hasMore = (Boolean) success.remove(HAS_MORE_FEATURES_KEY);
+              success.put("links", buildFeaturesLinks(routingContext, collectionId, queryParamsMap,
+                  hasMore, lastId));
               success.put("timeStamp", Instant.now().toString());
               routingContext.put("response",success.toString());
               routingContext.put("statusCode", 200);
@@ -1159,6 +1087,74 @@ public class ApiServerVerticle extends AbstractVerticle {
             .onFailure(failed -> routingContext.fail(failed));
   }
 
+  /**
+   * Build an OGC Features <em>/items</em> response from the result of
+   * {@link DatabaseService#getAggregatedFeatures}, splicing the features array text built by
+   * Postgres into the response without parsing it.
+   *
+   * @param result the result of getAggregatedFeatures
+   * @param links the links array of the response
+   * @return the response body
+   */
+  private static Buffer buildFeatureCollection(JsonObject result, JsonArray links) {
+    Buffer body = Buffer.buffer().appendString("{\"type\":\"FeatureCollection\",");
+    if (result.containsKey("numberMatched")) {
+      body.appendString("\"numberMatched\":" + result.getInteger("numberMatched") + ",");
+    }
+    return body
+        .appendString("\"numberReturned\":" + result.getInteger("numberReturned"))
+        .appendString(",\"features\":").appendString(result.getString("features"))
+        .appendString(",\"links\":").appendString(links.encode())
+        .appendString(",\"timeStamp\":\"" + Instant.now() + "\"}");
+  }
+
+  /**
+   * Build the <em>links</em> array of an OGC Features <em>/items</em> response. The <em>next</em>
+   * link is added only if there are more features to be returned, which is known from the
+   * <code>limit + 1</code> probe done when fetching the features and not from
+   * <em>numberMatched</em>, since the count may be estimated or omitted.
+   *
+   * @param routingContext the routing context of the request
+   * @param collectionId the collection ID
+   * @param queryParamsMap the query params of the request, the offset is updated for the next link
+   * @param hasMore if there are more features after the last feature returned
+   * @param lastId ID of the last feature returned, <code>null</code> if no features were returned
+   * @return the links array
+   */
+  private JsonArray buildFeaturesLinks(RoutingContext routingContext, String collectionId,
+      Map<String, String> queryParamsMap, boolean hasMore, Integer lastId) {
+    JsonArray links = new JsonArray();
+    String nextLink = "";
+    if (lastId != null) {
+      int lastIdOffset = lastId + 1;
+      queryParamsMap.put("offset", String.valueOf(lastIdOffset));
+      AtomicReference<String> requestPath = new AtomicReference<>(routingContext.request().path());
+      if (!queryParamsMap.isEmpty()) {
+        requestPath.set(requestPath + "?");
+        queryParamsMap.forEach((key, value) -> requestPath.set(requestPath + key + "=" + value + "&"));
+      }
+      nextLink = requestPath.toString().substring(0, requestPath.toString().length() - 1);
+      nextLink = nextLink.replace("[", "").replace("]","");
+      LOGGER.debug("**** nextLink- {}", nextLink);
+      if (hasMore) {
+        links.add(new JsonObject()
+                .put("href", hostName + nextLink)
+                .put("rel", "next")
+                .put("type", "application/geo+json" ));
+      }
+    }
+    links
+            .add(new JsonObject()
+                    .put("href", hostName + ogcBasePath + COLLECTIONS + "/" + collectionId + "/items")
+                    .put("rel", "self")
+                    .put("type", "application/geo+json"))
+            .add(new JsonObject()
+                    .put("href", hostName + ogcBasePath  + COLLECTIONS + "/" + collectionId + "/items")
+                    .put("rel", "alternate")
+                    .put("type", "application/geo+json"));
+    return links;
+  }
+
   public void getProcesses(RoutingContext routingContext) {
     RequestParameters paramsFromOasValidation = routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
 
@@ -1180,10 +1176,32 @@ public class ApiServerVerticle extends AbstractVerticle {
   }
 
   public void buildResponse(RoutingContext routingContext) {
+    FeatureCollectionStream responseStream = routingContext.get(RESPONSE_STREAM_KEY);
+    if (responseStream != null) {
+      HttpServerResponse response = routingContext.response()
+          .setStatusCode(routingContext.get("statusCode"))
+          .setChunked(true);
+      // response is not ended on failure, since a truncated body must not look like a valid one
+      responseStream.pipe().endOnFailure(false).to(response)
+          .onFailure(failed -> {
+            LOGGER.error("Failed to stream response - {}", failed.getMessage());
+            responseStream.close();
+            response.reset();
+          });
+      return;
+    }
+    Object response = routingContext.get("response");
+    if (response instanceof Buffer) {
+      routingContext
+          .response()
+          .setStatusCode(routingContext.get("statusCode"))
+          .end((Buffer) response);
+      return;
+    }
     routingContext
         .response()
         .setStatusCode(routingContext.get("statusCode"))
-        .end((String) routingContext.get("response"));
+        .end((String) response);
   }
 
   public void validateQueryParams(RoutingContext routingContext) {
@@ -1199,6 +1217,51 @@ public class ApiServerVerticle extends AbstractVerticle {
         routingContext.next();
   }
 
+  /**
+   * Validate the query params of a request to the parameterized OGC Features routes against the
+   * schema of the requested collection, in place of {@link #validateQueryParams(RoutingContext)}.
+   * The validated query params are put in the routing context for {@link #getFeatures} and
+   * {@link #getFeature}.
+   *
+   * @param routingContext the routing context of the request
+   */
+  public void validateFeatureQueryParams(RoutingContext routingContext) {
+    String collectionId = routingContext.pathParam("collectionId");
+    boolean items = routingContext.pathParam("featureId") == null;
+    RequestParameters paramsOasValidation = routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
+    JsonObject validatedQuery = paramsOasValidation.toJson().getJsonObject("query");
+
+    featureSchemaRegistry.get(collectionId).onSuccess(schema -> {
+      try {
+        routingContext.put(FEATURE_QUERY_PARAMS_KEY, schema.validateQueryParams(validatedQuery,
+            routingContext.queryParams(), items, geomSpecificMaxLimits));
+      } catch (OgcException e) {
+        routingContext.fail(e);
+        return;
+      }
+      routingContext.next();
+    }).onFailure(routingContext::fail);
+  }
+
+  /**
+   * Serve the OpenAPI spec of the routes of a feature collection when the parameterized OGC
+   * Features routes are used, i.e. the spec the collection would have with per-collection routes.
+   *
+   * @param routingContext the routing context of the request
+   * @param baseSpec the OGC spec whose <em>paths</em> are replaced with those of the collection
+   */
+  public void getFeatureCollectionApi(RoutingContext routingContext, JsonObject baseSpec) {
+    String collectionId = routingContext.pathParam("collectionId");
+
+    featureSchemaRegistry.get(collectionId).onSuccess(schema -> {
+      routingContext.response().putHeader(HEADER_CONTENT_TYPE, OPENAPI_V3_JSON_CONTENT_TYPE);
+      routingContext.put("response",
+          schema.generateCollectionSpec(baseSpec, geomSpecificMaxLimits).toBuffer());
+      routingContext.put("statusCode", 200);
+      routingContext.next();
+    }).onFailure(routingContext::fail);
+  }
+
   public void getCollection(RoutingContext routingContext) {
       String collectionId = routingContext.request().path().split("/")[2];
       LOGGER.debug("collectionId- {}", collectionId);
@@ -1396,32 +1459,193 @@ public class ApiServerVerticle extends AbstractVerticle {
 
     //TODO: determine tile format using 'f' query parameter
 
-    // TODO : maybe cache the bucket ID for particular collection ID + TMS, because querying DB everytime may not be great
-    // for performance
-    dbService.getTileS3BucketId(collectionId, tileMatrixSetId).compose(s3BucketId -> {
-    Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
-
-    if (conf.isEmpty()) {
-      LOGGER.error("Failed to get S3 config details - No S3Config object found for {}", s3BucketId);
-        return Future.failedFuture(new OgcException(403,
-            "Cannot fetch tile - failed to get details of bucket ID " + s3BucketId,
-            "Please contact OGC server RS Admin"));
+    boolean isDynamicTile = dynamicFeatureTiles
+        && encodingType.equalsIgnoreCase("application/vnd.mapbox-vector-tile");
+    Limits limits;
+    try {
+      limits = isDynamicTile ? getTokenLimits(routingContext) : null;
+    } catch (OgcException e) {
+      routingContext.fail(e);
+      return;
+    }
+    // generated tiles depend on the limits of the token, so tiles of tokens with limits are not shared
+    String cacheKey = limits == null ? tilesUrlString.toString()
+        : tilesUrlString + "?limits=" + BinaryUtils.toHex(AWS4SignerBase.hash(limits.toJson().encode()));
+
+    tileCache.get(cacheKey).compose(cached -> {
+      if (cached != null) {
+        sendCachedObject(routingContext, collectionId, cached);
+        return Future.succeededFuture();
       }
 
-    DataFromS3 dataFromS3 =
-        new DataFromS3(httpClient, conf.get());
+      // tiles are only generated if no tiles have been onboarded for the tile matrix set, i.e.
+      // there is no bucket for it. A tile missing from an onboarded tile set is a 404
+      return tileRoutingCache.getS3Config(collectionId, tileMatrixSetId).transform(ar -> {
+        if (ar.succeeded()) {
+          DataFromS3 dataFromS3 =
+              new DataFromS3(httpClient, ar.result());
+
+          String urlString =
+              dataFromS3.getFullyQualifiedUrlString(tilesUrlString.toString());
+          dataFromS3.setUrlFromString(urlString);
+          setConditionalHeader(routingContext, dataFromS3);
+          dataFromS3.setSignatureHeader(HttpMethod.GET);
+          return dataFromS3
+              .getDataFromS3(HttpMethod.GET)
+              .onSuccess(s3Response -> sendS3Object(routingContext, collectionId, cacheKey, s3Response))
+              .mapEmpty();
+        }
 
-    String urlString =
-        dataFromS3.getFullyQualifiedUrlString(tilesUrlString.toString());
-    dataFromS3.setUrlFromString(urlString);
-    dataFromS3.setSignatureHeader(HttpMethod.GET);
-    return dataFromS3
-        .getDataFromS3(HttpMethod.GET);
+        Throwable err = ar.cause();
+        if (!isDynamicTile || !(err instanceof OgcException)
+            || ((OgcException) err).getStatusCode() != 404) {
+          return Future.failedFuture(err);
+        }
+        return dbService.getFeatureTile(collectionId, tileMatrixSetId,
+                Integer.parseInt(tileMatrixId), Integer.parseInt(tileRow),
+                Integer.parseInt(tileCol), limits)
+            .onSuccess(tile -> sendFeatureTile(routingContext, collectionId, cacheKey,
+                tile.getBuffer("tile")))
+            .mapEmpty();
+      });
     })
-        .onSuccess(success -> success.pipeTo(response))
         .onFailure(routingContext::fail);
   }
 
+  /**
+   * Get the limits of the token for requests that do not go through the
+   * {@link ogc.rs.apiserver.handlers.TokenLimitsEnforcementHandler}.
+   *
+   * @param routingContext the routing context
+   * @return the {@link Limits}, <code>null</code> if the token has none
+   * @throws OgcException if the limits of the token are invalid
+   */
+  private static Limits getTokenLimits(RoutingContext routingContext) {
+    Limits limits = getLimitsFromContext(routingContext);
+    if (limits == null) {
+      limits = routingContext.get(TOKEN_LIMITS_KEY);
+    }
+    AuthInfo user = routingContext.get(USER_KEY);
+    if (limits == null && user != null && user.getConstraints() != null) {
+      limits = Limits.fromJson(user.getConstraints().getJsonObject("limits"));
+    }
+    return limits;
+  }
+
+  /**
+   * Send a vector tile generated from a feature collection as the response, or a 204 if there are
+   * no features in the tile. The ETag of the tile is the hash of its content, so that clients can
+   * revalidate it. Non-empty tiles are added to the tile cache.
+   *
+   * @param routingContext the routing context
+   * @param collectionId the collection the tile belongs to
+   * @param cacheKey the tile cache key of the tile
+   * @param tile the tile
+   */
+  private void sendFeatureTile(RoutingContext routingContext, String collectionId,
+      String cacheKey, Buffer tile) {
+    HttpServerResponse response = routingContext.response().setChunked(false);
+    if (tile.length() == 0) {
+      response.setStatusCode(204).end();
+      return;
+    }
+
+    String etag = "\"" + BinaryUtils.toHex(AWS4SignerBase.hash(tile.getBytes())) + "\"";
+    tileCache.put(cacheKey, tile, response.headers().get(HttpHeaders.CONTENT_TYPE), etag, null);
+    response.putHeader(HttpHeaders.CACHE_CONTROL, tileCache.getCacheControl(collectionId))
+        .putHeader(HttpHeaders.ETAG, etag);
+
+    if (TileCache.etagMatches(routingContext.request().getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+      response.setStatusCode(304).end();
+      return;
+    }
+    response.end(tile);
+  }
+
+  /**
+   * Forward the <em>If-None-Match</em> header of the request, if any, to S3, so that S3 returns a
+   * 304 instead of the object if the client already has it. Only used when the object is not in
+   * the tile cache.
+   */
+  private void setConditionalHeader(RoutingContext routingContext, DataFromS3 dataFromS3) {
+    String ifNoneMatch = routingContext.request().getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      dataFromS3.setHeader(HttpHeaders.IF_NONE_MATCH.toString(), ifNoneMatch);
+    }
+  }
+
+  /**
+   * Send an object fetched from S3 as the response, passing through its ETag and Last-Modified.
+   * Objects small enough to be cached are buffered and added to the tile cache, larger ones are
+   * piped as they are.
+   *
+   * @param routingContext the routing context
+   * @param collectionId the collection the object belongs to
+   * @param cacheKey the tile cache key of the object
+   * @param s3Response the response from S3
+   */
+  private void sendS3Object(RoutingContext routingContext, String collectionId, String cacheKey,
+      HttpClientResponse s3Response) {
+    HttpServerResponse response = routingContext.response();
+    String etag = s3Response.getHeader(HttpHeaders.ETAG);
+    String lastModified = s3Response.getHeader(HttpHeaders.LAST_MODIFIED);
+
+    response.putHeader(HttpHeaders.CACHE_CONTROL, tileCache.getCacheControl(collectionId));
+    if (etag != null) {
+      response.putHeader(HttpHeaders.ETAG, etag);
+    }
+    if (lastModified != null) {
+      response.putHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+    }
+
+    if (s3Response.statusCode() == 304) {
+      response.setChunked(false).setStatusCode(304).end();
+      return;
+    }
+
+    String contentLength = s3Response.getHeader(HttpHeaders.CONTENT_LENGTH);
+    if (contentLength == null || !tileCache.isCacheable(Long.parseLong(contentLength))) {
+      s3Response.pipeTo(response);
+      return;
+    }
+
+    s3Response.body().onSuccess(body -> {
+      tileCache.put(cacheKey, body, response.headers().get(HttpHeaders.CONTENT_TYPE), etag,
+          lastModified);
+      response.setChunked(false).end(body);
+    }).onFailure(routingContext::fail);
+  }
+
+  /**
+   * Send an object from the tile cache as the response, or a 304 if the <em>If-None-Match</em>
+   * header of the request matches its ETag.
+   *
+   * @param routingContext the routing context
+   * @param collectionId the collection the object belongs to
+   * @param cached the cached object
+   */
+  private void sendCachedObject(RoutingContext routingContext, String collectionId,
+      CachedObject cached) {
+    HttpServerResponse response = routingContext.response();
+
+    response.setChunked(false)
+        .putHeader(HttpHeaders.CONTENT_TYPE, cached.getContentType())
+        .putHeader(HttpHeaders.CACHE_CONTROL, tileCache.getCacheControl(collectionId));
+    if (cached.getEtag() != null) {
+      response.putHeader(HttpHeaders.ETAG, cached.getEtag());
+    }
+    if (cached.getLastModified() != null) {
+      response.putHeader(HttpHeaders.LAST_MODIFIED, cached.getLastModified());
+    }
+
+    if (TileCache.etagMatches(routingContext.request().getHeader(HttpHeaders.IF_NONE_MATCH),
+        cached.getEtag())) {
+      response.setStatusCode(304).end();
+      return;
+    }
+    response.end(cached.getBody());
+  }
+
   public String getEncodingFromRequest(String acceptRequestHeaders) {
     Set<String> acceptedHeaders = new HashSet<>(Set.of("*/*", "image/png", "application/vnd.mapbox-vector-tile"));
     Set<String> acceptRequestHeadersSet = new HashSet<>();
@@ -1711,250 +1935,195 @@ public class ApiServerVerticle extends AbstractVerticle {
   }
 
   public void stacCollections(RoutingContext routingContext) {
-    dbService
-        .getStacCollections()
-        .onSuccess(
-            success -> {
-              JsonArray collections = new JsonArray();
-              JsonObject nestedCollections = new JsonObject();
-              success.forEach(
-                  collection -> {
-                    try {
-                      List<JsonObject> tempArray = new ArrayList<>();
-                      tempArray.add(collection);
-                      String jsonFilePath = "docs/getStacLandingPage.json";
-                      FileSystem fileSystem = vertx.fileSystem();
-                      Buffer buffer = fileSystem.readFileBlocking(jsonFilePath);
-                      JsonObject stacMetadata = new JsonObject(buffer.toString());
-                      String stacVersion = stacMetadata.getString("stacVersion");
-                      JsonObject singleCollection = tempArray.get(0);
-                      if (singleCollection.getString("license") == null
-                          || singleCollection.getString("license").isEmpty()) {
-                        singleCollection.put("license", stacMetadata.getString("stacLicense"));
-                      }
-                      if (singleCollection.getJsonArray("temporal") == null
-                          || singleCollection.getJsonArray("temporal").isEmpty()) {
-                        singleCollection.put("temporal", new JsonArray().add(null).add(null));
-                      }
-                      singleCollection
-                          .put("type", "Collection")
-                          .put(
-                              "links",
-                              new JsonArray()
-                                  .add(createLink("root", STAC, null))
-                                  .add(createLink("parent", STAC, null))
-                                  .add(
-                                      createLink(
-                                          "self",
-                                          STAC
-                                              + "/"
-                                              + COLLECTIONS
-                                              + "/"
-                                              + collection.getString("id"),
-                                          collection.getString("title")))
-                                  .add(createLink("items", STAC + "/" + COLLECTIONS + "/" +
-                                          collection.getString("id") + "/items", "Items API to fetch items belonging " +
-                                      "to this collection"))
-                              )
-                          .put("stac_version", stacVersion)
-                          .put(
-                              "extent",
-                              new JsonObject()
-                                  .put(
-                                      "spatial",
-                                      new JsonObject()
-                                          .put(
-                                              "bbox",
-                                              new JsonArray().add(collection.getJsonArray("bbox"))))
-                                  .put(
-                                      "temporal",
-                                      new JsonObject()
-                                          .put(
-                                              "interval",
-                                              new JsonArray()
-                                                  .add(collection.getJsonArray("temporal")))));
-                      if (singleCollection.containsKey("assets")) {
-                        JsonObject assets = new JsonObject();
-
-                        singleCollection
-                            .getJsonArray("assets")
-                            .forEach(
-                                assetJson -> {
-                                  JsonObject asset = new JsonObject();
-                                  asset.mergeIn((JsonObject) assetJson);
-                                  String href =
-                                      hostName + ogcBasePath + "assets/" + asset.getString("id");
-                                  asset.put("href", href);
-                                  asset.put("file:size", asset.getInteger("size"));
-                                  asset.remove("size");
-                                  asset.remove("id");
-                                  asset.remove("stac_collections_id");
-                                  assets.put(((JsonObject) assetJson).getString("id"), asset);
-                                });
-                        singleCollection.put("assets", assets);
-                      }
-                      singleCollection.remove("bbox");
-                      singleCollection.remove("temporal");
-                      collections.add(singleCollection);
-                      nestedCollections
-                          .put("collections", collections)
-                          .put(
-                              "links",
-                              new JsonArray()
-                                  .add(createLink("root", STAC, null))
-                                  .add(createLink("parent", STAC, null))
-                                  .add(createLink("self", STAC + "/" + COLLECTIONS, null)));
-                    } catch (Exception e) {
-                      LOGGER.error("Something went wrong here: {}", e.getMessage());
-                      routingContext.put(
-                          "response",
-                          new OgcException(500, "Internal Server Error", "Something " + "broke")
-                              .getJson()
-                              .toString());
-                      routingContext.put("statusCode", 500);
-                      routingContext.next();
-                    }
-                  });
-              routingContext.put("response", nestedCollections.toString());
-              routingContext.put("statusCode", 200);
-              routingContext.next();
-            })
-        .onFailure(
-            failed -> {
-              if (failed instanceof OgcException) {
-                routingContext.put("response", ((OgcException) failed).getJson().toString());
-                routingContext.put("statusCode", 404);
-              } else {
-                routingContext.put(
-                    "response",
-                    new OgcException(500, "Internal Server Error", "Internal Server Error")
-                        .getJson()
-                        .toString());
-                routingContext.put("statusCode", 500);
-              }
-              routingContext.next();
-            });
+    stacCatalogCache.get()
+        .onSuccess(stacCatalog -> {
+          routingContext.put("response", stacCatalog.getCollections());
+          routingContext.put("statusCode", 200);
+          routingContext.next();
+        })
+        .onFailure(failed -> handleStacCatalogFailure(routingContext, failed));
   }
 
   public void stacCatalog(RoutingContext routingContext) {
-    try {
-      String jsonFilePath = "docs/getStacLandingPage.json";
-      String conformanceFilePath = "docs/stacConformance.json";
-      FileSystem fileSystem = vertx.fileSystem();
-      Buffer buffer = fileSystem.readFileBlocking(jsonFilePath);
-      Buffer conformanceBuffer = fileSystem.readFileBlocking(conformanceFilePath);
-      JsonObject stacLandingPage = new JsonObject(buffer.toString());
-      JsonObject stacConformance = new JsonObject(conformanceBuffer.toString());
-
-      String type = stacLandingPage.getString("type");
-      String description = stacLandingPage.getString("description");
-      String title = stacLandingPage.getString("title");
-      String stacVersion = stacLandingPage.getString("stacVersion");
-      String catalogId = config().getString("catalogId");
-
-      JsonArray links =
-          new JsonArray()
-              .add(createLink("root", STAC, title))
-              .add(createLink("self", STAC, title))
-              .add(
-                  new JsonObject()
-                      .put("rel", "service-desc")
-                      .put("href", hostName + ogcBasePath + "stac/api?f=json")
-                      .put("type", "application/vnd.oai.openapi+json;version=3.0")
-                      .put("title", "API definition for endpoints in JSON format"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "service-doc")
-                      .put("href", hostName + ogcBasePath + "stac/api")
-                      .put("type", "text/html")
-                      .put("title", "API definition for endpoints in HTML format"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "data")
-                      .put("href", hostName + ogcBasePath + "stac/collections")
-                      .put("type", "application/json"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "search")
-                      .put("href", hostName + ogcBasePath + "stac/search")
-                      .put("method", "GET")
-                      .put("title", "STAC Search")
-                      .put("type", "application/geo+json"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "search")
-                      .put("href", hostName + ogcBasePath + "stac/search")
-                      .put("method", "POST")
-                      .put("title", "STAC Search")
-                      .put("type", "application/geo+json"))
-              .add(
-                  new JsonObject()
-                      .put("rel", "conformance")
-                      .put("href", hostName + ogcBasePath + "stac/conformance")
-                      .put("type", "application/json")
-                      .put("title", "STAC/WFS3 conformance classes implemented by this server"));
-      dbService
-          .getStacCollections()
-          .onSuccess(
-              success -> {
-                success.forEach(
-                    collection -> {
-                      try {
-                        links.add(
-                            createLink(
-                                "child",
-                                STAC + "/" + COLLECTIONS + "/" + collection.getString("id"),
-                                collection.getString("title")));
-                      } catch (Exception e) {
-                        LOGGER.error("Something went wrong here: {}", e.getMessage());
-                        routingContext.put(
-                            "response",
-                            new OgcException(500, "Internal Server Error", "Something " + "broke")
-                                .getJson()
-                                .toString());
-                        routingContext.put("statusCode", 500);
-                        routingContext.next();
-                      }
-                    });
-                JsonObject catalog =
-                    new JsonObject()
-                        .put("type", type)
-                        .put("description", description)
-                        .put("id", catalogId)
-                        .put("stac_version", stacVersion)
-                        .put("links", links)
-                        .put("conformsTo", stacConformance.getJsonArray("conformsTo"));
-
-                routingContext.put("response", catalog.encode());
-                routingContext.put("statusCode", 200);
-                routingContext.next();
-              })
-          .onFailure(
-              failed -> {
-                if (failed instanceof OgcException) {
-                  routingContext.put("response", ((OgcException) failed).getJson().toString());
-                  routingContext.put("statusCode", 404);
-                } else {
-                  routingContext.put(
-                      "response",
-                      new OgcException(500, "Internal Server Error", "Internal Server Error")
-                          .getJson()
-                          .toString());
-                  routingContext.put("statusCode", 500);
-                }
-                routingContext.next();
-              });
+    stacCatalogCache.get()
+        .onSuccess(stacCatalog -> {
+          routingContext.put("response", stacCatalog.getCatalog());
+          routingContext.put("statusCode", 200);
+          routingContext.next();
+        })
+        .onFailure(failed -> handleStacCatalogFailure(routingContext, failed));
+  }
 
-    } catch (Exception e) {
-      LOGGER.debug("Error reading the JSON file: {}", e.getMessage());
+  private void handleStacCatalogFailure(RoutingContext routingContext, Throwable failed) {
+    if (failed instanceof OgcException) {
+      routingContext.put("response", ((OgcException) failed).getJson().toString());
+      routingContext.put("statusCode", 404);
+    } else {
       routingContext.put(
           "response",
-          new OgcException(500, "Internal Server Error", "Something " + "broke")
+          new OgcException(500, "Internal Server Error", "Internal Server Error")
               .getJson()
               .toString());
       routingContext.put("statusCode", 500);
-      routingContext.next();
     }
+    routingContext.next();
+  }
+
+  /**
+   * Build the STAC catalog and collections documents from the STAC collections in the DB. Used by
+   * the {@link StacCatalogCache}.
+   *
+   * @return future with the serialized documents
+   */
+  private Future<StacCatalog> buildStacCatalog() {
+    return dbService.getStacCollections().compose(collections ->
+        vertx.fileSystem().readFile("docs/stacConformance.json").map(conformanceBuffer -> {
+          JsonObject stacConformance = new JsonObject(conformanceBuffer.toString());
+          String title = stacMetaJson.getString("title");
+
+          JsonArray links =
+              new JsonArray()
+                  .add(createLink("root", STAC, title))
+                  .add(createLink("self", STAC, title))
+                  .add(
+                      new JsonObject()
+                          .put("rel", "service-desc")
+                          .put("href", hostName + ogcBasePath + "stac/api?f=json")
+                          .put("type", "application/vnd.oai.openapi+json;version=3.0")
+                          .put("title", "API definition for endpoints in JSON format"))
+                  .add(
+                      new JsonObject()
+                          .put("rel", "service-doc")
+                          .put("href", hostName + ogcBasePath + "stac/api")
+                          .put("type", "text/html")
+                          .put("title", "API definition for endpoints in HTML format"))
+                  .add(
+                      new JsonObject()
+                          .put("rel", "data")
+                          .put("href", hostName + ogcBasePath + "stac/collections")
+                          .put("type", "application/json"))
+                  .add(
+                      new JsonObject()
+                          .put("rel", "search")
+                          .put("href", hostName + ogcBasePath + "stac/search")
+                          .put("method", "GET")
+                          .put("title", "STAC Search")
+                          .put("type", "application/geo+json"))
+                  .add(
+                      new JsonObject()
+                          .put("rel", "search")
+                          .put("href", hostName + ogcBasePath + "stac/search")
+                          .put("method", "POST")
+                          .put("title", "STAC Search")
+                          .put("type", "application/geo+json"))
+                  .add(
+                      new JsonObject()
+                          .put("rel", "conformance")
+                          .put("href", hostName + ogcBasePath + "stac/conformance")
+                          .put("type", "application/json")
+                          .put("title", "STAC/WFS3 conformance classes implemented by this server"));
+
+          JsonArray stacCollections = new JsonArray();
+          collections.forEach(collection -> {
+            links.add(
+                createLink(
+                    "child",
+                    STAC + "/" + COLLECTIONS + "/" + collection.getString("id"),
+                    collection.getString("title")));
+            stacCollections.add(buildStacCollection(collection));
+          });
+
+          JsonObject catalog =
+              new JsonObject()
+                  .put("type", stacMetaJson.getString("type"))
+                  .put("description", stacMetaJson.getString("description"))
+                  .put("id", config().getString("catalogId"))
+                  .put("stac_version", stacMetaJson.getString("stacVersion"))
+                  .put("links", links)
+                  .put("conformsTo", stacConformance.getJsonArray("conformsTo"));
+
+          JsonObject nestedCollections =
+              new JsonObject()
+                  .put("collections", stacCollections)
+                  .put(
+                      "links",
+                      new JsonArray()
+                          .add(createLink("root", STAC, null))
+                          .add(createLink("parent", STAC, null))
+                          .add(createLink("self", STAC + "/" + COLLECTIONS, null)));
+
+          return new StacCatalog(catalog.toBuffer(), nestedCollections.toBuffer());
+        }));
+  }
+
+  /**
+   * Build the STAC collection object of a collection in the <em>/stac/collections</em> document.
+   *
+   * @param collection the collection with its aggregated assets, as returned by
+   *        {@link DatabaseService#getStacCollections()}
+   * @return the STAC collection
+   */
+  private JsonObject buildStacCollection(JsonObject collection) {
+    JsonObject singleCollection = collection.copy();
+    if (singleCollection.getString("license") == null
+        || singleCollection.getString("license").isEmpty()) {
+      singleCollection.put("license", stacMetaJson.getString("stacLicense"));
+    }
+    if (singleCollection.getJsonArray("temporal") == null
+        || singleCollection.getJsonArray("temporal").isEmpty()) {
+      singleCollection.put("temporal", new JsonArray().add(null).add(null));
+    }
+    singleCollection
+        .put("type", "Collection")
+        .put(
+            "links",
+            new JsonArray()
+                .add(createLink("root", STAC, null))
+                .add(createLink("parent", STAC, null))
+                .add(
+                    createLink(
+                        "self",
+                        STAC + "/" + COLLECTIONS + "/" + collection.getString("id"),
+                        collection.getString("title")))
+                .add(createLink("items", STAC + "/" + COLLECTIONS + "/" +
+                        collection.getString("id") + "/items", "Items API to fetch items belonging " +
+                    "to this collection")))
+        .put("stac_version", stacMetaJson.getString("stacVersion"))
+        .put(
+            "extent",
+            new JsonObject()
+                .put(
+                    "spatial",
+                    new JsonObject()
+                        .put("bbox", new JsonArray().add(singleCollection.getJsonArray("bbox"))))
+                .put(
+                    "temporal",
+                    new JsonObject()
+                        .put(
+                            "interval",
+                            new JsonArray().add(singleCollection.getJsonArray("temporal")))));
+    if (singleCollection.containsKey("assets")) {
+      JsonObject assets = new JsonObject();
+
+      singleCollection
+          .getJsonArray("assets")
+          .forEach(
+              assetJson -> {
+                JsonObject asset = new JsonObject();
+                asset.mergeIn((JsonObject) assetJson);
+                String href = hostName + ogcBasePath + "assets/" + asset.getString("id");
+                asset.put("href", href);
+                asset.put("file:size", asset.getInteger("size"));
+                asset.remove("size");
+                asset.remove("id");
+                asset.remove("stac_collections_id");
+                assets.put(((JsonObject) assetJson).getString("id"), asset);
+              });
+      singleCollection.put("assets", assets);
+    }
+    singleCollection.remove("bbox");
+    singleCollection.remove("temporal");
+    return singleCollection;
   }
 
     public void getStacCollection(RoutingContext routingContext) {
@@ -2211,54 +2380,43 @@ public class ApiServerVerticle extends AbstractVerticle {
 
   }
 
-    private String getPresignedUrlSupportForStacItemById(
-            String objectKeyName,
-            long expiry,
-            S3Config conf,
-            String userId,
-            String stacCollectionId,
-            String stacItemId,
-            String stacAssetId) {
-        try {
-      // Create AWS credentials and presigner
-      Region region = Region.of(conf.getRegion());
-      AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(conf.getAccessKey(), conf.getSecretKey());
-
-      try (S3Presigner preSigner = S3Presigner.builder()
-              .region(region)
-              .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-              .endpointOverride(URI.create(conf.getEndpoint()))
-              .serviceConfiguration(S3Configuration.builder()
-                      .pathStyleAccessEnabled(conf.isPathBasedAccess())
-                      .build())
-              .build()) {
-
-        // Create the S3 GetObjectRequest
-          GetObjectRequest.Builder objReqBuilder = GetObjectRequest.builder()
-                  .bucket(conf.getBucket())
-                  .key(objectKeyName);
-
-          objReqBuilder.overrideConfiguration(o -> {
-              if (userId != null) o.putRawQueryParameter("userId", userId);
-              if (stacCollectionId != null) o.putRawQueryParameter("collectionId", stacCollectionId);
-              if (stacItemId != null) o.putRawQueryParameter("itemId", stacItemId);
-              if (stacAssetId != null) o.putRawQueryParameter("assetId", stacAssetId);
-          });
-          GetObjectRequest objectRequest = objReqBuilder.build();
+  private String getPresignedUrlSupportForStacItemById(
+      String objectKeyName,
+      long expiry,
+      S3Config conf,
+      String userId,
+      String stacCollectionId,
+      String stacItemId,
+      String stacAssetId) {
+    try {
+      // Use the shared presigner of the bucket
+      S3Presigner preSigner = s3ClientRegistry.getPresigner(conf);
+
+      // Create the S3 GetObjectRequest
+      GetObjectRequest.Builder objReqBuilder = GetObjectRequest.builder()
+          .bucket(conf.getBucket())
+          .key(objectKeyName);
+
+      objReqBuilder.overrideConfiguration(o -> {
+        if (userId != null) o.putRawQueryParameter("userId", userId);
+        if (stacCollectionId != null) o.putRawQueryParameter("collectionId", stacCollectionId);
+        if (stacItemId != null) o.putRawQueryParameter("itemId", stacItemId);
+        if (stacAssetId != null) o.putRawQueryParameter("assetId", stacAssetId);
+      });
+      GetObjectRequest objectRequest = objReqBuilder.build();
 
-          // Calculate expiry duration (seconds)
-        long expiryDuration = expiry - Instant.now().getEpochSecond();
+      // Calculate expiry duration (seconds)
+      long expiryDuration = expiry - Instant.now().getEpochSecond();
 
-        // Create the S3 Pre-Signed URL request
-        GetObjectPresignRequest preSignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(Duration.ofSeconds(expiryDuration))
-                .getObjectRequest(objectRequest)
-                .build();
+      // Create the S3 Pre-Signed URL request
+      GetObjectPresignRequest preSignRequest = GetObjectPresignRequest.builder()
+          .signatureDuration(Duration.ofSeconds(expiryDuration))
+          .getObjectRequest(objectRequest)
+          .build();
 
-        // Generate the Pre-Signed URL
-        PresignedGetObjectRequest preSignedRequest = preSigner.presignGetObject(preSignRequest);
-        return preSignedRequest.url().toString();
-      }
+      // Generate the Pre-Signed URL
+      PresignedGetObjectRequest preSignedRequest = preSigner.presignGetObject(preSignRequest);
+      return preSignedRequest.url().toString();
     } catch (Exception e) {
       LOGGER.error("Failed to generate pre-signed URL: {}", e.getMessage());
       throw new RuntimeException("Failed to generate pre-signed URL", e);
@@ -2364,121 +2522,10 @@ public class ApiServerVerticle extends AbstractVerticle {
     RequestParameters paramsFromOasValidation = routingContext.get(ValidationHandler.REQUEST_CONTEXT_KEY);
     StacItemSearchParams searchParams = StacItemSearchParams.createFromGetRequest(paramsFromOasValidation);
 
-    // increment limit by 1 to check if more data is present for next link
-    int incrementedLimit = searchParams.getLimit() + 1;
-    searchParams.setLimit(incrementedLimit);
-
-    JsonArray commonLinksInFeature = new JsonArray()
-        .add(new JsonObject()
-            .put("rel", "root")
-            .put("type", "application/json")
-            .put("href", stacMetaJson.getString("hostname") + "/stac"));
-
-    dbService.stacItemSearch(searchParams).compose(stacItemsObject -> {
-      JsonArray stacItems = stacItemsObject.getJsonArray("features");
-
-      String currentUrl = routingContext.request().absoluteURI();
-      String firstLink = currentUrl.replaceFirst("offset=\\d+", "offset=1");
-
-      if(stacItems.isEmpty()) {
-        stacItemsObject.put("links", commonLinksInFeature
-            .add(new JsonObject()
-                .put("rel", "self")
-                .put("type", "application/json")
-                .put("href", currentUrl)));
-
-        return Future.succeededFuture(stacItemsObject);
-      }
-
-      JsonArray rootRespLinks = new JsonArray()
-          .add(new JsonObject()
-              .put("rel", "self")
-              .put("type", "application/json")
-              .put("href", currentUrl));
-
-      int returnedSize = stacItems.size();
-
-      /*
-       * if the no. of items returned is equal to the incremented limit, then at least 1 more
-       * element is present for pagination and the next link can be added
-       */
-      if (returnedSize == incrementedLimit) {
-        // calculate offset from the 2nd-last item returned
-        int offset = (stacItems.getJsonObject(returnedSize - 2).getInteger("p_id") + 1);
-
-        String nextLink;
-
-        if (currentUrl.contains("offset=")) {
-          nextLink = currentUrl.replaceFirst("offset=\\d+", "offset=" + offset);
-        } else {
-          nextLink = currentUrl + "&offset=" + offset;
-        }
-
-        // remove the last item returned since it's extra and modify number returned count
-        stacItems.remove(returnedSize - 1);
-        stacItemsObject.put("numberReturned", incrementedLimit - 1);
-
-        rootRespLinks.add(new JsonObject()
-              .put("rel", "next")
-              .put("type", "application/geo+json")
-              .put("method", "GET")
-              .put("href", nextLink));
-      }
-
-      // if not at the first page, add first link
-      if (!firstLink.equals(currentUrl)) {
-          rootRespLinks.add(new JsonObject()
-              .put("rel", "first")
-              .put("type", "application/geo+json")
-              .put("method", "GET")
-              .put("href", firstLink));
-      }
-
-      stacItemsObject.put("links", commonLinksInFeature.copy().addAll(rootRespLinks));
-
-      stacItems.forEach(stacItem -> {
-        JsonObject stacItemJson = (JsonObject) stacItem;
-        stacItemJson.remove("p_id");
-        stacItemJson.put("stac_version", stacMetaJson.getString("stacVersion"));
+    String token = paramsFromOasValidation.queryParameter("token") == null ? null
+        : paramsFromOasValidation.queryParameter("token").getString();
 
-        String collectionId = stacItemJson.getString("collection");
-
-        JsonArray allLinksInFeature = new JsonArray(commonLinksInFeature.toString());
-
-        allLinksInFeature
-            .add(new JsonObject()
-                .put("rel", "collection")
-                .put("type", "application/json")
-                .put("href", stacMetaJson.getString("hostname")
-                    + "/stac/collections/"+ collectionId))
-            .add(new JsonObject()
-                .put("rel", "parent")
-                .put("type", "application/json")
-                .put("href", stacMetaJson.getString("hostname")
-                    + "/stac/collections/"+ collectionId))
-            .add(new JsonObject()
-                .put("rel", "self")
-                .put("type", "application/json")
-                .put("href", stacMetaJson.getString("hostname")
-                    + "/stac/collections/"+ collectionId +"/items/" + stacItemJson.getString("id")));
-
-        JsonObject assets = new JsonObject();
-        assets = formatAssetObjectsAsPerStacSchema(stacItemJson.getJsonArray("assetobjects"));
-
-        stacItemJson.put("assets", assets);
-        stacItemJson.remove("assetobjects");
-
-        stacItemJson.put("links", allLinksInFeature);
-      });
-
-      return Future.succeededFuture(stacItemsObject);
-    })
-    .onSuccess(result -> {
-      routingContext.put("response", result.toString());
-      routingContext.put("statusCode", 200);
-      routingContext.next();
-    })
-    .onFailure(failed -> routingContext.fail(failed));
+    stacItemSearch(routingContext, searchParams, token, null);
   }
 
   /**
@@ -2509,9 +2556,38 @@ public class ApiServerVerticle extends AbstractVerticle {
     StacItemSearchParams searchParams =
         StacItemSearchParams.createFromPostRequest(currentBody);
 
-    // increment limit by 1 to check if more data is present for next link
-    int incrementedLimit = searchParams.getLimit() + 1;
-    searchParams.setLimit(incrementedLimit);
+    stacItemSearch(routingContext, searchParams, currentBody.getString("token"), currentBody);
+  }
+
+  /**
+   * Run a STAC Item Search and add the response to the routing context. Pages are read using
+   * keyset pagination on <em>p_id</em>; the <em>next</em> link carries a signed token holding the
+   * last <em>p_id</em> of the page (see {@link StacSearchCursor}), so every page costs the same as
+   * the first. If streaming is enabled the items are streamed from a DB cursor.
+   *
+   * @param routingContext the routing context
+   * @param searchParams the search params
+   * @param token the token from a <em>next</em> link, <code>null</code> for the first page
+   * @param postBody the body of a POST search, <code>null</code> for a GET search
+   */
+  private void stacItemSearch(RoutingContext routingContext, StacItemSearchParams searchParams,
+      String token, JsonObject postBody) {
+
+    // the default value of offset is 1 in the OpenAPI spec
+    boolean firstPage = token == null
+        && (searchParams.getOffset() == null || searchParams.getOffset() == 1);
+
+    if (token != null) {
+      try {
+        // offset is the first p_id of the page
+        searchParams.setOffset(stacSearchCursor.decode(token, searchParams) + 1);
+      } catch (OgcException e) {
+        routingContext.fail(e);
+        return;
+      }
+    }
+
+    int limit = searchParams.getLimit();
 
     JsonArray commonLinksInFeature = new JsonArray()
         .add(new JsonObject()
@@ -2519,104 +2595,44 @@ public class ApiServerVerticle extends AbstractVerticle {
             .put("type", "application/json")
             .put("href", stacMetaJson.getString("hostname") + "/stac"));
 
-    dbService.stacItemSearch(searchParams).compose(stacItemsObject -> {
-      JsonArray stacItems = stacItemsObject.getJsonArray("features");
-
-      String currentUrl = routingContext.request().absoluteURI();
-
-      if(stacItems.isEmpty()) {
-        stacItemsObject.put("links", commonLinksInFeature
-            .add(new JsonObject()
-                .put("rel", "self")
-                .put("type", "application/json")
-                .put("href", currentUrl)
-                .put("body", currentBody)));
-
-        return Future.succeededFuture(stacItemsObject);
-      }
+    if (featureStreamDbService != null) {
+      featureStreamDbService.streamStacItemSearch(searchParams, featureStreamFetchSize)
+          .onSuccess(itemStream -> {
+            itemStream
+                .featureMapper(stacItem -> formatStacSearchItem(stacItem, commonLinksInFeature))
+                .trailer(stream -> new JsonObject().put("links",
+                    stacSearchLinks(routingContext, postBody, searchParams, firstPage,
+                        stream.hasMore() ? stream.getLastId() : null, commonLinksInFeature)));
+            routingContext.put(RESPONSE_STREAM_KEY, itemStream);
+            routingContext.put("statusCode", 200);
+            routingContext.next();
+          })
+          .onFailure(failed -> routingContext.fail(failed));
+      return;
+    }
 
-      JsonArray rootRespLinks = new JsonArray()
-          .add(new JsonObject()
-              .put("rel", "self")
-              .put("type", "application/json")
-              .put("href", currentUrl)
-              .put("body", currentBody));
+    // increment limit by 1 to check if more data is present for next link
+    searchParams.setLimit(limit + 1);
 
-      int returnedSize = stacItems.size();
+    dbService.stacItemSearch(searchParams).compose(stacItemsObject -> {
+      JsonArray stacItems = stacItemsObject.getJsonArray("features");
 
       /*
-       * if the no. of items returned is equal to the incremented limit, then at least 1 more
-       * element is present for pagination and the next link can be added
+       * if the no. of items returned is more than the limit, then at least 1 more element is
+       * present for pagination and the next link can be added
        */
-      if (returnedSize == incrementedLimit) {
-        // calculate offset from the 2nd-last item returned
-        int offset = (stacItems.getJsonObject(returnedSize - 2).getInteger("p_id") + 1);
-
-        JsonObject nextBody = currentBody.copy();
-        nextBody.put("offset", offset);
-
+      Integer lastPid = null;
+      if (stacItems.size() > limit) {
         // remove the last item returned since it's extra and modify number returned count
-        stacItems.remove(returnedSize - 1);
-        stacItemsObject.put("numberReturned", incrementedLimit - 1);
-
-        rootRespLinks.add(new JsonObject()
-              .put("rel", "next")
-              .put("type", "application/geo+json")
-              .put("method", "POST")
-              .put("href", currentUrl)
-              .put("body", nextBody));
-      }
-
-      /*
-       * if not at the first page, add first link. The default value of offset is 1 in the OpenAPI
-       * spec, it will be present in the request body even if the user does not add it.
-       */
-      if (currentBody.getInteger("offset") != 1) {
-        JsonObject firstBody = currentBody.copy().put("offset", 1);
-
-          rootRespLinks.add(new JsonObject()
-              .put("rel", "first")
-              .put("type", "application/geo+json")
-              .put("method", "POST")
-              .put("href", currentUrl)
-              .put("body", firstBody));
+        stacItems.remove(limit);
+        stacItemsObject.put("numberReturned", limit);
+        lastPid = stacItems.getJsonObject(limit - 1).getInteger("p_id");
       }
 
-      stacItemsObject.put("links", commonLinksInFeature.copy().addAll(rootRespLinks));
-
-      stacItems.forEach(stacItem -> {
-        JsonObject stacItemJson = (JsonObject) stacItem;
-        stacItemJson.remove("p_id");
-
-        String collectionId = stacItemJson.getString("collection");
-
-        JsonArray allLinksInFeature = new JsonArray(commonLinksInFeature.toString());
-
-        allLinksInFeature
-            .add(new JsonObject()
-                .put("rel", "collection")
-                .put("type", "application/json")
-                .put("href", stacMetaJson.getString("hostname")
-                    + "/stac/collections/"+ collectionId))
-            .add(new JsonObject()
-                .put("rel", "parent")
-                .put("type", "application/json")
-                .put("href", stacMetaJson.getString("hostname")
-                    + "/stac/collections/"+ collectionId))
-            .add(new JsonObject()
-                .put("rel", "self")
-                .put("type", "application/json")
-                .put("href", stacMetaJson.getString("hostname")
-                    + "/stac/collections/"+ collectionId +"/items/" + stacItemJson.getString("id")));
-
-        JsonObject assets = new JsonObject();
-        assets = formatAssetObjectsAsPerStacSchema(stacItemJson.getJsonArray("assetobjects"));
-
-        stacItemJson.put("assets", assets);
-        stacItemJson.remove("assetobjects");
+      stacItemsObject.put("links", stacSearchLinks(routingContext, postBody, searchParams,
+          firstPage, lastPid, commonLinksInFeature));
 
-        stacItemJson.put("links", allLinksInFeature);
-      });
+      stacItems.forEach(stacItem -> formatStacSearchItem((JsonObject) stacItem, commonLinksInFeature));
 
       return Future.succeededFuture(stacItemsObject);
     })
@@ -2628,6 +2644,119 @@ public class ApiServerVerticle extends AbstractVerticle {
     .onFailure(failed -> routingContext.fail(failed));
   }
 
+  /**
+   * Add the links and STAC version to an item returned by STAC Item Search and format its assets.
+   *
+   * @param stacItemJson the item, modified in place
+   * @param commonLinksInFeature links added to every item
+   * @return the item
+   */
+  private JsonObject formatStacSearchItem(JsonObject stacItemJson, JsonArray commonLinksInFeature) {
+    stacItemJson.remove("p_id");
+    stacItemJson.put("stac_version", stacMetaJson.getString("stacVersion"));
+
+    String collectionId = stacItemJson.getString("collection");
+
+    JsonArray allLinksInFeature = commonLinksInFeature.copy();
+
+    allLinksInFeature
+        .add(new JsonObject()
+            .put("rel", "collection")
+            .put("type", "application/json")
+            .put("href", stacMetaJson.getString("hostname")
+                + "/stac/collections/"+ collectionId))
+        .add(new JsonObject()
+            .put("rel", "parent")
+            .put("type", "application/json")
+            .put("href", stacMetaJson.getString("hostname")
+                + "/stac/collections/"+ collectionId))
+        .add(new JsonObject()
+            .put("rel", "self")
+            .put("type", "application/json")
+            .put("href", stacMetaJson.getString("hostname")
+                + "/stac/collections/"+ collectionId +"/items/" + stacItemJson.getString("id")));
+
+    stacItemJson.put("assets", formatAssetObjectsAsPerStacSchema(stacItemJson.getJsonArray("assetobjects")));
+    stacItemJson.remove("assetobjects");
+
+    stacItemJson.put("links", allLinksInFeature);
+    return stacItemJson;
+  }
+
+  /**
+   * Build the links of a STAC Item Search response. For a POST search the links carry the request
+   * body to be sent, for a GET search the query params are in the link.
+   *
+   * @param routingContext the routing context
+   * @param postBody the body of a POST search, <code>null</code> for a GET search
+   * @param searchParams the search params
+   * @param firstPage if the response is the first page
+   * @param lastPid <em>p_id</em> of the last item of the page if there are more items,
+   *        <code>null</code> if it is the last page
+   * @param commonLinksInFeature links added to the response
+   * @return the links
+   */
+  private JsonArray stacSearchLinks(RoutingContext routingContext, JsonObject postBody,
+      StacItemSearchParams searchParams, boolean firstPage, Integer lastPid,
+      JsonArray commonLinksInFeature) {
+    String currentUrl = routingContext.request().absoluteURI();
+    JsonArray links = commonLinksInFeature.copy();
+
+    JsonObject self = new JsonObject()
+        .put("rel", "self")
+        .put("type", "application/json")
+        .put("href", currentUrl);
+    if (postBody != null) {
+      self.put("body", postBody);
+    }
+    links.add(self);
+
+    if (lastPid != null) {
+      links.add(stacSearchPageLink(routingContext, postBody, "next",
+          stacSearchCursor.encode(lastPid, searchParams)));
+    }
+
+    if (!firstPage) {
+      links.add(stacSearchPageLink(routingContext, postBody, "first", null));
+    }
+    return links;
+  }
+
+  private JsonObject stacSearchPageLink(RoutingContext routingContext, JsonObject postBody,
+      String rel, String token) {
+    JsonObject link = new JsonObject()
+        .put("rel", rel)
+        .put("type", "application/geo+json");
+
+    if (postBody != null) {
+      JsonObject body = postBody.copy();
+      body.remove("token");
+      if (token == null) {
+        body.put("offset", 1);
+      } else {
+        body.remove("offset");
+        body.put("token", token);
+      }
+      return link.put("method", "POST")
+          .put("href", routingContext.request().absoluteURI())
+          .put("body", body);
+    }
+
+    String currentUrl = routingContext.request().absoluteURI();
+    int queryStart = currentUrl.indexOf('?');
+    QueryStringEncoder pageUrl =
+        new QueryStringEncoder(queryStart < 0 ? currentUrl : currentUrl.substring(0, queryStart));
+    routingContext.queryParams().forEach((name, value) -> {
+      if (!name.equals("offset") && !name.equals("token")) {
+        pageUrl.addParam(name, value);
+      }
+    });
+    if (token != null) {
+      pageUrl.addParam("token", token);
+    }
+    return link.put("method", "GET").put("href", pageUrl.toString());
+  }
+
   public void getAssets(RoutingContext routingContext) {
     String assetId = routingContext.pathParam("assetId");
 
@@ -3029,24 +3158,15 @@ public class ApiServerVerticle extends AbstractVerticle {
                         .put("timestamp", isoTime)
                         .put("resp_size", responseSize);
 
-                meteringService.insertIntoPostgresAuditTable(postgresAuditPayload)
-                        .onComplete(pgHandler -> {
-                          if (pgHandler.failed()) {
-                            LOGGER.error("Failed to insert into Postgres metering table: ", pgHandler.cause());
+                // Queue for batched insertion into the Postgres metering table and publishing to RMQ
+                meteringService.queueAuditRecord(postgresAuditPayload, request)
+                        .onComplete(queueHandler -> {
+                          if (queueHandler.failed()) {
+                            LOGGER.error("Failed to queue metering record: ", queueHandler.cause());
                           } else {
-                            LOGGER.debug("Inserted audit record into Postgres metering table.");
+                            LOGGER.debug("Queued metering record.");
                           }
-
-                          // Publish to RabbitMQ
-                          meteringService.insertMeteringValuesInRmq(request)
-                                  .onComplete(rmqHandler -> {
-                                    if (rmqHandler.succeeded()) {
-                                      LOGGER.debug("Message published in RMQ.");
-                                    } else {
-                                      LOGGER.error("Failed to publish message in RMQ.");
-                                    }
-                                    promise.complete();
-                                  });
+                          promise.complete();
                         });
 
               } else {
@@ -3304,33 +3424,43 @@ public class ApiServerVerticle extends AbstractVerticle {
 
     HttpServerResponse response = routingContext.response();
     response.setChunked(true);
-    dbService
-        .getCoverageDetails(collectionId)
-        .compose(
-            handler -> {
-              response.putHeader(CONTENT_TYPE, COLLECTION_COVERAGE_TYPE);
+    String cacheKey = TileCache.coverageKey(collectionId);
+    tileCache.get(cacheKey).compose(cached -> {
+      if (cached != null) {
+        sendCachedObject(routingContext, collectionId, cached);
+        return Future.succeededFuture();
+      }
 
-              String s3BucketId = handler.getString("s3_bucket_id");
+      return dbService
+          .getCoverageDetails(collectionId)
+          .compose(
+              handler -> {
+                response.putHeader(CONTENT_TYPE, COLLECTION_COVERAGE_TYPE);
 
-              Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
+                String s3BucketId = handler.getString("s3_bucket_id");
 
-              if (conf.isEmpty()) {
-                LOGGER.error("Failed to get S3 config details - No S3Config object found for {}", s3BucketId);
-                return Future.failedFuture(new OgcException(403,
-                    "Cannot download asset - failed to get details of bucket ID " + s3BucketId,
-                    "Please contact OGC server RS Admin"));
-              }
+                Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
 
-              DataFromS3 dataFromS3 =
-                  new DataFromS3(httpClient, conf.get());
+                if (conf.isEmpty()) {
+                  LOGGER.error("Failed to get S3 config details - No S3Config object found for {}", s3BucketId);
+                  return Future.failedFuture(new OgcException(403,
+                      "Cannot download asset - failed to get details of bucket ID " + s3BucketId,
+                      "Please contact OGC server RS Admin"));
+                }
 
-              String urlString = dataFromS3.getFullyQualifiedUrlString(handler.getString("href"));
-              dataFromS3.setUrlFromString(urlString);
-              dataFromS3.setSignatureHeader(HttpMethod.GET);
-              return dataFromS3
-                  .getDataFromS3(HttpMethod.GET);
-              }).onSuccess(success -> success.pipeTo(response))
-                  .onFailure(routingContext::fail);
+                DataFromS3 dataFromS3 =
+                    new DataFromS3(httpClient, conf.get());
+
+                String urlString = dataFromS3.getFullyQualifiedUrlString(handler.getString("href"));
+                dataFromS3.setUrlFromString(urlString);
+                setConditionalHeader(routingContext, dataFromS3);
+                dataFromS3.setSignatureHeader(HttpMethod.GET);
+                return dataFromS3
+                    .getDataFromS3(HttpMethod.GET);
+                }).onSuccess(s3Response ->
+                  sendS3Object(routingContext, collectionId, cacheKey, s3Response))
+              .mapEmpty();
+    }).onFailure(routingContext::fail);
   }
 
   public void createStacItems(RoutingContext routingContext) {
@@ -3996,7 +4126,8 @@ public class ApiServerVerticle extends AbstractVerticle {
             routingContext.next();
             return;
           }
-          success.forEach(s3Obj -> {
+          List<Future<DeleteObjectsResponse>> deletes = new ArrayList<>();
+          for (JsonObject s3Obj : success) {
             Optional<S3Config> s3Config = s3conf.getConfigByIdentifier(s3Obj.getString("s3_bucket_id"));
             if (s3Config.isEmpty()) {
               LOGGER.error("S3 Config is not present!");
@@ -4005,18 +4136,8 @@ public class ApiServerVerticle extends AbstractVerticle {
               return;
             }
             ArrayList<ObjectIdentifier> s3ObjectNames = new ArrayList<>();
-            S3Client s3Client = S3Client.builder()
-                .region(Region.of(s3Config.get().getRegion()))
-                .endpointOverride(URI.create(s3Config.get().getEndpoint()))
-                .credentialsProvider(StaticCredentialsProvider.create(
-                    AwsBasicCredentials.create(s3Config.get().getAccessKey(), s3Config.get().getSecretKey())
-                ))
-                .serviceConfiguration(S3Configuration.builder()
-                    .pathStyleAccessEnabled(s3Config.get().isPathBasedAccess())
-                    .build())
-                .build();
 
-            s3Obj.getJsonArray("hrefs").forEach(href -> {
+            for (Object href : s3Obj.getJsonArray("hrefs")) {
               try {
                 URI hrefUri = new URI((String) href);
                 if (hrefUri.isAbsolute()) {
@@ -4033,30 +4154,32 @@ public class ApiServerVerticle extends AbstractVerticle {
                 LOGGER.error("exception!!! {}", exp.getMessage());
                 routingContext.fail(new OgcException(202, "Item deleted", "Item is deleted but actual assets are not " +
                     "deleted."));
+                return;
               }
-            });
+            }
 
             Delete del = Delete.builder()
                 .objects(s3ObjectNames)
                 .build();
-            try {
-              DeleteObjectsRequest multiObjectDeleteRequest = DeleteObjectsRequest.builder()
-                  .bucket(s3Config.get().getBucket())
-                  .delete(del)
-                  .build();
-
-              s3Client.deleteObjects(multiObjectDeleteRequest);
-            } catch (S3Exception s3e) {
-              LOGGER.error("S3 Delete Error, {}", s3e.awsErrorDetails().errorMessage());
-              routingContext.fail(new OgcException(202, "Item deleted", "Item is deleted but actual assets are not " +
-                    "deleted."));
-            }
-          });
-          if (!routingContext.failed()) {
-            routingContext.put("response", new JsonObject().put("description", "STAC Item is deleted.").toString());
-            routingContext.put("statusCode", 200);
-            routingContext.next();
+            DeleteObjectsRequest multiObjectDeleteRequest = DeleteObjectsRequest.builder()
+                .bucket(s3Config.get().getBucket())
+                .delete(del)
+                .build();
+
+            deletes.add(s3ClientRegistry.toFuture(
+                s3ClientRegistry.getClient(s3Config.get()).deleteObjects(multiObjectDeleteRequest)));
           }
+          Future.all(deletes)
+              .onSuccess(deleted -> {
+                routingContext.put("response", new JsonObject().put("description", "STAC Item is deleted.").toString());
+                routingContext.put("statusCode", 200);
+                routingContext.next();
+              })
+              .onFailure(s3e -> {
+                LOGGER.error("S3 Delete Error, {}", s3e.getMessage());
+                routingContext.fail(new OgcException(202, "Item deleted", "Item is deleted but actual assets are not " +
+                    "deleted."));
+              });
         })
         .onFailure(failed -> {
           if (failed instanceof OgcException) {
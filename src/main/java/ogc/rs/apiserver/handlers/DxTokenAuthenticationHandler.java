@@ -13,6 +13,9 @@ import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.ext.web.handler.AuthenticationHandler;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.apiserver.util.AuthInfo;
+import ogc.rs.apiserver.util.Limits;
+import ogc.rs.apiserver.util.VerifiedTokenCache;
+import ogc.rs.apiserver.util.VerifiedTokenCache.VerifiedToken;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -24,10 +27,13 @@ import static ogc.rs.apiserver.util.Constants.*;
 public class DxTokenAuthenticationHandler implements AuthenticationHandler {
   private static final Logger LOGGER = LogManager.getLogger(DxTokenAuthenticationHandler.class);
   public static final String USER_KEY = "userKey";
+  /* parsed limits of the token, put in the context if the token has valid limits */
+  public static final String TOKEN_LIMITS_KEY = "tokenLimits";
 
   Vertx vertx;
   private WebClient webClient;
   private static JWTAuth jwtAuth;
+  private final VerifiedTokenCache tokenCache;
 
   static WebClient createWebClient(Vertx vertx, JsonObject config) {
     return createWebClient(vertx, config, false);
@@ -44,6 +50,7 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
 
   public DxTokenAuthenticationHandler(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
+    this.tokenCache = VerifiedTokenCache.getOrCreate(vertx, config);
     getJwtPublicKey(vertx, config)
         .onSuccess(
             handler -> {
@@ -139,6 +146,13 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
     
     String token = parts[1];
 
+      VerifiedToken cached = tokenCache.get(token);
+      if (cached != null) {
+          setUser(routingContext, cached);
+          routingContext.next();
+          return;
+      }
+
       jwtAuth.authenticate(
               new JsonObject().put("token", token),
               res -> {
@@ -148,7 +162,7 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
                       String accessToken = res.result().principal().getString("access_token");
                       tokenDetails.put("access_token", accessToken);
                       AuthInfo user = AuthInfo.createUser(tokenDetails);
-                      routingContext.put(USER_KEY, user);
+                      setUser(routingContext, tokenCache.put(token, user, parseLimits(user)));
                       LOGGER.debug("the user key: " + routingContext.get(USER_KEY).toString());
                       routingContext.next();
                   } else {
@@ -158,4 +172,31 @@ public class DxTokenAuthenticationHandler implements AuthenticationHandler {
               });
 
   }
+
+  private static void setUser(RoutingContext routingContext, VerifiedToken verified) {
+    routingContext.put(USER_KEY, verified.getUser());
+    if (verified.getLimits() != null) {
+      routingContext.put(TOKEN_LIMITS_KEY, verified.getLimits());
+    }
+  }
+
+  /**
+   * Parse the limits of a token once, so that they are cached with the token. Invalid limits are
+   * not cached, and fail the request when they are parsed again by the
+   * {@link TokenLimitsEnforcementHandler}.
+   *
+   * @param user the user created from the token
+   * @return the {@link Limits}, <code>null</code> if the token has none or they are invalid
+   */
+  private static Limits parseLimits(AuthInfo user) {
+    if (user.getConstraints() == null) {
+      return null;
+    }
+    try {
+      return Limits.fromJson(user.getConstraints().getJsonObject("limits"));
+    } catch (RuntimeException e) {
+      LOGGER.debug("Invalid limits in token: {}", e.getMessage());
+      return null;
+    }
+  }
 }
@@ -26,7 +26,7 @@ public class OgcFeaturesAuthZHandler implements Handler<RoutingContext> {
 
   public OgcFeaturesAuthZHandler(Vertx vertx) {
     this.vertx = vertx;
-    this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+    this.databaseService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
   }
 
   /**
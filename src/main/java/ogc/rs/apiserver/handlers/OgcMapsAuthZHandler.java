@@ -40,7 +40,7 @@ public class OgcMapsAuthZHandler implements Handler<RoutingContext> {
 
   public OgcMapsAuthZHandler(Vertx vertx, JsonObject config) {
     this.config = config;
-    this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+    this.databaseService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
     this.catItemWebClient =
         WebClient.create(
             vertx,
@@ -21,7 +21,7 @@ public class StacAssetsAuthZHandler implements Handler<RoutingContext> {
   private final DatabaseService databaseService;
 
   public StacAssetsAuthZHandler(Vertx vertx) {
-    this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+    this.databaseService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
   }
 
   /**
@@ -27,8 +27,8 @@ public class StacCollectionOnboardingAuthZHandler implements Handler<RoutingCont
 
     public StacCollectionOnboardingAuthZHandler(Vertx vertx, JsonObject config) {
 
-        this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
-        catalogueService = new CatalogueService(vertx, config);
+        this.databaseService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
+        catalogueService = CatalogueService.getOrCreate(vertx, config);
     }
 
     /**
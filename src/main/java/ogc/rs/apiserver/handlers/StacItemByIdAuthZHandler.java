@@ -34,7 +34,7 @@ public class StacItemByIdAuthZHandler implements Handler<RoutingContext> {
      */
     public StacItemByIdAuthZHandler(Vertx vertx) {
         this.vertx = vertx;
-        this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+        this.databaseService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
     }
 
     /**
@@ -25,7 +25,7 @@ public class StacItemOnboardingAuthZHandler implements Handler<RoutingContext> {
 
   public StacItemOnboardingAuthZHandler(Vertx vertx) {
 
-    this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+    this.databaseService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
   }
 
   /**
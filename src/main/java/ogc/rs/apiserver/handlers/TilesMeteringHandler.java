@@ -36,12 +36,12 @@ public class TilesMeteringHandler implements Handler<Void> {
    *     <p>A periodic task is scheduled every 2 seconds, which: - Retrieves the shared data map
    *     (LocalMap) storing metering information. - Iterates through each entry in the map: -
    *     Removes the entry after retrieving its value. - Logs the removed entry and its value. -
-   *     Publishes the metering data (converted to JSON) to RMQ. - Logs success or failure for each
-   *     message published to RMQ.
+   *     Queues the metering data (converted to JSON) for the metering table and RMQ. - Logs
+   *     failure for each message that could not be queued.
    */
   public TilesMeteringHandler(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
-    this.catalogueService = new CatalogueService(vertx, config);
+    this.catalogueService = CatalogueService.getOrCreate(vertx, config);
     this.meteringService = MeteringService.createProxy(vertx, METERING_SERVICE_ADDRESS);
     this.meteringDataMap = vertx.sharedData().getLocalMap("MeteringDataMap");
 
@@ -65,17 +65,11 @@ public class TilesMeteringHandler implements Handler<Void> {
                                           .put("timestamp", meteringJson.getString("isoTime"))
                                           .put("resp_size", meteringJson.getLong("response_size"));
 
-                                  // First insert into Postgres
+                                  // Queue for batched insertion into Postgres and publishing to RMQ
                                   meteringService
-                                          .insertIntoPostgresAuditTable(formattedJson)
-                                          .onSuccess(r -> LOGGER.debug("Inserted into Postgres metering table"))
-                                          .onFailure(e -> LOGGER.error("Failed to insert into Postgres metering table", e));
-
-                                  // Then publish to RMQ
-                                  meteringService
-                                          .insertMeteringValuesInRmq(meteringJson)
-                                          .onSuccess(r -> LOGGER.debug("Message published in RMQ"))
-                                          .onFailure(e -> LOGGER.error("Failed to publish message in RMQ", e));
+                                          .queueAuditRecord(formattedJson, meteringJson)
+                                          .onSuccess(r -> LOGGER.debug("Queued metering record"))
+                                          .onFailure(e -> LOGGER.error("Failed to queue metering record", e));
 
                               } else {
                                   LOGGER.error(this + " NOT removed " + key);
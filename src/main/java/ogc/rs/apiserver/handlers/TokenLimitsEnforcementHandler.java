@@ -7,6 +7,7 @@ import io.vertx.ext.web.RoutingContext;
 import ogc.rs.apiserver.util.AuthInfo;
 import ogc.rs.apiserver.util.Limits;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.apiserver.util.UsageCounters;
 import ogc.rs.database.DatabaseService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,6 +15,7 @@ import org.apache.logging.log4j.Logger;
 import java.util.List;
 import java.util.Map;
 
+import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.TOKEN_LIMITS_KEY;
 import static ogc.rs.apiserver.handlers.DxTokenAuthenticationHandler.USER_KEY;
 import static ogc.rs.apiserver.util.Constants.*;
 import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
@@ -27,7 +29,8 @@ import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
  * - Bounding box limits (bbox constraints)
  * - Feature access limits (collectionId -> featureIds mapping)
  * <p>
- * The limits are applied from the policy issued-at timestamp (iat) defined in the token.
+ * The limits are applied from the policy issued-at timestamp (iat) defined in the token. Data usage
+ * and API hits are read from the running totals kept by {@link UsageCounters}.
  */
 public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
     private static final Logger LOGGER = LogManager.getLogger(TokenLimitsEnforcementHandler.class);
@@ -35,15 +38,18 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
 
     Vertx vertx;
     private final DatabaseService databaseService;
+    private final UsageCounters usageCounters;
 
     /**
      * Constructs the handler with a Vert.x instance and initializes a proxy for DatabaseService.
      *
      * @param vertx Vertx instance used to create service proxies.
+     * @param config the API server verticle config, used to configure the usage counters.
      */
-    public TokenLimitsEnforcementHandler(Vertx vertx) {
+    public TokenLimitsEnforcementHandler(Vertx vertx, JsonObject config) {
         this.vertx = vertx;
-        this.databaseService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+        this.databaseService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
+        this.usageCounters = UsageCounters.getOrCreate(vertx, config);
     }
 
     /**
@@ -70,9 +76,12 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
         String collectionId = user.getResourceId().toString();
         String apiPath = routingContext.normalizedPath();
 
-        // Parse limits
+        // Parse limits, unless already parsed when the token was verified
         JsonObject limitsJson = user.getConstraints().getJsonObject("limits");
-        Limits limits = Limits.fromJson(limitsJson);
+        Limits limits = routingContext.get(TOKEN_LIMITS_KEY);
+        if (limits == null) {
+            limits = Limits.fromJson(limitsJson);
+        }
         if (limits == null) {
             routingContext.next();
             return;
@@ -90,9 +99,9 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
             switch (key) {
                 case "dataUsage":
                     long limitInBytes = limits.getDataUsageLimitInBytes();
-                    databaseService.getTotalDataUsage(userId, apiPath, collectionId, policyIssuedAt)
-                            .onSuccess(dataUsage -> {
-                                if (dataUsage > limitInBytes) {
+                    usageCounters.getUsage(userId, apiPath, collectionId, policyIssuedAt)
+                            .onSuccess(usage -> {
+                                if (usage.getDataUsage() > limitInBytes) {
                                     routingContext.fail(new OgcException(429, TOO_MANY_REQUESTS, DATA_USAGE_LIMIT_EXCEEDED));
                                 } else {
                                     routingContext.next();
@@ -107,9 +116,9 @@ public class TokenLimitsEnforcementHandler implements Handler<RoutingContext> {
 
                 case "apiHits":
                     long apiHitsLimit = limits.getApiHitsLimit();
-                    databaseService.getTotalApiHits(userId, apiPath, collectionId, policyIssuedAt)
-                            .onSuccess(apiHits -> {
-                                if (apiHits > apiHitsLimit) {
+                    usageCounters.getUsage(userId, apiPath, collectionId, policyIssuedAt)
+                            .onSuccess(usage -> {
+                                if (usage.getApiHits() > apiHitsLimit) {
                                     routingContext.fail(new OgcException(429, TOO_MANY_REQUESTS, API_CALLS_LIMIT_EXCEEDED));
                                 } else {
                                     routingContext.next();
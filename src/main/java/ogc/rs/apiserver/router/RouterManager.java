@@ -2,12 +2,20 @@ package ogc.rs.apiserver.router;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.CopyOptions;
 import io.vertx.core.file.FileSystem;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.Lock;
@@ -16,6 +24,7 @@ import io.vertx.json.schema.JsonSchema;
 import io.vertx.json.schema.JsonSchemaOptions;
 import io.vertx.json.schema.OutputUnit;
 import io.vertx.json.schema.Validator;
+import io.vertx.micrometer.backends.BackendRegistries;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.pubsub.PgSubscriber;
 import ogc.rs.apiserver.ApiServerVerticle;
@@ -24,6 +33,7 @@ import ogc.rs.apiserver.router.routerbuilders.DxMeteringRouterBuilder;
 import ogc.rs.apiserver.router.routerbuilders.OgcRouterBuilder;
 import ogc.rs.apiserver.router.routerbuilders.StacRouterBuilder;
 import ogc.rs.apiserver.router.util.OasFragments;
+import ogc.rs.apiserver.router.util.OasSpec;
 import ogc.rs.database.DatabaseService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,8 +44,22 @@ import static ogc.rs.common.Constants.*;
  * based on the spec. <br>
  * Both operations can be triggered by any component in the system by calling
  * {@link RouterManager#TRIGGER_SPEC_UPDATE_AND_ROUTER_REGEN_SQL} and executing the given string as
- * a query.
- * 
+ * a query. <br>
+ * The generated specs are kept in memory and only the paths of new collections are added to them
+ * on a refresh. By default, routers are also updated incrementally, i.e. routers are only built for
+ * the new paths and added to the existing ones. Incremental updates are configured using the
+ * <em>routerRegeneration</em> config block:
+ *
+ * <pre>
+ * "routerRegeneration" : {
+ *   "incremental" : true,
+ *   "maxIncrementalUpdates" : 50
+ * }
+ * </pre>
+ *
+ * After <em>maxIncrementalUpdates</em> incremental updates all routers are rebuilt, so that the
+ * number of sub-routers in an {@link ApiServerVerticle} stays bounded. The time taken by every
+ * regeneration is recorded in the <em>ogc.router.regeneration.duration</em> metric.
  */
 public class RouterManager {
 
@@ -44,7 +68,9 @@ public class RouterManager {
   private static final long PG_CHANNEL_CONN_INTERVAL_MS = 5000;
 
   /**
-   * Get an SQL query to force a spec update and router. param can be any string for now.
+   * Get an SQL query to force a spec update and router. param is the ID of the collection that was
+   * onboarded or updated, so that only its cached tiles are invalidated. Any other string
+   * invalidates the cached tiles of all collections.
    */
   public static final Function<String, String> TRIGGER_SPEC_UPDATE_AND_ROUTER_REGEN_SQL =
       (param) -> "NOTIFY " + SPEC_AND_ROUTER_UPDATE_PG_CHANNEL + ", '" + param + "'";
@@ -57,6 +83,17 @@ public class RouterManager {
   private static final String STAC_OAS_TEMPLATE_PATH = "docs/stacopenapiv3_0.json";
   public static final String STAC_OAS_REAL_PATH =
       System.getProperty("java.io.tmpdir") + "/stacSpec.json";
+  private static final String OGC_OAS_DELTA_PATH =
+      System.getProperty("java.io.tmpdir") + "/ogcSpecDelta.json";
+  private static final String STAC_OAS_DELTA_PATH =
+      System.getProperty("java.io.tmpdir") + "/stacSpecDelta.json";
+
+  public static final String CONFIG_KEY = "routerRegeneration";
+  private static final int DEFAULT_MAX_INCREMENTAL_UPDATES = 50;
+
+  private static final String MODE_FULL = "full";
+  private static final String MODE_INCREMENTAL = "incremental";
+  private static final String MODE_NONE = "none";
 
   private static final Logger LOGGER = LogManager.getLogger(RouterManager.class);
 
@@ -64,11 +101,37 @@ public class RouterManager {
   private JsonObject config;
   private List<ApiServerVerticle> apiServerVerticleInstances = new ArrayList<ApiServerVerticle>();
   private Validator openApiValidator;
+  private MeterRegistry registry;
+
+  private final boolean incrementalUpdatesEnabled;
+  private final int maxIncrementalUpdates;
+  /* number of incremental updates since the last full rebuild of the routers */
+  private int incrementalUpdates = 0;
+
+  /*
+   * true while a refresh is waiting for SPEC_UPDATE_LOCK. Since a refresh reads all collections
+   * after getting the lock, further notifications received meanwhile are covered by it.
+   */
+  private boolean refreshPending = false;
+
+  /* generated specs, only accessed while holding SPEC_UPDATE_LOCK */
+  private OasSpec ogcSpec;
+  private OasSpec stacSpec;
 
   public RouterManager(Vertx vertx, JsonObject config) {
     this.vertx = vertx;
     this.config = config;
 
+    JsonObject regenConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+    incrementalUpdatesEnabled = regenConfig.getBoolean("incremental", true);
+    maxIncrementalUpdates =
+        regenConfig.getInteger("maxIncrementalUpdates", DEFAULT_MAX_INCREMENTAL_UPDATES);
+
+    registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      registry = new SimpleMeterRegistry();
+    }
+
     JsonSchema openApiSchema =
         JsonSchema.of(vertx.fileSystem().readFileBlocking("openApiJsonSchema.json").toJsonObject());
 
@@ -114,9 +177,11 @@ public class RouterManager {
 
   /**
    * Generates the OGC and STAC OpenAPI specs from the templates and initializes the routers for all
-   * instances of {@link ApiServerVerticle} on startup.
+   * instances of {@link ApiServerVerticle} on startup. The generated specs are kept in memory as
+   * {@link OasSpec}s and updated on every refresh.
    */
   private void genOasAndInitRouterFirstTime() {
+    long start = System.nanoTime();
     FileSystem fs = vertx.fileSystem();
     String ogcOasTemplateStr = fs.readFileBlocking(OGC_OAS_TEMPLATE_PATH).toString();
     String stacOasTemplateStr = fs.readFileBlocking(STAC_OAS_TEMPLATE_PATH).toString();
@@ -128,28 +193,26 @@ public class RouterManager {
     JsonObject ogcOasTemplate = new JsonObject(ogcOasTemplateStr);
     JsonObject stacOasTemplate = new JsonObject(stacOasTemplateStr);
 
-    DatabaseService dbService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
-
-    /* Load all implementations of the GisEntityInterface using SPI */
-    ServiceLoader<GisEntityInterface> loader = ServiceLoader.load(GisEntityInterface.class);
-
-    List<Future<OasFragments>> oasFragmentsListFut =
-        loader.stream().map(entity -> entity.get().generateNewSpecFragments(ogcOasTemplate,
-            stacOasTemplate, dbService, config)).collect(Collectors.toList());
-
-    Future<Void> createSpecsAndSetRouters = Future.all(oasFragmentsListFut).compose(futuresResult -> {
+    ogcSpec = new OasSpec(ogcOasTemplate);
+    stacSpec = new OasSpec(stacOasTemplate);
 
-      List<OasFragments> oasFragmentsList = futuresResult.list();
+    Future<Lock> lock =
+        vertx.sharedData().getLocalLockWithTimeout(SPEC_UPDATE_LOCK, Long.MAX_VALUE);
 
-      return updateAndWriteSpecFiles(oasFragmentsList, ogcOasTemplate, stacOasTemplate)
-          .compose(res -> buildAndUpdateRoutersInApiServInstances());
-    });
+    Future<Void> createSpecsAndSetRouters = lock
+        .compose(res -> generateNewSpecFragments())
+        .compose(fragments -> fullUpdate(fragments.getOgc(), fragments.getStac()));
         
     createSpecsAndSetRouters.onSuccess(succ -> {
       LOGGER.info(
           "Generated specs from templates and initialized routers in all ApiServerVerticles successfully");
     }).onFailure(err -> {
       LOGGER.fatal("Failed to generate specs and initialize routers {}", err.getMessage());
+    }).onComplete(res -> {
+      recordRegeneration(start, MODE_FULL, res.succeeded());
+      if (lock.succeeded()) {
+        lock.result().release();
+      }
     });
 
     return;
@@ -157,46 +220,191 @@ public class RouterManager {
 
   /**
    * Refreshes the OGC and STAC OpenAPI specs and regenerates routers for all instances of
-   * {@link ApiServerVerticle}.
-   * 
+   * {@link ApiServerVerticle}. The whole operation is done using a lock, so that concurrent
+   * refreshes are done one after the other on the latest version of the specs. <br>
+   * If incremental updates are enabled, routers are only built for the paths of new collections
+   * and added to the existing routers, see {@link #incrementalUpdate(JsonObject, JsonObject)}.
+   * All routers are rebuilt if paths of existing collections are changed, if new paths would be
+   * routed to an existing parameterized route (e.g. <em>/stac/collections/{collectionId}</em>) or
+   * if the configured
+   * number of incremental updates since the last full rebuild has been reached.
    */
   private void refreshSpecsAndRegenRouters() {
-    FileSystem fs = vertx.fileSystem();
-
-    if (!fs.existsBlocking(OGC_OAS_REAL_PATH) || !fs.existsBlocking(STAC_OAS_REAL_PATH)) {
+    if (ogcSpec == null || stacSpec == null) {
       LOGGER.error(
-          "Cannot refresh OpenAPI spec and routers - generated OpenAPI spec files are not present at path");
+          "Cannot refresh OpenAPI spec and routers - OpenAPI specs have not been generated yet");
       return;
     }
 
-    JsonObject ogcOasFile = fs.readFileBlocking(OGC_OAS_REAL_PATH).toJsonObject();
-    JsonObject stacOasFile = fs.readFileBlocking(STAC_OAS_REAL_PATH).toJsonObject();
+    if (refreshPending) {
+      LOGGER.debug("Spec refresh already pending, not queueing another one");
+      return;
+    }
+    refreshPending = true;
 
-    DatabaseService dbService = DatabaseService.createProxy(vertx, DATABASE_SERVICE_ADDRESS);
+    long start = System.nanoTime();
+    String[] mode = {MODE_FULL};
 
-    /* Load all implementations of the GisEntityInterface using SPI */
-    ServiceLoader<GisEntityInterface> loader = ServiceLoader.load(GisEntityInterface.class);
+    /* wait for an ongoing refresh however long it takes, a timeout would lose this refresh */
+    Future<Lock> lock = vertx.sharedData().getLocalLockWithTimeout(SPEC_UPDATE_LOCK, Long.MAX_VALUE)
+        .onComplete(res -> refreshPending = false);
 
-    List<Future<OasFragments>> oasFragmentsListFut = loader.stream().map(
-        entity -> entity.get().generateNewSpecFragments(ogcOasFile, stacOasFile, dbService, config))
-        .collect(Collectors.toList());
+    lock.compose(res -> {
+      LOGGER.debug("Got lock to update latest versions of both specs and routers");
+      return generateNewSpecFragments();
+    }).compose(fragments -> {
 
-    Future.all(oasFragmentsListFut).compose(futuresResult -> {
+      JsonObject newOgcPaths = OasSpec.collectPaths(fragments.getOgc());
+      JsonObject newStacPaths = OasSpec.collectPaths(fragments.getStac());
+
+      if (newOgcPaths.isEmpty() && newStacPaths.isEmpty()) {
+        LOGGER.info("No new paths to add to specs, routers are not updated");
+        mode[0] = MODE_NONE;
+        return Future.succeededFuture();
+      }
 
-      List<OasFragments> result = futuresResult.list();
+      if (incrementalUpdatesEnabled && incrementalUpdates < maxIncrementalUpdates
+          && !ogcSpec.hasAnyPath(newOgcPaths) && !stacSpec.hasAnyPath(newStacPaths)
+          && !ogcSpec.matchesParameterizedPath(newOgcPaths)
+          && !stacSpec.matchesParameterizedPath(newStacPaths)) {
+        mode[0] = MODE_INCREMENTAL;
+        return incrementalUpdate(newOgcPaths, newStacPaths);
+      }
 
-      return updateExistingSpecFiles(result)
-          .compose(res -> buildAndUpdateRoutersInApiServInstances());
+      return fullUpdate(fragments.getOgc(), fragments.getStac());
 
     }).onSuccess(i -> {
-      LOGGER.info("Refreshed specs and regenerated routers in all ApiServerVerticles successfully");
+      LOGGER.info("Refreshed specs and regenerated routers in all ApiServerVerticles successfully ({})",
+          mode[0]);
     }).onFailure(err -> {
       LOGGER.fatal("Failed to refresh specs and regenerate routers : {}", err.getMessage());
+    }).onComplete(res -> {
+      if (!MODE_NONE.equals(mode[0])) {
+        recordRegeneration(start, mode[0], res.succeeded());
+      }
+      if (lock.succeeded()) {
+        lock.result().release();
+      }
     });
 
     return;
   }
 
+  /**
+   * Get spec fragments of new collections from all implementations of {@link GisEntityInterface},
+   * using the in-memory specs.
+   *
+   * @return the OGC and STAC fragments of all GIS entities
+   */
+  private Future<OasFragments> generateNewSpecFragments() {
+    DatabaseService dbService = DatabaseService.createLocalOrProxy(vertx, DATABASE_SERVICE_ADDRESS);
+
+    /* Load all implementations of the GisEntityInterface using SPI */
+    ServiceLoader<GisEntityInterface> loader = ServiceLoader.load(GisEntityInterface.class);
+
+    List<Future<OasFragments>> oasFragmentsListFut = loader.stream()
+        .map(entity -> entity.get().generateNewSpecFragments(ogcSpec.getSpec(),
+            stacSpec.getSpec(), dbService, config))
+        .collect(Collectors.toList());
+
+    return Future.all(oasFragmentsListFut).map(futuresResult -> {
+      List<OasFragments> fragmentsList = futuresResult.list();
+
+      OasFragments allFragments = new OasFragments();
+      allFragments.setOgc(fragmentsList.stream().flatMap(i -> i.getOgc().stream())
+          .collect(Collectors.toList()));
+      allFragments.setStac(fragmentsList.stream().flatMap(i -> i.getStac().stream())
+          .collect(Collectors.toList()));
+      return allFragments;
+    });
+  }
+
+  /**
+   * Add the fragments to the specs, write the spec files and rebuild the OGC, STAC and metering
+   * routers of all {@link ApiServerVerticle} instances.
+   *
+   * @param ogcFrags the OGC fragments
+   * @param stacFrags the STAC fragments
+   * @return future completed once the routers have been replaced
+   */
+  private Future<Void> fullUpdate(List<JsonObject> ogcFrags, List<JsonObject> stacFrags) {
+    JsonObject newOgcSpec = ogcSpec.withPaths(OasSpec.collectPaths(ogcFrags));
+    JsonObject newStacSpec = stacSpec.withPaths(OasSpec.collectPaths(stacFrags));
+
+    return validateAndWriteSpecFiles(newOgcSpec, OGC_OAS_REAL_PATH, newStacSpec,
+        STAC_OAS_REAL_PATH).compose(res -> {
+          ogcSpec.setSpec(newOgcSpec);
+          stacSpec.setSpec(newStacSpec);
+          return buildAndUpdateRoutersInApiServInstances();
+        }).onSuccess(res -> incrementalUpdates = 0);
+  }
+
+  /**
+   * Build OGC and STAC routers for only the new paths and add them to the routers of all
+   * {@link ApiServerVerticle} instances. The routers are built from delta specs having the static
+   * template paths and the new paths (see {@link OasSpec#deltaSpec(JsonObject)}), so the cost does
+   * not depend on the number of existing collections. The existing routers are matched first, so
+   * the static routes of the new routers are never used. <br>
+   * The new paths are then added to the in-memory specs and the full spec files are written.
+   *
+   * @param newOgcPaths the new OGC paths
+   * @param newStacPaths the new STAC paths
+   * @return future completed once the routers have been added
+   */
+  private Future<Void> incrementalUpdate(JsonObject newOgcPaths, JsonObject newStacPaths) {
+    LOGGER.debug("Adding routes for {} new OGC paths and {} new STAC paths", newOgcPaths.size(),
+        newStacPaths.size());
+
+    JsonObject ogcDeltaSpec = ogcSpec.deltaSpec(newOgcPaths);
+    JsonObject stacDeltaSpec = stacSpec.deltaSpec(newStacPaths);
+
+    return validateAndWriteSpecFiles(ogcDeltaSpec, OGC_OAS_DELTA_PATH, stacDeltaSpec,
+        STAC_OAS_DELTA_PATH).compose(res -> {
+
+          List<Future<Void>> updateInstancesFut =
+              apiServerVerticleInstances.stream().map(instance -> {
+
+                Future<Router> ogc = newOgcPaths.isEmpty() ? Future.succeededFuture()
+                    : OgcRouterBuilder.create(instance, vertx, config, OGC_OAS_DELTA_PATH)
+                        .map(OgcRouterBuilder::getRouter);
+                Future<Router> stac = newStacPaths.isEmpty() ? Future.succeededFuture()
+                    : StacRouterBuilder.create(instance, vertx, config, STAC_OAS_DELTA_PATH)
+                        .map(StacRouterBuilder::getRouter);
+
+                return Future.all(ogc, stac).compose(built -> {
+                  instance.addRouters(Stream.of(ogc.result(), stac.result())
+                      .filter(Objects::nonNull).collect(Collectors.toList()));
+                  return Future.<Void>succeededFuture();
+                });
+              }).collect(Collectors.toList());
+
+          return Future.all(updateInstancesFut);
+        }).compose(res -> {
+          incrementalUpdates++;
+          ogcSpec.setSpec(ogcSpec.withPaths(newOgcPaths));
+          stacSpec.setSpec(stacSpec.withPaths(newStacPaths));
+          return encodeAndWriteSpecFiles(ogcSpec.getSpec(), OGC_OAS_REAL_PATH,
+              stacSpec.getSpec(), STAC_OAS_REAL_PATH);
+        });
+  }
+
+  /**
+   * Record the time taken to regenerate specs and routers.
+   *
+   * @param start start time from {@link System#nanoTime()}
+   * @param mode {@value #MODE_FULL} or {@value #MODE_INCREMENTAL}
+   * @param succeeded if the regeneration succeeded
+   */
+  private void recordRegeneration(long start, String mode, boolean succeeded) {
+    long elapsed = System.nanoTime() - start;
+    Timer.builder("ogc.router.regeneration.duration").tag("mode", mode)
+        .tag("outcome", succeeded ? "success" : "failure")
+        .description("Time taken to regenerate OpenAPI specs and routers").register(registry)
+        .record(elapsed, TimeUnit.NANOSECONDS);
+    LOGGER.info("Spec and router regeneration ({}) took {} ms", mode,
+        TimeUnit.NANOSECONDS.toMillis(elapsed));
+  }
+
   /**
    * Set up Postgres LISTEN/NOTIFY channel to allow the {@link RouterManager} to be notified when a
    * router/spec update needs to be done.
@@ -218,6 +426,8 @@ public class RouterManager {
     PgSubscriber subl = PgSubscriber.subscriber(vertx, connectOptions);
 
     subl.channel(SPEC_AND_ROUTER_UPDATE_PG_CHANNEL).handler(payload -> {
+      // collections have been onboarded or updated, so cached collection metadata may be stale
+      vertx.eventBus().publish(COLLECTION_METADATA_INVALIDATION_ADDRESS, payload);
       refreshSpecsAndRegenRouters();
     });
 
@@ -250,7 +460,7 @@ public class RouterManager {
    * Build routers using generated OpenAPI specs and update routers in all {@link ApiServerVerticle}
    * instances.
    * 
-   * @return
+   * @return succeeded future if routers of all instances were reset, else failed future
    */
   private Future<Void> buildAndUpdateRoutersInApiServInstances() {
     LOGGER.debug("Updating routers in all ApiServerVerticle instances");
@@ -306,96 +516,84 @@ public class RouterManager {
   }
 
   /**
-   * Update existing OpenAPI spec files. The spec files are read once again before updating and
-   * writing back to the file system in case the spec was updated beforehand. The whole operation is
-   * done using a lock to prevent race conditions.
-   * 
-   * @param fragments the list of {@link OasFragments}
-   * @return
+   * Validate the OGC and STAC specs using
+   * {@link RouterManager#validateGeneratedSpec(JsonObject)} and write them to the given paths.
+   * Validating and encoding a spec having many collections takes long, so both are done on a
+   * worker thread.
+   *
+   * @param ogc the OGC spec JSON
+   * @param ogcPath path to write the OGC spec to
+   * @param stac the STAC spec JSON
+   * @param stacPath path to write the STAC spec to
+   * @return succeeded future if both specs are valid and were written, else failed future
    */
-  private Future<Void> updateExistingSpecFiles(List<OasFragments> fragments) {
-    Promise<Void> promise = Promise.promise();
-
-    Future<Lock> lock = vertx.sharedData().getLocalLock(SPEC_UPDATE_LOCK);
-
-    lock.compose(res -> {
-      LOGGER.debug("Got lock to read latest versions of both specs, update and write back");
-
-      JsonObject ogcOasFile = vertx.fileSystem().readFileBlocking(OGC_OAS_REAL_PATH).toJsonObject();
-      JsonObject stacOasFile =
-          vertx.fileSystem().readFileBlocking(STAC_OAS_REAL_PATH).toJsonObject();
-
-      return updateAndWriteSpecFiles(fragments, ogcOasFile, stacOasFile);
-
-    }).onSuccess(succ -> {
-
-      lock.result().release();
-      LOGGER.info("Updated spec files successfully; (Released lock)");
-      promise.complete();
-
-    }).onFailure(err -> {
+  private Future<Void> validateAndWriteSpecFiles(JsonObject ogc, String ogcPath, JsonObject stac,
+      String stacPath) {
+    return vertx.<List<Buffer>>executeBlocking(() -> {
+      if (!validateGeneratedSpec(ogc)) {
+        LOGGER.error("Spec validation failed for OGC Spec");
+        throw new IllegalStateException("Did not write spec files - spec validation failed");
+      }
 
-      if (lock.succeeded()) {
-        LOGGER.error("Failed to update spec files; Released lock");
-        lock.result().release();
+      if (!validateGeneratedSpec(stac)) {
+        LOGGER.error("Spec validation failed for STAC Spec");
+        throw new IllegalStateException("Did not write spec files - spec validation failed");
       }
-      promise.fail(err);
-    });
 
-    return promise.future();
+      return List.of(ogc.toBuffer(), stac.toBuffer());
+    }, false).compose(specs -> writeSpecFiles(specs.get(0), ogcPath, specs.get(1), stacPath));
   }
 
   /**
-   * Modify given OGC and STAC spec files using the {@link OasFragments} list and write them to
-   * {@link RouterManager#OGC_OAS_REAL_PATH} and {@link RouterManager#STAC_OAS_REAL_PATH}. The
-   * modified spec JSON objects are also validated with JSON schema using
-   * {@link RouterManager#validateGeneratedSpec(JsonObject)}
-   * 
-   * @param fragments the list of {@link OasFragments}
-   * @param ogcSpec the OGC spec JSON
-   * @param stacSpec the STAC spec JSON
-   * @return
+   * Encode the OGC and STAC specs on a worker thread and write them to the given paths.
+   *
+   * @param ogc the OGC spec JSON
+   * @param ogcPath path to write the OGC spec to
+   * @param stac the STAC spec JSON
+   * @param stacPath path to write the STAC spec to
+   * @return succeeded future if both specs were written, else failed future
    */
-  private Future<Void> updateAndWriteSpecFiles(List<OasFragments> fragments, JsonObject ogcSpec,
-      JsonObject stacSpec) {
-    LOGGER.info("Trying to update OpenAPI specs and write to filesystem");
-    Promise<Void> promise = Promise.promise();
-
-    fragments.forEach(res -> {
-      List<JsonObject> ogcFrags = res.getOgc();
-      List<JsonObject> stacFrags = res.getStac();
-
-      ogcFrags.forEach(i -> ogcSpec.getJsonObject("paths").mergeIn(i));
-      stacFrags.forEach(i -> stacSpec.getJsonObject("paths").mergeIn(i));
-    });
-
-    if (!validateGeneratedSpec(ogcSpec)) {
-      LOGGER.error("Spec validation failed for OGC Spec");
-      promise.fail("Did not write spec files - spec validation failed");
-      return promise.future();
-    }
-
-    if (!validateGeneratedSpec(stacSpec)) {
-      LOGGER.error("Spec validation failed for STAC Spec");
-      promise.fail("Did not write spec files - spec validation failed");
-      return promise.future();
-    }
-
-    Future<Void> writeOgcSpec = vertx.fileSystem().writeFile(OGC_OAS_REAL_PATH, ogcSpec.toBuffer());
-    Future<Void> writeStacSpec =
-        vertx.fileSystem().writeFile(STAC_OAS_REAL_PATH, stacSpec.toBuffer());
+  private Future<Void> encodeAndWriteSpecFiles(JsonObject ogc, String ogcPath, JsonObject stac,
+      String stacPath) {
+    return vertx.<List<Buffer>>executeBlocking(() -> List.of(ogc.toBuffer(), stac.toBuffer()),
+        false).compose(specs -> writeSpecFiles(specs.get(0), ogcPath, specs.get(1), stacPath));
+  }
 
-    Future.all(writeOgcSpec, writeStacSpec).onSuccess(succ -> {
-      LOGGER.info("Spec files written successfully to {} and {}", OGC_OAS_REAL_PATH,
-          STAC_OAS_REAL_PATH);
+  /**
+   * Write the encoded OGC and STAC specs to the given paths. The specs are written to temporary
+   * files that are then moved to the paths, so that a spec file being read (e.g. to serve the
+   * spec) is never partially written.
+   *
+   * @param ogc the encoded OGC spec
+   * @param ogcPath path to write the OGC spec to
+   * @param stac the encoded STAC spec
+   * @param stacPath path to write the STAC spec to
+   * @return succeeded future if both specs were written, else failed future
+   */
+  private Future<Void> writeSpecFiles(Buffer ogc, String ogcPath, Buffer stac, String stacPath) {
+    LOGGER.info("Trying to write OpenAPI specs to filesystem");
 
-      promise.complete();
+    Future<Void> writeOgcSpec = writeSpecFile(ogc, ogcPath);
+    Future<Void> writeStacSpec = writeSpecFile(stac, stacPath);
 
+    return Future.all(writeOgcSpec, writeStacSpec).<Void>mapEmpty().onSuccess(succ -> {
+      LOGGER.info("Spec files written successfully to {} and {}", ogcPath, stacPath);
     }).onFailure(err -> {
-      LOGGER.error("Failed to update spec and write spec to filesystem");
-      promise.fail(err);
+      LOGGER.error("Failed to write spec to filesystem : {}", err.getMessage());
     });
+  }
 
-    return promise.future();
+  /**
+   * Write an encoded spec to a temporary file and atomically move it to the given path.
+   *
+   * @param spec the encoded spec
+   * @param path path to write the spec to
+   * @return succeeded future if the spec was written, else failed future
+   */
+  private Future<Void> writeSpecFile(Buffer spec, String path) {
+    String tempPath = path + ".tmp";
+    return vertx.fileSystem().writeFile(tempPath, spec)
+        .compose(res -> vertx.fileSystem().move(tempPath, path,
+            new CopyOptions().setReplaceExisting(true).setAtomicMove(true)));
   }
 }
@@ -1,7 +1,6 @@
 package ogc.rs.apiserver.router.gisentities.ogcfeatures;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -24,8 +23,14 @@ import ogc.rs.apiserver.router.util.OasFragments;
 import ogc.rs.database.DatabaseService;
 
 /**
- * Class to handle creation of routes for OGC Feature datasets.
- * 
+ * Class to handle creation of routes for OGC Feature datasets. <br>
+ * By default, routes are created per collection, i.e. each feature collection has its own
+ * operations in the OGC spec. If <em>parameterizedFeatureRoutes</em> is <code>true</code> in the
+ * config, the <em>/collections/{collectionId}/items</em> routes are shared by all feature
+ * collections instead. The checks that depend on the collection are then done on each request
+ * using the {@link OgcFeaturesSchemaRegistry}, so that the size of the spec and the time taken to
+ * build the router do not depend on the number of collections. The spec of a single collection is
+ * served at <em>/collections/{collectionId}/api</em>.
  */
 @AutoService(GisEntityInterface.class)
 public class OgcFeaturesEntity implements GisEntityInterface {
@@ -38,6 +43,8 @@ public class OgcFeaturesEntity implements GisEntityInterface {
   
   private static final Logger LOGGER = LogManager.getLogger(OgcFeaturesEntity.class);
 
+  public static final String PARAMETERIZED_ROUTES_CONFIG_KEY = "parameterizedFeatureRoutes";
+
   @Override
   public void giveOgcRoutes(OgcRouterBuilder ogcRouterBuilder) {
 
@@ -74,6 +81,43 @@ public class OgcFeaturesEntity implements GisEntityInterface {
                     .failureHandler(failureHandler);
           }
         });
+
+    Set<String> opIds = builder.operations().stream().map(op -> op.getOperationId())
+        .collect(Collectors.toSet());
+
+    if (!opIds.contains(OgcFeaturesMetadata.OGC_PARAMETERIZED_GET_COLLECTION_ITEMS_OP_ID)) {
+      return;
+    }
+
+    builder.operation(OgcFeaturesMetadata.OGC_PARAMETERIZED_GET_COLLECTION_ITEMS_OP_ID)
+        .handler(ogcRouterBuilder.ogcFeaturesAuthZHandler)
+        .handler(ogcRouterBuilder.tokenLimitsEnforcementHandler)
+        .handler(apiServerVerticle::auditAfterApiEnded)
+        .handler(apiServerVerticle::validateFeatureQueryParams)
+        .handler(apiServerVerticle::getFeatures)
+        .handler(apiServerVerticle::putCommonResponseHeaders)
+        .handler(apiServerVerticle::buildResponse)
+        .failureHandler(failureHandler);
+
+    builder.operation(OgcFeaturesMetadata.OGC_PARAMETERIZED_GET_SPECIFIC_FEATURE_OP_ID)
+        .handler(ogcRouterBuilder.ogcFeaturesAuthZHandler)
+        .handler(ogcRouterBuilder.tokenLimitsEnforcementHandler)
+        .handler(apiServerVerticle::auditAfterApiEnded)
+        .handler(apiServerVerticle::validateFeatureQueryParams)
+        .handler(apiServerVerticle::getFeature)
+        .handler(apiServerVerticle::putCommonResponseHeaders)
+        .handler(apiServerVerticle::buildResponse)
+        .failureHandler(failureHandler);
+
+    /* the spec of a collection has the components of the OGC spec and the paths of the collection */
+    JsonObject baseSpec = builder.getOpenAPI().getOpenAPI().copy();
+    baseSpec.remove("paths");
+
+    builder.operation(OgcFeaturesMetadata.OGC_PARAMETERIZED_GET_COLLECTION_API_OP_ID)
+        .handler(routingContext -> apiServerVerticle.getFeatureCollectionApi(routingContext,
+            baseSpec))
+        .handler(apiServerVerticle::buildResponse)
+        .failureHandler(failureHandler);
   }
 
   @Override
@@ -85,6 +129,10 @@ public class OgcFeaturesEntity implements GisEntityInterface {
   public Future<OasFragments> generateNewSpecFragments(JsonObject existingOgcSpec,
       JsonObject existingStacSpec, DatabaseService dbService, JsonObject config) {
 
+    if (config.getBoolean(PARAMETERIZED_ROUTES_CONFIG_KEY, false)) {
+      return Future.succeededFuture(generateParameterizedSpecFragments(existingOgcSpec, config));
+    }
+
     Promise<OasFragments> promise = Promise.promise();
     
     Set<UUID> existingCollectionIds = getExistingFeatureCollectionsFromOgcSpec(existingOgcSpec);
@@ -112,15 +160,12 @@ public class OgcFeaturesEntity implements GisEntityInterface {
     Future<OasFragments> result = metadataObjList.compose(list -> {
       List<JsonObject> ogcFrags = new ArrayList<JsonObject>();
 
-      JsonObject geomMaxLimitConfig = config.getJsonObject("geomSpecificMaxLimits", new JsonObject());
-
       /*
        * if geomSpecificMaxLimits is not in config, then set max for all geometries to
        * OgcFeaturesMetadata.OGC_LIMIT_PARAM_MAX_DEFAULT)
        */
-      Map<PostgisGeomTypes, Integer> geomSpecificMaxLimits = Arrays.stream(PostgisGeomTypes.values())
-          .collect(Collectors.toMap(type -> type, type -> geomMaxLimitConfig
-              .getInteger(type.toString(), OgcFeaturesMetadata.OGC_LIMIT_PARAM_MAX_DEFAULT)));
+      Map<PostgisGeomTypes, Integer> geomSpecificMaxLimits =
+          OgcFeaturesMetadata.getGeomSpecificMaxLimits(config);
       
       list.forEach(obj -> {
         ogcFrags.add(obj.generateOgcOasBlock(geomSpecificMaxLimits));
@@ -137,6 +182,30 @@ public class OgcFeaturesEntity implements GisEntityInterface {
     return promise.future();
   }
 
+  /**
+   * Generate the spec fragment of the parameterized routes. The routes do not change when feature
+   * collections are added, so the fragment is only generated if the spec does not have them yet and
+   * no DB query is needed.
+   *
+   * @param ogcSpec the OGC OpenAPI spec JSON
+   * @param config the config JSON
+   * @return the fragments, empty if the spec already has the parameterized routes
+   */
+  private OasFragments generateParameterizedSpecFragments(JsonObject ogcSpec, JsonObject config) {
+    List<JsonObject> ogcFrags = new ArrayList<JsonObject>();
+
+    if (!ogcSpec.getJsonObject("paths")
+        .containsKey(OgcFeaturesMetadata.OGC_PARAMETERIZED_GET_COLLECTION_ITEMS_ENDPOINT)) {
+      LOGGER.info("Using parameterized routes for OGC Feature collections");
+      ogcFrags.add(OgcFeaturesMetadata.generateParameterizedOgcOasBlock(
+          OgcFeaturesMetadata.getGeomSpecificMaxLimits(config)));
+    }
+
+    OasFragments fragments = new OasFragments();
+    fragments.setOgc(ogcFrags);
+    return fragments;
+  }
+
   /**
    * Get existing OGC feature collections from the OGC spec. These IDs don't need to be fetched from the DB
    * and have spec generated for them. We only check the OGC spec and not the STAC spec since all
@@ -3,14 +3,21 @@ package ogc.rs.apiserver.router.gisentities.ogcfeatures;
 import static ogc.rs.common.Constants.DEFAULT_SERVER_CRS;
 import static ogc.rs.common.Constants.OAS_TOKEN_SECURITY;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import io.vertx.core.MultiMap;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.database.util.GeometryGeneralization;
+import ogc.rs.database.util.TileGrid;
 
 /**
  * Class used to hold metadata for OGC Feature collections. 
@@ -28,6 +35,20 @@ public class OgcFeaturesMetadata {
   public static final String OGC_GET_SPECIFIC_FEATURE_OP_ID_REGEX =
       "^ogcFeature-.*-get-specific-feature$";
 
+  /* operations of the parameterized routes, shared by all feature collections */
+  public static final String OGC_PARAMETERIZED_GET_COLLECTION_ITEMS_OP_ID =
+      "ogcFeatures-get-features";
+  public static final String OGC_PARAMETERIZED_GET_SPECIFIC_FEATURE_OP_ID =
+      "ogcFeatures-get-specific-feature";
+  public static final String OGC_PARAMETERIZED_GET_COLLECTION_API_OP_ID =
+      "ogcFeatures-get-collection-api";
+  public static final String OGC_PARAMETERIZED_GET_COLLECTION_ITEMS_ENDPOINT =
+      "/collections/{collectionId}/items";
+  public static final String OGC_PARAMETERIZED_GET_SPECIFIC_FEATURE_ENDPOINT =
+      "/collections/{collectionId}/items/{featureId}";
+  public static final String OGC_PARAMETERIZED_GET_COLLECTION_API_ENDPOINT =
+      "/collections/{collectionId}/api";
+
   private UUID id;
   private String title;
   private String description;
@@ -73,6 +94,241 @@ public class OgcFeaturesMetadata {
     return id;
   }
 
+  public PostgisGeomTypes getGeomType() {
+    return geomType;
+  }
+
+  /**
+   * Get the max value of the <code>limit</code> parameter for every geometry type from the
+   * <em>geomSpecificMaxLimits</em> config. Geometry types that are not configured get
+   * {@link #OGC_LIMIT_PARAM_MAX_DEFAULT}.
+   *
+   * @param config the config JSON
+   * @return map of geometry type to the max value of the <code>limit</code> parameter
+   */
+  public static Map<PostgisGeomTypes, Integer> getGeomSpecificMaxLimits(JsonObject config) {
+    JsonObject geomMaxLimitConfig = config.getJsonObject("geomSpecificMaxLimits", new JsonObject());
+
+    return Arrays.stream(PostgisGeomTypes.values()).collect(Collectors.toMap(type -> type,
+        type -> geomMaxLimitConfig.getInteger(type.toString(), OGC_LIMIT_PARAM_MAX_DEFAULT)));
+  }
+
+  /**
+   * Generate OpenAPI JSON block for the parameterized OGC routes, which serve all feature
+   * collections. Only the parameters common to all collections are defined, the collection
+   * specific checks (supported CRS, max limit and attribute query params) are done using
+   * {@link #validateQueryParams(JsonObject, MultiMap, boolean, Map)}. The spec of a single
+   * collection is served at {@link #OGC_PARAMETERIZED_GET_COLLECTION_API_ENDPOINT}.
+   *
+   * @param geomMaxLimitConf map specifying the max values for the <code>limit</code> parameter for
+   *        a given geometry.
+   * @return JSON object containing OpenAPI paths for the parameterized OGC routes.
+   */
+  public static JsonObject generateParameterizedOgcOasBlock(
+      Map<PostgisGeomTypes, Integer> geomMaxLimitConf) {
+    JsonObject block = new JsonObject();
+
+    JsonObject collectionIdPathParam = new JsonObject().put("in", "path")
+        .put("name", "collectionId").put("required", true)
+        .put("schema", new JsonObject().put("type", "string").put("format", "uuid"));
+
+    JsonObject crsQueryParam = new JsonObject().put("in", "query").put("name", "crs")
+        .put("required", false).put("style", "form").put("explode", false)
+        .put("schema", new JsonObject().put("type", "string").put("format", "uri")
+            .put("default", DEFAULT_SERVER_CRS));
+
+    JsonObject bboxCrsQueryParam = new JsonObject().put("in", "query").put("name", "bbox-crs")
+        .put("required", false).put("style", "form").put("explode", false)
+        .put("schema", new JsonObject().put("type", "string").put("format", "uri")
+            .put("default", DEFAULT_SERVER_CRS));
+
+    int limitParamMaxValue = geomMaxLimitConf.values().stream().mapToInt(Integer::intValue).max()
+        .orElse(OGC_LIMIT_PARAM_MAX_DEFAULT);
+
+    /* no default, since it depends on the geometry type of the collection */
+    JsonObject limitParam = new JsonObject().put("in", "query").put("name", "limit")
+        .put("required", false).put("style", "form").put("explode", false).put("schema",
+            new JsonObject().put("type", "integer").put("minimum", OGC_LIMIT_PARAM_MIN_DEFAULT)
+                .put("maximum", limitParamMaxValue));
+
+    /* GET /collections/{collectionId}/items */
+    JsonObject collectionItemsApi = new JsonObject();
+
+    collectionItemsApi.put("tags", new JsonArray().add("Features"));
+    collectionItemsApi.put("summary", "Get features from a feature collection");
+    collectionItemsApi.put("description", "Query params for the attributes of the collection and "
+        + "the supported CRS are described in the spec of the collection at "
+        + OGC_PARAMETERIZED_GET_COLLECTION_API_ENDPOINT);
+    collectionItemsApi.put("operationId", OGC_PARAMETERIZED_GET_COLLECTION_ITEMS_OP_ID);
+
+    collectionItemsApi.mergeIn(OAS_TOKEN_SECURITY);
+
+    collectionItemsApi.put("parameters", new JsonArray().add(collectionIdPathParam)
+        .add(bboxCrsQueryParam).add(crsQueryParam)
+        .add(new JsonObject().put("$ref", "#/components/parameters/bbox"))
+        .add(new JsonObject().put("$ref", "#/components/parameters/datetime")).add(limitParam)
+        .add(new JsonObject().put("$ref", "#/components/parameters/offset"))
+        .addAll(generateGeneralizationOasParams()));
+
+    collectionItemsApi.put("responses",
+        new JsonObject().put("200", new JsonObject().put("$ref", "#/components/responses/Features"))
+            .put("400", new JsonObject().put("$ref", "#/components/responses/InvalidParameter"))
+            .put("404", new JsonObject().put("$ref", "#/components/responses/NotFound"))
+            .put("500", new JsonObject().put("$ref", "#/components/responses/ServerError")));
+
+    block.put(OGC_PARAMETERIZED_GET_COLLECTION_ITEMS_ENDPOINT,
+        new JsonObject().put("get", collectionItemsApi));
+
+    /* GET /collections/{collectionId}/items/{featureId} */
+    JsonObject featureSpecificApi = new JsonObject();
+
+    featureSpecificApi.put("tags", new JsonArray().add("Features"));
+    featureSpecificApi.put("summary", "Get single feature from a feature collection");
+    featureSpecificApi.put("operationId", OGC_PARAMETERIZED_GET_SPECIFIC_FEATURE_OP_ID);
+
+    featureSpecificApi.mergeIn(OAS_TOKEN_SECURITY);
+
+    JsonObject featureIdQueryParam =
+        new JsonObject().put("in", "path").put("name", "featureId").put("required", true)
+            .put("schema", new JsonObject().put("type", OasTypes.INTEGER.toString().toLowerCase()));
+
+    featureSpecificApi.put("parameters",
+        new JsonArray().add(collectionIdPathParam).add(featureIdQueryParam).add(crsQueryParam));
+
+    featureSpecificApi.put("responses",
+        new JsonObject().put("200", new JsonObject().put("$ref", "#/components/responses/Feature"))
+            .put("404", new JsonObject().put("$ref", "#/components/responses/NotFound"))
+            .put("500", new JsonObject().put("$ref", "#/components/responses/ServerError")));
+
+    block.put(OGC_PARAMETERIZED_GET_SPECIFIC_FEATURE_ENDPOINT,
+        new JsonObject().put("get", featureSpecificApi));
+
+    /* GET /collections/{collectionId}/api */
+    JsonObject collectionApi = new JsonObject();
+
+    collectionApi.put("tags", new JsonArray().add("Features"));
+    collectionApi.put("summary", "Get the OpenAPI spec of the routes of a feature collection");
+    collectionApi.put("operationId", OGC_PARAMETERIZED_GET_COLLECTION_API_OP_ID);
+    collectionApi.put("parameters", new JsonArray().add(collectionIdPathParam));
+    collectionApi.put("responses",
+        new JsonObject()
+            .put("200",
+                new JsonObject().put("description", "The OpenAPI spec of the collection")
+                    .put("content", new JsonObject().put("application/vnd.oai.openapi+json;version=3.0",
+                        new JsonObject().put("schema", new JsonObject().put("type", "object")))))
+            .put("404", new JsonObject().put("$ref", "#/components/responses/NotFound"))
+            .put("500", new JsonObject().put("$ref", "#/components/responses/ServerError")));
+
+    block.put(OGC_PARAMETERIZED_GET_COLLECTION_API_ENDPOINT,
+        new JsonObject().put("get", collectionApi));
+
+    return block;
+  }
+
+  /**
+   * Generate the OpenAPI spec of the routes of this collection, i.e. the spec that the collection
+   * has when routes are created per collection.
+   *
+   * @param baseSpec the OGC spec, whose paths are replaced by the paths of this collection
+   * @param geomMaxLimitConf map specifying the max values for the <code>limit</code> parameter for
+   *        a given geometry.
+   * @return the OpenAPI spec JSON
+   */
+  public JsonObject generateCollectionSpec(JsonObject baseSpec,
+      Map<PostgisGeomTypes, Integer> geomMaxLimitConf) {
+    JsonObject spec = new JsonObject(new HashMap<>(baseSpec.getMap()));
+    spec.put("paths", generateOgcOasBlock(geomMaxLimitConf));
+    return spec;
+  }
+
+  /**
+   * Validate the query params of a request to a parameterized route against this collection, i.e.
+   * what the OpenAPI validation of the route of this collection would check in addition to the
+   * params common to all collections.
+   *
+   * @param validatedQuery the query params validated using the parameterized route, with defaults
+   * @param requestQuery the query params of the request
+   * @param items <code>true</code> if the request is to get features, <code>false</code> if it is
+   *        to get a single feature
+   * @param geomMaxLimitConf map specifying the max values for the <code>limit</code> parameter for
+   *        a given geometry.
+   * @return the query params of the request, as they would be after OpenAPI validation of the
+   *         route of this collection
+   * @throws OgcException with status 400 if a param is invalid for this collection
+   */
+  public Map<String, String> validateQueryParams(JsonObject validatedQuery, MultiMap requestQuery,
+      boolean items, Map<PostgisGeomTypes, Integer> geomMaxLimitConf) throws OgcException {
+    Map<String, String> queryParams = new HashMap<String, String>();
+    validatedQuery.forEach(param -> {
+      if (param.getValue() != null) {
+        queryParams.put(param.getKey(), param.getValue().toString());
+      }
+    });
+
+    Set<String> badQueryParams = new TreeSet<String>();
+    for (String name : requestQuery.names()) {
+      if (validatedQuery.containsKey(name)) {
+        continue;
+      }
+      OasTypes type = attributes.get(name);
+      if (!items || type == null) {
+        badQueryParams.add(name);
+        continue;
+      }
+      String value = requestQuery.get(name);
+      if (!isValidValue(value, type)) {
+        throw new OgcException(400, "Bad Request",
+            "Invalid value for parameter " + name + ", expected " + type.toString().toLowerCase());
+      }
+      queryParams.put(name, value);
+    }
+    if (!badQueryParams.isEmpty()) {
+      throw new OgcException(400, "Bad Request", "Invalid parameters in request " + badQueryParams);
+    }
+
+    for (String crsParam : List.of("crs", "bbox-crs")) {
+      String crs = queryParams.get(crsParam);
+      if (crs != null && !supportedCrs.contains(crs)) {
+        throw new OgcException(400, "Bad Request",
+            "Invalid value for parameter " + crsParam + ", supported CRS are " + supportedCrs);
+      }
+    }
+
+    if (items) {
+      int limitParamMaxValue = geomMaxLimitConf.get(geomType);
+      String limit = queryParams.get("limit");
+      if (limit == null) {
+        queryParams.put("limit", String.valueOf(limitParamMaxValue));
+      } else if (Integer.parseInt(limit) > limitParamMaxValue) {
+        throw new OgcException(400, "Bad Request",
+            "Invalid value for parameter limit, maximum is " + limitParamMaxValue);
+      }
+    } else {
+      queryParams.keySet().retainAll(Set.of("crs"));
+    }
+
+    return queryParams;
+  }
+
+  private static boolean isValidValue(String value, OasTypes type) {
+    try {
+      switch (type) {
+        case INTEGER:
+          Long.parseLong(value);
+          return true;
+        case NUMBER:
+          Double.parseDouble(value);
+          return true;
+        case BOOLEAN:
+          return "true".equals(value) || "false".equals(value);
+        default:
+          return true;
+      }
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
   /**
    * Generate OpenAPI JSON block for all OGC routes that this collection can have.
    * 
@@ -119,6 +375,7 @@ public class OgcFeaturesMetadata {
 
     parameters.add(limitParam);
     parameters.add(new JsonObject().put("$ref", "#/components/parameters/offset"));
+    parameters.addAll(generateGeneralizationOasParams());
     
     parameters.addAll(generateOasParamsFromAttributes(attributes));
 
@@ -159,6 +416,32 @@ public class OgcFeaturesMetadata {
     return block;
   }
 
+  /**
+   * Generate OpenAPI query param definitions for getting features with geometries generalized for
+   * a map scale. Only one of the params can be used, which is checked when the query is built.
+   *
+   * @return JSON array containing the <em>zoom-level</em> and <em>scale-denominator</em> params
+   */
+  private static JsonArray generateGeneralizationOasParams() {
+    JsonObject zoomLevelParam = new JsonObject().put("in", "query")
+        .put("name", GeometryGeneralization.ZOOM_LEVEL_PARAM).put("required", false)
+        .put("style", "form").put("explode", false)
+        .put("description", "Simplify geometries and reduce coordinate precision for display at "
+            + "this zoom level (tile matrix) of the WebMercatorQuad tile matrix set")
+        .put("schema", new JsonObject().put("type", "integer").put("minimum", 0)
+            .put("maximum", TileGrid.MAX_TILE_MATRIX));
+
+    JsonObject scaleDenominatorParam = new JsonObject().put("in", "query")
+        .put("name", GeometryGeneralization.SCALE_DENOMINATOR_PARAM).put("required", false)
+        .put("style", "form").put("explode", false)
+        .put("description", "Simplify geometries and reduce coordinate precision for display at "
+            + "this scale denominator")
+        .put("schema", new JsonObject().put("type", "number").put("minimum", 0)
+            .put("exclusiveMinimum", true));
+
+    return new JsonArray().add(zoomLevelParam).add(scaleDenominatorParam);
+  }
+
   /**
    * Generate OpenAPI query param definitions for all the attributes of a collection based on the
    * type of the attribute reported by PostgreSQL.
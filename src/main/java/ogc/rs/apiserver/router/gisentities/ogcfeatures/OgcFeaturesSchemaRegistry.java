@@ -0,0 +1,126 @@
+package ogc.rs.apiserver.router.gisentities.ogcfeatures;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.database.DatabaseService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Registry of the schemas of OGC feature collections, used to validate requests to the
+ * parameterized <em>/collections/{collectionId}/items</em> routes. The schema of a collection is
+ * the {@link OgcFeaturesMetadata} that its per-collection spec would be generated from, so that
+ * request validation does not depend on the number of collections on the server. <br>
+ * Schemas are loaded from the DB on first use and kept until they expire (TTL) or are evicted as
+ * least recently used when the registry is full. The registry is also cleared using
+ * {@link #invalidateAll()} when the spec and router update notification is received. Concurrent
+ * requests for a collection that is being loaded wait on the same load. Failed loads (e.g. the
+ * collection does not exist) are not cached. <br>
+ * The registry is configured using the <em>featureSchemaRegistry</em> config block:
+ *
+ * <pre>
+ * "featureSchemaRegistry" : {
+ *   "maxSize" : 1000,
+ *   "ttlSeconds" : 600
+ * }
+ * </pre>
+ */
+public class OgcFeaturesSchemaRegistry {
+
+  private static final Logger LOGGER = LogManager.getLogger(OgcFeaturesSchemaRegistry.class);
+
+  public static final String CONFIG_KEY = "featureSchemaRegistry";
+  private static final int DEFAULT_MAX_SIZE = 1000;
+  private static final long DEFAULT_TTL_SECONDS = 600;
+
+  private final Function<String, Future<JsonObject>> loader;
+  private final long ttlMillis;
+  private final Map<String, Entry> entries;
+  private final Map<String, Future<OgcFeaturesMetadata>> inFlight = new HashMap<>();
+  private long invalidations = 0;
+
+  /**
+   * Create an OgcFeaturesSchemaRegistry that loads schemas using the DatabaseService.
+   *
+   * @param dbService the DatabaseService
+   * @param config the verticle config
+   */
+  public OgcFeaturesSchemaRegistry(DatabaseService dbService, JsonObject config) {
+    this(dbService::getOgcFeatureCollectionMetadata, config);
+  }
+
+  OgcFeaturesSchemaRegistry(Function<String, Future<JsonObject>> loader, JsonObject config) {
+    JsonObject registryConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.loader = loader;
+    this.ttlMillis = registryConfig.getLong("ttlSeconds", DEFAULT_TTL_SECONDS) * 1000;
+    int maxSize = registryConfig.getInteger("maxSize", DEFAULT_MAX_SIZE);
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Get the schema of a feature collection, loading it if not cached or expired.
+   *
+   * @param collectionId the collection ID
+   * @return future with the {@link OgcFeaturesMetadata}, failed with a 404 {@link OgcException} if
+   *         the collection is not a feature collection
+   */
+  public synchronized Future<OgcFeaturesMetadata> get(String collectionId) {
+    Entry entry = entries.get(collectionId);
+    if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+      return Future.succeededFuture(entry.schema);
+    }
+
+    Future<OgcFeaturesMetadata> loading = inFlight.get(collectionId);
+    if (loading != null) {
+      return loading;
+    }
+
+    long generation = invalidations;
+    Promise<OgcFeaturesMetadata> promise = Promise.promise();
+    inFlight.put(collectionId, promise.future());
+
+    LOGGER.debug("Loading schema of feature collection {}", collectionId);
+    loader.apply(collectionId).map(OgcFeaturesMetadata::new).onComplete(ar -> {
+      synchronized (this) {
+        inFlight.remove(collectionId);
+        // do not cache schemas loaded before an invalidation, they may be stale
+        if (ar.succeeded() && generation == invalidations) {
+          entries.put(collectionId, new Entry(ar.result(), System.currentTimeMillis() + ttlMillis));
+        }
+      }
+      promise.handle(ar);
+    });
+    return promise.future();
+  }
+
+  /**
+   * Remove all schemas from the registry.
+   */
+  public synchronized void invalidateAll() {
+    LOGGER.debug("Invalidating feature schema registry, {} entries", entries.size());
+    invalidations++;
+    entries.clear();
+  }
+
+  private static class Entry {
+    private final OgcFeaturesMetadata schema;
+    private final long expiresAt;
+
+    private Entry(OgcFeaturesMetadata schema, long expiresAt) {
+      this.schema = schema;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
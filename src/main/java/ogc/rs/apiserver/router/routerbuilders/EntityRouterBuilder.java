@@ -10,6 +10,7 @@ import static ogc.rs.apiserver.util.Constants.HEADER_ORIGIN;
 import static ogc.rs.apiserver.util.Constants.HEADER_REFERER;
 import static ogc.rs.common.Constants.OAS_BEARER_SECURITY_SCHEME;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileSystem;
@@ -81,7 +82,7 @@ public abstract class EntityRouterBuilder {
     stacCollectionOnboardingAuthZHandler = new StacCollectionOnboardingAuthZHandler(vertx, config);
     stacItemByIdAuthZHandler = new StacItemByIdAuthZHandler(vertx);
     stacItemOnboardingAuthZHandler = new StacItemOnboardingAuthZHandler(vertx);
-    tokenLimitsEnforcementHandler = new TokenLimitsEnforcementHandler(vertx);
+    tokenLimitsEnforcementHandler = new TokenLimitsEnforcementHandler(vertx, config);
   }
 
   /**
@@ -169,7 +170,9 @@ public abstract class EntityRouterBuilder {
                   throw new RuntimeException(e);
                 }
               } else if(OPENAPI_V3_JSON_CONTENT_TYPE.equals(contentType)) {
-                response.send(oasJson.toBuffer());
+                getOasJson(oasJson)
+                    .onSuccess(response::send)
+                    .onFailure(routingContext::fail);
               } else {
                 routingContext.fail(new OgcException(500, "Internal Error", "Internal Error"));
               }
@@ -186,6 +189,17 @@ public abstract class EntityRouterBuilder {
    */
   abstract String getOasApiPath();
 
+  /**
+   * Get the OpenAPI spec JSON to be served at {@link #getOasApiPath()}. By default it is the spec
+   * that the router was built from.
+   *
+   * @param routerSpec the spec that the router was built from
+   * @return future of the spec JSON
+   */
+  Future<Buffer> getOasJson(JsonObject routerSpec) {
+    return Future.succeededFuture(routerSpec.toBuffer());
+  }
+
   /**
    * Add all implementation specific routes to the {@link RouterBuilder}.
    */
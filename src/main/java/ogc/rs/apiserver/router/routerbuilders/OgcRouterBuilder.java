@@ -3,6 +3,7 @@ package ogc.rs.apiserver.router.routerbuilders;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.openapi.RouterBuilder;
@@ -20,7 +21,6 @@ import java.util.ServiceLoader;
  */
 public class OgcRouterBuilder extends EntityRouterBuilder {
 
-  private static final String OAS_URI_PATH = new File(RouterManager.OGC_OAS_REAL_PATH).toURI().toString();
   private static final String OAS_API_PATH = "/api";
 
   private OgcRouterBuilder(ApiServerVerticle apiServerVerticle, Vertx vertx, JsonObject config,
@@ -29,7 +29,7 @@ public class OgcRouterBuilder extends EntityRouterBuilder {
   }
 
   /**
-   * Create an instance of {@link OgcRouterBuilder}. 
+   * Create an instance of {@link OgcRouterBuilder} using the generated OGC spec. 
    * 
    * @param apiServerVerticle the {@link ApiServerVerticle} whose router is to be updated
    * @param vertx an instance of Vert.x
@@ -38,9 +38,25 @@ public class OgcRouterBuilder extends EntityRouterBuilder {
    */
   public static Future<OgcRouterBuilder> create(ApiServerVerticle apiServerVerticle, Vertx vertx,
       JsonObject config) {
+    return create(apiServerVerticle, vertx, config, RouterManager.OGC_OAS_REAL_PATH);
+  }
+
+  /**
+   * Create an instance of {@link OgcRouterBuilder} using the spec at the given path, e.g. a
+   * delta spec having only the paths of new collections.
+   *
+   * @param apiServerVerticle the {@link ApiServerVerticle} whose router is to be updated
+   * @param vertx an instance of Vert.x
+   * @param config the config JSON
+   * @param specPath path of the spec file
+   * @return a Future of {@link OgcRouterBuilder}
+   */
+  public static Future<OgcRouterBuilder> create(ApiServerVerticle apiServerVerticle, Vertx vertx,
+      JsonObject config, String specPath) {
     Promise<OgcRouterBuilder> promise = Promise.promise();
 
-    Future<RouterBuilder> routerBuilderFut = RouterBuilder.create(vertx, OAS_URI_PATH);
+    Future<RouterBuilder> routerBuilderFut =
+        RouterBuilder.create(vertx, new File(specPath).toURI().toString());
 
     routerBuilderFut
         .onSuccess(routerBuilder -> promise
@@ -55,6 +71,15 @@ public class OgcRouterBuilder extends EntityRouterBuilder {
     return OAS_API_PATH;
   }
 
+  /**
+   * Serve the generated spec file, since paths of new collections may have been added to it and
+   * routed without rebuilding this router.
+   */
+  @Override
+  Future<Buffer> getOasJson(JsonObject routerSpec) {
+    return vertx.fileSystem().readFile(RouterManager.OGC_OAS_REAL_PATH);
+  }
+
   @Override
   void addImplSpecificRoutes() {
     routerBuilder.operation(LANDING_PAGE).handler(apiServerVerticle::sendOgcLandingPage)
@@ -3,6 +3,7 @@ package ogc.rs.apiserver.router.routerbuilders;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.openapi.RouterBuilder;
@@ -20,7 +21,6 @@ import static ogc.rs.apiserver.util.Constants.*;
  */
 public class StacRouterBuilder extends EntityRouterBuilder {
 
-  private static final String OAS_URI_PATH = new File(RouterManager.STAC_OAS_REAL_PATH).toURI().toString();
   private static final String OAS_API_PATH = "/stac/api";
 
   private StacRouterBuilder(ApiServerVerticle apiServerVerticle, Vertx vertx, JsonObject config,
@@ -29,7 +29,7 @@ public class StacRouterBuilder extends EntityRouterBuilder {
   }
 
   /**
-   * Create an instance of {@link StacRouterBuilder}.
+   * Create an instance of {@link StacRouterBuilder} using the generated STAC spec.
    *
    * @param apiServerVerticle the {@link ApiServerVerticle} whose router is to be updated
    * @param vertx an instance of Vert.x
@@ -38,9 +38,25 @@ public class StacRouterBuilder extends EntityRouterBuilder {
    */
   public static Future<StacRouterBuilder> create(ApiServerVerticle apiServerVerticle, Vertx vertx,
       JsonObject config) {
+    return create(apiServerVerticle, vertx, config, RouterManager.STAC_OAS_REAL_PATH);
+  }
+
+  /**
+   * Create an instance of {@link StacRouterBuilder} using the spec at the given path, e.g. a
+   * delta spec having only the paths of new collections.
+   *
+   * @param apiServerVerticle the {@link ApiServerVerticle} whose router is to be updated
+   * @param vertx an instance of Vert.x
+   * @param config the config JSON
+   * @param specPath path of the spec file
+   * @return a Future of {@link StacRouterBuilder}
+   */
+  public static Future<StacRouterBuilder> create(ApiServerVerticle apiServerVerticle, Vertx vertx,
+      JsonObject config, String specPath) {
     Promise<StacRouterBuilder> promise = Promise.promise();
 
-    Future<RouterBuilder> routerBuilderFut = RouterBuilder.create(vertx, OAS_URI_PATH);
+    Future<RouterBuilder> routerBuilderFut =
+        RouterBuilder.create(vertx, new File(specPath).toURI().toString());
 
     routerBuilderFut
         .onSuccess(routerBuilder -> promise
@@ -56,6 +72,15 @@ public class StacRouterBuilder extends EntityRouterBuilder {
     return OAS_API_PATH;
   }
 
+  /**
+   * Serve the generated spec file, since paths of new collections may have been added to it and
+   * routed without rebuilding this router.
+   */
+  @Override
+  Future<Buffer> getOasJson(JsonObject routerSpec) {
+    return vertx.fileSystem().readFile(RouterManager.STAC_OAS_REAL_PATH);
+  }
+
   @Override
   void addImplSpecificRoutes() {
 
@@ -0,0 +1,154 @@
+package ogc.rs.apiserver.router.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * In-memory model of a generated OpenAPI spec (OGC or STAC). The spec is generated once from the
+ * template on startup, and {@link OasFragments} of new collections are merged into it on every
+ * spec update, so that the spec files do not need to be read back and parsed. <br>
+ * The paths of the template are static, i.e. they are routed the same way irrespective of the
+ * collections on the server. The paths added from fragments are dynamic and are routed by the GIS
+ * entities. A <em>delta spec</em> has the static paths and only the given dynamic paths, so a
+ * router for new paths can be built without parsing the paths of all existing collections. <br>
+ * A router built for new paths is matched after the existing routers, so new paths that match a
+ * parameterized path of the spec (e.g. <em>/collections/{collectionId}/items</em>) would be
+ * handled by the existing route; these are found using
+ * {@link #matchesParameterizedPath(JsonObject)}.
+ */
+public class OasSpec {
+
+  private static final String PATHS = "paths";
+  private static final Pattern PATH_PARAM = Pattern.compile("\\{[^/]+}");
+
+  private JsonObject spec;
+  private final Set<String> staticPaths;
+  private final Map<String, Pattern> parameterizedPaths = new HashMap<>();
+
+  /**
+   * Create a new {@link OasSpec} from the template spec.
+   *
+   * @param template the OpenAPI spec template JSON
+   */
+  public OasSpec(JsonObject template) {
+    this.spec = template;
+    this.staticPaths = template.getJsonObject(PATHS).fieldNames().stream()
+        .collect(Collectors.toUnmodifiableSet());
+    addParameterizedPaths(template.getJsonObject(PATHS));
+  }
+
+  /**
+   * Get the current spec. The spec must not be modified by the caller.
+   *
+   * @return the spec JSON
+   */
+  public JsonObject getSpec() {
+    return spec;
+  }
+
+  /**
+   * Merge fragments of the spec <em>paths</em> object into a single paths object.
+   *
+   * @param fragments the list of fragments, as in {@link OasFragments#getOgc()}
+   * @return the paths
+   */
+  public static JsonObject collectPaths(List<JsonObject> fragments) {
+    JsonObject paths = new JsonObject();
+    fragments.forEach(paths::mergeIn);
+    return paths;
+  }
+
+  /**
+   * Check if any of the given paths is already in the spec, i.e. the paths would replace existing
+   * ones instead of only adding new ones.
+   *
+   * @param paths the paths
+   * @return true if any of the paths already exists
+   */
+  public boolean hasAnyPath(JsonObject paths) {
+    JsonObject existing = spec.getJsonObject(PATHS);
+    return paths.fieldNames().stream().anyMatch(existing::containsKey);
+  }
+
+  /**
+   * Check if any of the given paths matches a parameterized path of the spec, i.e. requests to the
+   * path would be routed to the route of the parameterized path if the path is added to a router
+   * that is matched after the existing one.
+   *
+   * @param paths the paths
+   * @return true if any of the paths matches a parameterized path
+   */
+  public boolean matchesParameterizedPath(JsonObject paths) {
+    return paths.fieldNames().stream().anyMatch(path -> parameterizedPaths.entrySet().stream()
+        .anyMatch(e -> !e.getKey().equals(path) && e.getValue().matcher(path).matches()));
+  }
+
+  /**
+   * Get the spec with the given paths added. The current spec is not modified, and the returned
+   * spec shares all objects except the top-level and <em>paths</em> objects with it.
+   *
+   * @param paths the paths to add
+   * @return the new spec JSON
+   */
+  public JsonObject withPaths(JsonObject paths) {
+    Map<String, Object> allPaths = new LinkedHashMap<>(spec.getJsonObject(PATHS).getMap());
+    allPaths.putAll(paths.getMap());
+    return withPathsObject(new JsonObject(allPaths));
+  }
+
+  /**
+   * Get the delta spec having the static paths of the template and the given paths.
+   *
+   * @param paths the new paths
+   * @return the delta spec JSON
+   */
+  public JsonObject deltaSpec(JsonObject paths) {
+    Map<String, Object> deltaPaths = new LinkedHashMap<>();
+    JsonObject existing = spec.getJsonObject(PATHS);
+    staticPaths.forEach(path -> deltaPaths.put(path, existing.getValue(path)));
+    deltaPaths.putAll(paths.getMap());
+    return withPathsObject(new JsonObject(deltaPaths));
+  }
+
+  /**
+   * Replace the current spec.
+   *
+   * @param newSpec the new spec, as returned by {@link #withPaths(JsonObject)}
+   */
+  public void setSpec(JsonObject newSpec) {
+    this.spec = newSpec;
+    addParameterizedPaths(newSpec.getJsonObject(PATHS));
+  }
+
+  private void addParameterizedPaths(JsonObject paths) {
+    paths.fieldNames().stream()
+        .filter(path -> path.contains("{") && !parameterizedPaths.containsKey(path))
+        .forEach(path -> parameterizedPaths.put(path, toPattern(path)));
+  }
+
+  /* each path param matches a single path segment, the rest of the path is matched literally */
+  private static Pattern toPattern(String path) {
+    StringBuilder regex = new StringBuilder();
+    Matcher matcher = PATH_PARAM.matcher(path);
+    int last = 0;
+    while (matcher.find()) {
+      regex.append(Pattern.quote(path.substring(last, matcher.start()))).append("[^/]+");
+      last = matcher.end();
+    }
+    regex.append(Pattern.quote(path.substring(last)));
+    return Pattern.compile(regex.toString());
+  }
+
+  private JsonObject withPathsObject(JsonObject paths) {
+    JsonObject newSpec = new JsonObject(new LinkedHashMap<>(spec.getMap()));
+    newSpec.put(PATHS, paths);
+    return newSpec;
+  }
+}
@@ -44,6 +44,25 @@ public class AuthInfo {
     return user;
   }
 
+  /**
+   * Create a copy of this user, so that a user shared between requests (e.g. a cached verified
+   * token) is not changed by {@link #setResourceId(UUID)} in the authorization handlers.
+   *
+   * @return the copy
+   */
+  public AuthInfo copy() {
+    AuthInfo user = new AuthInfo();
+    user.userId = userId;
+    user.role = role;
+    user.constraints = constraints;
+    user.delegatorRole = delegatorRole;
+    user.delegatorUserId = delegatorUserId;
+    user.resourceId = resourceId;
+    user.isRsToken = isRsToken;
+    user.expiry = expiry;
+    return user;
+  }
+
   public UUID getUserId() {
     return userId;
   }
@@ -0,0 +1,203 @@
+package ogc.rs.apiserver.util;
+
+import static ogc.rs.common.Constants.MAP_RENDER_CACHE_INVALIDATION_ADDRESS;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import ogc.rs.common.awss3.AWS4SignerBase;
+import ogc.rs.common.awss3.BinaryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Local-disk cache of rendered maps. The rendered output of a collection only changes when its
+ * source COG or the render parameters change, so it is rendered once and then served from disk
+ * using <code>sendFile</code>. <br>
+ * Entries are keyed on the collection ID, source object (bucket, href and ETag) and the render
+ * command, so a changed source or render setting results in a new entry. Entries of a collection
+ * are also dropped when a map collection is onboarded, using the
+ * {@link ogc.rs.common.Constants#MAP_RENDER_CACHE_INVALIDATION_ADDRESS} event bus address.
+ * Concurrent requests for an entry that is being rendered wait on the same render. The total size
+ * of the cached files is bounded, least recently used files are deleted first. <br>
+ * The cache is shared by all API server verticle instances of a Vert.x instance and is configured
+ * using the <em>mapRenderCache</em> config block:
+ *
+ * <pre>
+ * "mapRenderCache" : {
+ *   "enabled" : true,
+ *   "dir" : "/tmp/ogc-map-cache",
+ *   "maxSizeBytes" : 1073741824
+ * }
+ * </pre>
+ */
+public class MapRenderCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(MapRenderCache.class);
+
+  public static final String CONFIG_KEY = "mapRenderCache";
+  private static final String DEFAULT_DIR = "/tmp/ogc-map-cache";
+  private static final long DEFAULT_MAX_SIZE_BYTES = 1024L * 1024 * 1024;
+  /* dropped files may still be being sent to clients, so they are deleted a little later */
+  private static final long FILE_DELETE_DELAY_MILLIS = 60_000;
+
+  private static final Map<Vertx, MapRenderCache> CACHES = new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final boolean enabled;
+  private final String dir;
+  private final long maxSizeBytes;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Future<String>> inFlight = new HashMap<>();
+  private long sizeBytes = 0;
+  private long invalidations = 0;
+
+  /**
+   * Get the cache of a Vert.x instance, creating it using the config if it does not exist.
+   *
+   * @param vertx the Vert.x instance
+   * @param config the verticle config
+   * @return the {@link MapRenderCache}
+   */
+  public static MapRenderCache getOrCreate(Vertx vertx, JsonObject config) {
+    return CACHES.computeIfAbsent(vertx, v -> new MapRenderCache(v, config));
+  }
+
+  MapRenderCache(Vertx vertx, JsonObject config) {
+    JsonObject cacheConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.vertx = vertx;
+    this.enabled = cacheConfig.getBoolean("enabled", false);
+    this.dir = cacheConfig.getString("dir", DEFAULT_DIR);
+    this.maxSizeBytes = cacheConfig.getLong("maxSizeBytes", DEFAULT_MAX_SIZE_BYTES);
+
+    if (enabled) {
+      // the index is held in memory, so files of a previous run cannot be used
+      if (vertx.fileSystem().existsBlocking(dir)) {
+        vertx.fileSystem().deleteRecursiveBlocking(dir, true);
+      }
+      vertx.fileSystem().mkdirsBlocking(dir);
+      vertx.eventBus().<String>consumer(MAP_RENDER_CACHE_INVALIDATION_ADDRESS,
+          msg -> invalidate(msg.body()));
+      LOGGER.info("Rendered map cache at {}, max size {} bytes", dir, maxSizeBytes);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if rendered maps are to be cached
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Get the path of the cached rendered map for a key, rendering it using the given function if
+   * not cached. Must be called on a Vert.x context.
+   *
+   * @param collectionId the collection the map belongs to
+   * @param key the cache key, made of the collection ID, source object and render parameters
+   * @param renderer function that renders the map to the given path
+   * @return future with the path of the rendered map
+   */
+  public Future<String> getOrRender(String collectionId, String key,
+      Function<String, Future<Long>> renderer) {
+    Promise<String> promise;
+    long generation;
+
+    synchronized (this) {
+      Entry cached = entries.get(key);
+      if (cached != null) {
+        return Future.succeededFuture(cached.path);
+      }
+      Future<String> rendering = inFlight.get(key);
+      if (rendering != null) {
+        return rendering;
+      }
+      promise = Promise.promise();
+      generation = invalidations;
+      inFlight.put(key, promise.future());
+    }
+
+    // every render gets a new file, so that deleting an evicted file never hits a newer render
+    String path = dir + "/" + BinaryUtils.toHex(AWS4SignerBase.hash(key)) + "-"
+        + UUID.randomUUID() + ".tif";
+
+    LOGGER.debug("Rendered map of collection {} not cached, rendering to {}", collectionId, path);
+    renderer.apply(path).onComplete(ar -> {
+      synchronized (this) {
+        inFlight.remove(key);
+        if (ar.succeeded()) {
+          // a map rendered before an invalidation is still served once, but not kept
+          if (generation == invalidations) {
+            add(key, new Entry(collectionId, path, ar.result()));
+          } else {
+            vertx.setTimer(FILE_DELETE_DELAY_MILLIS, id -> vertx.fileSystem().delete(path));
+          }
+        }
+      }
+      promise.handle(ar.map(path));
+    });
+    return promise.future();
+  }
+
+  /**
+   * Drop all cached rendered maps of a collection.
+   *
+   * @param collectionId the collection ID
+   */
+  public synchronized void invalidate(String collectionId) {
+    LOGGER.debug("Invalidating rendered maps of collection {}", collectionId);
+    invalidations++;
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while (it.hasNext()) {
+      Entry entry = it.next().getValue();
+      if (entry.collectionId.equals(collectionId)) {
+        it.remove();
+        remove(entry);
+      }
+    }
+  }
+
+  private void add(String key, Entry entry) {
+    entries.put(key, entry);
+    sizeBytes += entry.sizeBytes;
+
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while (sizeBytes > maxSizeBytes && it.hasNext()) {
+      Entry eldest = it.next().getValue();
+      if (eldest == entry) {
+        continue;
+      }
+      it.remove();
+      remove(eldest);
+    }
+  }
+
+  private void remove(Entry entry) {
+    sizeBytes -= entry.sizeBytes;
+    vertx.setTimer(FILE_DELETE_DELAY_MILLIS, id -> vertx.fileSystem().delete(entry.path)
+        .onFailure(err -> LOGGER.debug("Failed to delete rendered map {} - {}", entry.path,
+            err.getMessage())));
+  }
+
+  private static class Entry {
+    private final String collectionId;
+    private final String path;
+    private final long sizeBytes;
+
+    private Entry(String collectionId, String path, long sizeBytes) {
+      this.collectionId = collectionId;
+      this.path = path;
+      this.sizeBytes = sizeBytes;
+    }
+  }
+}
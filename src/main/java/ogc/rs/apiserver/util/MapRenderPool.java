@@ -0,0 +1,428 @@
+package ogc.rs.apiserver.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded pool for rendering maps using an external process (<code>gdal_translate</code>) whose
+ * stdout is streamed as the HTTP response. <br>
+ * At most <em>maxConcurrentRenders</em> processes run at a time. Further requests wait in a queue
+ * of at most <em>maxQueuedRenders</em> for up to <em>queueTimeoutSeconds</em>. Requests that do not
+ * fit in the queue or time out in it are rejected with a 503, instead of spawning more processes
+ * than the host can run. <br>
+ * The process stdout is read in chunks on a worker pool sized to the concurrency limit and piped
+ * into the response, so the next chunk is only read once the response can take more (Vert.x
+ * backpressure). A worker thread is only held for the duration of a single read, not the whole
+ * render. <br>
+ * The pool is shared by all API server verticle instances of a Vert.x instance, so the limits
+ * apply to the whole server. It is configured using the <em>mapRender</em> config block:
+ *
+ * <pre>
+ * "mapRender" : {
+ *   "maxConcurrentRenders" : 4,
+ *   "maxQueuedRenders" : 50,
+ *   "queueTimeoutSeconds" : 30,
+ *   "renderTimeoutSeconds" : 120
+ * }
+ * </pre>
+ *
+ * Render counts, durations, queue wait, bytes sent and the number of active and queued renders are
+ * published to the default Micrometer registry under <em>ogc.map.render.*</em>.
+ */
+public class MapRenderPool {
+
+  private static final Logger LOGGER = LogManager.getLogger(MapRenderPool.class);
+
+  public static final String CONFIG_KEY = "mapRender";
+  private static final int DEFAULT_MAX_QUEUED_RENDERS = 50;
+  private static final long DEFAULT_QUEUE_TIMEOUT_SECONDS = 30;
+  private static final long DEFAULT_RENDER_TIMEOUT_SECONDS = 120;
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final Map<Vertx, MapRenderPool> POOLS = new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final int maxConcurrentRenders;
+  private final int maxQueuedRenders;
+  private final long queueTimeoutMillis;
+  private final long renderTimeoutMillis;
+  private final WorkerExecutor executor;
+
+  private final Deque<QueuedRender> queue = new ArrayDeque<>();
+  private int active = 0;
+
+  private final Timer successTimer;
+  private final Timer failureTimer;
+  private final Timer queueWaitTimer;
+  private final Counter rejectedCounter;
+  private final DistributionSummary bytesSummary;
+
+  /**
+   * Get the pool of a Vert.x instance, creating it using the config if it does not exist.
+   *
+   * @param vertx the Vert.x instance
+   * @param config the verticle config
+   * @return the {@link MapRenderPool}
+   */
+  public static MapRenderPool getOrCreate(Vertx vertx, JsonObject config) {
+    return POOLS.computeIfAbsent(vertx, v -> new MapRenderPool(v, config));
+  }
+
+  MapRenderPool(Vertx vertx, JsonObject config) {
+    JsonObject renderConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.vertx = vertx;
+    this.maxConcurrentRenders = renderConfig.getInteger("maxConcurrentRenders",
+        Runtime.getRuntime().availableProcessors());
+    this.maxQueuedRenders = renderConfig.getInteger("maxQueuedRenders", DEFAULT_MAX_QUEUED_RENDERS);
+    this.queueTimeoutMillis =
+        renderConfig.getLong("queueTimeoutSeconds", DEFAULT_QUEUE_TIMEOUT_SECONDS) * 1000;
+    this.renderTimeoutMillis =
+        renderConfig.getLong("renderTimeoutSeconds", DEFAULT_RENDER_TIMEOUT_SECONDS) * 1000;
+    this.executor = vertx.createSharedWorkerExecutor("ogc-map-render", maxConcurrentRenders);
+
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      registry = new SimpleMeterRegistry();
+    }
+    this.successTimer = Timer.builder("ogc.map.render.duration").tag("outcome", "success")
+        .description("Time taken to render and send a map").register(registry);
+    this.failureTimer = Timer.builder("ogc.map.render.duration").tag("outcome", "failure")
+        .description("Time taken to render and send a map").register(registry);
+    this.queueWaitTimer = Timer.builder("ogc.map.render.queue.wait")
+        .description("Time map render requests waited for a free slot").register(registry);
+    this.rejectedCounter = Counter.builder("ogc.map.render.rejected")
+        .description("Map render requests rejected with a 503").register(registry);
+    this.bytesSummary = DistributionSummary.builder("ogc.map.render.bytes").baseUnit("bytes")
+        .description("Size of rendered maps sent").register(registry);
+    Gauge.builder("ogc.map.render.active", this, pool -> pool.getActive())
+        .description("Map renders running").register(registry);
+    Gauge.builder("ogc.map.render.queued", this, pool -> pool.getQueued())
+        .description("Map render requests waiting for a free slot").register(registry);
+
+    LOGGER.info("Map render pool created, max concurrent renders {}, max queued renders {}",
+        maxConcurrentRenders, maxQueuedRenders);
+  }
+
+  public synchronized int getActive() {
+    return active;
+  }
+
+  public synchronized int getQueued() {
+    return queue.size();
+  }
+
+  /**
+   * Render a map by running a command and streaming its stdout as the body of the response. Must
+   * be called on the Vert.x context of the request. The response is ended once the process exits
+   * successfully. If the process fails after the response headers have been sent, the response is
+   * reset so that the client does not take a truncated map as complete.
+   *
+   * @param command the command to run
+   * @param env environment variables to add for the process
+   * @param response the response to stream the map to
+   * @param onStart called just before the process is started, e.g. to set the response headers.
+   *        Not called if the request is rejected.
+   * @return future with the number of bytes sent, failed with a 503 {@link OgcException} if the
+   *         request was rejected
+   */
+  public Future<Long> render(List<String> command, Map<String, String> env,
+      HttpServerResponse response, Handler<HttpServerResponse> onStart) {
+    return submit(response, context -> {
+      if (response.closed()) {
+        return Future.failedFuture(new IOException("Client closed connection before render"));
+      }
+      return startProcess(command, env).compose(process -> {
+        onStart.handle(response);
+        response.closeHandler(v -> process.destroyForcibly());
+
+        return pipeOutput(process, response, context)
+            .compose(bytes -> response.end().map(bytes))
+            .onFailure(err -> {
+              if (response.headWritten() && !response.ended() && !response.closed()) {
+                response.reset();
+              }
+            });
+      });
+    });
+  }
+
+  /**
+   * Render a map by running a command and writing its stdout to a file. Must be called on a
+   * Vert.x context. The render is subject to the same limits as {@link #render(List, Map,
+   * HttpServerResponse, Handler)}. The file is deleted if the render fails.
+   *
+   * @param command the command to run
+   * @param env environment variables to add for the process
+   * @param path path of the file to write the map to
+   * @return future with the number of bytes written, failed with a 503 {@link OgcException} if the
+   *         request was rejected
+   */
+  public Future<Long> renderToFile(List<String> command, Map<String, String> env, String path) {
+    return submit(null, context -> startProcess(command, env).compose(process -> vertx.fileSystem()
+        .open(path, new OpenOptions().setWrite(true).setCreate(true).setTruncateExisting(true))
+        .compose(file -> pipeOutput(process, file, context)
+            .compose(bytes -> file.close().map(bytes))
+            .onFailure(err -> file.close()
+                .transform(v -> vertx.fileSystem().delete(path))))
+        .onFailure(err -> process.destroyForcibly())));
+  }
+
+  private Future<Long> submit(HttpServerResponse response,
+      Function<Context, Future<Long>> renderer) {
+    Context context = vertx.getOrCreateContext();
+    long queuedAt = System.nanoTime();
+
+    Future<Void> admitted = admit(context, response);
+    return admitted.compose(v -> {
+      queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+      long startedAt = System.nanoTime();
+      return renderer.apply(context).onComplete(ar -> {
+        release();
+        long elapsed = System.nanoTime() - startedAt;
+        if (ar.succeeded()) {
+          successTimer.record(elapsed, TimeUnit.NANOSECONDS);
+          bytesSummary.record(ar.result());
+          LOGGER.info("Map rendered in {} ms, {} bytes", TimeUnit.NANOSECONDS.toMillis(elapsed),
+              ar.result());
+        } else {
+          failureTimer.record(elapsed, TimeUnit.NANOSECONDS);
+          LOGGER.error("Map render failed after {} ms - {}",
+              TimeUnit.NANOSECONDS.toMillis(elapsed), ar.cause().getMessage());
+        }
+      });
+    });
+  }
+
+  private Future<Void> admit(Context context, HttpServerResponse response) {
+    QueuedRender queued;
+    synchronized (this) {
+      if (active < maxConcurrentRenders) {
+        active++;
+        return Future.succeededFuture();
+      }
+      if (queue.size() >= maxQueuedRenders) {
+        rejectedCounter.increment();
+        return Future.failedFuture(tooManyRenders());
+      }
+      queued = new QueuedRender(context);
+      queue.addLast(queued);
+    }
+
+    queued.timerId = vertx.setTimer(queueTimeoutMillis, id -> {
+      if (dequeue(queued)) {
+        rejectedCounter.increment();
+        queued.promise.fail(tooManyRenders());
+      }
+    });
+    if (response != null) {
+      response.closeHandler(v -> {
+        if (dequeue(queued)) {
+          vertx.cancelTimer(queued.timerId);
+          queued.promise.fail(new IOException("Client closed connection while queued"));
+        }
+      });
+    }
+    return queued.promise.future();
+  }
+
+  private synchronized boolean dequeue(QueuedRender queued) {
+    return queue.remove(queued);
+  }
+
+  private void release() {
+    QueuedRender next;
+    synchronized (this) {
+      next = queue.pollFirst();
+      if (next == null) {
+        active--;
+        return;
+      }
+    }
+    // the slot is handed over to the next request as is, on the context of that request
+    next.context.runOnContext(v -> {
+      vertx.cancelTimer(next.timerId);
+      next.promise.complete();
+    });
+  }
+
+  private Future<Process> startProcess(List<String> command, Map<String, String> env) {
+    return executor.executeBlocking(() -> {
+      ProcessBuilder pb = new ProcessBuilder(command);
+      pb.environment().putAll(env);
+      // stderr is only needed for debugging, draining it would need a thread per process
+      pb.redirectError(LOGGER.isDebugEnabled() ? ProcessBuilder.Redirect.INHERIT
+          : ProcessBuilder.Redirect.DISCARD);
+      return pb.start();
+    }, false);
+  }
+
+  /**
+   * Pipe the stdout of a process to a write stream without ending it, and wait for the process to
+   * exit successfully.
+   */
+  private Future<Long> pipeOutput(Process process, WriteStream<Buffer> sink, Context context) {
+    long timerId = vertx.setTimer(renderTimeoutMillis, id -> {
+      LOGGER.error("Map render timed out after {} ms", renderTimeoutMillis);
+      process.destroyForcibly();
+    });
+
+    ProcessOutputStream stdout = new ProcessOutputStream(executor, process.getInputStream());
+    return stdout.pipe().endOnComplete(false).endOnFailure(false).to(sink)
+        .compose(v -> Future.fromCompletionStage(process.onExit(), context))
+        .compose(exited -> exited.exitValue() == 0 ? Future.succeededFuture(stdout.bytesRead)
+            : Future.failedFuture(
+                new IOException("Render process failed with exit code " + exited.exitValue())))
+        .onComplete(ar -> {
+          vertx.cancelTimer(timerId);
+          if (ar.failed()) {
+            process.destroyForcibly();
+          }
+        });
+  }
+
+  private static OgcException tooManyRenders() {
+    return new OgcException(503, "Service Unavailable",
+        "Too many map render requests, please retry later");
+  }
+
+  private static class QueuedRender {
+    private final Context context;
+    private final Promise<Void> promise = Promise.promise();
+    private long timerId;
+
+    private QueuedRender(Context context) {
+      this.context = context;
+    }
+  }
+
+  /**
+   * {@link ReadStream} over the stdout of a process. Each chunk is read using a blocking read on
+   * the worker executor, and the next read is only scheduled once there is demand for more.
+   * Handlers are called on the context the stream is used on.
+   */
+  static class ProcessOutputStream implements ReadStream<Buffer> {
+    private final WorkerExecutor executor;
+    private final InputStream in;
+
+    private Handler<Buffer> dataHandler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+    private long demand = Long.MAX_VALUE;
+    private boolean reading = false;
+    private boolean ended = false;
+    private long bytesRead = 0;
+
+    ProcessOutputStream(WorkerExecutor executor, InputStream in) {
+      this.executor = executor;
+      this.in = in;
+    }
+
+    @Override
+    public ProcessOutputStream exceptionHandler(Handler<Throwable> handler) {
+      this.exceptionHandler = handler;
+      return this;
+    }
+
+    @Override
+    public ProcessOutputStream handler(Handler<Buffer> handler) {
+      this.dataHandler = handler;
+      readMore();
+      return this;
+    }
+
+    @Override
+    public ProcessOutputStream pause() {
+      demand = 0;
+      return this;
+    }
+
+    @Override
+    public ProcessOutputStream resume() {
+      return fetch(Long.MAX_VALUE);
+    }
+
+    @Override
+    public ProcessOutputStream fetch(long amount) {
+      demand = Long.MAX_VALUE - demand < amount ? Long.MAX_VALUE : demand + amount;
+      readMore();
+      return this;
+    }
+
+    @Override
+    public ProcessOutputStream endHandler(Handler<Void> endHandler) {
+      this.endHandler = endHandler;
+      return this;
+    }
+
+    private void readMore() {
+      if (reading || ended || demand == 0 || dataHandler == null) {
+        return;
+      }
+      reading = true;
+
+      executor.<Buffer>executeBlocking(() -> {
+        byte[] bytes = new byte[CHUNK_SIZE];
+        int read = in.read(bytes);
+        return read < 0 ? null : Buffer.buffer(read).appendBytes(bytes, 0, read);
+      }, false).onComplete(ar -> {
+        reading = false;
+        if (ar.failed() || ar.result() == null) {
+          ended = true;
+          closeQuietly();
+          if (ar.failed() && exceptionHandler != null) {
+            exceptionHandler.handle(ar.cause());
+          } else if (ar.succeeded() && endHandler != null) {
+            endHandler.handle(null);
+          }
+          return;
+        }
+
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+        bytesRead += ar.result().length();
+        if (dataHandler != null) {
+          dataHandler.handle(ar.result());
+        }
+        readMore();
+      });
+    }
+
+    private void closeQuietly() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        LOGGER.debug("Failed to close process output - {}", e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of the serialized STAC catalog (<em>/stac</em>) and collections (<em>/stac/collections</em>)
+ * documents. Both are built from the same list of STAC collections, so they are built together
+ * and served as prebuilt {@link Buffer}s until the cache is invalidated. <br>
+ * The cache is versioned: {@link #invalidateAll()} is called when the spec and router update
+ * notification is received, and documents that were being built when it was called are not
+ * cached, since they may have been built from stale data. Collection updates that do not send the
+ * notification are picked up once the documents expire (TTL). Concurrent requests while the
+ * documents are built wait on the same build. Failed builds are not cached. <br>
+ * The cache is configured using the <em>stacCatalogCache</em> config block:
+ *
+ * <pre>
+ * "stacCatalogCache" : {
+ *   "ttlSeconds" : 300
+ * }
+ * </pre>
+ */
+public class StacCatalogCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(StacCatalogCache.class);
+
+  public static final String CONFIG_KEY = "stacCatalogCache";
+  private static final long DEFAULT_TTL_SECONDS = 300;
+
+  private final Supplier<Future<StacCatalog>> builder;
+  private final long ttlMillis;
+
+  private StacCatalog catalog;
+  private long expiresAt;
+  private Future<StacCatalog> building;
+  private long version = 0;
+
+  /**
+   * Create a StacCatalogCache.
+   *
+   * @param config the verticle config
+   * @param builder builds the documents from the DB
+   */
+  public StacCatalogCache(JsonObject config, Supplier<Future<StacCatalog>> builder) {
+    JsonObject cacheConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.builder = builder;
+    this.ttlMillis = cacheConfig.getLong("ttlSeconds", DEFAULT_TTL_SECONDS) * 1000;
+  }
+
+  /**
+   * Get the documents, building them if not cached or expired.
+   *
+   * @return future with the {@link StacCatalog}
+   */
+  public synchronized Future<StacCatalog> get() {
+    if (catalog != null && expiresAt > System.currentTimeMillis()) {
+      return Future.succeededFuture(catalog);
+    }
+    if (building != null) {
+      return building;
+    }
+
+    long buildVersion = version;
+    Future<StacCatalog> build = builder.get();
+    building = build;
+    build.onComplete(ar -> {
+      synchronized (this) {
+        if (building == build) {
+          building = null;
+        }
+        if (ar.succeeded() && buildVersion == version) {
+          LOGGER.debug("Built STAC catalog documents, version {}", version);
+          catalog = ar.result();
+          expiresAt = System.currentTimeMillis() + ttlMillis;
+        }
+      }
+    });
+    return build;
+  }
+
+  /**
+   * Drop the cached documents, they are rebuilt on the next request.
+   */
+  public synchronized void invalidateAll() {
+    version++;
+    catalog = null;
+    building = null;
+  }
+
+  /**
+   * The serialized STAC documents. Instances are immutable and shared between requests.
+   */
+  public static class StacCatalog {
+    private final Buffer catalog;
+    private final Buffer collections;
+
+    public StacCatalog(Buffer catalog, Buffer collections) {
+      this.catalog = catalog;
+      this.collections = collections;
+    }
+
+    /**
+     * @return the <em>/stac</em> catalog document
+     */
+    public Buffer getCatalog() {
+      return catalog;
+    }
+
+    /**
+     * @return the <em>/stac/collections</em> document
+     */
+    public Buffer getCollections() {
+      return collections;
+    }
+  }
+}
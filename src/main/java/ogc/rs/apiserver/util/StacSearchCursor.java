@@ -0,0 +1,135 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Opaque pagination tokens of STAC Item Search. A token holds the <em>p_id</em> of the last item
+ * of a page, so the next page is read using keyset pagination (<code>p_id &gt; last</code>), and a
+ * fingerprint of the search filters, so a token can only be used with the search that it was
+ * issued for. Tokens are signed using HMAC-SHA256 and cannot be forged or edited. <br>
+ * The signing key is shared by all API server verticle instances of a Vert.x instance and is taken
+ * from the <em>stacSearchTokenSecret</em> config option. If it is not set, a random key is used,
+ * in which case tokens are only accepted by the server instance that issued them, until it is
+ * restarted.
+ */
+public class StacSearchCursor {
+
+  private static final Logger LOGGER = LogManager.getLogger(StacSearchCursor.class);
+
+  public static final String CONFIG_KEY = "stacSearchTokenSecret";
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+  /* search params that select the page, not the items, and are not part of the fingerprint */
+  private static final String[] PAGING_PARAMS = {"limit", "offset", "token"};
+
+  private static final Map<Vertx, StacSearchCursor> CURSORS = new ConcurrentHashMap<>();
+
+  private final SecretKeySpec key;
+
+  /**
+   * Get the cursor of a Vert.x instance, creating it using the config if it does not exist.
+   *
+   * @param vertx the Vert.x instance
+   * @param config the verticle config
+   * @return the {@link StacSearchCursor}
+   */
+  public static StacSearchCursor getOrCreate(Vertx vertx, JsonObject config) {
+    return CURSORS.computeIfAbsent(vertx, v -> new StacSearchCursor(config));
+  }
+
+  StacSearchCursor(JsonObject config) {
+    String secret = config.getString(CONFIG_KEY);
+    byte[] keyBytes;
+    if (secret == null || secret.isEmpty()) {
+      LOGGER.warn("{} not configured, STAC search tokens are only valid on this instance",
+          CONFIG_KEY);
+      keyBytes = new byte[32];
+      new SecureRandom().nextBytes(keyBytes);
+    } else {
+      keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+    }
+    this.key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+  }
+
+  /**
+   * Create the token of the page after the item with the given <em>p_id</em>.
+   *
+   * @param lastPid <em>p_id</em> of the last item of the current page
+   * @param params the search params of the current page
+   * @return the token
+   */
+  public String encode(int lastPid, StacItemSearchParams params) {
+    JsonObject payload = new JsonObject().put("p", lastPid).put("f", fingerprint(params));
+    String encodedPayload = base64(payload.toBuffer().getBytes());
+    return encodedPayload + "." + base64(sign(encodedPayload));
+  }
+
+  /**
+   * Get the <em>p_id</em> after which the page of a token starts.
+   *
+   * @param token the token from a <em>next</em> link
+   * @param params the search params of the request
+   * @return the <em>p_id</em> of the last item of the previous page
+   * @throws OgcException with status 400 if the token is malformed, has not been issued by this
+   *         server or was issued for a search with different filters
+   */
+  public int decode(String token, StacItemSearchParams params) throws OgcException {
+    int separator = token.indexOf('.');
+    if (separator > 0) {
+      String encodedPayload = token.substring(0, separator);
+      try {
+        byte[] signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+        if (MessageDigest.isEqual(signature, sign(encodedPayload))) {
+          JsonObject payload =
+              new JsonObject(new String(Base64.getUrlDecoder().decode(encodedPayload),
+                  StandardCharsets.UTF_8));
+          if (fingerprint(params).equals(payload.getString("f"))) {
+            return payload.getInteger("p");
+          }
+        }
+      } catch (RuntimeException e) {
+        LOGGER.debug("Malformed STAC search token - {}", e.getMessage());
+      }
+    }
+    throw new OgcException(400, "Bad Request", "Invalid token, not issued for this search");
+  }
+
+  private static String fingerprint(StacItemSearchParams params) {
+    JsonObject filters = params.toJson();
+    for (String param : PAGING_PARAMS) {
+      filters.remove(param);
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(filters.toBuffer().getBytes());
+      return base64(Arrays.copyOf(digest, 16));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private byte[] sign(String data) {
+    try {
+      Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(key);
+      return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String base64(byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+}
@@ -0,0 +1,404 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import ogc.rs.common.awss3.AWS4SignerBase;
+import ogc.rs.common.awss3.BinaryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Server-side cache of small objects served from S3 - map/vector tiles and coverages. The same
+ * low-zoom tiles of a basemap are requested over and over, and fetching each of them from S3 on
+ * every request costs a round trip and S3 request charges. <br>
+ * Objects are held in an in-heap LRU cache bounded by the total size of the cached bodies. If a
+ * disk directory is configured, objects evicted from memory are spilled to a local-disk tier that
+ * is also bounded by size, and promoted back to memory when requested again. Objects larger than
+ * <em>maxEntrySizeBytes</em> are never cached. <br>
+ * The cache only sits behind the authorization handlers of the tile and coverage endpoints, so it
+ * never bypasses access control. What HTTP caches (browsers, CDNs) are allowed to do is decided
+ * per collection using {@link #getCacheControl(String)}. <br>
+ * The cache is configured using the <em>tileCache</em> config block. The size bounds are per API
+ * server verticle instance:
+ *
+ * <pre>
+ * "tileCache" : {
+ *   "enabled" : true,
+ *   "maxSizeBytes" : 67108864,
+ *   "maxEntrySizeBytes" : 262144,
+ *   "ttlSeconds" : 3600,
+ *   "diskDir" : "/tmp/ogc-tile-cache",
+ *   "maxDiskSizeBytes" : 1073741824,
+ *   "collections" : {
+ *     "&lt;collection-id&gt;" : { "maxAgeSeconds" : 86400 }
+ *   }
+ * }
+ * </pre>
+ *
+ * Collections present in <em>collections</em> are served with <code>Cache-Control: public</code>
+ * and the configured max age, all others with <code>Cache-Control: private, no-cache</code> so
+ * that clients always revalidate using the ETag.
+ */
+public class TileCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(TileCache.class);
+
+  public static final String CONFIG_KEY = "tileCache";
+  private static final long DEFAULT_MAX_SIZE_BYTES = 64L * 1024 * 1024;
+  private static final long DEFAULT_MAX_ENTRY_SIZE_BYTES = 256L * 1024;
+  private static final long DEFAULT_TTL_SECONDS = 3600;
+  private static final long DEFAULT_MAX_DISK_SIZE_BYTES = 1024L * 1024 * 1024;
+  private static final String PRIVATE_CACHE_CONTROL = "private, no-cache";
+
+  private final Vertx vertx;
+  private final boolean enabled;
+  private final long maxSizeBytes;
+  private final long maxEntrySizeBytes;
+  private final long ttlMillis;
+  private final String diskDir;
+  private final long maxDiskSizeBytes;
+  private final JsonObject collections;
+
+  private final LinkedHashMap<String, CachedObject> memory = new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<String, CachedObject> disk = new LinkedHashMap<>(16, 0.75f, true);
+  private long memoryBytes = 0;
+  private long diskBytes = 0;
+  private long invalidations = 0;
+
+  public TileCache(Vertx vertx, JsonObject config) {
+    JsonObject cacheConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.vertx = vertx;
+    this.enabled = cacheConfig.getBoolean("enabled", false);
+    this.maxSizeBytes = cacheConfig.getLong("maxSizeBytes", DEFAULT_MAX_SIZE_BYTES);
+    this.maxEntrySizeBytes = cacheConfig.getLong("maxEntrySizeBytes", DEFAULT_MAX_ENTRY_SIZE_BYTES);
+    this.ttlMillis = cacheConfig.getLong("ttlSeconds", DEFAULT_TTL_SECONDS) * 1000;
+    this.maxDiskSizeBytes = cacheConfig.getLong("maxDiskSizeBytes", DEFAULT_MAX_DISK_SIZE_BYTES);
+    this.collections = cacheConfig.getJsonObject("collections", new JsonObject());
+
+    String dir = cacheConfig.getString("diskDir");
+    if (enabled && dir != null && !dir.isBlank()) {
+      // each verticle instance gets its own directory, since the disk index is held in memory
+      this.diskDir = dir + "/" + UUID.randomUUID();
+      vertx.fileSystem().mkdirsBlocking(diskDir);
+      LOGGER.info("Tile cache disk tier at {}", diskDir);
+    } else {
+      this.diskDir = null;
+    }
+  }
+
+  /**
+   * @return <code>true</code> if objects are to be cached
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Check if an object of the given size can be cached.
+   *
+   * @param sizeBytes size of the object body, <code>-1</code> if not known
+   * @return <code>true</code> if it can be cached
+   */
+  public boolean isCacheable(long sizeBytes) {
+    return enabled && sizeBytes >= 0 && sizeBytes <= maxEntrySizeBytes;
+  }
+
+  /**
+   * Get the <em>Cache-Control</em> header value to be sent with objects of a collection.
+   *
+   * @param collectionId the collection ID
+   * @return the header value
+   */
+  public String getCacheControl(String collectionId) {
+    JsonObject collectionConfig = collections.getJsonObject(collectionId);
+    if (collectionConfig == null) {
+      return PRIVATE_CACHE_CONTROL;
+    }
+    return "public, max-age=" + collectionConfig.getLong("maxAgeSeconds", 0L);
+  }
+
+  /**
+   * Get a cached object, looking in memory first and then on disk.
+   *
+   * @param key the cache key
+   * @return future with the {@link CachedObject}, or <code>null</code> if not cached
+   */
+  public Future<CachedObject> get(String key) {
+    if (!enabled) {
+      return Future.succeededFuture();
+    }
+
+    CachedObject onDisk;
+    synchronized (this) {
+      CachedObject cached = memory.get(key);
+      if (cached != null) {
+        if (cached.expiresAt > System.currentTimeMillis()) {
+          return Future.succeededFuture(cached);
+        }
+        removeFromMemory(key);
+      }
+
+      onDisk = disk.get(key);
+      if (onDisk == null) {
+        return Future.succeededFuture();
+      }
+      if (onDisk.expiresAt <= System.currentTimeMillis()) {
+        removeFromDisk(key);
+        return Future.succeededFuture();
+      }
+    }
+
+    return vertx.fileSystem().readFile(diskPath(key)).map(body -> {
+      CachedObject promoted = onDisk.withBody(body);
+      synchronized (this) {
+        removeFromDisk(key);
+        putInMemory(key, promoted);
+      }
+      return promoted;
+    }).otherwise(err -> {
+      LOGGER.error("Failed to read cached object {} from disk - {}", key, err.getMessage());
+      synchronized (this) {
+        removeFromDisk(key);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Add an object to the cache. Does nothing if the object is not {@link #isCacheable(long)
+   * cacheable}.
+   *
+   * @param key the cache key
+   * @param body the object body
+   * @param contentType content type of the object
+   * @param etag ETag of the object as returned by S3, may be <code>null</code>
+   * @param lastModified Last-Modified of the object as returned by S3, may be <code>null</code>
+   */
+  public void put(String key, Buffer body, String contentType, String etag, String lastModified) {
+    if (!isCacheable(body.length())) {
+      return;
+    }
+
+    CachedObject cached = new CachedObject(body, contentType, etag, lastModified,
+        System.currentTimeMillis() + ttlMillis, body.length());
+    synchronized (this) {
+      removeFromMemory(key);
+      removeFromDisk(key);
+      putInMemory(key, cached);
+    }
+  }
+
+  /**
+   * Remove all objects from the cache.
+   */
+  public synchronized void invalidateAll() {
+    LOGGER.debug("Invalidating tile cache, {} entries in memory, {} on disk", memory.size(),
+        disk.size());
+    invalidations++;
+    memory.clear();
+    memoryBytes = 0;
+    disk.keySet().forEach(key -> deleteFromDisk(key));
+    disk.clear();
+    diskBytes = 0;
+  }
+
+  /**
+   * Get the cache key of the coverage of a collection.
+   *
+   * @param collectionId the collection ID
+   * @return the cache key
+   */
+  public static String coverageKey(String collectionId) {
+    return "coverage/" + collectionId;
+  }
+
+  /**
+   * Remove all objects of a collection from the cache, e.g. when vector tiles generated from a
+   * feature collection are stale since features have been added to it. Keys of tiles of a
+   * collection start with the collection ID, the coverage of a collection is keyed using
+   * {@link #coverageKey(String)}.
+   *
+   * @param collectionId the collection ID
+   */
+  public synchronized void invalidateCollection(String collectionId) {
+    String prefix = collectionId + "/";
+    String coverageKey = coverageKey(collectionId);
+    Predicate<String> ofCollection = key -> key.startsWith(prefix) || key.equals(coverageKey);
+    invalidations++;
+    memory.entrySet().removeIf(entry -> {
+      if (!ofCollection.test(entry.getKey())) {
+        return false;
+      }
+      memoryBytes -= entry.getValue().body.length();
+      return true;
+    });
+    disk.keySet().stream().filter(ofCollection).collect(Collectors.toList())
+        .forEach(this::removeFromDisk);
+    LOGGER.debug("Invalidated tile cache entries of collection {}", collectionId);
+  }
+
+  /**
+   * Delete the disk tier directory, if any.
+   *
+   * @return future that completes once the directory has been deleted
+   */
+  public Future<Void> close() {
+    if (diskDir == null) {
+      return Future.succeededFuture();
+    }
+    return vertx.fileSystem().deleteRecursive(diskDir, true);
+  }
+
+  /**
+   * Check if an <em>If-None-Match</em> request header matches the ETag of an object.
+   *
+   * @param ifNoneMatch the header value, may be <code>null</code>
+   * @param etag the ETag of the object, may be <code>null</code>
+   * @return <code>true</code> if the client already has the object
+   */
+  public static boolean etagMatches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || etag == null) {
+      return false;
+    }
+    String opaqueEtag = etag.startsWith("W/") ? etag.substring(2) : etag;
+    for (String tag : ifNoneMatch.split(",")) {
+      String trimmed = tag.trim();
+      if (trimmed.startsWith("W/")) {
+        trimmed = trimmed.substring(2);
+      }
+      if (trimmed.equals("*") || trimmed.equals(opaqueEtag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void putInMemory(String key, CachedObject cached) {
+    memory.put(key, cached);
+    memoryBytes += cached.body.length();
+
+    Iterator<Map.Entry<String, CachedObject>> it = memory.entrySet().iterator();
+    while (memoryBytes > maxSizeBytes && it.hasNext()) {
+      Map.Entry<String, CachedObject> eldest = it.next();
+      it.remove();
+      memoryBytes -= eldest.getValue().body.length();
+      spillToDisk(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  private void removeFromMemory(String key) {
+    CachedObject removed = memory.remove(key);
+    if (removed != null) {
+      memoryBytes -= removed.body.length();
+    }
+  }
+
+  private void spillToDisk(String key, CachedObject cached) {
+    if (diskDir == null || cached.expiresAt <= System.currentTimeMillis()) {
+      return;
+    }
+
+    // the object is added to the disk index only once the file is fully written
+    long generation = invalidations;
+    vertx.fileSystem().writeFile(diskPath(key), cached.body).onComplete(ar -> {
+      synchronized (this) {
+        if (ar.failed()) {
+          LOGGER.error("Failed to write cached object {} to disk - {}", key,
+              ar.cause().getMessage());
+          return;
+        }
+        if (generation != invalidations || memory.containsKey(key)) {
+          deleteFromDisk(key);
+          return;
+        }
+
+        // the body is only held in the file, the index keeps the headers and size
+        CachedObject replaced = disk.put(key, cached.withBody(null));
+        diskBytes += cached.size - (replaced == null ? 0 : replaced.size);
+
+        Iterator<Map.Entry<String, CachedObject>> it = disk.entrySet().iterator();
+        while (diskBytes > maxDiskSizeBytes && it.hasNext()) {
+          Map.Entry<String, CachedObject> eldest = it.next();
+          it.remove();
+          diskBytes -= eldest.getValue().size;
+          deleteFromDisk(eldest.getKey());
+        }
+      }
+    });
+  }
+
+  private void removeFromDisk(String key) {
+    CachedObject removed = disk.remove(key);
+    if (removed != null) {
+      diskBytes -= removed.size;
+      deleteFromDisk(key);
+    }
+  }
+
+  private void deleteFromDisk(String key) {
+    vertx.fileSystem().delete(diskPath(key))
+        .onFailure(err -> LOGGER.debug("Failed to delete cached object {} - {}", key,
+            err.getMessage()));
+  }
+
+  private String diskPath(String key) {
+    return diskDir + "/" + BinaryUtils.toHex(AWS4SignerBase.hash(key));
+  }
+
+  /**
+   * An object held in the cache along with the headers it is to be served with.
+   */
+  public static class CachedObject {
+    private final Buffer body;
+    private final String contentType;
+    private final String etag;
+    private final String lastModified;
+    private final long expiresAt;
+    private final long size;
+
+    private CachedObject(Buffer body, String contentType, String etag, String lastModified,
+        long expiresAt, long size) {
+      this.body = body;
+      this.contentType = contentType;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.expiresAt = expiresAt;
+      this.size = size;
+    }
+
+    private CachedObject withBody(Buffer body) {
+      return new CachedObject(body, contentType, etag, lastModified, expiresAt, size);
+    }
+
+    public Buffer getBody() {
+      return body;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    /**
+     * @return the ETag of the object, <code>null</code> if S3 did not return one
+     */
+    public String getEtag() {
+      return etag;
+    }
+
+    /**
+     * @return the Last-Modified of the object, <code>null</code> if S3 did not return one
+     */
+    public String getLastModified() {
+      return lastModified;
+    }
+  }
+}
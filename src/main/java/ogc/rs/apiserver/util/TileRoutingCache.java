@@ -0,0 +1,105 @@
+package ogc.rs.apiserver.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import ogc.rs.common.S3Config;
+import ogc.rs.common.S3ConfigsHolder;
+import ogc.rs.database.DatabaseService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of the S3 bucket config the tiles of a collection and tile matrix set are stored in, so
+ * that the tile endpoint does not need to query the DB on every tile request. A single map pan
+ * results in hundreds of tile requests for the same collection and tile matrix set. <br>
+ * Only successful resolutions are cached. The cache is cleared using {@link #invalidateAll()} when
+ * the spec and router update notification is received. <br>
+ * The cache is configured using the <em>tileRoutingCache</em> config block:
+ *
+ * <pre>
+ * "tileRoutingCache" : {
+ *   "maxSize" : 1000,
+ *   "ttlSeconds" : 600
+ * }
+ * </pre>
+ */
+public class TileRoutingCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(TileRoutingCache.class);
+
+  public static final String CONFIG_KEY = "tileRoutingCache";
+  private static final int DEFAULT_MAX_SIZE = 1000;
+  private static final long DEFAULT_TTL_SECONDS = 600;
+
+  private final DatabaseService dbService;
+  private final S3ConfigsHolder s3conf;
+  private final int maxSize;
+  private final long ttlMillis;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  public TileRoutingCache(DatabaseService dbService, S3ConfigsHolder s3conf, JsonObject config) {
+    JsonObject cacheConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.dbService = dbService;
+    this.s3conf = s3conf;
+    this.maxSize = cacheConfig.getInteger("maxSize", DEFAULT_MAX_SIZE);
+    this.ttlMillis = cacheConfig.getLong("ttlSeconds", DEFAULT_TTL_SECONDS) * 1000;
+  }
+
+  /**
+   * Get the config of the S3 bucket holding the tiles of a collection for a tile matrix set.
+   *
+   * @param collectionId the collection ID
+   * @param tileMatrixSetId the tile matrix set ID
+   * @return future with the {@link S3Config}, failed with an {@link OgcException} if the tile
+   *         matrix set does not exist for the collection or the bucket is not configured
+   */
+  public Future<S3Config> getS3Config(String collectionId, String tileMatrixSetId) {
+    String key = collectionId + "/" + tileMatrixSetId;
+
+    Entry entry = entries.get(key);
+    if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+      return Future.succeededFuture(entry.config);
+    }
+
+    return dbService.getTileS3BucketId(collectionId, tileMatrixSetId).compose(s3BucketId -> {
+      Optional<S3Config> conf = s3conf.getConfigByIdentifier(s3BucketId);
+
+      if (conf.isEmpty()) {
+        LOGGER.error("Failed to get S3 config details - No S3Config object found for {}",
+            s3BucketId);
+        return Future.failedFuture(new OgcException(403,
+            "Cannot fetch tile - failed to get details of bucket ID " + s3BucketId,
+            "Please contact OGC server RS Admin"));
+      }
+
+      // the number of collection and tile matrix set pairs is small, so simply start over if full
+      if (entries.size() >= maxSize) {
+        entries.clear();
+      }
+      entries.put(key, new Entry(conf.get(), System.currentTimeMillis() + ttlMillis));
+      return Future.succeededFuture(conf.get());
+    });
+  }
+
+  /**
+   * Remove all entries from the cache.
+   */
+  public void invalidateAll() {
+    LOGGER.debug("Invalidating tile routing cache, {} entries", entries.size());
+    entries.clear();
+  }
+
+  private static class Entry {
+    private final S3Config config;
+    private final long expiresAt;
+
+    private Entry(S3Config config, long expiresAt) {
+      this.config = config;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package ogc.rs.apiserver.util;
+
+import static ogc.rs.common.Constants.DATABASE_SERVICE_ADDRESS;
+import static ogc.rs.common.Constants.METERING_USAGE_ADDRESS;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import ogc.rs.database.DatabaseService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Running totals of API hits and data usage of a user for an API path and collection since a
+ * policy was issued, used to enforce the usage limits in a token without summing up the
+ * <em>metering</em> table on every request. <br>
+ * A counter is loaded from the <em>metering</em> table the first time it is needed, and is then
+ * kept up to date from the audit records published on the
+ * {@link ogc.rs.common.Constants#METERING_USAGE_ADDRESS} event bus address after they are written
+ * to the <em>metering</em> table. Records not written by this server (e.g. ingested audit logs or
+ * records of other servers) are picked up by reloading a counter from the table in the background
+ * once it is older than the reconcile interval. Counters not used for longer than the reconcile
+ * interval are dropped. <br>
+ * The counters are shared by all API server verticle instances of a Vert.x instance and are
+ * configured using the <em>usageCounters</em> config block:
+ *
+ * <pre>
+ * "usageCounters" : {
+ *   "reconcileIntervalSeconds" : 60,
+ *   "maxEntries" : 100000
+ * }
+ * </pre>
+ */
+public class UsageCounters {
+
+  private static final Logger LOGGER = LogManager.getLogger(UsageCounters.class);
+
+  public static final String CONFIG_KEY = "usageCounters";
+  private static final long DEFAULT_RECONCILE_INTERVAL_SECONDS = 60;
+  private static final int DEFAULT_MAX_ENTRIES = 100000;
+
+  private static final Map<Vertx, UsageCounters> COUNTERS = new ConcurrentHashMap<>();
+
+  private final DatabaseService databaseService;
+  private final long reconcileIntervalMillis;
+  private final int maxEntries;
+
+  /* user, API path and collection -> policy issued at -> counter */
+  private final Map<String, Map<Long, Counter>> counters = new HashMap<>();
+  private int size = 0;
+
+  /**
+   * Get the counters of a Vert.x instance, creating them using the config if they do not exist.
+   *
+   * @param vertx the Vert.x instance
+   * @param config the verticle config
+   * @return the {@link UsageCounters}
+   */
+  public static UsageCounters getOrCreate(Vertx vertx, JsonObject config) {
+    return COUNTERS.computeIfAbsent(vertx,
+        v -> new UsageCounters(v, DatabaseService.createLocalOrProxy(v, DATABASE_SERVICE_ADDRESS), config));
+  }
+
+  UsageCounters(Vertx vertx, DatabaseService databaseService, JsonObject config) {
+    JsonObject countersConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.databaseService = databaseService;
+    this.reconcileIntervalMillis = countersConfig.getLong("reconcileIntervalSeconds",
+        DEFAULT_RECONCILE_INTERVAL_SECONDS) * 1000;
+    this.maxEntries = countersConfig.getInteger("maxEntries", DEFAULT_MAX_ENTRIES);
+
+    vertx.eventBus().<JsonObject>consumer(METERING_USAGE_ADDRESS, msg -> {
+      JsonObject record = msg.body();
+      record(record.getString("user_id"), record.getString("api_path"),
+          record.getString("collection_id"), record.getLong("resp_size", 0L));
+    });
+    vertx.setPeriodic(reconcileIntervalMillis, id -> dropIdle());
+  }
+
+  /**
+   * Get the API hits and data usage of a user for an API path and collection since the policy was
+   * issued. Must be called on a Vert.x context.
+   *
+   * @param userId the user ID
+   * @param apiPath the API path
+   * @param collectionId the collection ID
+   * @param policyIssuedAt the epoch time (in seconds) the policy was issued at
+   * @return future with the {@link Usage}
+   */
+  public Future<Usage> getUsage(String userId, String apiPath, String collectionId,
+      long policyIssuedAt) {
+    long now = System.currentTimeMillis();
+    Counter counter;
+    Future<Void> loaded;
+    boolean load;
+
+    synchronized (this) {
+      Map<Long, Counter> windows =
+          counters.computeIfAbsent(key(userId, apiPath, collectionId), k -> new HashMap<>());
+      counter = windows.get(policyIssuedAt);
+      if (counter == null) {
+        if (size >= maxEntries) {
+          LOGGER.warn("Usage counters full, {} entries, dropping all", size);
+          counters.clear();
+          size = 0;
+          windows = new HashMap<>();
+          counters.put(key(userId, apiPath, collectionId), windows);
+        }
+        counter = new Counter();
+        windows.put(policyIssuedAt, counter);
+        size++;
+      }
+      counter.lastUsedAt = now;
+      loaded = counter.loaded.future();
+      load = !counter.loading && now - counter.loadedAt > reconcileIntervalMillis;
+      if (load) {
+        counter.loading = true;
+        counter.pendingHits = 0;
+        counter.pendingBytes = 0;
+      }
+    }
+
+    Counter current = counter;
+    if (load) {
+      load(current, userId, apiPath, collectionId, policyIssuedAt);
+    }
+    // a counter being reconciled still has usable totals
+    return loaded.map(v -> current.usage());
+  }
+
+  private void load(Counter counter, String userId, String apiPath, String collectionId,
+      long policyIssuedAt) {
+    Future<Long> hits =
+        databaseService.getTotalApiHits(userId, apiPath, collectionId, policyIssuedAt);
+    Future<Long> bytes =
+        databaseService.getTotalDataUsage(userId, apiPath, collectionId, policyIssuedAt);
+
+    Future.all(hits, bytes).onComplete(ar -> {
+      Promise<Void> loaded;
+      synchronized (this) {
+        counter.loading = false;
+        loaded = counter.loaded;
+        if (ar.succeeded()) {
+          // records published while loading may or may not be in the totals, count them to be safe
+          counter.hits = hits.result() + counter.pendingHits;
+          counter.bytes = bytes.result() + counter.pendingBytes;
+          counter.loadedAt = System.currentTimeMillis();
+        } else if (!loaded.future().isComplete()) {
+          // waiters of a counter that was never loaded fail, the load is retried on the next request
+          counter.loaded = Promise.promise();
+        } else {
+          LOGGER.warn("Failed to reconcile usage counter of {} - {}",
+              key(userId, apiPath, collectionId), ar.cause().getMessage());
+        }
+      }
+      if (ar.succeeded()) {
+        loaded.tryComplete();
+      } else {
+        loaded.tryFail(ar.cause());
+      }
+    });
+  }
+
+  /**
+   * Add an audit record to the counters of its user, API path and collection.
+   *
+   * @param userId the user ID
+   * @param apiPath the API path
+   * @param collectionId the collection ID
+   * @param respSize the response size in bytes
+   */
+  synchronized void record(String userId, String apiPath, String collectionId, long respSize) {
+    Map<Long, Counter> windows = counters.get(key(userId, apiPath, collectionId));
+    if (windows == null) {
+      return;
+    }
+    for (Counter counter : windows.values()) {
+      long hits = respSize > 0 ? 1 : 0;
+      counter.hits += hits;
+      counter.bytes += respSize;
+      if (counter.loading) {
+        counter.pendingHits += hits;
+        counter.pendingBytes += respSize;
+      }
+    }
+  }
+
+  private synchronized void dropIdle() {
+    long idleBefore = System.currentTimeMillis() - reconcileIntervalMillis;
+    Iterator<Map<Long, Counter>> it = counters.values().iterator();
+    while (it.hasNext()) {
+      Map<Long, Counter> windows = it.next();
+      int before = windows.size();
+      windows.values().removeIf(counter -> !counter.loading && counter.lastUsedAt < idleBefore);
+      size -= before - windows.size();
+      if (windows.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  private static String key(String userId, String apiPath, String collectionId) {
+    return userId + "|" + apiPath + "|" + collectionId;
+  }
+
+  /**
+   * API hits and data usage since a policy was issued.
+   */
+  public static class Usage {
+    private final long apiHits;
+    private final long dataUsage;
+
+    Usage(long apiHits, long dataUsage) {
+      this.apiHits = apiHits;
+      this.dataUsage = dataUsage;
+    }
+
+    /**
+     * @return number of requests with a non-empty response
+     */
+    public long getApiHits() {
+      return apiHits;
+    }
+
+    /**
+     * @return sum of the response sizes in bytes
+     */
+    public long getDataUsage() {
+      return dataUsage;
+    }
+  }
+
+  private class Counter {
+    private Promise<Void> loaded = Promise.promise();
+    private boolean loading = false;
+    private long loadedAt = 0;
+    private long lastUsedAt;
+    private long hits;
+    private long bytes;
+    private long pendingHits;
+    private long pendingBytes;
+
+    private Usage usage() {
+      synchronized (UsageCounters.this) {
+        return new Usage(hits, bytes);
+      }
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package ogc.rs.apiserver.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import ogc.rs.common.awss3.AWS4SignerBase;
+import ogc.rs.common.awss3.BinaryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of verified bearer tokens, so that the signature of a token is verified and its claims
+ * parsed only once, and not on every request. Tile clients and map viewers send the same token
+ * with every request. <br>
+ * Tokens are keyed by their SHA-256 digest and hold the {@link AuthInfo} and the parsed
+ * {@link Limits} of the token. An entry expires at the <em>exp</em> claim of the token or after
+ * <em>maxTtlSeconds</em>, whichever is earlier, so a token is never accepted from the cache after
+ * it has expired. If <em>jwtIgnoreExpiry</em> is set only <em>maxTtlSeconds</em> is used. The
+ * least recently used tokens are evicted when the cache is full. A <em>maxSize</em> of 0 disables
+ * the cache. <br>
+ * The cache is shared by all API server verticle instances of a Vert.x instance and is configured
+ * using the <em>verifiedTokenCache</em> config block:
+ *
+ * <pre>
+ * "verifiedTokenCache" : {
+ *   "maxSize" : 10000,
+ *   "maxTtlSeconds" : 300
+ * }
+ * </pre>
+ *
+ * Hits and misses are published to the default Micrometer registry as
+ * <em>ogc.auth.token.cache</em> with the <em>result</em> tag.
+ */
+public class VerifiedTokenCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(VerifiedTokenCache.class);
+
+  public static final String CONFIG_KEY = "verifiedTokenCache";
+  private static final int DEFAULT_MAX_SIZE = 10000;
+  private static final long DEFAULT_MAX_TTL_SECONDS = 300;
+
+  private static final Map<Vertx, VerifiedTokenCache> CACHES = new ConcurrentHashMap<>();
+
+  private final int maxSize;
+  private final long maxTtlMillis;
+  private final boolean ignoreExpiry;
+  private final Map<String, VerifiedToken> entries;
+  private final Counter hitCounter;
+  private final Counter missCounter;
+
+  /**
+   * Get the cache of a Vert.x instance, creating it using the config if it does not exist.
+   *
+   * @param vertx the Vert.x instance
+   * @param config the API server verticle config
+   * @return the {@link VerifiedTokenCache}
+   */
+  public static VerifiedTokenCache getOrCreate(Vertx vertx, JsonObject config) {
+    return CACHES.computeIfAbsent(vertx, v -> new VerifiedTokenCache(config));
+  }
+
+  VerifiedTokenCache(JsonObject config) {
+    JsonObject cacheConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.maxSize = cacheConfig.getInteger("maxSize", DEFAULT_MAX_SIZE);
+    this.maxTtlMillis = cacheConfig.getLong("maxTtlSeconds", DEFAULT_MAX_TTL_SECONDS) * 1000;
+    this.ignoreExpiry = config.getBoolean("jwtIgnoreExpiry", false);
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+        return size() > maxSize;
+      }
+    };
+
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      registry = new SimpleMeterRegistry();
+    }
+    this.hitCounter = Counter.builder("ogc.auth.token.cache").tag("result", "hit")
+        .description("Bearer tokens found in the verified token cache").register(registry);
+    this.missCounter = Counter.builder("ogc.auth.token.cache").tag("result", "miss")
+        .description("Bearer tokens not found in the verified token cache")
+        .register(registry);
+  }
+
+  /**
+   * Get a verified token.
+   *
+   * @param token the bearer token
+   * @return the {@link VerifiedToken}, or <code>null</code> if not cached or expired
+   */
+  public VerifiedToken get(String token) {
+    if (maxSize <= 0) {
+      return null;
+    }
+
+    String key = digest(token);
+    synchronized (this) {
+      VerifiedToken cached = entries.get(key);
+      if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+        hitCounter.increment();
+        return cached;
+      }
+      if (cached != null) {
+        entries.remove(key);
+      }
+    }
+    missCounter.increment();
+    return null;
+  }
+
+  /**
+   * Add a token that has been verified.
+   *
+   * @param token the bearer token
+   * @param user the {@link AuthInfo} created from the token
+   * @param limits the parsed limits of the token, <code>null</code> if it has none
+   * @return the {@link VerifiedToken}
+   */
+  public VerifiedToken put(String token, AuthInfo user, Limits limits) {
+    long now = System.currentTimeMillis();
+    long expiresAt = now + maxTtlMillis;
+    if (!ignoreExpiry && user.getExpiry() > 0) {
+      expiresAt = Math.min(expiresAt, user.getExpiry() * 1000);
+    }
+
+    VerifiedToken verified = new VerifiedToken(user, limits, expiresAt);
+    if (maxSize > 0 && expiresAt > now) {
+      String key = digest(token);
+      synchronized (this) {
+        entries.put(key, verified);
+      }
+      LOGGER.debug("Cached verified token of user {}", user.getUserId());
+    }
+    return verified;
+  }
+
+  /**
+   * @return the number of cached tokens
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private static String digest(String token) {
+    return BinaryUtils.toHex(AWS4SignerBase.hash(token));
+  }
+
+  /**
+   * A verified token, holding the {@link AuthInfo} and {@link Limits} parsed from it.
+   */
+  public static class VerifiedToken {
+    private final AuthInfo user;
+    private final Limits limits;
+    private final long expiresAt;
+
+    private VerifiedToken(AuthInfo user, Limits limits, long expiresAt) {
+      this.user = user;
+      this.limits = limits;
+      this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @return a copy of the {@link AuthInfo} of the token, which can be changed by the request
+     */
+    public AuthInfo getUser() {
+      return user.copy();
+    }
+
+    /**
+     * @return the parsed limits of the token, <code>null</code> if it has none or they are invalid
+     */
+    public Limits getLimits() {
+      return limits;
+    }
+  }
+}
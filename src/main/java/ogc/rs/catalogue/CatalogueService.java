@@ -2,6 +2,7 @@ package ogc.rs.catalogue;
 
 import static ogc.rs.common.Constants.CAT_SEARCH_PATH;
 
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
@@ -10,59 +11,271 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import ogc.rs.apiserver.util.OgcException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/**
+ * Client of the DX catalogue search API. Items fetched using {@link #getCatItem(String)} and
+ * {@link #getCatItems(Collection)} are cached, so that audited requests and tiles do not need a
+ * round-trip to the catalogue for every request:
+ * <ul>
+ * <li>items are kept until they expire (TTL) or are evicted as least recently used when the cache
+ * is full</li>
+ * <li>IDs that do not exist in the catalogue are cached for the (shorter) negative TTL. Failed
+ * catalogue calls are not cached</li>
+ * <li>concurrent lookups of an ID that is being fetched wait on the same catalogue call</li>
+ * <li>IDs of a batch lookup that are not cached are fetched using a single search call per
+ * <em>batchSize</em> IDs</li>
+ * </ul>
+ * Cached items are shared between requests and must not be modified. <br>
+ * The service is shared by all verticles of a Vert.x instance and is configured using the
+ * <em>catalogueCache</em> config block:
+ *
+ * <pre>
+ * "catalogueCache" : {
+ *   "maxSize" : 10000,
+ *   "ttlSeconds" : 300,
+ *   "negativeTtlSeconds" : 30,
+ *   "batchSize" : 100
+ * }
+ * </pre>
+ */
 public class CatalogueService {
   private static final Logger LOGGER = LogManager.getLogger(CatalogueService.class);
+
+  public static final String CONFIG_KEY = "catalogueCache";
+  private static final int DEFAULT_MAX_SIZE = 10000;
+  private static final long DEFAULT_TTL_SECONDS = 300;
+  private static final long DEFAULT_NEGATIVE_TTL_SECONDS = 30;
+  private static final int DEFAULT_BATCH_SIZE = 100;
+  private static final String ITEM_FILTER =
+      "[id,provider,name,description,authControlGroup,accessPolicy,type,iudxResourceAPIs,instance,resourceGroup]";
+
+  private static final Map<Vertx, CatalogueService> SERVICES = new ConcurrentHashMap<>();
+
   public static WebClient catWebClient;
+  private final Vertx vertx;
   final String host;
   final int port;
   final String catBasePath;
   final String path;
+  private final long ttlMillis;
+  private final long negativeTtlMillis;
+  private final int batchSize;
+
+  /* a null item is an ID that does not exist in the catalogue */
+  private final Map<String, Entry> entries;
+  private final Map<String, Future<JsonObject>> inFlight = new HashMap<>();
+
+  /**
+   * Get the catalogue service of a Vert.x instance, creating it using the config if it does not
+   * exist.
+   *
+   * @param vertx the Vert.x instance
+   * @param config the verticle config
+   * @return the {@link CatalogueService}
+   */
+  public static CatalogueService getOrCreate(Vertx vertx, JsonObject config) {
+    return SERVICES.computeIfAbsent(vertx, v -> new CatalogueService(v, config));
+  }
+
+  CatalogueService(Vertx vertx, JsonObject config) {
+    JsonObject cacheConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
 
-  public CatalogueService(Vertx vertx, JsonObject config) {
     WebClientOptions options = new WebClientOptions();
     options.setTrustAll(false).setVerifyHost(true).setSsl(true);
     catWebClient = WebClient.create(vertx, options);
+    this.vertx = vertx;
     host = config.getString("catServerHost");
     port = config.getInteger("catServerPort");
     this.catBasePath = config.getString("dxCatalogueBasePath");
     this.path = catBasePath + CAT_SEARCH_PATH;
+
+    int maxSize = cacheConfig.getInteger("maxSize", DEFAULT_MAX_SIZE);
+    this.ttlMillis = cacheConfig.getLong("ttlSeconds", DEFAULT_TTL_SECONDS) * 1000;
+    this.negativeTtlMillis =
+        cacheConfig.getLong("negativeTtlSeconds", DEFAULT_NEGATIVE_TTL_SECONDS) * 1000;
+    this.batchSize = cacheConfig.getInteger("batchSize", DEFAULT_BATCH_SIZE);
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
   }
 
+  /**
+   * Get a catalogue item, fetching it from the catalogue if not cached or expired.
+   *
+   * @param id the item ID
+   * @return future with the item, failed if the item does not exist or the catalogue call failed
+   */
   public Future<JsonObject> getCatItem(String id) {
     LOGGER.debug("get item for id: {} ", id);
-    Promise<JsonObject> promise = Promise.promise();
+    Future<JsonObject> loading;
+    Promise<JsonObject> promise;
+
+    synchronized (this) {
+      Entry entry = entries.get(id);
+      if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+        return entry.item == null
+            ? Future.failedFuture("catalogue call search api failed")
+            : Future.succeededFuture(entry.item);
+      }
+      loading = inFlight.get(id);
+      promise = loading == null ? Promise.promise() : null;
+      if (promise != null) {
+        inFlight.put(id, promise.future());
+      }
+    }
+    if (loading != null) {
+      return onCurrentContext(loading);
+    }
+
+    search("[[" + id + "]]", 1)
+        .onComplete(ar -> {
+          // the item is looked up by ID, so the first result is the item
+          JsonObject item = ar.succeeded() && !ar.result().isEmpty()
+              ? ar.result().getJsonObject(0) : null;
+          complete(id, ar.succeeded(), item, promise);
+        });
+    return promise.future();
+  }
+
+  /**
+   * Get many catalogue items. IDs that are not cached are fetched using one catalogue call per
+   * <em>batchSize</em> IDs.
+   *
+   * @param ids the item IDs
+   * @return future with a map of ID to item, only containing the IDs that exist in the catalogue.
+   *         IDs whose catalogue call failed are left out, so that one failed batch does not lose
+   *         the items of the other batches
+   */
+  public Future<Map<String, JsonObject>> getCatItems(Collection<String> ids) {
+    Map<String, JsonObject> items = new HashMap<>();
+    List<Future<JsonObject>> waiting = new ArrayList<>();
+    Map<String, Promise<JsonObject>> toFetch = new LinkedHashMap<>();
+    long now = System.currentTimeMillis();
+
+    synchronized (this) {
+      for (String id : new LinkedHashSet<>(ids)) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.expiresAt > now) {
+          if (entry.item != null) {
+            items.put(id, entry.item);
+          }
+          continue;
+        }
+        Future<JsonObject> loading = inFlight.get(id);
+        if (loading != null) {
+          waiting.add(loading);
+          continue;
+        }
+        Promise<JsonObject> promise = Promise.promise();
+        inFlight.put(id, promise.future());
+        toFetch.put(id, promise);
+        waiting.add(promise.future());
+      }
+    }
+    LOGGER.debug("get items for {} ids, {} cached, {} to fetch", ids.size(), items.size(),
+        toFetch.size());
+    if (waiting.isEmpty()) {
+      return Future.succeededFuture(items);
+    }
+
+    List<String> fetchIds = new ArrayList<>(toFetch.keySet());
+    for (int i = 0; i < fetchIds.size(); i += batchSize) {
+      List<String> batch = fetchIds.subList(i, Math.min(i + batchSize, fetchIds.size()));
+      search("[[" + String.join(",", batch) + "]]", batch.size())
+          .onComplete(ar -> {
+            Map<String, JsonObject> found = new HashMap<>();
+            if (ar.failed()) {
+              LOGGER.warn("catalogue call for batch of {} ids failed: {}", batch.size(),
+                  ar.cause().getMessage());
+            } else {
+              ar.result().stream()
+                  .map(JsonObject.class::cast)
+                  .forEach(item -> found.put(item.getString("id"), item));
+            }
+            batch.forEach(id -> complete(id, ar.succeeded(), found.get(id), toFetch.get(id)));
+          });
+    }
+
+    // IDs that do not exist or could not be fetched fail, they are left out of the result
+    Future<Map<String, JsonObject>> result = Future.join(new ArrayList<>(waiting))
+        .transform(ar -> {
+          for (Future<JsonObject> future : waiting) {
+            if (future.succeeded()) {
+              items.put(future.result().getString("id"), future.result());
+            }
+          }
+          return Future.succeededFuture(items);
+        });
+    return onCurrentContext(result);
+  }
+
+  private void complete(String id, boolean fetched, JsonObject item,
+      Promise<JsonObject> promise) {
+    synchronized (this) {
+      inFlight.remove(id);
+      if (fetched) {
+        long ttl = item == null ? negativeTtlMillis : ttlMillis;
+        entries.put(id, new Entry(item, System.currentTimeMillis() + ttl));
+      }
+    }
+    if (item != null) {
+      promise.complete(item);
+    } else if (fetched) {
+      LOGGER.debug("Item {} doesn't exist in catalogue", id);
+      promise.fail(new ItemNotFoundException());
+    } else {
+      promise.fail("catalogue call search api failed");
+    }
+  }
+
+  private Future<JsonArray> search(String value, int limit) {
+    Promise<JsonArray> promise = Promise.promise();
 
     catWebClient
         .get(port, host, path)
         .addQueryParam("property", "[id]")
-        .addQueryParam("value", "[[" + id + "]]")
-        .addQueryParam(
-            "filter",
-            "[id,provider,name,description,authControlGroup,accessPolicy,type,iudxResourceAPIs,instance,resourceGroup]")
+        .addQueryParam("value", value)
+        .addQueryParam("filter", ITEM_FILTER)
+        .addQueryParam("limit", String.valueOf(limit))
         .expect(ResponsePredicate.JSON)
         .send(
             relHandler -> {
-              if (relHandler.succeeded()
-                  && relHandler.result().bodyAsJsonObject().getInteger("totalHits") > 0) {
-                LOGGER.debug(
-                    "catalogue call search api succeeded "
-                        + relHandler.result().bodyAsJsonObject().getInteger("totalHits"));
-                JsonArray resultArray =
-                    relHandler.result().bodyAsJsonObject().getJsonArray("results");
-                JsonObject response = resultArray.getJsonObject(0);
-                promise.complete(response);
+              if (relHandler.succeeded()) {
+                JsonObject body = relHandler.result().bodyAsJsonObject();
+                LOGGER.debug("catalogue call search api succeeded " + body.getInteger("totalHits"));
+                JsonArray results = body.getInteger("totalHits") > 0
+                    ? body.getJsonArray("results") : new JsonArray();
+                promise.complete(results);
               } else {
                 LOGGER.debug("catalogue call search api failed: " + relHandler.cause());
                 promise.fail("catalogue call search api failed");
               }
             });
 
-        return promise.future();
-    }
+    return promise.future();
+  }
+
+  /* lookups of other verticle instances may wait on a fetch started on this context */
+  private <T> Future<T> onCurrentContext(Future<T> future) {
+    Context context = vertx.getOrCreateContext();
+    Promise<T> promise = Promise.promise();
+    future.onComplete(ar -> context.runOnContext(v -> promise.handle(ar)));
+    return promise.future();
+  }
 
     public Future<JsonObject> getCatItemUsingFilter(String id, String filter) {
         LOGGER.debug("get item for id: {} ", id);
@@ -101,4 +314,23 @@ public class CatalogueService {
 
         return promise.future();
     }
+
+  private static class Entry {
+    private final JsonObject item;
+    private final long expiresAt;
+
+    private Entry(JsonObject item, long expiresAt) {
+      this.item = item;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /* failure of lookups of IDs that do not exist, with the message of a failed catalogue call */
+  private static class ItemNotFoundException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private ItemNotFoundException() {
+      super("catalogue call search api failed", null, false, false);
+    }
+  }
 }
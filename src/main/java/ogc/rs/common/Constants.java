@@ -14,10 +14,26 @@ public class Constants {
     public static final String METERING_SERVICE_ADDRESS = "ogc.rs.metering.service";
     public static final String PROCESSING_SERVICE_ADDRESS = "ogc.rs.processes.service";
     public static final String JOBS_SERVICE_ADDRESS = "ogc.rs.jobs.service";
+    /* event bus address on which collection metadata cache invalidations are published */
+    public static final String COLLECTION_METADATA_INVALIDATION_ADDRESS =
+        "ogc.rs.collection.metadata.invalidate";
+    /* event bus address on which the ID of a (re)onboarded map collection is published */
+    public static final String MAP_RENDER_CACHE_INVALIDATION_ADDRESS =
+        "ogc.rs.map.render.cache.invalidate";
+    /* event bus address on which the ID of a feature collection whose features have changed is published */
+    public static final String FEATURE_COLLECTION_UPDATED_ADDRESS =
+        "ogc.rs.feature.collection.updated";
+    /* event bus address on which records written to the metering table are published */
+    public static final String METERING_USAGE_ADDRESS = "ogc.rs.metering.usage";
     public static final String DEFAULT_SERVER_CRS = "http://www.opengis.net/def/crs/OGC/1.3/CRS84";
     public static final Integer DEFAULT_CRS_SRID = 4326;
     public static final Set<String> WELL_KNOWN_QUERY_PARAMETERS =
-        Set.of("limit", "bbox", "datetime", "offset", "bbox-crs", "crs");
+        Set.of("limit", "bbox", "datetime", "offset", "bbox-crs", "crs", "zoom-level",
+            "scale-denominator");
+    /* set in getFeatures result if more features exist after the returned page */
+    public static final String HAS_MORE_FEATURES_KEY = "hasMoreFeatures";
+    /* set in getAggregatedFeatures result, ID of the last feature of the returned page */
+    public static final String LAST_FEATURE_ID_KEY = "lastFeatureId";
     public static final String UUID_REGEX = "^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$";
 
     public static final String OAS_BEARER_SECURITY_SCHEME = "DX-AAA-Token";
@@ -21,30 +21,29 @@ import java.util.Map;
 public class DataFromS3 {
 
   private static final Logger LOGGER = LogManager.getLogger(DataFromS3.class);
-  private static HttpClient client;
+  private final HttpClient client;
 
   private String s3Url;
-  static String S3_BUCKET;
-  static String S3_REGION;
-  static String S3_ACCESS_KEY;
-  static String S3_SECRET_KEY;
+  // per instance, so that concurrent requests to different buckets do not sign with each other's keys
+  private final String s3Region;
+  private final String s3AccessKey;
+  private final String s3SecretKey;
   private final Map<String, String> headers;
   private URL url;
 
   public DataFromS3(HttpClient client, S3Config config) {
-    S3_BUCKET = config.getBucket();
-    S3_REGION = config.getRegion();
-    S3_ACCESS_KEY = config.getAccessKey();
-    S3_SECRET_KEY = config.getSecretKey();
+    this.s3Region = config.getRegion();
+    this.s3AccessKey = config.getAccessKey();
+    this.s3SecretKey = config.getSecretKey();
     
     if (config.isPathBasedAccess()) {
-      this.s3Url = config.getEndpoint() + "/" + S3_BUCKET + "/";
+      this.s3Url = config.getEndpoint() + "/" + config.getBucket() + "/";
     } else {
-      this.s3Url = (config.isHttps() ? "https://" : "http://") + S3_BUCKET + "."
+      this.s3Url = (config.isHttps() ? "https://" : "http://") + config.getBucket() + "."
           + config.getEndpoint().replaceFirst("https?://", "") + "/";
     }
     
-    DataFromS3.client = client;
+    this.client = client;
     this.headers = new HashMap<>();
   }
 
@@ -62,6 +61,9 @@ public class DataFromS3 {
             response.fail(new OgcException(404, "Not Found", "File not found."));
           } else if (res.statusCode() == 200) {
             response.complete(res);
+          } else if (res.statusCode() == 304) {
+            // only returned if a conditional header was set using setHeader
+            response.complete(res);
           } else {
             LOGGER.error("Internal Server Error, Something went wrong here. {},{},{},{}",res.statusCode(),httpMethod,url.toString(),res.body().result().toString());
             response.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
@@ -78,12 +80,23 @@ public class DataFromS3 {
     return response.future();
   }
 
+  /**
+   * Add a header to the S3 request, e.g. <em>If-None-Match</em> for a conditional GET. Must be
+   * called before {@link #setSignatureHeader(HttpMethod)} since all headers are signed.
+   *
+   * @param name the header name
+   * @param value the header value
+   */
+  public void setHeader(String name, String value) {
+    headers.put(name, value);
+  }
+
   public void setSignatureHeader (HttpMethod httpMethod) {
     headers.put("x-amz-content-sha256", AWS4SignerBase.EMPTY_BODY_SHA256);
     AWS4SignerForAuthorizationHeader signer =
-        new AWS4SignerForAuthorizationHeader(url, httpMethod.name(), "s3", S3_REGION);
+        new AWS4SignerForAuthorizationHeader(url, httpMethod.name(), "s3", s3Region);
     String signedAuthorizationHeader = signer.computeSignature(headers, null, // no query parameters
-        AWS4SignerBase.EMPTY_BODY_SHA256, S3_ACCESS_KEY, S3_SECRET_KEY);
+        AWS4SignerBase.EMPTY_BODY_SHA256, s3AccessKey, s3SecretKey);
 
     headers.put("Authorization", signedAuthorizationHeader);
   }
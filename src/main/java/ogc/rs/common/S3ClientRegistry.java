@@ -0,0 +1,235 @@
+package ogc.rs.common;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+/**
+ * Registry of AWS SDK S3 clients shared by the server. Building an SDK client creates a new HTTP
+ * connection pool (and TLS handshakes for every new connection), so a client is built once for
+ * every bucket config of {@link S3ConfigsHolder} and reused. All clients share a single pooled
+ * async HTTP client. <br>
+ * The ETag returned by a HEAD on an object is also cached for a short time, so that repeated
+ * requests for the same object (e.g. a map of a collection) do not need a round-trip to S3. Only
+ * objects that exist are cached. <br>
+ * The registry is shared by all verticles of a Vert.x instance, each of which must
+ * {@link #release()} it when stopped. The clients are closed once the last verticle releases it.
+ * The registry is configured using the <em>s3Clients</em> config block:
+ *
+ * <pre>
+ * "s3Clients" : {
+ *   "maxConnections" : 50,
+ *   "connectionTimeoutSeconds" : 10,
+ *   "headCacheTtlSeconds" : 30,
+ *   "headCacheMaxSize" : 10000
+ * }
+ * </pre>
+ */
+public class S3ClientRegistry {
+
+  private static final Logger LOGGER = LogManager.getLogger(S3ClientRegistry.class);
+
+  public static final String CONFIG_KEY = "s3Clients";
+  private static final int DEFAULT_MAX_CONNECTIONS = 50;
+  private static final long DEFAULT_CONNECTION_TIMEOUT_SECONDS = 10;
+  private static final long DEFAULT_HEAD_CACHE_TTL_SECONDS = 30;
+  private static final int DEFAULT_HEAD_CACHE_MAX_SIZE = 10000;
+
+  private static final Map<Vertx, S3ClientRegistry> REGISTRIES = new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final SdkAsyncHttpClient httpClient;
+  private final long headCacheTtlMillis;
+  private final int headCacheMaxSize;
+
+  private final Map<String, S3AsyncClient> clients = new ConcurrentHashMap<>();
+  private final Map<String, S3Presigner> presigners = new ConcurrentHashMap<>();
+  private final Map<String, HeadEntry> headCache = new ConcurrentHashMap<>();
+  /* number of verticles using the registry, only changed while computing its REGISTRIES entry */
+  private int users = 0;
+
+  /**
+   * Get the registry of a Vert.x instance, creating it using the config if it does not exist. The
+   * caller must {@link #release()} it once it is no longer used.
+   *
+   * @param vertx the Vert.x instance
+   * @param config the verticle config
+   * @return the {@link S3ClientRegistry}
+   */
+  public static S3ClientRegistry getOrCreate(Vertx vertx, JsonObject config) {
+    return REGISTRIES.compute(vertx, (v, registry) -> {
+      S3ClientRegistry used = registry == null ? new S3ClientRegistry(v, config) : registry;
+      used.users++;
+      return used;
+    });
+  }
+
+  /**
+   * Release a registry obtained using {@link #getOrCreate(Vertx, JsonObject)}. The registry is
+   * closed once all its users have released it.
+   */
+  public void release() {
+    boolean[] last = {false};
+    REGISTRIES.computeIfPresent(vertx, (v, registry) -> {
+      if (registry != this) {
+        return registry;
+      }
+      last[0] = --users == 0;
+      return last[0] ? null : registry;
+    });
+    if (last[0]) {
+      close();
+    }
+  }
+
+  S3ClientRegistry(Vertx vertx, JsonObject config) {
+    JsonObject clientsConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.vertx = vertx;
+    this.headCacheTtlMillis =
+        clientsConfig.getLong("headCacheTtlSeconds", DEFAULT_HEAD_CACHE_TTL_SECONDS) * 1000;
+    this.headCacheMaxSize = clientsConfig.getInteger("headCacheMaxSize", DEFAULT_HEAD_CACHE_MAX_SIZE);
+
+    int maxConnections = clientsConfig.getInteger("maxConnections", DEFAULT_MAX_CONNECTIONS);
+    this.httpClient = NettyNioAsyncHttpClient.builder()
+        .maxConcurrency(maxConnections)
+        .connectionTimeout(Duration.ofSeconds(
+            clientsConfig.getLong("connectionTimeoutSeconds", DEFAULT_CONNECTION_TIMEOUT_SECONDS)))
+        .build();
+
+    LOGGER.info("S3 client registry created, max {} connections", maxConnections);
+  }
+
+  /**
+   * Get the shared async S3 client for a bucket config.
+   *
+   * @param conf the bucket config
+   * @return the {@link S3AsyncClient}, which must not be closed by the caller
+   */
+  public S3AsyncClient getClient(S3Config conf) {
+    return clients.computeIfAbsent(clientKey(conf), key -> S3AsyncClient.builder()
+        .httpClient(httpClient)
+        .region(Region.of(conf.getRegion()))
+        .endpointOverride(URI.create(conf.getEndpoint()))
+        .credentialsProvider(StaticCredentialsProvider.create(
+            AwsBasicCredentials.create(conf.getAccessKey(), conf.getSecretKey())))
+        .serviceConfiguration(S3Configuration.builder()
+            .pathStyleAccessEnabled(conf.isPathBasedAccess())
+            .build())
+        .build());
+  }
+
+  /**
+   * Get the shared S3 presigner for a bucket config.
+   *
+   * @param conf the bucket config
+   * @return the {@link S3Presigner}, which must not be closed by the caller
+   */
+  public S3Presigner getPresigner(S3Config conf) {
+    return presigners.computeIfAbsent(clientKey(conf), key -> S3Presigner.builder()
+        .region(Region.of(conf.getRegion()))
+        .endpointOverride(URI.create(conf.getEndpoint()))
+        .credentialsProvider(StaticCredentialsProvider.create(
+            AwsBasicCredentials.create(conf.getAccessKey(), conf.getSecretKey())))
+        .serviceConfiguration(S3Configuration.builder()
+            .pathStyleAccessEnabled(conf.isPathBasedAccess())
+            .build())
+        .build());
+  }
+
+  /**
+   * Get the ETag of an object using a HEAD request, or from the HEAD cache if the object was
+   * checked recently.
+   *
+   * @param conf the config of the bucket the object is in
+   * @param objectKey the object key
+   * @return future with the ETag of the object (empty string if S3 does not return one), or empty
+   *         if the object does not exist. Failed with the {@link S3Exception} on any other error
+   */
+  public Future<Optional<String>> getObjectETag(S3Config conf, String objectKey) {
+    String cacheKey = clientKey(conf) + "|" + conf.getBucket() + "|" + objectKey;
+
+    HeadEntry entry = headCache.get(cacheKey);
+    if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+      return Future.succeededFuture(Optional.of(entry.etag));
+    }
+
+    return toFuture(getClient(conf).headObject(req -> req.bucket(conf.getBucket()).key(objectKey)))
+        .map(head -> {
+          String etag = head.eTag() == null ? "" : head.eTag();
+          // HEAD results are short-lived, so simply start over if full
+          if (headCache.size() >= headCacheMaxSize) {
+            headCache.clear();
+          }
+          headCache.put(cacheKey, new HeadEntry(etag, System.currentTimeMillis() + headCacheTtlMillis));
+          return Optional.of(etag);
+        })
+        .recover(err -> {
+          Throwable cause = err instanceof CompletionException && err.getCause() != null
+              ? err.getCause() : err;
+          if (cause instanceof S3Exception && ((S3Exception) cause).statusCode() == 404) {
+            return Future.succeededFuture(Optional.empty());
+          }
+          return Future.failedFuture(cause);
+        });
+  }
+
+  /**
+   * Convert the result of an async S3 client call to a {@link Future} that completes on the Vert.x
+   * context of the caller instead of an SDK thread.
+   *
+   * @param <T> the result type
+   * @param stage the result of the S3 client call
+   * @return the {@link Future}
+   */
+  public <T> Future<T> toFuture(CompletionStage<T> stage) {
+    return Future.fromCompletionStage(stage, vertx.getOrCreateContext());
+  }
+
+  /**
+   * Close all clients and the shared HTTP client.
+   */
+  public void close() {
+    REGISTRIES.remove(vertx, this);
+    clients.values().forEach(S3AsyncClient::close);
+    presigners.values().forEach(S3Presigner::close);
+    clients.clear();
+    presigners.clear();
+    headCache.clear();
+    httpClient.close();
+  }
+
+  /* clients only depend on the endpoint and credentials, so buckets with the same are shared */
+  private static String clientKey(S3Config conf) {
+    return String.join("|", conf.getEndpoint(), conf.getRegion(), conf.getAccessKey(),
+        conf.getSecretKey(), String.valueOf(conf.isPathBasedAccess()));
+  }
+
+  private static class HeadEntry {
+    private final String etag;
+    private final long expiresAt;
+
+    private HeadEntry(String etag, long expiresAt) {
+      this.etag = etag;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package ogc.rs.common;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+/**
+ * Writes an S3 object of unknown size from data produced in chunks, holding at most one part in
+ * memory. Data is buffered until the part size is reached and then uploaded as a part of a
+ * multipart upload, which is only started once the first part is full; objects smaller than a
+ * part are uploaded using a single PUT. <br>
+ * Writes must be done one after the other, i.e. the next write must only be done once the future
+ * of the previous write has completed, which gives backpressure to the producer of the data. If a
+ * write or {@link #end()} fails, the multipart upload is aborted. If the producer fails,
+ * {@link #abort()} must be called so that uploaded parts are not left behind.
+ */
+public class S3MultipartWriter {
+
+  private static final Logger LOGGER = LogManager.getLogger(S3MultipartWriter.class);
+
+  /* S3 does not allow parts smaller than this, except the last part */
+  public static final long MIN_PART_SIZE_BYTES = 5L * 1024 * 1024;
+
+  private final S3ClientRegistry s3ClientRegistry;
+  private final S3Config s3conf;
+  private final String objectKey;
+  private final String contentType;
+  private final long partSizeBytes;
+
+  private final List<CompletedPart> parts = new ArrayList<>();
+  private Buffer buffer = Buffer.buffer();
+  private String uploadId;
+  private long bytesWritten = 0;
+
+  /**
+   * Create an S3MultipartWriter.
+   *
+   * @param s3ClientRegistry the registry of shared S3 clients
+   * @param s3conf config of the bucket to write to
+   * @param objectKey key of the object
+   * @param contentType content type of the object
+   * @param partSizeBytes size of the parts, at least {@link #MIN_PART_SIZE_BYTES}
+   */
+  public S3MultipartWriter(S3ClientRegistry s3ClientRegistry, S3Config s3conf, String objectKey,
+      String contentType, long partSizeBytes) {
+    this.s3ClientRegistry = s3ClientRegistry;
+    this.s3conf = s3conf;
+    this.objectKey = objectKey;
+    this.contentType = contentType;
+    this.partSizeBytes = Math.max(partSizeBytes, MIN_PART_SIZE_BYTES);
+  }
+
+  /**
+   * Write data to the object, uploading a part if the buffered data has reached the part size.
+   *
+   * @param data the data
+   * @return future completed once the data is buffered or uploaded, failed once the upload is
+   *         aborted if the part could not be uploaded
+   */
+  public Future<Void> write(Buffer data) {
+    buffer.appendBuffer(data);
+    bytesWritten += data.length();
+    if (buffer.length() < partSizeBytes) {
+      return Future.succeededFuture();
+    }
+
+    Buffer part = buffer;
+    buffer = Buffer.buffer();
+    Future<String> upload = uploadId == null ? createMultipartUpload() : Future.succeededFuture(uploadId);
+    return upload.compose(id -> uploadPart(part)).recover(this::abortAndFail);
+  }
+
+  /**
+   * Upload the remaining data and complete the object.
+   *
+   * @return future with the total size of the object in bytes, failed once the upload is aborted
+   *         if the object could not be completed
+   */
+  public Future<Long> end() {
+    if (uploadId == null) {
+      return s3ClientRegistry.toFuture(s3ClientRegistry.getClient(s3conf).putObject(
+          req -> req.bucket(s3conf.getBucket()).key(objectKey).contentType(contentType),
+          AsyncRequestBody.fromBytes(buffer.getBytes())))
+          .map(res -> bytesWritten);
+    }
+
+    Future<Void> lastPart = buffer.length() > 0 ? uploadPart(buffer) : Future.succeededFuture();
+    buffer = Buffer.buffer();
+
+    return lastPart
+        .compose(res -> s3ClientRegistry.toFuture(s3ClientRegistry.getClient(s3conf)
+            .completeMultipartUpload(req -> req.bucket(s3conf.getBucket()).key(objectKey)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()))))
+        .map(res -> {
+          LOGGER.debug("Uploaded {} in {} parts, {} bytes", objectKey, parts.size(), bytesWritten);
+          return bytesWritten;
+        })
+        .recover(this::abortAndFail);
+  }
+
+  /**
+   * Abort the multipart upload if it was started and not yet aborted. Failures are only logged,
+   * since this is done when the write has already failed.
+   *
+   * @return future completed once the upload is aborted
+   */
+  public Future<Void> abort() {
+    buffer = Buffer.buffer();
+    if (uploadId == null) {
+      return Future.succeededFuture();
+    }
+
+    String abortedUploadId = uploadId;
+    uploadId = null;
+    return s3ClientRegistry.toFuture(s3ClientRegistry.getClient(s3conf).abortMultipartUpload(
+        req -> req.bucket(s3conf.getBucket()).key(objectKey).uploadId(abortedUploadId)))
+        .<Void>mapEmpty()
+        .recover(err -> {
+          LOGGER.error("Failed to abort multipart upload of {} - {}", objectKey, err.getMessage());
+          return Future.succeededFuture();
+        });
+  }
+
+  private <T> Future<T> abortAndFail(Throwable err) {
+    return abort().compose(res -> Future.failedFuture(err));
+  }
+
+  private Future<String> createMultipartUpload() {
+    return s3ClientRegistry.toFuture(s3ClientRegistry.getClient(s3conf).createMultipartUpload(
+        req -> req.bucket(s3conf.getBucket()).key(objectKey).contentType(contentType)))
+        .map(res -> {
+          uploadId = res.uploadId();
+          return uploadId;
+        });
+  }
+
+  private Future<Void> uploadPart(Buffer part) {
+    int partNumber = parts.size() + 1;
+    return s3ClientRegistry.toFuture(s3ClientRegistry.getClient(s3conf).uploadPart(
+        req -> req.bucket(s3conf.getBucket()).key(objectKey).uploadId(uploadId)
+            .partNumber(partNumber),
+        AsyncRequestBody.fromBytes(part.getBytes())))
+        .map(res -> {
+          parts.add(CompletedPart.builder().partNumber(partNumber).eTag(res.eTag()).build());
+          return null;
+        });
+  }
+}
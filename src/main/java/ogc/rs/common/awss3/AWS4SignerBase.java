@@ -6,6 +6,7 @@ import java.net.URL;
 import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
@@ -29,6 +30,12 @@ public abstract class AWS4SignerBase {
   public static final String ISO8601BasicFormat = "yyyyMMdd'T'HHmmss'Z'";
   public static final String DateStringFormat = "yyyyMMdd";
 
+  /**
+   * Signing keys derived from the secret key, date stamp, region and service. A signing key is
+   * valid for the whole day, so it is derived once per day instead of on every request.
+   */
+  private static final Map<String, byte[]> SIGNING_KEYS = new ConcurrentHashMap<>();
+
   protected URL endpointUrl;
   protected String httpMethod;
   protected String serviceName;
@@ -225,4 +232,38 @@ public abstract class AWS4SignerBase {
       throw new RuntimeException("Unable to calculate a request signature: " + e.getMessage(), e);
     }
   }
+
+  /**
+   * Get the AWS4 signing key for the given secret key, date stamp, region and service. The key is
+   * derived using 4 HMAC operations the first time it is requested for a day and cached after that.
+   * Keys of previous days are dropped when a key for a new day is derived. Keys are cached by a
+   * SHA-256 hash of the secret key, so that the secret key itself is not held in the cache.
+   *
+   * @param awsSecretKey the AWS secret key
+   * @param dateStamp the date stamp in {@link #DateStringFormat} format
+   * @param regionName the region name
+   * @param serviceName the service name
+   * @return the signing key
+   */
+  protected static byte[] getSigningKey(String awsSecretKey, String dateStamp, String regionName,
+      String serviceName) {
+    String cacheKey = dateStamp + "/" + regionName + "/" + serviceName + "/"
+        + BinaryUtils.toHex(hash(awsSecretKey));
+
+    byte[] kSigning = SIGNING_KEYS.get(cacheKey);
+    if (kSigning != null) {
+      return kSigning;
+    }
+
+    SIGNING_KEYS.keySet().removeIf(key -> !key.startsWith(dateStamp + "/"));
+
+    byte[] kSecret = (SCHEME + awsSecretKey).getBytes();
+    byte[] kDate = sign(dateStamp, kSecret, "HmacSHA256");
+    byte[] kRegion = sign(regionName, kDate, "HmacSHA256");
+    byte[] kService = sign(serviceName, kRegion, "HmacSHA256");
+    kSigning = sign(TERMINATOR, kService, "HmacSHA256");
+
+    SIGNING_KEYS.put(cacheKey, kSigning);
+    return kSigning;
+  }
 }
@@ -67,12 +67,8 @@ public class AWS4SignerForAuthorizationHeader extends AWS4SignerBase {
     String stringToSign =
         getStringToSign(SCHEME, ALGORITHM, dateTimeStamp, scope, canonicalRequest);
 
-    // compute the signing key
-    byte[] kSecret = (SCHEME + awsSecretKey).getBytes();
-    byte[] kDate = sign(dateStamp, kSecret, "HmacSHA256");
-    byte[] kRegion = sign(regionName, kDate, "HmacSHA256");
-    byte[] kService = sign(serviceName, kRegion, "HmacSHA256");
-    byte[] kSigning = sign(TERMINATOR, kService, "HmacSHA256");
+    // get the signing key, derived once per day for a secret key, region and service
+    byte[] kSigning = getSigningKey(awsSecretKey, dateStamp, regionName, serviceName);
     byte[] signature = sign(stringToSign, kSigning, "HmacSHA256");
 
     String credentialsAuthorizationHeader = "Credential=" + awsAccessKey + "/" + scope;
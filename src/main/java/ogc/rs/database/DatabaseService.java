@@ -19,6 +19,23 @@ public interface DatabaseService {
     static DatabaseService createProxy(Vertx vertx, String address) {
         return new DatabaseServiceVertxEBProxy(vertx, address);
     }
+
+    /**
+     * Get the service bound for in-process use if the {@link DatabaseVerticle} is deployed in the
+     * same Vert.x instance with <em>localBinding</em> enabled, else an event bus proxy. The
+     * in-process service is called directly, so arguments and results are passed by reference and
+     * must not be modified after the call. The {@link DatabaseVerticle} must be deployed before the
+     * caller for the in-process service to be found.
+     *
+     * @param vertx the Vert.x instance
+     * @param address the event bus address of the service
+     * @return the in-process service or an event bus proxy
+     */
+    @GenIgnore
+    static DatabaseService createLocalOrProxy(Vertx vertx, String address) {
+        DatabaseService local = LocalDatabaseServiceRegistry.lookup(vertx, address);
+        return local != null ? local : createProxy(vertx, address);
+    }
     // TODO:
     // Future<JsonObject> to Future<DO> class.
 
@@ -37,6 +54,22 @@ public interface DatabaseService {
 
     Future<JsonObject> getFeatures(String collectionId, Map<String, String> queryParams, Limits limits, Map<String, Integer> crs);
 
+    /**
+     * Variant of {@link #getFeatures(String, Map, Limits, Map)} where the GeoJSON of the features
+     * is built by Postgres. The <em>features</em> field of the result is the text of the features
+     * array, which is put in the response without being parsed. The ID of the last feature is set
+     * as {@link ogc.rs.common.Constants#LAST_FEATURE_ID_KEY}, since the features are not parsed.
+     */
+    Future<JsonObject> getAggregatedFeatures(String collectionId, Map<String, String> queryParams, Limits limits, Map<String, Integer> crs);
+
+    /**
+     * Generate a Mapbox Vector Tile from an OGC feature collection, for a tile of a tile matrix set
+     * in <em>tms_metadata</em>. The bbox and feature limits of the token are applied as for
+     * <em>/items</em>. The tile is set as a Buffer in the <em>tile</em> field of the result, and is
+     * empty if there are no features in the tile.
+     */
+    Future<JsonObject> getFeatureTile(String collectionId, String tileMatrixSetId, int tileMatrix, int tileRow, int tileCol, Limits limits);
+
     Future<JsonObject> getFeature(String collectionId, Integer featureId, Map<String, String> queryParams, Limits limits, Map<String, Integer> crs);
 
     Future<Map<String, Integer>> isCrsValid(String collectionId, Map<String, String> queryParams);
@@ -84,6 +117,15 @@ public interface DatabaseService {
      */
     Future<List<JsonObject>> getOgcFeatureCollectionMetadataForOasSpec(List<String> existingCollectionUuidIds);
 
+    /**
+     * Get the OGC Feature Collection metadata of a single collection, in the same form as the
+     * elements returned by {@link #getOgcFeatureCollectionMetadataForOasSpec(List)}.
+     *
+     * @param collectionId the collection ID
+     * @return the metadata, fails with a 404 OgcException if it is not a feature collection
+     */
+    Future<JsonObject> getOgcFeatureCollectionMetadata(String collectionId);
+
     /**
      * GET OGC REcords metadata  to be used for OPENAPI spec generation.
      *
@@ -5,6 +5,7 @@ import static ogc.rs.database.util.Constants.PROCESSES_TABLE_NAME;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
@@ -17,9 +18,15 @@ import ogc.rs.apiserver.util.Limits;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.apiserver.util.ProcessException;
 import ogc.rs.apiserver.util.StacItemSearchParams;
+import ogc.rs.database.util.CollectionMetadataCache;
+import ogc.rs.database.util.GeometryGeneralization;
+import ogc.rs.database.util.FeatureCollectionStream;
+import ogc.rs.database.util.FeatureCountStrategy;
 import ogc.rs.database.util.FeatureQueryBuilder;
 import ogc.rs.database.util.RecordQueryBuilder;
 import ogc.rs.database.util.MulticornErrorHandler;
+import ogc.rs.database.util.StacItemIngestion;
+import ogc.rs.database.util.TileGrid;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -33,8 +40,20 @@ public class DatabaseServiceImpl implements DatabaseService{
 
     private final PgPool client;
     private final JsonObject config;
+    private final CollectionMetadataCache collectionMetadataCache;
+    private final StacItemIngestion stacItemIngestion;
     public DatabaseServiceImpl(final PgPool pgClient,JsonObject config) {
         this.client = pgClient;this.config=config;
+        this.collectionMetadataCache = new CollectionMetadataCache(pgClient, config);
+        this.stacItemIngestion = new StacItemIngestion(pgClient, config);
+    }
+
+    /**
+     * Clear the collection metadata cache. Called when the spec and router update notification is
+     * received, since collections have been onboarded or updated.
+     */
+    public void invalidateCollectionMetadataCache() {
+        collectionMetadataCache.invalidateAll();
     }
 
     @Override
@@ -137,15 +156,248 @@ public class DatabaseServiceImpl implements DatabaseService{
         LOGGER.info("getFeatures");
         Promise<JsonObject> result = Promise.promise();
 
-        Collector<Row, ? , Map<String, Integer>> collectorT = Collectors.toMap(row -> row.getColumnName(0),
-                row -> row.getInteger("count"));
         Collector<Row, ? , List<JsonObject>> collector = Collectors.mapping(Row::toJson, Collectors.toList());
 
+        int limit = Integer.parseInt(queryParams.get("limit"));
+
+        prepareFeatureQuery(collectionId, queryParams, limits, crs)
+                .compose(featureQuery -> client.withConnection(conn -> {
+                    LOGGER.debug("<DBService> Sql query- {} ",  featureQuery.buildSqlString());
+
+                    JsonObject resultJson = new JsonObject();
+                    return countFeatures(conn, featureQuery, collectionId)
+                            .compose(count -> {
+                                LOGGER.debug("Feature Count- {}", count);
+                                if (count != null) {
+                                    resultJson.put("numberMatched", count);
+                                }
+
+                                return conn.preparedQuery(featureQuery.buildSqlString())
+                                        .collecting(collector).execute()
+                                        .map(SqlResult::value)
+                                        .compose(success -> {
+                                            // the extra feature fetched by the limit + 1 probe is
+                                            // not returned, it only indicates that there is a next page
+                                            boolean hasMore = success.size() > limit;
+                                            List<JsonObject> features =
+                                                    hasMore ? new ArrayList<>(success.subList(0, limit)) : success;
+                                            resultJson
+                                                    .put("features", new JsonArray(features))
+                                                    .put("numberReturned", features.size())
+                                                    .put(HAS_MORE_FEATURES_KEY, hasMore);
+                                            resultJson.put("type", "FeatureCollection");
+                                            return Future.succeededFuture(resultJson);
+                                        });
+                            });
+                }))
+                .onSuccess(jsonResult -> {
+                    LOGGER.debug("getFeatures completed successfully");
+                    result.complete(jsonResult);
+                })
+                .onFailure(err -> {
+                    LOGGER.error("Failed at getFeatures - {}", err.getMessage());
+                    result.fail(MulticornErrorHandler.handle(err));
+                });
+
+        return result.future();
+    }
+
+    @Override
+    public Future<JsonObject> getAggregatedFeatures(String collectionId,
+        Map<String, String> queryParams, Limits limits, Map<String, Integer> crs) {
+        LOGGER.info("getAggregatedFeatures");
+        Promise<JsonObject> result = Promise.promise();
+
+        int limit = Integer.parseInt(queryParams.get("limit"));
+
+        prepareFeatureQuery(collectionId, queryParams, limits, crs)
+                .compose(featureQuery -> client.withConnection(conn ->
+                        countFeatures(conn, featureQuery, collectionId)
+                                .compose(count -> conn
+                                        .preparedQuery(featureQuery.buildAggregatedSqlString(limit))
+                                        .execute()
+                                        .map(rows -> {
+                                            Row row = rows.iterator().next();
+                                            long fetched = row.getLong("fetched");
+                                            JsonObject resultJson = new JsonObject();
+                                            if (count != null) {
+                                                resultJson.put("numberMatched", count);
+                                            }
+                                            return resultJson
+                                                    .put("features", row.getString("features"))
+                                                    .put("numberReturned", (int) Math.min(fetched, limit))
+                                                    .put(HAS_MORE_FEATURES_KEY, fetched > limit)
+                                                    .put(LAST_FEATURE_ID_KEY, row.getInteger("last_id"));
+                                        }))))
+                .onSuccess(jsonResult -> {
+                    LOGGER.debug("getAggregatedFeatures completed successfully");
+                    result.complete(jsonResult);
+                })
+                .onFailure(err -> {
+                    LOGGER.error("Failed at getAggregatedFeatures - {}", err.getMessage());
+                    result.fail(MulticornErrorHandler.handle(err));
+                });
+
+        return result.future();
+    }
+
+    @Override
+    public Future<JsonObject> getFeatureTile(String collectionId, String tileMatrixSetId,
+        int tileMatrix, int tileRow, int tileCol, Limits limits) {
+        LOGGER.info("getFeatureTile");
+        Promise<JsonObject> result = Promise.promise();
+
+        client.withConnection(conn -> conn.preparedQuery(GET_FEATURE_TILE_MATRIX_SET)
+                        .execute(Tuple.of(collectionId, tileMatrixSetId)))
+                .compose(rows -> {
+                    if (rows.size() == 0 || !rows.iterator().next().getBoolean("is_feature")) {
+                        return Future.failedFuture(new OgcException(404, "Not found",
+                                "Feature collection or tile matrix set not found"));
+                    }
+                    TileGrid grid = TileGrid.forCrs(rows.iterator().next().getString("crs"));
+                    if (grid == null) {
+                        return Future.failedFuture(new OgcException(404, "Not found",
+                                "Tiles cannot be generated for tile matrix set " + tileMatrixSetId));
+                    }
+                    if (!grid.contains(tileMatrix, tileRow, tileCol)) {
+                        return Future.failedFuture(new OgcException(404, "Not found", "Tile not found"));
+                    }
+
+                    // the features in the tile are selected using a bbox query on the tile envelope
+                    String tileBbox = Arrays.stream(grid.getLonLatEnvelope(tileMatrix, tileRow, tileCol))
+                            .mapToObj(String::valueOf)
+                            .collect(Collectors.joining(","));
+                    Map<String, String> queryParams = new HashMap<>(Map.of("bbox", tileBbox,
+                            "bbox-crs", DEFAULT_SERVER_CRS, "crs", DEFAULT_SERVER_CRS, "limit", "0",
+                            "offset", "1"));
+
+                    Future<String> mvtQuery = prepareFeatureQuery(collectionId, queryParams, limits,
+                            Map.of(DEFAULT_SERVER_CRS, DEFAULT_CRS_SRID))
+                            .map(featureQuery -> featureQuery.buildMvtSqlString(
+                                    grid.getEnvelope(tileMatrix, tileRow, tileCol), grid.getSrid()));
+
+                    return mvtQuery.compose(sql -> client.withConnection(conn ->
+                                    conn.preparedQuery(sql).execute()))
+                            .<Buffer>map(mvtRows -> mvtRows.iterator().next().getBuffer("mvt"))
+                            .recover(err -> {
+                                // a tile outside the area allowed by the token has no features
+                                // for the client, unlike /items where the bbox is requested
+                                if (err instanceof OgcException
+                                        && BBOX_VIOLATES_CONSTRAINTS.equals(err.getMessage())) {
+                                    return Future.succeededFuture(null);
+                                }
+                                return Future.failedFuture(err);
+                            });
+                })
+                .onSuccess(tile -> {
+                    LOGGER.debug("getFeatureTile completed successfully");
+                    result.complete(new JsonObject().put("tile", tile == null ? Buffer.buffer() : tile));
+                })
+                .onFailure(err -> {
+                    LOGGER.error("Failed at getFeatureTile - {}", err.getMessage());
+                    result.fail(MulticornErrorHandler.handle(err));
+                });
+
+        return result.future();
+    }
+
+    /**
+     * Streaming variant of {@link #getFeatures(String, Map, Limits, Map)}. The count query is run
+     * first, after which the features query is opened as a cursor and wrapped in a
+     * {@link FeatureCollectionStream} that reads <code>fetchSize</code> rows at a time. <br>
+     * This method is not part of {@link DatabaseService} since a stream cannot be sent over the
+     * event bus; it can only be used with a {@link DatabaseServiceImpl} instance created in the
+     * same verticle as the consumer of the stream. The connection used is held until the stream
+     * ends, fails or is closed.
+     *
+     * @param collectionId the collection ID
+     * @param queryParams the validated query params of the request
+     * @param limits limits obtained from the token, if any
+     * @param crs map of supported CRS to SRID from {@link #isCrsValid(String, Map)}
+     * @param fetchSize number of rows to be fetched from the cursor at a time
+     * @return future with the {@link FeatureCollectionStream}
+     */
+    public Future<FeatureCollectionStream> streamFeatures(String collectionId,
+        Map<String, String> queryParams, Limits limits, Map<String, Integer> crs, int fetchSize) {
+        LOGGER.info("streamFeatures");
+        Promise<FeatureCollectionStream> result = Promise.promise();
+
+        int limit = Integer.parseInt(queryParams.get("limit"));
+
+        prepareFeatureQuery(collectionId, queryParams, limits, crs)
+                .compose(featureQuery -> client.getConnection().compose(conn ->
+                        countFeatures(conn, featureQuery, collectionId)
+                                .compose(count -> conn.begin().compose(tx ->
+                                        conn.prepare(featureQuery.buildSqlString())
+                                                .map(stmt -> new FeatureCollectionStream(conn, tx,
+                                                        stmt.createStream(fetchSize), count, limit))))
+                                .onFailure(err -> conn.close())))
+                .onSuccess(result::complete)
+                .onFailure(err -> {
+                    LOGGER.error("Failed at streamFeatures - {}", err.getMessage());
+                    result.fail(MulticornErrorHandler.handle(err));
+                });
+
+        return result.future();
+    }
+
+    /**
+     * Get <em>numberMatched</em> for an OGC Features <em>/items</em> request based on the
+     * {@link FeatureCountStrategy} configured for the collection.
+     *
+     * @param conn the connection to run the count query on
+     * @param featureQuery the query builder for the request
+     * @param collectionId the collection ID
+     * @return future with the count, or <code>null</code> if it should not be returned
+     */
+    private Future<Integer> countFeatures(SqlConnection conn, FeatureQueryBuilder featureQuery,
+        String collectionId) {
+        FeatureCountStrategy strategy = FeatureCountStrategy.forCollection(config, collectionId);
+
+        switch (strategy) {
+            case NONE:
+                return Future.succeededFuture(null);
+            case ESTIMATED:
+                LOGGER.debug("Estimated count Query- {}", featureQuery.buildEstimatedCountSqlString());
+                return conn.query(featureQuery.buildEstimatedCountSqlString()).execute()
+                        .map(rows -> {
+                            JsonArray plan = (JsonArray) rows.iterator().next().getValue(0);
+                            return plan.getJsonObject(0).getJsonObject("Plan").getInteger("Plan Rows");
+                        });
+            case CAPPED:
+                int cap = FeatureCountStrategy.getCap(config);
+                LOGGER.debug("Capped count Query- {}", featureQuery.buildCappedCountSqlString(cap));
+                return conn.preparedQuery(featureQuery.buildCappedCountSqlString(cap)).execute()
+                        .map(rows -> {
+                            long count = rows.iterator().next().getLong("count");
+                            return count < cap ? (int) count : null;
+                        });
+            default:
+                LOGGER.debug("Count Query- {}", featureQuery.buildSqlString("count"));
+                return conn.preparedQuery(featureQuery.buildSqlString("count")).execute()
+                        .map(rows -> rows.iterator().next().getInteger("count"));
+        }
+    }
+
+    /**
+     * Create a {@link FeatureQueryBuilder} for an OGC Features <em>/items</em> request, after
+     * checking the request bbox and feature limits from the token against the collection.
+     *
+     * @param collectionId the collection ID
+     * @param queryParams the validated query params of the request
+     * @param limits limits obtained from the token, if any
+     * @param crs map of supported CRS to SRID
+     * @return future with the {@link FeatureQueryBuilder} ready to build the features and count
+     *         queries
+     */
+    private Future<FeatureQueryBuilder> prepareFeatureQuery(String collectionId,
+        Map<String, String> queryParams, Limits limits, Map<String, Integer> crs) {
         String datetimeValue = queryParams.getOrDefault("datetime", null);
 
         FeatureQueryBuilder featureQuery = new FeatureQueryBuilder(collectionId);
 
-        featureQuery.setLimit(Integer.parseInt(queryParams.get("limit")));
+        // one more feature than the limit is fetched to know if there is a next page
+        featureQuery.setLimit(Integer.parseInt(queryParams.get("limit")) + 1);
         featureQuery.setOffset(Integer.parseInt(queryParams.get("offset")));
         featureQuery.setCrs(String.valueOf(crs.get(queryParams.get("crs"))));
         featureQuery.setBboxCrsSrid(String.valueOf(crs.get(queryParams.get("bbox-crs"))));
@@ -283,77 +535,47 @@ public class DatabaseServiceImpl implements DatabaseService{
         });
 
         // Continue only after both bboxFuture and featLimitsFuture complete
-        featLimitsFuture.compose(v -> sridOfStorageCrs.compose(srid ->
-                        client.withConnection(conn ->
-                                conn.preparedQuery("select datetime_key from collections_details where id = $1::uuid")
-                                        .collecting(collector)
-                                        .execute(Tuple.of(UUID.fromString(collectionId)))
-                                        .compose(conn1 -> {
-                                            if (conn1.value().get(0).getString("datetime_key") != null && datetimeValue != null ){
-                                                String datetimeKey = conn1.value().get(0).getString("datetime_key");
-                                                featureQuery.setDatetimeKey(datetimeKey);
-                                                featureQuery.setDatetime(datetimeValue);
-                                            }
-                                            LOGGER.debug("datetime_key: {}",conn1.value().get(0).getString("datetime_key"));
-                                            LOGGER.debug("<DBService> Sql query- {} ",  featureQuery.buildSqlString());
-                                            LOGGER.debug("Count Query- {}", featureQuery.buildSqlString("count"));
-
-                                            JsonObject resultJson = new JsonObject();
-                                            return conn.preparedQuery(featureQuery.buildSqlString("count"))
-                                                    .collecting(collectorT).execute()
-                                                    .compose(count -> {
-                                                        LOGGER.debug("Feature Count- {}", count.value().get("count"));
-                                                        int totalCount = count.value().get("count");
-                                                        resultJson.put("numberMatched", totalCount);
-
-                                                        return conn.preparedQuery(featureQuery.buildSqlString())
-                                                                .collecting(collector).execute()
-                                                                .map(SqlResult::value)
-                                                                .compose(success -> {
-                                                                    if (!success.isEmpty())
-                                                                        resultJson
-                                                                                .put("features", new JsonArray(success))
-                                                                                .put("numberReturned", success.size());
-                                                                    else
-                                                                        resultJson
-                                                                                .put("features", new JsonArray())
-                                                                                .put("numberReturned", 0);
-                                                                    resultJson.put("type", "FeatureCollection");
-                                                                    return Future.succeededFuture(resultJson);
-                                                                });
-                                                    });
-                                        }))))
-                .onSuccess(jsonResult -> {
-                    LOGGER.debug("getFeatures completed successfully");
-                    result.complete(jsonResult);
-                })
-                .onFailure(err -> {
-                    LOGGER.error("Failed at getFeatures - {}", err.getMessage());
-                    result.fail(MulticornErrorHandler.handle(err));
+        return featLimitsFuture.compose(v -> collectionMetadataCache.get(collectionId))
+                .map(metadata -> {
+                    if (metadata.getDatetimeKey() != null && datetimeValue != null ){
+                        featureQuery.setDatetimeKey(metadata.getDatetimeKey());
+                        featureQuery.setDatetime(datetimeValue);
+                    }
+                    LOGGER.debug("datetime_key: {}", metadata.getDatetimeKey());
+
+                    featureQuery.setExcludedColumns(metadata.getGeneralizedGeometries().keySet());
+                    GeometryGeneralization generalization =
+                            GeometryGeneralization.fromQueryParams(queryParams);
+                    if (generalization != null) {
+                        int srid = crs.get(queryParams.get("crs"));
+                        boolean geographic = metadata.isGeographic(srid);
+                        String column = generalization.selectColumn(metadata.getGeneralizedGeometries());
+                        LOGGER.debug("Generalizing geometries for scale 1:{} using column {}",
+                                generalization.getScaleDenominator(), column);
+                        featureQuery.setGeneralization(column, generalization.getTolerance(geographic),
+                                generalization.getDecimalDigits(geographic));
+                    }
+                    return featureQuery;
                 });
-
-        return result.future();
     }
 
     private Future<String> getSridOfStorageCrs(String collectionId) {
     LOGGER.info("getSridOfStorageCrs");
     Promise<String> result = Promise.promise();
-    Collector<Row, ? , Map<String, Integer>> collector = Collectors.toMap(row -> row.getColumnName(0),
-        row -> row.getInteger("srid"));
-    client.withConnection(conn ->
-        conn.preparedQuery("select srid from collections_details join crs_to_srid on collections_details.crs = " +
-                " crs_to_srid.crs and collections_details.id = $1::uuid")
-            .collecting(collector)
-            .execute(Tuple.of(UUID.fromString(collectionId)))
-            .onSuccess(success -> {
-              LOGGER.debug("Srid of Storage Crs- {}",success.value().get("srid"));
-              int srid = success.value().get("srid");
-              result.complete(String.valueOf(srid));
-            })
-            .onFailure(fail -> {
-              LOGGER.error("Something went wrong, {}", fail.getMessage());
-              result.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
-            }));
+    collectionMetadataCache.get(collectionId)
+        .onSuccess(metadata -> {
+          LOGGER.debug("Srid of Storage Crs- {}", metadata.getStorageSrid());
+          if (metadata.getStorageSrid() == null) {
+            LOGGER.error("Storage CRS of collection {} has no SRID", collectionId);
+            result.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
+            return;
+          }
+          result.complete(String.valueOf(metadata.getStorageSrid()));
+        })
+        .onFailure(fail -> {
+          LOGGER.error("Something went wrong, {}", fail.getMessage());
+          result.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
+        });
     return result.future();
   }
 
@@ -369,29 +591,26 @@ public class DatabaseServiceImpl implements DatabaseService{
       return result.future();
     }
 
-    Collector<Row, ?, Map<String, Integer>> crsCollector = Collectors.toMap(row -> row.getString("crs"),
-        row -> row.getInteger("srid"));
-    client.withConnection(conn ->
-      conn.preparedQuery("Select crs, srid from collection_supported_crs as colcrs join crs_to_srid as crsrid on " +
-              "colcrs.crs_id = crsrid.id and colcrs.collection_id = $1::uuid")
-          .collecting(crsCollector)
-          .execute(Tuple.of(UUID.fromString(collectionId)))
-          .onSuccess(success -> {
-            LOGGER.debug("CRS:SRID-\n{}",success.value() );
-            if (!success.value().containsKey(requestCrs)) {
-              result.fail(new OgcException(400, "Bad Request", "Collection does not support this crs"));
-            }
-            if (!success.value().containsKey(bboxCrs)) {
-              result.fail(new OgcException(400, "Bad Request", "Collection does not support this bbox-crs"));
-            }
-            success.value().put(DEFAULT_SERVER_CRS, DEFAULT_CRS_SRID);
-            result.complete(success.value());
-          })
-          .onFailure(failed -> {
-            LOGGER.error("Error: {}", failed.getMessage());
-            result.fail(new OgcException(500, "Internal Server Error", "Internal Server Error"));
-          })
-    );
+    collectionMetadataCache.get(collectionId)
+        .onSuccess(metadata -> {
+          Map<String, Integer> supportedCrs = new HashMap<>(metadata.getSupportedCrs());
+          LOGGER.debug("CRS:SRID-\n{}", supportedCrs);
+          if (!supportedCrs.containsKey(requestCrs)) {
+            result.fail(new OgcException(400, "Bad Request", "Collection does not support this crs"));
+            return;
+          }
+          if (!supportedCrs.containsKey(bboxCrs)) {
+            result.fail(new OgcException(400, "Bad Request", "Collection does not support this bbox-crs"));
+            return;
+          }
+          supportedCrs.put(DEFAULT_SERVER_CRS, DEFAULT_CRS_SRID);
+          result.complete(supportedCrs);
+        })
+        .onFailure(failed -> {
+          LOGGER.error("Error: {}", failed.getMessage());
+          result.fail(failed instanceof OgcException ? failed
+              : new OgcException(500, "Internal Server Error", "Internal Server Error"));
+        });
     return result.future();
   }
 
@@ -417,7 +636,10 @@ public class DatabaseServiceImpl implements DatabaseService{
                             }
 
                             // Feature exists, now apply filters
-                            return applySpatialFiltersAndGetFeature(conn, collectionId, featureId, limits, geoColumn, collector);
+                            return collectionMetadataCache.get(collectionId)
+                                    .compose(metadata -> applySpatialFiltersAndGetFeature(conn, collectionId,
+                                            featureId, limits, geoColumn,
+                                            metadata.getGeneralizedGeometries().keySet(), collector));
                         })
         ).onSuccess(success -> result.complete(success))
         .onFailure(fail -> {
@@ -434,13 +656,17 @@ public class DatabaseServiceImpl implements DatabaseService{
 
     private Future<JsonObject> applySpatialFiltersAndGetFeature(SqlConnection conn, String collectionId, Integer featureId,
                                                                 Limits limits, String geoColumn,
+                                                                Set<String> excludedColumns,
                                                                 Collector<Row, ?, List<JsonObject>> collector) {
         StringBuilder sqlBuilder = new StringBuilder();
         sqlBuilder.append("SELECT request_feature.id, 'Feature' AS type, ")
                 .append("cast(st_asgeojson(st_transform(request_feature.geom,")
                 .append(geoColumn.substring(geoColumn.indexOf(",") + 1))
                 .append(" as geometry, ")
-                .append("(row_to_json(request_feature)::jsonb - 'id' - 'geom') as properties ");
+                .append("(row_to_json(request_feature)::jsonb - 'id' - 'geom'");
+        // generalized geometry columns are not properties of the feature
+        excludedColumns.forEach(column -> sqlBuilder.append(" - '").append(column).append("'"));
+        sqlBuilder.append(") as properties ");
 
         // Check if we have feature limits
         boolean hasFeatLimit = limits != null && limits.getFeatLimitAsMap() != null && !limits.getFeatLimitAsMap().isEmpty();
@@ -561,64 +787,53 @@ public class DatabaseServiceImpl implements DatabaseService{
     @Override
   public Future<List<JsonObject>> getStacCollections() {
     Promise<List<JsonObject>> result = Promise.promise();
+    client.withConnection(conn -> getStacCollectionsPage(conn, STAC_COLLECTIONS_FIRST_KEY,
+            new ArrayList<>()))
+        .onSuccess(collections -> {
+          if (collections.isEmpty()) {
+            LOGGER.error("Collections table is empty!");
+            result.fail(new OgcException(404, "Not found", "Collection table is Empty!"));
+          } else {
+            result.complete(collections);
+          }
+        })
+        .onFailure(fail -> {
+          LOGGER.error("Failed to getCollections! - {}", fail.getMessage());
+          result.fail("Error!");
+        });
+    return result.future();
+  }
+
+  /**
+   * Read STAC collections with their assets aggregated per collection, a page at a time ordered
+   * by ID, adding them to <code>collections</code> until all have been read.
+   *
+   * @param conn the connection
+   * @param afterId ID after which the page starts
+   * @param collections the collections read so far
+   * @return future with all collections
+   */
+  private Future<List<JsonObject>> getStacCollectionsPage(SqlConnection conn, UUID afterId,
+      List<JsonObject> collections) {
     Collector<Row, ?, List<JsonObject>> collector =
         Collectors.mapping(Row::toJson, Collectors.toList());
-    client.withConnection(
-        conn ->
-            conn.preparedQuery(
-                    "Select collections_details.id, title, description,"
-                 + " bbox, temporal, license FROM collections_details JOIN collection_type "
-                 + "ON collections_details.id = collection_type.collection_id WHERE "
-                 + "collection_type.type = 'STAC' ")
-                .collecting(collector)
-                .execute()
-                .map(SqlResult::value)
-                .onSuccess(
-                    success -> {
-                      if (success.isEmpty()) {
-                        LOGGER.error("Collections table is empty!");
-                        result.fail(
-                            new OgcException(404, "Not found", "Collection table is Empty!"));
-                      } else {
-                        conn.preparedQuery("SELECT * FROM STAC_COLLECTIONS_ASSETS")
-                            .collecting(collector)
-                            .execute()
-                            .map(SqlResult::value)
-                            .onSuccess(
-                                assets -> {
-                                  if (assets.isEmpty()) {
-                                    LOGGER.warn("Assets table is empty!");
-                                    result.complete(success);
-                                  } else {
-                                    for (JsonObject asset : assets) {
-                                      for (JsonObject successItem : success) {
-                                        if (successItem
-                                            .getString("id")
-                                            .equals(asset.getString("stac_collections_id"))) {
-                                          if (successItem.containsKey("assets")) {
-                                            successItem.getJsonArray("assets").add(asset);
-                                          } else {
-                                            successItem.put("assets", new JsonArray().add(asset));
-                                          }
-                                        }
-                                      }
-                                    }
-                                    result.complete(success);
-                                  }
-                                })
-                            .onFailure(
-                                fail -> {
-                                  LOGGER.error("Failed to get Assets! - {}", fail.getMessage());
-                                  result.fail("Error!");
-                                });
-                      }
-                    })
-                .onFailure(
-                    fail -> {
-                      LOGGER.error("Failed to getCollections! - {}", fail.getMessage());
-                      result.fail("Error!");
-                    }));
-    return result.future();
+    return conn.preparedQuery(GET_STAC_COLLECTIONS_PAGE)
+        .collecting(collector)
+        .execute(Tuple.of(afterId, STAC_COLLECTIONS_PAGE_SIZE))
+        .map(SqlResult::value)
+        .compose(page -> {
+          page.forEach(collection -> {
+            if (collection.getValue("assets") == null) {
+              collection.remove("assets");
+            }
+          });
+          collections.addAll(page);
+          if (page.size() < STAC_COLLECTIONS_PAGE_SIZE) {
+            return Future.succeededFuture(collections);
+          }
+          UUID lastId = UUID.fromString(page.get(page.size() - 1).getString("id"));
+          return getStacCollectionsPage(conn, lastId, collections);
+        });
   }
 
   @Override
@@ -789,34 +1004,8 @@ public class DatabaseServiceImpl implements DatabaseService{
     Collector<Row, ?, List<JsonObject>> collector =
         Collectors.mapping(Row::toJson, Collectors.toList());
 
-    FeatureQueryBuilder featureQuery = new FeatureQueryBuilder();
-
+    FeatureQueryBuilder featureQuery = stacItemSearchQuery(params);
     featureQuery.setLimit(params.getLimit());
-    featureQuery.setOffset(params.getOffset());
-
-    if (!params.getBbox().isEmpty()) {
-      featureQuery.setBboxCrsSrid(String.valueOf(DEFAULT_CRS_SRID));
-      featureQuery.setBbox(
-          params.getBbox().stream().map(i -> i.toString()).collect(Collectors.joining(",")),
-          String.valueOf(DEFAULT_CRS_SRID));
-    }
-
-    if (params.getDatetime() != null) {
-      featureQuery.setDatetimeKey(STAC_ITEMS_DATETIME_KEY);
-      featureQuery.setDatetime(params.getDatetime());
-    }
-
-    if (!params.getCollections().isEmpty()) {
-      featureQuery.setStacCollectionIds(params.getCollections().toArray(String[]::new));
-    }
-
-    if (!params.getIds().isEmpty()) {
-      featureQuery.setStacItemIds(params.getIds().toArray(String[]::new));
-    }
-
-    if (params.getIntersects() != null) {
-      featureQuery.setStacIntersectsGeom(params.getIntersects());
-    }
 
     Tuple tuple = Tuple.tuple();
     String builtQuery = featureQuery.buildItemSearchSqlString(tuple);
@@ -845,6 +1034,78 @@ public class DatabaseServiceImpl implements DatabaseService{
     return result.future();
     }
 
+  /**
+   * Streaming variant of {@link #stacItemSearch(StacItemSearchParams)}. The item search query is
+   * opened as a cursor and wrapped in a {@link FeatureCollectionStream} that reads
+   * <code>fetchSize</code> rows at a time, with <em>p_id</em> as the key of the last item. Unlike
+   * {@link #stacItemSearch(StacItemSearchParams)}, the limit of the params is the page size, the
+   * extra item needed to know if there is a next page is fetched by this method. <br>
+   * This method is not part of {@link DatabaseService} since a stream cannot be sent over the
+   * event bus. The connection used is held until the stream ends, fails or is closed.
+   *
+   * @param params the search params
+   * @param fetchSize number of rows to be fetched from the cursor at a time
+   * @return future with the {@link FeatureCollectionStream}
+   */
+  public Future<FeatureCollectionStream> streamStacItemSearch(StacItemSearchParams params,
+      int fetchSize) {
+    LOGGER.debug("streamStacItemSearch");
+    Promise<FeatureCollectionStream> result = Promise.promise();
+
+    int limit = params.getLimit();
+    FeatureQueryBuilder featureQuery = stacItemSearchQuery(params);
+    featureQuery.setLimit(limit + 1);
+
+    Tuple tuple = Tuple.tuple();
+    String builtQuery = featureQuery.buildItemSearchSqlString(tuple);
+
+    client.getConnection().compose(conn -> conn.begin().compose(tx ->
+            conn.prepare(builtQuery)
+                .map(stmt -> new FeatureCollectionStream(conn, tx,
+                    stmt.createStream(fetchSize, tuple), null, limit).keyColumn("p_id")))
+            .onFailure(err -> conn.close()))
+        .onSuccess(result::complete)
+        .onFailure(err -> {
+          LOGGER.error("Failed at streamStacItemSearch - {}", err.getMessage());
+          result.fail("Error!");
+        });
+    return result.future();
+  }
+
+  /* query builder with the filters and page start of a STAC Item Search, without the limit */
+  private FeatureQueryBuilder stacItemSearchQuery(StacItemSearchParams params) {
+    FeatureQueryBuilder featureQuery = new FeatureQueryBuilder();
+
+    if (params.getOffset() != null) {
+      featureQuery.setOffset(params.getOffset());
+    }
+
+    if (!params.getBbox().isEmpty()) {
+      featureQuery.setBboxCrsSrid(String.valueOf(DEFAULT_CRS_SRID));
+      featureQuery.setBbox(
+          params.getBbox().stream().map(i -> i.toString()).collect(Collectors.joining(",")),
+          String.valueOf(DEFAULT_CRS_SRID));
+    }
+
+    if (params.getDatetime() != null) {
+      featureQuery.setDatetimeKey(STAC_ITEMS_DATETIME_KEY);
+      featureQuery.setDatetime(params.getDatetime());
+    }
+
+    if (!params.getCollections().isEmpty()) {
+      featureQuery.setStacCollectionIds(params.getCollections().toArray(String[]::new));
+    }
+
+    if (!params.getIds().isEmpty()) {
+      featureQuery.setStacItemIds(params.getIds().toArray(String[]::new));
+    }
+
+    if (params.getIntersects() != null) {
+      featureQuery.setStacIntersectsGeom(params.getIntersects());
+    }
+    return featureQuery;
+  }
+
     @Override
     public Future<JsonObject> postStacCollection(JsonObject jsonObject) {
         LOGGER.debug("Inserting a new collection");
@@ -923,7 +1184,7 @@ public class DatabaseServiceImpl implements DatabaseService{
                                     return conn.preparedQuery(
                                                     RouterManager
                                                             .TRIGGER_SPEC_UPDATE_AND_ROUTER_REGEN_SQL
-                                                            .apply("demo")).execute();
+                                                            .apply(id)).execute();
                                 })
                                 .onSuccess(
                                         res -> {
@@ -987,7 +1248,7 @@ public class DatabaseServiceImpl implements DatabaseService{
                                 .compose(res -> conn.query(ATTACH_PARTITION.replace("$1", id.toString())).execute().mapEmpty())
                                 .compose(res -> conn.query(GRANT_PRIVILEGES.replace("$1", id.toString())
                                         .replace("$2", config.getString(DATABASE_USER))).execute().mapEmpty())
-                                .compose(res -> conn.preparedQuery(RouterManager.TRIGGER_SPEC_UPDATE_AND_ROUTER_REGEN_SQL.apply("demo")).execute().mapEmpty())
+                                .compose(res -> conn.preparedQuery(RouterManager.TRIGGER_SPEC_UPDATE_AND_ROUTER_REGEN_SQL.apply(id.toString())).execute().mapEmpty())
                                 .onFailure(err -> {
                                     LOGGER.error("Insert failed for ID {}: {}", id, err.getMessage());
                                     failedIds.add(id);
@@ -1057,22 +1318,20 @@ public class DatabaseServiceImpl implements DatabaseService{
             JsonObject feature = (JsonObject) obj;
             return feature.getString("id");
           }).toArray(String[]::new);
-      List<Future<Void>> insertFut = new ArrayList<>();
+      List<JsonObject> features = requestBody.getJsonArray("features").stream()
+          .map(feature -> (JsonObject) feature).collect(Collectors.toList());
 
       checkIfCollectionExist(collectionId)
           .compose(collection -> checkIfItemsExist(itemIds, collectionId))
-          .compose(items -> {
-            requestBody.getJsonArray("features")
-                .forEach(feature -> {
-                  JsonObject featureJson = (JsonObject) feature;
-                  featureJson.put("collectionId", collectionId);
-                  insertFut.add(insertItemIntoDb(featureJson));
-                });
-            return Future.join(insertFut);
-          })
-          .onSuccess(success -> {
-            LOGGER.info("STAC items have been created.");
-            result.complete(new JsonObject().put("code", "Items are created."));
+          .compose(items -> stacItemIngestion.insertItems(collectionId, features))
+          .onSuccess(report -> {
+            long failed = report.stream()
+                .filter(item -> StacItemIngestion.STATUS_FAILED
+                    .equals(((JsonObject) item).getString("status"))).count();
+            LOGGER.info("STAC items have been created, {} failed.", failed);
+            result.complete(new JsonObject()
+                .put("code", failed == 0 ? "Items are created." : "Some items could not be created.")
+                .put("items", report));
           }).onFailure(failed -> {
             LOGGER.error("Something went wrong! Error: {}", failed.getMessage());
             result.fail(failed);
@@ -1441,54 +1700,8 @@ public class DatabaseServiceImpl implements DatabaseService{
   }
   private Future<Void> insertItemIntoDb (JsonObject stacItem) {
       Promise<Void> result = Promise.promise();
-      String itemId = stacItem.getString("id");
       String collectionId = stacItem.getString("collectionId");
-      JsonArray bbox = stacItem.containsKey("bbox") ? stacItem.getJsonArray("bbox") : new JsonArray();
-      Double[] bboxArray = (bbox != null) ? bbox.stream()
-        .map(obj -> obj instanceof Number ? ((Number) obj).doubleValue() : 0.0)
-        .toArray(Double[]::new) : new Double[0];
-      JsonObject geometry = stacItem.containsKey("geometry") ? stacItem.getJsonObject("geometry") : new JsonObject();
-      JsonObject properties = stacItem.containsKey("properties") ? stacItem.getJsonObject("properties") : new JsonObject();
-      client.withTransaction(conn ->
-          conn.preparedQuery("INSERT INTO stac_collections_part(id, collection_id, bbox, geom, properties)" +
-                  " VALUES ($1, $2::uuid, $3, st_geomfromgeojson($4), $5::jsonb)")
-              .execute(Tuple.of(itemId, UUID.fromString(collectionId), bboxArray, geometry.toString(), properties))
-              .compose(sql -> {
-                if (!stacItem.containsKey("assets"))
-                  return Future.succeededFuture();
-                else {
-                  if (stacItem.getJsonObject("assets").isEmpty())
-                    return Future.succeededFuture();
-                  JsonObject assets = stacItem.getJsonObject("assets");
-                  LOGGER.debug("Inserted into stac_collection_part");
-                  List<Tuple> batchInserts = new ArrayList<>();
-                  assets.stream().forEach(asset -> {
-                    String assetId = asset.getKey();
-                    JsonObject assetJsonObj = (JsonObject) asset.getValue();
-                    String title = assetJsonObj.containsKey("title")
-                        ? assetJsonObj.getString("title") : "";
-                    String description = assetJsonObj.containsKey("description") ?
-                        assetJsonObj.getString("description") : "";
-                    String href = assetJsonObj.getString("href");
-                    String type = assetJsonObj.containsKey("type")
-                        ? assetJsonObj.getString("type") : "";
-                    long size = assetJsonObj.containsKey("size") ? assetJsonObj.getLong("size") : 0;
-                    JsonArray rolesJsonArr = assetJsonObj.containsKey("roles")
-                        ? assetJsonObj.getJsonArray("roles") : new JsonArray();
-                    String[] roles = (rolesJsonArr != null) ? rolesJsonArr.stream()
-                        .map(Object::toString).toArray(String[]::new) : new String[0];
-                    JsonObject assetProperties = assetJsonObj.containsKey("properties")
-                        ? assetJsonObj.getJsonObject("properties") : new JsonObject();
-                    String s3BucketId = assetJsonObj.getString("s3BucketId");
-                    batchInserts.add(Tuple.of(UUID.fromString(assetId), collectionId, itemId, title, description, href,
-                        type, size, roles, assetProperties, s3BucketId));
-                  });
-                  return conn.preparedQuery("INSERT INTO stac_items_assets" +
-                          " (id, collection_id, item_id, title, description, href, type, size, roles, properties, s3_bucket_id)" +
-                          " VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9, $10::jsonb, $11)")
-                      .executeBatch(batchInserts);
-                }
-              }))
+      client.withTransaction(conn -> stacItemIngestion.insertChunk(conn, collectionId, List.of(stacItem)))
           .onSuccess(success -> {
             LOGGER.info("Stac Item created.");
             result.complete();
@@ -1596,6 +1809,37 @@ public class DatabaseServiceImpl implements DatabaseService{
 
   @Override
   public Future<String> getTileS3BucketId(String collectionId, String tileMatrixSetId) {
+    Promise<String> result = Promise.promise();
+    collectionMetadataCache.get(collectionId)
+        .compose(metadata -> {
+          String bucketId = metadata.getTileBucketIds().get(tileMatrixSetId);
+          if (bucketId != null) {
+            return Future.succeededFuture(bucketId);
+          }
+          if (metadata.isTileMatrixSetMissing(tileMatrixSetId)) {
+            return Future.failedFuture(new OgcException(404, "Failed to get tile",
+                "Could not get S3 bucket id for collection + TMS"));
+          }
+          // the tiles may have been onboarded after the metadata was cached
+          return queryTileS3BucketId(collectionId, tileMatrixSetId).onFailure(fail -> {
+            if (fail instanceof OgcException) {
+              metadata.markTileMatrixSetMissing(tileMatrixSetId);
+            }
+          });
+        })
+        .onSuccess(result::complete)
+        .onFailure(fail -> {
+          if (fail instanceof OgcException) {
+            result.fail(fail);
+          } else {
+            LOGGER.error("Failed S3 bucket id for collection + TMS! - {}", fail.getMessage());
+            result.fail("Error!");
+          }
+        });
+    return result.future();
+  }
+
+  private Future<String> queryTileS3BucketId(String collectionId, String tileMatrixSetId) {
     Promise<String> result = Promise.promise();
     client.withConnection(conn ->
               conn.preparedQuery("SELECT s3_bucket_id FROM tilematrixsets_relation AS tmsr join tms_metadata AS tms_meta" +
@@ -1606,6 +1850,7 @@ public class DatabaseServiceImpl implements DatabaseService{
           if (success.rowCount() == 0) {
             result.fail(new OgcException(404, "Failed to get tile", "Could not get S3 bucket id for collection + TMS"));
           } else {
+            collectionMetadataCache.invalidate(collectionId);
             result.complete(success.iterator().next().getString("s3_bucket_id"));
           }
         })
@@ -1878,6 +2123,37 @@ public class DatabaseServiceImpl implements DatabaseService{
         return result.future();
     }
 
+  @Override
+  public Future<JsonObject> getOgcFeatureCollectionMetadata(String collectionId) {
+    UUID collectionUuid;
+    try {
+      collectionUuid = UUID.fromString(collectionId);
+    } catch (IllegalArgumentException e) {
+      return Future.failedFuture(new OgcException(404, "Not Found", "Collection not found"));
+    }
+
+    return client.withConnection(conn -> conn.preparedQuery(GET_OGC_FEATURE_COLLECTION_METADATA)
+        .execute(Tuple.of(collectionUuid)))
+        .recover(failed -> {
+          LOGGER.error("Failed to get metadata of OGC feature collection {} - {}", collectionId,
+              failed.getMessage());
+          return Future.failedFuture(
+              new OgcException(500, "Internal Server Error", "Internal Server Error"));
+        })
+        .compose(rows -> {
+          // collections without a geometry column or supported CRS are not served as features
+          if (rows.rowCount() == 0 || rows.iterator().next().getValue("geometry_type") == null
+              || rows.iterator().next().getValue("supported_crs") == null) {
+            return Future.failedFuture(new OgcException(404, "Not Found", "Collection not found"));
+          }
+          JsonObject metadata = rows.iterator().next().toJson();
+          if (metadata.getValue("attributes") == null) {
+            metadata.put("attributes", new JsonObject());
+          }
+          return Future.succeededFuture(metadata);
+        });
+  }
+
   @Override
   public Future<List<JsonObject>> getOgcFeatureCollectionMetadataForOasSpec(
       List<String> existingCollectionUuidIds) {
@@ -1910,7 +2186,9 @@ public class DatabaseServiceImpl implements DatabaseService{
     final String GET_COLLECTION_ATTRIBUTE_INFO =
         "SELECT table_name AS collection_id, json_object_agg(column_name, data_type) AS attributes"
             + " FROM information_schema.columns WHERE table_name = ANY($1::text[])"
-            + " AND column_name != ALL('{\"id\",\"geom\"}') GROUP BY table_name";
+            + " AND column_name != ALL('{\"id\",\"geom\"}')"
+            + " AND column_name::text NOT IN (SELECT column_name FROM collection_generalized_geometries"
+            + " WHERE collection_id::text = table_name) GROUP BY table_name";
 
     Future<List<JsonObject>> newCollectionsJson =
         client.withConnection(conn -> conn.preparedQuery(GET_COLLECTION_INFO).collecting(collector)
@@ -8,6 +8,7 @@ import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.serviceproxy.ServiceBinder;
 import io.vertx.sqlclient.PoolOptions;
+import ogc.rs.database.util.FeatureQueryBuilder;
 import static ogc.rs.common.Constants.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,6 +28,7 @@ public class DatabaseVerticle extends AbstractVerticle {
     private int poolSize;
 
     private DatabaseService dbService;
+    private boolean localBinding;
 
     @Override
     public void start() throws Exception {
@@ -46,21 +48,39 @@ public class DatabaseVerticle extends AbstractVerticle {
                         .setUser(databaseUserName)
                         .setPassword(databasePassword)
                         .setReconnectAttempts(2)
-                        .setReconnectInterval(1000L);
+                        .setReconnectInterval(1000L)
+                        // only the STAC Item Search statement is cached, it is the same for every page of a search
+                        .setCachePreparedStatements(true)
+                        .setPreparedStatementCacheSqlFilter(
+                            sql -> sql.startsWith(FeatureQueryBuilder.STAC_ITEM_SEARCH_QUERY_PREFIX));
 
         this.poolOptions = new PoolOptions().setMaxSize(poolSize);
         this.pool = PgPool.pool(vertx, connectOptions, poolOptions);
 
-        dbService = new DatabaseServiceImpl(this.pool,this.config());
+        DatabaseServiceImpl dbServiceImpl = new DatabaseServiceImpl(this.pool,this.config());
+        dbService = dbServiceImpl;
+
+        vertx.eventBus().consumer(COLLECTION_METADATA_INVALIDATION_ADDRESS,
+                msg -> dbServiceImpl.invalidateCollectionMetadataCache());
 
         binder = new ServiceBinder(vertx);
         consumer = binder.setAddress(DATABASE_SERVICE_ADDRESS).register(DatabaseService.class, dbService);
+
+        /* verticles in this Vert.x instance can also call the service directly */
+        localBinding = config().getBoolean("localBinding", false);
+        if (localBinding) {
+            LocalDatabaseServiceRegistry.register(vertx, DATABASE_SERVICE_ADDRESS, dbService);
+            LOGGER.info("Database service bound for in-process use");
+        }
         LOGGER.info("Database verticle started.");
 
    }
 
     @Override
     public void stop() {
+        if (localBinding) {
+            LocalDatabaseServiceRegistry.unregister(vertx, DATABASE_SERVICE_ADDRESS, dbService);
+        }
         binder.unregister(consumer);
     }
 }
@@ -0,0 +1,79 @@
+package ogc.rs.database;
+
+import io.vertx.core.Vertx;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of {@link DatabaseService} instances bound for in-process use, so that verticles
+ * deployed in the same Vert.x instance as the {@link DatabaseVerticle} can call the service
+ * directly instead of through the event bus (see
+ * {@link DatabaseService#createLocalOrProxy(Vertx, String)}). Arguments and results are then
+ * passed by reference and are not encoded to and decoded from JSON. <br>
+ * Services are registered by the {@link DatabaseVerticle} if <em>localBinding</em> is
+ * <code>true</code> in its config. If there are many verticle instances, callers are given their
+ * services round-robin.
+ */
+public class LocalDatabaseServiceRegistry {
+
+  private static final Map<Vertx, Map<String, Binding>> BINDINGS = new ConcurrentHashMap<>();
+
+  private LocalDatabaseServiceRegistry() {}
+
+  /**
+   * Register a service for in-process use.
+   *
+   * @param vertx the Vert.x instance the service is deployed in
+   * @param address the event bus address the service is also bound to
+   * @param service the service
+   */
+  public static void register(Vertx vertx, String address, DatabaseService service) {
+    BINDINGS.computeIfAbsent(vertx, v -> new ConcurrentHashMap<>())
+        .computeIfAbsent(address, a -> new Binding()).services.add(service);
+  }
+
+  /**
+   * Remove a service registered using {@link #register(Vertx, String, DatabaseService)}.
+   *
+   * @param vertx the Vert.x instance the service is deployed in
+   * @param address the event bus address the service is also bound to
+   * @param service the service
+   */
+  public static void unregister(Vertx vertx, String address, DatabaseService service) {
+    Binding binding = BINDINGS.getOrDefault(vertx, Map.of()).get(address);
+    if (binding != null) {
+      binding.services.remove(service);
+    }
+  }
+
+  /**
+   * Get the service bound for in-process use.
+   *
+   * @param vertx the Vert.x instance
+   * @param address the event bus address of the service
+   * @return the service, or <code>null</code> if no service is bound for in-process use
+   */
+  static DatabaseService lookup(Vertx vertx, String address) {
+    Binding binding = BINDINGS.getOrDefault(vertx, Map.of()).get(address);
+    if (binding == null) {
+      return null;
+    }
+    return binding.next();
+  }
+
+  private static class Binding {
+    private final List<DatabaseService> services = new CopyOnWriteArrayList<>();
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private DatabaseService next() {
+      Object[] current = services.toArray();
+      if (current.length == 0) {
+        return null;
+      }
+      return (DatabaseService) current[Math.floorMod(counter.getAndIncrement(), current.length)];
+    }
+  }
+}
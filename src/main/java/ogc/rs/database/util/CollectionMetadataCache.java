@@ -0,0 +1,294 @@
+package ogc.rs.database.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import ogc.rs.apiserver.util.OgcException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static ogc.rs.common.Constants.DEFAULT_CRS_SRID;
+
+/**
+ * In-process cache of collection metadata that is needed before running the actual query of an
+ * API request - the storage CRS SRID, supported CRS, datetime key, geometry type, the S3 bucket
+ * IDs of the tile matrix sets and the generalized geometry columns of the collection. All of it is
+ * loaded using a single SQL query per collection. <br>
+ * The metadata only changes when a collection is onboarded or updated, so entries are kept until
+ * they expire (TTL) or are evicted as least recently used when the cache is full. The cache is
+ * also cleared using {@link #invalidateAll()} when the spec and router update notification is
+ * received. <br>
+ * The cache is configured using the <em>collectionMetadataCache</em> config block:
+ *
+ * <pre>
+ * "collectionMetadataCache" : {
+ *   "maxSize" : 1000,
+ *   "ttlSeconds" : 600
+ * }
+ * </pre>
+ */
+public class CollectionMetadataCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(CollectionMetadataCache.class);
+
+  public static final String CONFIG_KEY = "collectionMetadataCache";
+  private static final int DEFAULT_MAX_SIZE = 1000;
+  private static final long DEFAULT_TTL_SECONDS = 600;
+
+  private static final String GET_COLLECTION_METADATA =
+      "SELECT collections_details.datetime_key, storage_crs.srid AS storage_srid"
+          + ", (SELECT json_object_agg(crs_to_srid.crs, crs_to_srid.srid) FROM collection_supported_crs"
+          + " JOIN crs_to_srid ON collection_supported_crs.crs_id = crs_to_srid.id"
+          + " WHERE collection_supported_crs.collection_id = collections_details.id) AS supported_crs"
+          + ", (SELECT array_agg(crs_to_srid.srid) FROM collection_supported_crs"
+          + " JOIN crs_to_srid ON collection_supported_crs.crs_id = crs_to_srid.id"
+          + " JOIN spatial_ref_sys ON crs_to_srid.srid = spatial_ref_sys.srid"
+          + " WHERE collection_supported_crs.collection_id = collections_details.id"
+          + " AND spatial_ref_sys.proj4text LIKE '+proj=longlat%') AS geographic_srids"
+          + ", (SELECT type FROM geometry_columns"
+          + " WHERE f_table_name = collections_details.id::text LIMIT 1) AS geometry_type"
+          + ", (SELECT json_object_agg(tms_meta.title, tmsr.s3_bucket_id) FROM tilematrixsets_relation AS tmsr"
+          + " JOIN tms_metadata AS tms_meta ON tmsr.tms_id = tms_meta.id"
+          + " WHERE tmsr.collection_id = collections_details.id) AS tile_bucket_ids"
+          + ", (SELECT json_object_agg(column_name, min_scale_denominator)"
+          + " FROM collection_generalized_geometries"
+          + " WHERE collection_id = collections_details.id) AS generalized_geometries"
+          + " FROM collections_details LEFT JOIN crs_to_srid AS storage_crs"
+          + " ON collections_details.crs = storage_crs.crs WHERE collections_details.id = $1::uuid";
+
+  private final Pool client;
+  private final int maxSize;
+  private final long ttlMillis;
+  private final Map<String, Entry> entries;
+  private final Map<String, Future<CollectionMetadata>> inFlight = new HashMap<>();
+  private long invalidations = 0;
+
+  public CollectionMetadataCache(Pool client, JsonObject config) {
+    JsonObject cacheConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.client = client;
+    this.maxSize = cacheConfig.getInteger("maxSize", DEFAULT_MAX_SIZE);
+    this.ttlMillis = cacheConfig.getLong("ttlSeconds", DEFAULT_TTL_SECONDS) * 1000;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Get the metadata of a collection, loading it from the DB if not cached or expired. Concurrent
+   * requests for a collection that is being loaded wait on the same load.
+   *
+   * @param collectionId the collection ID
+   * @return future with the {@link CollectionMetadata}, failed with a 404 {@link OgcException} if
+   *         the collection does not exist
+   */
+  public synchronized Future<CollectionMetadata> get(String collectionId) {
+    Entry entry = entries.get(collectionId);
+    if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+      return Future.succeededFuture(entry.metadata);
+    }
+
+    Future<CollectionMetadata> loading = inFlight.get(collectionId);
+    if (loading != null) {
+      return loading;
+    }
+
+    long generation = invalidations;
+    Promise<CollectionMetadata> promise = Promise.promise();
+    inFlight.put(collectionId, promise.future());
+
+    load(collectionId).onComplete(ar -> {
+      synchronized (this) {
+        inFlight.remove(collectionId);
+        // do not cache metadata loaded before an invalidation, it may be stale
+        if (ar.succeeded() && generation == invalidations) {
+          entries.put(collectionId,
+              new Entry(ar.result(), System.currentTimeMillis() + ttlMillis));
+        }
+      }
+      promise.handle(ar);
+    });
+    return promise.future();
+  }
+
+  /**
+   * Remove a single collection from the cache.
+   *
+   * @param collectionId the collection ID
+   */
+  public synchronized void invalidate(String collectionId) {
+    entries.remove(collectionId);
+  }
+
+  /**
+   * Remove all collections from the cache.
+   */
+  public synchronized void invalidateAll() {
+    LOGGER.debug("Invalidating collection metadata cache, {} entries", entries.size());
+    invalidations++;
+    entries.clear();
+  }
+
+  private Future<CollectionMetadata> load(String collectionId) {
+    LOGGER.debug("Loading metadata of collection {}", collectionId);
+    return client.preparedQuery(GET_COLLECTION_METADATA)
+        .execute(Tuple.of(UUID.fromString(collectionId)))
+        .compose(rows -> {
+          if (rows.rowCount() == 0) {
+            return Future.failedFuture(new OgcException(404, "Not Found", "Collection not found"));
+          }
+          return Future.succeededFuture(new CollectionMetadata(rows.iterator().next()));
+        });
+  }
+
+  private static class Entry {
+    private final CollectionMetadata metadata;
+    private final long expiresAt;
+
+    private Entry(CollectionMetadata metadata, long expiresAt) {
+      this.metadata = metadata;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /**
+   * Metadata of a collection. Instances are shared between requests and immutable, except for the
+   * tile matrix sets found to have no tiles, which are remembered until the entry expires or is
+   * invalidated.
+   */
+  public static class CollectionMetadata {
+    private final Integer storageSrid;
+    private final Map<String, Integer> supportedCrs;
+    private final Set<Integer> geographicSrids;
+    private final String datetimeKey;
+    private final String geometryType;
+    private final Map<String, String> tileBucketIds;
+    private final Map<String, Double> generalizedGeometries;
+    private final Set<String> missingTileMatrixSets = ConcurrentHashMap.newKeySet();
+
+    CollectionMetadata(Row row) {
+      this.storageSrid = row.getInteger("storage_srid");
+      this.datetimeKey = row.getString("datetime_key");
+      this.geometryType = row.getString("geometry_type");
+
+      Map<String, Integer> crs = new HashMap<>();
+      JsonObject crsJson = (JsonObject) row.getValue("supported_crs");
+      if (crsJson != null) {
+        crsJson.forEach(e -> crs.put(e.getKey(), ((Number) e.getValue()).intValue()));
+      }
+      this.supportedCrs = Collections.unmodifiableMap(crs);
+
+      Integer[] geographic = row.getArrayOfIntegers("geographic_srids");
+      Set<Integer> srids = new HashSet<>(Set.of(DEFAULT_CRS_SRID));
+      if (geographic != null) {
+        srids.addAll(Arrays.asList(geographic));
+      }
+      this.geographicSrids = Collections.unmodifiableSet(srids);
+
+      Map<String, String> bucketIds = new HashMap<>();
+      JsonObject bucketJson = (JsonObject) row.getValue("tile_bucket_ids");
+      if (bucketJson != null) {
+        bucketJson.forEach(e -> bucketIds.put(e.getKey(), (String) e.getValue()));
+      }
+      this.tileBucketIds = Collections.unmodifiableMap(bucketIds);
+
+      Map<String, Double> generalized = new HashMap<>();
+      JsonObject generalizedJson = (JsonObject) row.getValue("generalized_geometries");
+      if (generalizedJson != null) {
+        generalizedJson.forEach(
+            e -> generalized.put(e.getKey(), ((Number) e.getValue()).doubleValue()));
+      }
+      this.generalizedGeometries = Collections.unmodifiableMap(generalized);
+    }
+
+    /**
+     * @return SRID of the storage CRS of the collection
+     */
+    public Integer getStorageSrid() {
+      return storageSrid;
+    }
+
+    /**
+     * @return unmodifiable map of supported CRS URI to SRID
+     */
+    public Map<String, Integer> getSupportedCrs() {
+      return supportedCrs;
+    }
+
+    /**
+     * Check if a supported CRS of the collection is geographic, i.e. has coordinates in degrees.
+     *
+     * @param srid SRID of the CRS
+     * @return <code>true</code> if the CRS is geographic
+     */
+    public boolean isGeographic(int srid) {
+      return geographicSrids.contains(srid);
+    }
+
+    /**
+     * @return the datetime key of the collection, <code>null</code> if not set
+     */
+    public String getDatetimeKey() {
+      return datetimeKey;
+    }
+
+    /**
+     * @return the geometry type of the collection table, <code>null</code> if it has no geometry
+     *         column (e.g. not a feature collection)
+     */
+    public String getGeometryType() {
+      return geometryType;
+    }
+
+    /**
+     * @return unmodifiable map of tile matrix set title to S3 bucket ID of the tiles
+     */
+    public Map<String, String> getTileBucketIds() {
+      return tileBucketIds;
+    }
+
+    /**
+     * Check if a tile matrix set was found to have no tiles for the collection using
+     * {@link #markTileMatrixSetMissing(String)}, so that it is not looked up again.
+     *
+     * @param tileMatrixSetId the tile matrix set ID
+     * @return <code>true</code> if the collection has no tiles for the tile matrix set
+     */
+    public boolean isTileMatrixSetMissing(String tileMatrixSetId) {
+      return missingTileMatrixSets.contains(tileMatrixSetId);
+    }
+
+    /**
+     * Remember that the collection has no tiles for a tile matrix set that is not in
+     * {@link #getTileBucketIds()}.
+     *
+     * @param tileMatrixSetId the tile matrix set ID
+     */
+    public void markTileMatrixSetMissing(String tileMatrixSetId) {
+      missingTileMatrixSets.add(tileMatrixSetId);
+    }
+
+    /**
+     * @return unmodifiable map of precomputed generalized geometry column to the minimum scale
+     *         denominator it is used for
+     */
+    public Map<String, Double> getGeneralizedGeometries() {
+      return generalizedGeometries;
+    }
+  }
+}
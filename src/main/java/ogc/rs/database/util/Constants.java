@@ -1,5 +1,7 @@
 package ogc.rs.database.util;
 
+import java.util.UUID;
+
 public class Constants {
 
     public static final String PROCESSES_TABLE_NAME = "processes_table";
@@ -17,5 +19,25 @@ public class Constants {
             "crs = COALESCE($4, crs), bbox = COALESCE($5, bbox), temporal = COALESCE($6, temporal), " +
             "license = COALESCE($7, license) WHERE id = $1";
     public static final String STAC_ITEMS_DATETIME_KEY = "properties ->> 'datetime'";
+    public static final String GET_STAC_COLLECTIONS_PAGE = "SELECT collections_details.id, title, description, bbox, temporal, license, " +
+            "jsonb_agg(to_jsonb(stac_collections_assets.*)) FILTER (WHERE stac_collections_assets.id IS NOT NULL) AS assets " +
+            "FROM collections_details JOIN collection_type ON collections_details.id = collection_type.collection_id " +
+            "LEFT JOIN stac_collections_assets ON stac_collections_assets.stac_collections_id = collections_details.id " +
+            "WHERE collection_type.type = 'STAC' AND collections_details.id > $1 " +
+            "GROUP BY collections_details.id ORDER BY collections_details.id LIMIT $2";
+    public static final int STAC_COLLECTIONS_PAGE_SIZE = 500;
+    public static final UUID STAC_COLLECTIONS_FIRST_KEY = new UUID(0, 0);
+    public static final String GET_OGC_FEATURE_COLLECTION_METADATA = "SELECT collections_details.id, title, description, datetime_key, crs, bbox, temporal, " +
+            "(SELECT array_agg(crs_to_srid.crs) FROM collection_supported_crs JOIN crs_to_srid ON collection_supported_crs.crs_id = crs_to_srid.id " +
+            "WHERE collection_supported_crs.collection_id = collections_details.id) AS supported_crs, " +
+            "(SELECT type FROM geometry_columns WHERE f_table_name = collections_details.id::text LIMIT 1) AS geometry_type, " +
+            "(SELECT json_object_agg(column_name, data_type) FROM information_schema.columns " +
+            "WHERE table_name = collections_details.id::text AND column_name != ALL('{\"id\",\"geom\"}') " +
+            "AND column_name::text NOT IN (SELECT column_name FROM collection_generalized_geometries " +
+            "WHERE collection_id = collections_details.id)) AS attributes " +
+            "FROM collections_details JOIN collection_type ON collection_type.collection_id = collections_details.id " +
+            "WHERE collections_details.id = $1::uuid AND collection_type.type = 'FEATURE'";
+    public static final String GET_FEATURE_TILE_MATRIX_SET = "SELECT crs, EXISTS (SELECT 1 FROM collection_type " +
+            "WHERE collection_id = $1::uuid AND type = 'FEATURE') AS is_feature FROM tms_metadata WHERE title = $2";
 }
 
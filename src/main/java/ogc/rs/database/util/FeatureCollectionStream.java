@@ -0,0 +1,256 @@
+package ogc.rs.database.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@link ReadStream} that emits a GeoJSON FeatureCollection as a sequence of {@link Buffer}
+ * chunks. Features are read from a PostgreSQL cursor ({@link RowStream}) in batches of the fetch
+ * size, so only one batch is held in memory at any point regardless of the page size requested.
+ * <br>
+ * Backpressure is delegated to the underlying {@link RowStream} - when the consumer (e.g. a
+ * chunked HTTP response piped from this stream) pauses, the cursor stops fetching more rows.
+ * <br>
+ * Members that can only be known once all rows have been read (<em>numberReturned</em>, the
+ * <em>next</em> link etc.) are written after the <em>features</em> array. The members to be added
+ * are obtained from the function set using {@link #trailer(Function)}. Whether a next page exists
+ * is known from the extra row fetched by the <code>limit + 1</code> query.
+ * <br>
+ * Rows are emitted as returned by the query unless a {@link #featureMapper(Function) feature
+ * mapper} is set. The last emitted ID used for pagination is read from the <em>id</em> column, or
+ * from the column set using {@link #keyColumn(String)}.
+ * <br>
+ * The connection and transaction holding the cursor are released when the stream ends, fails or
+ * is {@link #close() closed}.
+ */
+public class FeatureCollectionStream implements ReadStream<Buffer> {
+
+  private static final Logger LOGGER = LogManager.getLogger(FeatureCollectionStream.class);
+
+  private static final Buffer FEATURE_COLLECTION_START =
+      Buffer.buffer("{\"type\":\"FeatureCollection\",\"features\":[");
+
+  private final SqlConnection conn;
+  private final Transaction tx;
+  private final RowStream<Row> rows;
+  private final Integer numberMatched;
+  private final int limit;
+
+  private Function<FeatureCollectionStream, JsonObject> trailer = stream -> new JsonObject();
+  private Function<JsonObject, JsonObject> featureMapper = Function.identity();
+  private String keyColumn = "id";
+  private Handler<Buffer> dataHandler;
+  private Handler<Void> endHandler;
+  private Handler<Throwable> exceptionHandler;
+
+  private int numberReturned = 0;
+  private Integer lastId = null;
+  private boolean hasMore = false;
+  private boolean released = false;
+
+  /**
+   * Create a FeatureCollectionStream.
+   *
+   * @param conn connection on which the cursor is open
+   * @param tx transaction in which the cursor is open
+   * @param rows the cursor, the query must fetch <code>limit + 1</code> features
+   * @param numberMatched number of matching features, <code>null</code> if it should be omitted
+   * @param limit the number of features requested
+   */
+  public FeatureCollectionStream(SqlConnection conn, Transaction tx, RowStream<Row> rows,
+      Integer numberMatched, int limit) {
+    this.conn = conn;
+    this.tx = tx;
+    this.rows = rows;
+    this.numberMatched = numberMatched;
+    this.limit = limit;
+
+    rows.endHandler(v -> handleEnd());
+    rows.exceptionHandler(this::handleException);
+  }
+
+  /**
+   * Set the function used to get the members to be added to the FeatureCollection after the
+   * <em>features</em> array. The function is called once all rows have been read, so
+   * {@link #getNumberReturned()}, {@link #getLastId()} and {@link #hasMore()} are final when it is
+   * called.
+   *
+   * @param trailer function returning the members to add
+   * @return a reference to this, so the API can be used fluently
+   */
+  public FeatureCollectionStream trailer(Function<FeatureCollectionStream, JsonObject> trailer) {
+    this.trailer = trailer;
+    return this;
+  }
+
+  /**
+   * Set the function used to transform every row into the feature that is emitted. The key column
+   * is read before the function is called, so it may remove it.
+   *
+   * @param featureMapper function returning the feature to emit for a row
+   * @return a reference to this, so the API can be used fluently
+   */
+  public FeatureCollectionStream featureMapper(Function<JsonObject, JsonObject> featureMapper) {
+    this.featureMapper = featureMapper;
+    return this;
+  }
+
+  /**
+   * Set the integer column holding the key used for pagination, <em>id</em> by default.
+   *
+   * @param keyColumn the column name
+   * @return a reference to this, so the API can be used fluently
+   */
+  public FeatureCollectionStream keyColumn(String keyColumn) {
+    this.keyColumn = keyColumn;
+    return this;
+  }
+
+  /**
+   * @return the number of matching features, or <code>null</code> if not counted
+   */
+  public Integer getNumberMatched() {
+    return numberMatched;
+  }
+
+  public int getNumberReturned() {
+    return numberReturned;
+  }
+
+  /**
+   * @return the key (ID) of the last feature emitted, or <code>null</code> if no features were
+   *         emitted
+   */
+  public Integer getLastId() {
+    return lastId;
+  }
+
+  /**
+   * @return <code>true</code> if there are more features after the last feature emitted. Only
+   *         final once the stream has ended.
+   */
+  public boolean hasMore() {
+    return hasMore;
+  }
+
+  @Override
+  public FeatureCollectionStream exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public FeatureCollectionStream handler(Handler<Buffer> handler) {
+    this.dataHandler = handler;
+    if (handler == null) {
+      rows.handler(null);
+    } else {
+      rows.handler(this::handleRow);
+    }
+    return this;
+  }
+
+  @Override
+  public FeatureCollectionStream pause() {
+    rows.pause();
+    return this;
+  }
+
+  @Override
+  public FeatureCollectionStream resume() {
+    rows.resume();
+    return this;
+  }
+
+  @Override
+  public FeatureCollectionStream fetch(long amount) {
+    rows.fetch(amount);
+    return this;
+  }
+
+  @Override
+  public FeatureCollectionStream endHandler(Handler<Void> endHandler) {
+    this.endHandler = endHandler;
+    return this;
+  }
+
+  /**
+   * Close the cursor and release the connection without emitting the rest of the
+   * FeatureCollection. To be used if the consumer of the stream fails, e.g. the client closes the
+   * HTTP connection midway.
+   *
+   * @return future that completes once the connection has been released
+   */
+  public Future<Void> close() {
+    return release(false);
+  }
+
+  private void handleRow(Row row) {
+    // the extra feature fetched by the limit + 1 probe is not emitted
+    if (numberReturned == limit) {
+      hasMore = true;
+      return;
+    }
+
+    Buffer chunk = numberReturned == 0 ? FEATURE_COLLECTION_START.copy() : Buffer.buffer(",");
+    JsonObject feature = row.toJson();
+
+    lastId = feature.getInteger(keyColumn);
+    numberReturned++;
+
+    dataHandler.handle(chunk.appendBuffer(featureMapper.apply(feature).toBuffer()));
+  }
+
+  private void handleEnd() {
+    Buffer chunk = numberReturned == 0 ? FEATURE_COLLECTION_START.copy() : Buffer.buffer();
+
+    JsonObject members = trailer.apply(this).copy().put("numberReturned", numberReturned);
+    if (numberMatched != null) {
+      members.put("numberMatched", numberMatched);
+    }
+
+    // the trailing members are appended to the collection by replacing the leading '{'
+    String membersStr = members.encode();
+    chunk.appendString("],").appendString(membersStr.substring(1));
+
+    release(true).onComplete(released -> {
+      if (dataHandler != null) {
+        dataHandler.handle(chunk);
+      }
+      if (endHandler != null) {
+        endHandler.handle(null);
+      }
+    });
+  }
+
+  private void handleException(Throwable err) {
+    LOGGER.error("Failed while streaming features - {}", err.getMessage());
+    release(false).onComplete(released -> {
+      if (exceptionHandler != null) {
+        exceptionHandler.handle(MulticornErrorHandler.handle(err));
+      }
+    });
+  }
+
+  private Future<Void> release(boolean commit) {
+    if (released) {
+      return Future.succeededFuture();
+    }
+    released = true;
+
+    Future<Void> closeCursor = commit ? Future.succeededFuture() : rows.close();
+    return closeCursor
+        .transform(v -> commit ? tx.commit() : tx.rollback())
+        .transform(v -> conn.close());
+  }
+}
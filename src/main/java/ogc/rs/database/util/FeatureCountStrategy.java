@@ -0,0 +1,63 @@
+package ogc.rs.database.util;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Strategy used to compute <em>numberMatched</em> for OGC Features <em>/items</em> responses.
+ * Counting the features matching a request needs a second scan of the collection with the same
+ * filters, which can cost more than fetching the page itself for large collections. <br>
+ * The strategy is configured using the <em>featureCount</em> config block:
+ *
+ * <pre>
+ * "featureCount" : {
+ *   "strategy" : "EXACT",
+ *   "cap" : 10000,
+ *   "collections" : {
+ *     "&lt;collection-id&gt;" : "ESTIMATED"
+ *   }
+ * }
+ * </pre>
+ *
+ * <em>strategy</em> is used for all collections not present in <em>collections</em>. If the block
+ * is absent, {@link #EXACT} is used.
+ */
+public enum FeatureCountStrategy {
+  /** Exact count of the matching features. */
+  EXACT,
+  /** Planner estimate from <em>EXPLAIN</em>, which is based on the table statistics. */
+  ESTIMATED,
+  /**
+   * Exact count if less than the configured cap, else <em>numberMatched</em> is omitted from the
+   * response.
+   */
+  CAPPED,
+  /** <em>numberMatched</em> is always omitted from the response. */
+  NONE;
+
+  public static final String CONFIG_KEY = "featureCount";
+  public static final int DEFAULT_CAP = 10000;
+
+  /**
+   * Get the count strategy for a collection from the server config.
+   *
+   * @param config the verticle config
+   * @param collectionId the collection ID
+   * @return the {@link FeatureCountStrategy} for the collection
+   */
+  public static FeatureCountStrategy forCollection(JsonObject config, String collectionId) {
+    JsonObject countConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+    String strategy = countConfig.getJsonObject("collections", new JsonObject())
+        .getString(collectionId, countConfig.getString("strategy", EXACT.name()));
+    return FeatureCountStrategy.valueOf(strategy.toUpperCase());
+  }
+
+  /**
+   * Get the cap to be used with the {@link #CAPPED} strategy from the server config.
+   *
+   * @param config the verticle config
+   * @return the cap
+   */
+  public static int getCap(JsonObject config) {
+    return config.getJsonObject(CONFIG_KEY, new JsonObject()).getInteger("cap", DEFAULT_CAP);
+  }
+}
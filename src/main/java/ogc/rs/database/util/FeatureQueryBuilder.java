@@ -5,8 +5,10 @@ import io.vertx.sqlclient.Tuple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static ogc.rs.common.Constants.DEFAULT_CRS_SRID;
 import static ogc.rs.database.util.Constants.STAC_ITEMS_DATETIME_KEY;
@@ -14,6 +16,15 @@ import static ogc.rs.database.util.Constants.STAC_ITEMS_DATETIME_KEY;
 public class FeatureQueryBuilder {
   private static final Logger LOGGER = LogManager.getLogger(FeatureQueryBuilder.class);
 
+  /**
+   * Start of every STAC Item Search query. Used to identify the query, e.g. to only cache its
+   * prepared statement.
+   */
+  public static final String STAC_ITEM_SEARCH_QUERY_PREFIX = "WITH items AS (";
+  /* tile coordinate space and clipping buffer of generated vector tiles, as used by ogr2ogr */
+  public static final int MVT_EXTENT = 4096;
+  public static final int MVT_BUFFER = 64;
+
   private String tableName;
   private String[] stacCollectionIds = {};
   private int limit;
@@ -29,6 +40,8 @@ public class FeatureQueryBuilder {
   private String defaultCrsSrid;
   private String bboxCrsSrid;
   private String geoColumn;
+  private String crsSrid;
+  private String excludedColumns = "";
   private String datetimeKey;
   private String[] stacItemIds = {};
   private String stacIntersectsGeom;
@@ -48,6 +61,7 @@ public class FeatureQueryBuilder {
     datetimeKey = "";
     defaultCrsSrid = String.valueOf(DEFAULT_CRS_SRID);
     bboxCrsSrid = "";
+    crsSrid = defaultCrsSrid;
     geoColumn = "cast(st_asgeojson(st_transform(geom," + defaultCrsSrid + ")) as json)";
   }
 
@@ -139,9 +153,46 @@ public class FeatureQueryBuilder {
 
   public void setCrs (String crs) {
     // st_asgeojson(geometry, maxdecimaldigits, options); options = 0 means no extra options
+    crsSrid = crs;
     geoColumn = "cast(st_asgeojson(st_transform(geom," + crs + "), 9,0) as json)";
   }
 
+  /**
+   * Simplify the geometries of the features using <em>ST_SimplifyPreserveTopology</em> and round
+   * their coordinates. Must be called after {@link #setCrs(String)}, as the geometries are
+   * simplified after being transformed to the CRS of the response. <br>
+   * If a precomputed generalized geometry column is given, it is used in place of simplifying
+   * <em>geom</em>. Features where the column is <code>null</code> (e.g. appended after it was
+   * computed) are simplified.
+   *
+   * @param generalizedColumn the generalized geometry column, <code>null</code> if there is none
+   * @param tolerance the simplification tolerance in the units of the CRS of the response
+   * @param decimalDigits the number of decimal digits of the coordinates
+   */
+  public void setGeneralization(String generalizedColumn, double tolerance, int decimalDigits) {
+    String geometry = "ST_SimplifyPreserveTopology(st_transform(geom," + crsSrid + "), "
+        + tolerance + ")";
+    if (generalizedColumn != null) {
+      geometry = "coalesce(st_transform(" + generalizedColumn + "," + crsSrid + "), " + geometry + ")";
+    }
+    geoColumn = "cast(st_asgeojson(" + geometry + ", " + decimalDigits + ",0) as json)";
+  }
+
+  /**
+   * Leave out columns other than <em>id</em> and <em>geom</em> from the properties of the
+   * features, i.e. the precomputed generalized geometry columns of the collection.
+   *
+   * @param columns the columns
+   */
+  public void setExcludedColumns(Collection<String> columns) {
+    this.excludedColumns =
+        columns.stream().map(column -> " - '" + column + "'").collect(Collectors.joining());
+  }
+
+  private String excludeColumns(String sql) {
+    return excludedColumns.isEmpty() ? sql : sql.replace("'geom')", "'geom'" + excludedColumns + ")");
+  }
+
   public void setDatetime(String datetime) {
     if (datetimeKey.isEmpty()) {
       return;
@@ -301,6 +352,7 @@ public class FeatureQueryBuilder {
    * the same filtering conditions as {@link #buildJoinQuery()}, but returns only the count instead
    * of actual feature data.
    *
+   * @param selectList the select list, <code>COUNT(request_feature.id)</code> for the count query
    * @return A SQL COUNT query string that counts intersecting features with optional filters.
    * <p>
    * The generated SQL query structure:
@@ -313,10 +365,10 @@ public class FeatureQueryBuilder {
    *   [AND datetime filter]
    *   [AND attribute filters];
    */
-  private String buildJoinCountQuery() {
+  private String buildJoinCountQuery(String selectList) {
     // Build the JOIN count query for feature limits
     StringBuilder query = new StringBuilder();
-    query.append("SELECT COUNT(request_feature.id) ")
+    query.append("SELECT ").append(selectList).append(" ")
             .append("FROM \"").append(tableName).append("\" request_feature ")
             .append("JOIN \"").append(tokenFeatCollectionId).append("\" token_feature ")
             .append("ON ST_Intersects(request_feature.geom, token_feature.geom) ");
@@ -352,7 +404,7 @@ public class FeatureQueryBuilder {
   public String buildSqlString() {
     // Check if we need to use JOIN approach (only when featLimits is present)
     if (!featLimits.isEmpty()) {
-      return buildJoinQuery();
+      return excludeColumns(buildJoinQuery());
     }
 
     // Original query building logic for non-feature-limit cases
@@ -387,7 +439,7 @@ public class FeatureQueryBuilder {
 
     if (!bbox.isEmpty() && !datetime.isEmpty()) {
       this.sqlString = String.format("select id, 'Feature' as type, %7$s as geometry, (row_to_json(\"%1$s\")::jsonb - " +
-                      " 'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and %5$s and %6$d ORDER BY id limit %2$d"
+                      " 'id' - 'geom') as properties from \"%1$s\" %3$s %4$s and %5$s and id > %6$d ORDER BY id limit %2$d"
               ,this.tableName,this.limit, this.additionalParams, this.bbox, this.datetime, this.offset, this.geoColumn);
     }
 
@@ -404,59 +456,157 @@ public class FeatureQueryBuilder {
               this.geoColumn);
     }
 
+    this.sqlString = excludeColumns(sqlString);
     LOGGER.debug("<builder>Sql query- {}", sqlString);
     return sqlString;
   }
 
+  /**
+   * Builds a SQL query that returns a page of features as a single GeoJSON <em>features</em> array
+   * built by Postgres, so that it can be put in the response as is without parsing each feature.
+   * The features query is built using {@link #buildSqlString()}, and the features after the first
+   * <code>pageSize</code> (i.e. the extra feature of the <code>limit + 1</code> probe) are counted
+   * but not added to the array. <br>
+   * The query returns a single row with the columns:
+   * <ul>
+   *   <li><em>features</em> - text of the features array, <code>[]</code> if there are none</li>
+   *   <li><em>fetched</em> - number of features fetched, including the probe</li>
+   *   <li><em>last_id</em> - ID of the last feature in the array, <code>null</code> if empty</li>
+   * </ul>
+   *
+   * @param pageSize the number of features to be put in the array
+   * @return the SQL query
+   */
+  public String buildAggregatedSqlString(int pageSize) {
+    String aggregated = String.format("select coalesce(json_agg(json_build_object('id', id, 'type', "
+            + "type, 'geometry', geometry, 'properties', properties) order by id) filter (where rn <= %1$d),"
+            + " '[]')::text as features, count(*) as fetched, max(id) filter (where rn <= %1$d) as last_id"
+            + " from (select page.*, row_number() over (order by id) as rn from (%2$s) page) ranked",
+        pageSize, buildSqlString());
+
+    LOGGER.debug("<builder>Aggregated sql query- {}", aggregated);
+    return aggregated;
+  }
+
+  /**
+   * Builds a SQL query that generates a Mapbox Vector Tile from the features matching the filters,
+   * using <em>ST_AsMVTGeom</em> and <em>ST_AsMVT</em>. The bbox filter must be set to the envelope
+   * of the tile, so that only the features in the tile are read. Feature limits from the token are
+   * applied as for <em>/items</em>. <br>
+   * The tile has a single layer named after the collection, with the attributes of the features as
+   * properties and the feature ID as the ID of each tile feature. The query returns a single row
+   * with the tile in the <em>mvt</em> column, which is empty if there are no features in the tile.
+   *
+   * @param tileEnvelope envelope of the tile as <code>[minX, minY, maxX, maxY]</code>
+   * @param tileSrid SRID of the CRS of the tile matrix set
+   * @return the SQL query
+   */
+  public String buildMvtSqlString(double[] tileEnvelope, int tileSrid) {
+    String envelope = "ST_MakeEnvelope(" + tileEnvelope[0] + ", " + tileEnvelope[1] + ", "
+        + tileEnvelope[2] + ", " + tileEnvelope[3] + ", " + tileSrid + ")";
+    String mvtGeom = ", " + envelope + ", " + MVT_EXTENT + ", " + MVT_BUFFER + ", true) as mvt_geom";
+
+    // a feature intersecting many features of the token's feature limits is added only once
+    String features = excludeColumns(buildFilteredSqlString(
+        "distinct on (id) id, (to_jsonb(\"" + tableName + "\") - 'id' - 'geom') as properties, "
+            + "ST_AsMVTGeom(ST_Transform(geom, " + tileSrid + ")" + mvtGeom,
+        "distinct on (request_feature.id) request_feature.id, (to_jsonb(request_feature) - 'id' - "
+            + "'geom') as properties, ST_AsMVTGeom(ST_Transform(request_feature.geom, " + tileSrid
+            + ")" + mvtGeom));
+
+    String mvt = String.format("select ST_AsMVT(tile, '%1$s', %2$d, 'mvt_geom', 'id') as mvt from"
+        + " (%3$s) tile where mvt_geom is not null", tableName, MVT_EXTENT, features);
+
+    LOGGER.debug("<builder>MVT sql query- {}", mvt);
+    return mvt;
+  }
+
   public String buildSqlString(String isCountQuery) {
+    return buildFilteredSqlString("count(id)", "COUNT(request_feature.id)");
+  }
+
+  /**
+   * Builds a SQL query that counts the features matching the filters, but stops counting once
+   * <code>cap</code> features have been found. Used when the exact count of a large collection is
+   * too expensive to be computed on every request.
+   *
+   * @param cap the maximum count
+   * @return a SQL query returning a single <em>count</em> column, at most <code>cap</code>
+   */
+  public String buildCappedCountSqlString(int cap) {
+    return "select count(*) as count from ("
+        + buildFilteredSqlString("1", "1") + " limit " + cap + ") capped";
+  }
+
+  /**
+   * Builds an <em>EXPLAIN (FORMAT JSON)</em> query for selecting the features matching the
+   * filters. The <em>Plan Rows</em> of the top-level plan node is the planner's estimate of the
+   * number of matching features, obtained without scanning the table.
+   *
+   * @return the EXPLAIN query
+   */
+  public String buildEstimatedCountSqlString() {
+    return "EXPLAIN (FORMAT JSON) " + buildFilteredSqlString("1", "1");
+  }
+
+  /**
+   * Builds a SQL query selecting <code>selectList</code> from the collection table with the bbox,
+   * datetime, attribute filters and feature limits applied, without any pagination. The builder
+   * state is not changed, so count and features queries can be built in any order.
+   *
+   * @param selectList select list of the query
+   * @param joinSelectList select list of the query when feature limits are present
+   * @return the SQL query
+   */
+  private String buildFilteredSqlString(String selectList, String joinSelectList) {
     // Check if we need to use JOIN approach (only when featLimits is present)
     if (!featLimits.isEmpty()) {
-      return buildJoinCountQuery();
+      return buildJoinCountQuery(joinSelectList);
     }
 
     // Original count query building logic for non-feature-limit cases
-    this.sqlString = String.format("select count(id) from \"%1$s\" "
+    String sql = String.format("select " + selectList + " from \"%1$s\" "
             , this.tableName);
 
     if (!bbox.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s"
+      sql = String.format("select " + selectList + " from \"%1$s\" %2$s %3$s"
               ,this.tableName, this.additionalParams, this.bbox);
     }
 
     if(!datetime.isEmpty() ){
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s"
+      sql = String.format("select " + selectList + " from \"%1$s\" %2$s %3$s"
               ,this.tableName, this.additionalParams, this.datetime);
     }
 
     if (!filter.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s"
+      sql = String.format("select " + selectList + " from \"%1$s\" %2$s %3$s"
               ,this.tableName, this.additionalParams, this.filter);
     }
 
     // Handle combinations
     if (!bbox.isEmpty() && !filter.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s and %4$s"
+      sql = String.format("select " + selectList + " from \"%1$s\" %2$s %3$s and %4$s"
               ,this.tableName, this.additionalParams, this.bbox, this.filter);
     }
 
     if (!bbox.isEmpty() && !datetime.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s and %4$s"
+      sql = String.format("select " + selectList + " from \"%1$s\" %2$s %3$s and %4$s"
               ,this.tableName, this.additionalParams, this.bbox, this.datetime);
     }
 
     if (!datetime.isEmpty() && !filter.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s and %4$s"
+      sql = String.format("select " + selectList + " from \"%1$s\" %2$s %3$s and %4$s"
               ,this.tableName, this.additionalParams, this.datetime, this.filter);
     }
 
     // Handle three conditions
     if (!bbox.isEmpty() && !filter.isEmpty() && !datetime.isEmpty()) {
-      this.sqlString = String.format("select count(id) from \"%1$s\" %2$s %3$s and %4$s and %5$s"
+      sql = String.format("select " + selectList + " from \"%1$s\" %2$s %3$s and %4$s and %5$s"
               ,this.tableName, this.additionalParams, this.bbox, this.filter, this.datetime);
     }
 
-    LOGGER.debug("<builder>Count query- {}", sqlString);
-    return sqlString;
+    LOGGER.debug("<builder>Count query- {}", sql);
+    return sql;
   }
 
   /**
@@ -510,16 +660,19 @@ public class FeatureQueryBuilder {
       tup.addArrayOfString(stacItemIds);
     }
 
-    if (offset != 0) {
-      stacPartitionTableQuery.append(" AND p_id > ").append(offset);
-    }
+    // keyset pagination on p_id, the bound and limit are always params so that the query of every
+    // page of a search is the same prepared statement
+    parameterIndex++;
+    stacPartitionTableQuery.append(" AND p_id > $" + parameterIndex);
+    tup.addInteger(offset);
 
-    // limit always added
-    stacPartitionTableQuery.append(" LIMIT ").append(this.limit);
+    parameterIndex++;
+    stacPartitionTableQuery.append(" ORDER BY p_id LIMIT $" + parameterIndex);
+    tup.addInteger(this.limit);
 
     // forming CTE with the stac_collections_part query to get required data from stac_items_assets
     // and then joining the result
-    StringBuilder finalCteQuery = new StringBuilder().append("WITH items AS (")
+    StringBuilder finalCteQuery = new StringBuilder().append(STAC_ITEM_SEARCH_QUERY_PREFIX)
             .append(stacPartitionTableQuery.toString())
             .append("), assets AS (SELECT collection_id, item_id,"
                     + " jsonb_agg((row_to_json(stac_items_assets.*)::jsonb - 'item_id'))"
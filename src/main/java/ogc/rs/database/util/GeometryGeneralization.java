@@ -0,0 +1,104 @@
+package ogc.rs.database.util;
+
+import java.util.Map;
+import ogc.rs.apiserver.util.OgcException;
+
+/**
+ * Generalization of feature geometries for OGC Features <em>/items</em> requests made for a map
+ * scale, using the <em>zoom-level</em> or <em>scale-denominator</em> query params. A zoom level is
+ * the tile matrix of the WebMercatorQuad tile matrix set, and is converted to its scale
+ * denominator. <br>
+ * The geometries are simplified to a tolerance of one pixel at the scale (a pixel being 0.28 mm as
+ * in the OGC standards), and their coordinates are rounded to a tenth of the tolerance. Collections
+ * can have precomputed generalized geometry columns, each used for scale denominators from the
+ * <em>min_scale_denominator</em> it is registered with in the
+ * <em>collection_generalized_geometries</em> table.
+ */
+public class GeometryGeneralization {
+
+  public static final String ZOOM_LEVEL_PARAM = "zoom-level";
+  public static final String SCALE_DENOMINATOR_PARAM = "scale-denominator";
+
+  /* scale denominator of tile matrix 0 of the WebMercatorQuad tile matrix set */
+  private static final double ZOOM_LEVEL_0_SCALE_DENOMINATOR = 559082264.0287178;
+  private static final double PIXEL_SIZE_METRES = 0.00028;
+  /* length of a degree of longitude at the equator, used for geographic CRS */
+  private static final double METRES_PER_DEGREE = 111319.49079327357;
+  private static final int MAX_DECIMAL_DIGITS = 9;
+
+  private final double scaleDenominator;
+
+  GeometryGeneralization(double scaleDenominator) {
+    this.scaleDenominator = scaleDenominator;
+  }
+
+  /**
+   * Get the generalization requested using the query params of a request.
+   *
+   * @param queryParams the validated query params of the request
+   * @return the {@link GeometryGeneralization}, <code>null</code> if geometries are not to be
+   *         generalized
+   * @throws OgcException with status 400 if both params are given
+   */
+  public static GeometryGeneralization fromQueryParams(Map<String, String> queryParams) {
+    String zoomLevel = queryParams.get(ZOOM_LEVEL_PARAM);
+    String scaleDenominator = queryParams.get(SCALE_DENOMINATOR_PARAM);
+
+    if (zoomLevel != null && scaleDenominator != null) {
+      throw new OgcException(400, "Bad Request", "Only one of the parameters "
+          + ZOOM_LEVEL_PARAM + " and " + SCALE_DENOMINATOR_PARAM + " can be used");
+    }
+    if (zoomLevel != null) {
+      return new GeometryGeneralization(
+          ZOOM_LEVEL_0_SCALE_DENOMINATOR / Math.pow(2, Integer.parseInt(zoomLevel)));
+    }
+    if (scaleDenominator != null) {
+      return new GeometryGeneralization(Double.parseDouble(scaleDenominator));
+    }
+    return null;
+  }
+
+  public double getScaleDenominator() {
+    return scaleDenominator;
+  }
+
+  /**
+   * Get the simplification tolerance in the units of the CRS of the response.
+   *
+   * @param geographic <code>true</code> if the CRS is in degrees, <code>false</code> if it is in
+   *        metres
+   * @return the tolerance
+   */
+  public double getTolerance(boolean geographic) {
+    double tolerance = scaleDenominator * PIXEL_SIZE_METRES;
+    return geographic ? tolerance / METRES_PER_DEGREE : tolerance;
+  }
+
+  /**
+   * Get the number of decimal digits that coordinates are rounded to.
+   *
+   * @param geographic <code>true</code> if the CRS is in degrees, <code>false</code> if it is in
+   *        metres
+   * @return the number of decimal digits, from 0 to 9
+   */
+  public int getDecimalDigits(boolean geographic) {
+    int digits = (int) Math.ceil(-Math.log10(getTolerance(geographic))) + 1;
+    return Math.max(0, Math.min(MAX_DECIMAL_DIGITS, digits));
+  }
+
+  /**
+   * Select the precomputed generalized geometry column to be used at the scale, i.e. the column
+   * with the largest minimum scale denominator not above the scale denominator.
+   *
+   * @param generalizedGeometries map of generalized geometry column to its minimum scale
+   *        denominator
+   * @return the column, <code>null</code> if none can be used
+   */
+  public String selectColumn(Map<String, Double> generalizedGeometries) {
+    return generalizedGeometries.entrySet().stream()
+        .filter(e -> e.getValue() <= scaleDenominator)
+        .max(Map.Entry.comparingByValue())
+        .map(Map.Entry::getKey)
+        .orElse(null);
+  }
+}
@@ -0,0 +1,200 @@
+package ogc.rs.database.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bulk insertion of STAC items. The items are split into chunks and every chunk is inserted in a
+ * single transaction, using one batched insert for the items (<em>stac_collections_part</em>) and
+ * one for all of their assets (<em>stac_items_assets</em>). Chunks are inserted one after the
+ * other, so a large request holds a single pooled connection at a time instead of opening a
+ * transaction per item. <br>
+ * A failed chunk is rolled back and its items are inserted again one at a time, each in its own
+ * transaction, so that only the items that cannot be inserted are reported as failed. The
+ * remaining chunks are still inserted. The chunk size is configured using the <em>stacItemIngestion</em> config block:
+ *
+ * <pre>
+ * "stacItemIngestion" : {
+ *   "batchSize" : 500
+ * }
+ * </pre>
+ */
+public class StacItemIngestion {
+
+  private static final Logger LOGGER = LogManager.getLogger(StacItemIngestion.class);
+
+  public static final String CONFIG_KEY = "stacItemIngestion";
+  private static final int DEFAULT_BATCH_SIZE = 500;
+
+  public static final String STATUS_CREATED = "created";
+  public static final String STATUS_FAILED = "failed";
+
+  private static final String INSERT_ITEM =
+      "INSERT INTO stac_collections_part(id, collection_id, bbox, geom, properties)"
+          + " VALUES ($1, $2::uuid, $3, st_geomfromgeojson($4), $5::jsonb)";
+  private static final String INSERT_ASSET =
+      "INSERT INTO stac_items_assets"
+          + " (id, collection_id, item_id, title, description, href, type, size, roles, properties, s3_bucket_id)"
+          + " VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9, $10::jsonb, $11)";
+
+  private final Pool client;
+  private final int batchSize;
+
+  public StacItemIngestion(Pool client, JsonObject config) {
+    JsonObject ingestionConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.client = client;
+    this.batchSize = Math.max(1, ingestionConfig.getInteger("batchSize", DEFAULT_BATCH_SIZE));
+  }
+
+  /**
+   * Insert STAC items into a collection, a chunk per transaction.
+   *
+   * @param collectionId the collection ID
+   * @param items the STAC items
+   * @return future with a report per item, in the order of the items, having the item
+   *         <em>id</em>, the <em>status</em> ({@value #STATUS_CREATED} or {@value #STATUS_FAILED})
+   *         and the <em>error</em> of failed items. Only fails if no item could be inserted.
+   */
+  public Future<JsonArray> insertItems(String collectionId, List<JsonObject> items) {
+    JsonArray report = new JsonArray();
+    Future<Void> chunks = Future.succeededFuture();
+    for (int from = 0; from < items.size(); from += batchSize) {
+      List<JsonObject> chunk = items.subList(from, Math.min(from + batchSize, items.size()));
+      chunks = chunks.compose(previous ->
+          client.withTransaction(conn -> insertChunk(conn, collectionId, chunk))
+              .map(inserted -> {
+                chunk.forEach(item -> report.add(
+                    new JsonObject().put("id", item.getString("id")).put("status", STATUS_CREATED)));
+                return (Void) null;
+              })
+              .recover(failed -> {
+                if (chunk.size() == 1) {
+                  addFailure(report, collectionId, chunk.get(0), failed);
+                  return Future.succeededFuture();
+                }
+                LOGGER.error("Failed to insert {} STAC items into {}, inserting them one by one."
+                    + " Error: {}", chunk.size(), collectionId, failed.getMessage());
+                return insertOneByOne(collectionId, chunk, report);
+              }));
+    }
+    return chunks.compose(done -> {
+      long created = report.stream()
+          .filter(item -> STATUS_CREATED.equals(((JsonObject) item).getString("status"))).count();
+      LOGGER.info("Inserted {} of {} STAC items into {}", created, items.size(), collectionId);
+      if (created == 0 && !report.isEmpty()) {
+        return Future.failedFuture(report.getJsonObject(0).getString("error"));
+      }
+      return Future.succeededFuture(report);
+    });
+  }
+
+  /**
+   * Insert the items of a failed chunk one at a time, each in its own transaction, adding the
+   * outcome of each item to the report.
+   */
+  private Future<Void> insertOneByOne(String collectionId, List<JsonObject> chunk,
+      JsonArray report) {
+    Future<Void> items = Future.succeededFuture();
+    for (JsonObject item : chunk) {
+      items = items.compose(previous ->
+          client.withTransaction(conn -> insertChunk(conn, collectionId, List.of(item)))
+              .map(inserted -> {
+                report.add(new JsonObject().put("id", item.getString("id"))
+                    .put("status", STATUS_CREATED));
+                return (Void) null;
+              })
+              .recover(failed -> {
+                addFailure(report, collectionId, item, failed);
+                return Future.succeededFuture();
+              }));
+    }
+    return items;
+  }
+
+  private static void addFailure(JsonArray report, String collectionId, JsonObject item,
+      Throwable failed) {
+    LOGGER.error("Failed to insert STAC item {} into {}. Error: {}", item.getString("id"),
+        collectionId, failed.getMessage());
+    report.add(new JsonObject().put("id", item.getString("id"))
+        .put("status", STATUS_FAILED).put("error", failed.getMessage()));
+  }
+
+  /**
+   * Insert STAC items and their assets using the given connection, which is expected to be in a
+   * transaction.
+   *
+   * @param conn the connection
+   * @param collectionId the collection ID
+   * @param items the STAC items
+   * @return future completed once the items and assets are inserted
+   */
+  public Future<Void> insertChunk(SqlConnection conn, String collectionId, List<JsonObject> items) {
+    List<Tuple> itemTuples = new ArrayList<>(items.size());
+    List<Tuple> assetTuples = new ArrayList<>();
+    items.forEach(item -> {
+      itemTuples.add(itemTuple(collectionId, item));
+      addAssetTuples(collectionId, item, assetTuples);
+    });
+
+    return conn.preparedQuery(INSERT_ITEM)
+        .executeBatch(itemTuples)
+        .compose(inserted -> {
+          LOGGER.debug("Inserted {} items into stac_collections_part", itemTuples.size());
+          if (assetTuples.isEmpty()) {
+            return Future.succeededFuture();
+          }
+          return conn.preparedQuery(INSERT_ASSET).executeBatch(assetTuples);
+        })
+        .mapEmpty();
+  }
+
+  private static Tuple itemTuple(String collectionId, JsonObject stacItem) {
+    JsonArray bbox = stacItem.containsKey("bbox") ? stacItem.getJsonArray("bbox") : new JsonArray();
+    Double[] bboxArray = (bbox != null) ? bbox.stream()
+        .map(obj -> obj instanceof Number ? ((Number) obj).doubleValue() : 0.0)
+        .toArray(Double[]::new) : new Double[0];
+    JsonObject geometry =
+        stacItem.containsKey("geometry") ? stacItem.getJsonObject("geometry") : new JsonObject();
+    JsonObject properties =
+        stacItem.containsKey("properties") ? stacItem.getJsonObject("properties") : new JsonObject();
+    return Tuple.of(stacItem.getString("id"), UUID.fromString(collectionId), bboxArray,
+        geometry.toString(), properties);
+  }
+
+  private static void addAssetTuples(String collectionId, JsonObject stacItem, List<Tuple> tuples) {
+    JsonObject assets = stacItem.getJsonObject("assets");
+    if (assets == null || assets.isEmpty()) {
+      return;
+    }
+    String itemId = stacItem.getString("id");
+    assets.stream().forEach(asset -> {
+      String assetId = asset.getKey();
+      JsonObject assetJsonObj = (JsonObject) asset.getValue();
+      String title = assetJsonObj.containsKey("title") ? assetJsonObj.getString("title") : "";
+      String description =
+          assetJsonObj.containsKey("description") ? assetJsonObj.getString("description") : "";
+      String href = assetJsonObj.getString("href");
+      String type = assetJsonObj.containsKey("type") ? assetJsonObj.getString("type") : "";
+      long size = assetJsonObj.containsKey("size") ? assetJsonObj.getLong("size") : 0;
+      JsonArray rolesJsonArr =
+          assetJsonObj.containsKey("roles") ? assetJsonObj.getJsonArray("roles") : new JsonArray();
+      String[] roles = (rolesJsonArr != null) ? rolesJsonArr.stream()
+          .map(Object::toString).toArray(String[]::new) : new String[0];
+      JsonObject assetProperties = assetJsonObj.containsKey("properties")
+          ? assetJsonObj.getJsonObject("properties") : new JsonObject();
+      String s3BucketId = assetJsonObj.getString("s3BucketId");
+      tuples.add(Tuple.of(UUID.fromString(assetId), collectionId, itemId, title, description, href,
+          type, size, roles, assetProperties, s3BucketId));
+    });
+  }
+}
@@ -0,0 +1,107 @@
+package ogc.rs.database.util;
+
+/**
+ * Tile grids that vector tiles can be generated from feature collections for. The grid of a tile
+ * matrix set is picked using the CRS of the tile matrix set in the <em>tms_metadata</em> table,
+ * and is used to compute the envelope of a tile from its tile matrix (zoom level), row and column.
+ * Rows are counted from the top of the grid, as in the OGC Two Dimensional Tile Matrix Set
+ * standard.
+ */
+public enum TileGrid {
+  /* 1 x 1 tiles at tile matrix 0, covering the Web Mercator square */
+  WEB_MERCATOR_QUAD(3857, 1),
+  /* 2 x 1 tiles at tile matrix 0, covering -180 to 180 longitude and -90 to 90 latitude */
+  WORLD_CRS84_QUAD(4326, 2);
+
+  public static final int MAX_TILE_MATRIX = 24;
+  private static final double MERCATOR_HALF_WIDTH = 20037508.342789244;
+
+  private final int srid;
+  private final int matrixWidthAtZero;
+
+  TileGrid(int srid, int matrixWidthAtZero) {
+    this.srid = srid;
+    this.matrixWidthAtZero = matrixWidthAtZero;
+  }
+
+  /**
+   * Get the grid of a tile matrix set using its CRS.
+   *
+   * @param crs the CRS URI of the tile matrix set
+   * @return the {@link TileGrid}, or <code>null</code> if tiles cannot be generated for the CRS
+   */
+  public static TileGrid forCrs(String crs) {
+    if (crs == null) {
+      return null;
+    }
+    if (crs.endsWith("/3857") || crs.equalsIgnoreCase("EPSG:3857")) {
+      return WEB_MERCATOR_QUAD;
+    }
+    if (crs.endsWith("/CRS84") || crs.endsWith("/4326") || crs.equalsIgnoreCase("EPSG:4326")) {
+      return WORLD_CRS84_QUAD;
+    }
+    return null;
+  }
+
+  /**
+   * @return SRID of the CRS of the grid
+   */
+  public int getSrid() {
+    return srid;
+  }
+
+  /**
+   * Check if a tile exists in the grid.
+   *
+   * @param tileMatrix the tile matrix (zoom level)
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return <code>true</code> if the tile exists
+   */
+  public boolean contains(int tileMatrix, int tileRow, int tileCol) {
+    return tileMatrix >= 0 && tileMatrix <= MAX_TILE_MATRIX
+        && tileRow >= 0 && tileRow < (1L << tileMatrix)
+        && tileCol >= 0 && tileCol < ((long) matrixWidthAtZero << tileMatrix);
+  }
+
+  /**
+   * Get the envelope of a tile in the CRS of the grid.
+   *
+   * @param tileMatrix the tile matrix (zoom level)
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return the envelope as <code>[minX, minY, maxX, maxY]</code>
+   */
+  public double[] getEnvelope(int tileMatrix, int tileRow, int tileCol) {
+    double halfWidth = this == WEB_MERCATOR_QUAD ? MERCATOR_HALF_WIDTH : 180;
+    double halfHeight = this == WEB_MERCATOR_QUAD ? MERCATOR_HALF_WIDTH : 90;
+    double tileSize = 2 * halfHeight / (1L << tileMatrix);
+
+    double minX = -halfWidth + tileCol * tileSize;
+    double maxY = halfHeight - tileRow * tileSize;
+    return new double[] {minX, maxY - tileSize, minX + tileSize, maxY};
+  }
+
+  /**
+   * Get the envelope of a tile in longitude and latitude (CRS84).
+   *
+   * @param tileMatrix the tile matrix (zoom level)
+   * @param tileRow the tile row
+   * @param tileCol the tile column
+   * @return the envelope as <code>[minLon, minLat, maxLon, maxLat]</code>
+   */
+  public double[] getLonLatEnvelope(int tileMatrix, int tileRow, int tileCol) {
+    double[] envelope = getEnvelope(tileMatrix, tileRow, tileCol);
+    if (this == WORLD_CRS84_QUAD) {
+      return envelope;
+    }
+    return new double[] {
+      envelope[0] / MERCATOR_HALF_WIDTH * 180, mercatorYToLat(envelope[1]),
+      envelope[2] / MERCATOR_HALF_WIDTH * 180, mercatorYToLat(envelope[3])
+    };
+  }
+
+  private static double mercatorYToLat(double y) {
+    return Math.toDegrees(Math.atan(Math.sinh(y / MERCATOR_HALF_WIDTH * Math.PI)));
+  }
+}
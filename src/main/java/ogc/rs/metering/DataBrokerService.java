@@ -2,7 +2,10 @@ package ogc.rs.metering;
 
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
+import java.util.List;
 
 public interface DataBrokerService {
   Future<Void> publishMessage(String toExchange, String routingKey, JsonObject body);
+
+  Future<List<JsonObject>> publishMessages(String toExchange, String routingKey, List<JsonObject> bodies);
 }
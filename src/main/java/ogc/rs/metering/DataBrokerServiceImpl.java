@@ -5,12 +5,17 @@ import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.rabbitmq.RabbitMQClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class DataBrokerServiceImpl implements DataBrokerService {
   private static final Logger LOGGER = LogManager.getLogger(DataBrokerServiceImpl.class);
   RabbitMQClient rabbitWebclient;
+  /* in progress connection attempt, shared by all publishes made while connecting */
+  private Future<Void> rabbitMqClientStartFuture;
 
   public DataBrokerServiceImpl(RabbitMQClient client) {
     this.rabbitWebclient = client;
@@ -20,16 +25,9 @@ public class DataBrokerServiceImpl implements DataBrokerService {
   public Future<Void> publishMessage(String toExchange, String routingKey, JsonObject body) {
     Promise<Void> promise = Promise.promise();
 
-    Future<Void> rabbitMqClientStartFuture;
-
     Buffer buffer = Buffer.buffer(body.toString());
-    if (!rabbitWebclient.isConnected()) {
-      rabbitMqClientStartFuture = rabbitWebclient.start();
-    } else {
-      rabbitMqClientStartFuture = Future.succeededFuture();
-    }
 
-    rabbitMqClientStartFuture
+    start()
         .compose(
             rabbitStartupFuture -> rabbitWebclient.basicPublish(toExchange, routingKey, buffer))
         .onSuccess(
@@ -45,4 +43,51 @@ public class DataBrokerServiceImpl implements DataBrokerService {
 
     return promise.future();
   }
+
+  /**
+   * Publish a batch of messages, connecting to RMQ at most once for the whole batch.
+   *
+   * @param toExchange the exchange
+   * @param routingKey the routing key
+   * @param bodies the messages
+   * @return future completed with the messages that could not be published once all publishes are
+   *         done, failed if RMQ could not be connected to
+   */
+  @Override
+  public Future<List<JsonObject>> publishMessages(String toExchange, String routingKey,
+      List<JsonObject> bodies) {
+    return start().compose(started -> {
+      List<Future<Void>> published = bodies.stream()
+          .map(body -> rabbitWebclient.basicPublish(toExchange, routingKey,
+              Buffer.buffer(body.toString())))
+          .collect(Collectors.toList());
+
+      // only the failed messages are retried, so that the others are not published twice
+      return Future.join(published).transform(ar -> {
+        List<JsonObject> failed = new ArrayList<>();
+        for (int i = 0; i < bodies.size(); i++) {
+          if (published.get(i).failed()) {
+            failed.add(bodies.get(i));
+          }
+        }
+        if (failed.isEmpty()) {
+          LOGGER.debug("{} messages published in RMQ", bodies.size());
+        } else {
+          LOGGER.error("Failed to publish {} of {} messages in RMQ - {}", failed.size(),
+              bodies.size(), ar.cause().getMessage());
+        }
+        return Future.succeededFuture(failed);
+      });
+    }).onFailure(failureHandler -> LOGGER.error(failureHandler));
+  }
+
+  private Future<Void> start() {
+    if (rabbitWebclient.isConnected()) {
+      return Future.succeededFuture();
+    }
+    if (rabbitMqClientStartFuture == null || rabbitMqClientStartFuture.isComplete()) {
+      rabbitMqClientStartFuture = rabbitWebclient.start();
+    }
+    return rabbitMqClientStartFuture;
+  }
 }
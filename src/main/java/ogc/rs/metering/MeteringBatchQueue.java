@@ -0,0 +1,398 @@
+package ogc.rs.metering;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileSystem;
+import io.vertx.core.json.JsonObject;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded in-memory queue of metering records that are written to a sink (the metering table, RMQ)
+ * in batches. A batch is written once <em>flushSize</em> records are queued, or every
+ * <em>flushIntervalMillis</em>, whichever comes first. Only one batch is written at a time. The
+ * records of a batch that could not be written (i.e. the whole batch if the write failed) are put
+ * back at the head of the queue and retried on the next flush. <br>
+ * Records offered when the queue is full are handled as per the <em>overflowPolicy</em>:
+ * <ul>
+ * <li><em>drop</em> : the record is rejected, so that the caller can log it</li>
+ * <li><em>spill</em> : the record is written to a file in <em>spillDir</em>, and read back into the
+ * queue once there is room</li>
+ * </ul>
+ * Each queue spills to its own directory <em>spillDir/&lt;sink&gt;/&lt;queue ID&gt;</em>, so that
+ * queues of several verticle instances never read back each other's records. On startup, a queue
+ * claims the files left behind by queues that are no longer running (e.g. after a crash) by
+ * atomically moving them into its own directory, so each of them is read back by one queue only. A
+ * spill directory must hence not be shared by more than one process.
+ * Queues are configured using the <em>meteringBatch</em> config block of the metering verticle:
+ *
+ * <pre>
+ * "meteringBatch" : {
+ *   "maxQueueSize" : 10000,
+ *   "flushSize" : 500,
+ *   "flushIntervalMillis" : 1000,
+ *   "overflowPolicy" : "drop",
+ *   "spillDir" : "/tmp/ogc-metering-spill"
+ * }
+ * </pre>
+ *
+ * Queue depth, flush latency and dropped and spilled record counts of each sink are published to
+ * the default Micrometer registry under <em>ogc.metering.*</em>.
+ */
+public class MeteringBatchQueue {
+
+  private static final Logger LOGGER = LogManager.getLogger(MeteringBatchQueue.class);
+
+  public static final String CONFIG_KEY = "meteringBatch";
+  private static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+  private static final int DEFAULT_FLUSH_SIZE = 500;
+  private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+  private static final String DEFAULT_SPILL_DIR = "/tmp/ogc-metering-spill";
+  private static final String SPILL_FILE_SUFFIX = ".ndjson";
+
+  /* queue depth of each sink, summed over all queues (i.e. verticle instances) */
+  private static final Map<String, AtomicLong> DEPTHS = new ConcurrentHashMap<>();
+  /* IDs of the queues running in this JVM, whose spill directories must not be claimed */
+  private static final Set<String> LIVE_QUEUES = ConcurrentHashMap.newKeySet();
+
+  private final Vertx vertx;
+  private final String sink;
+  private final String queueId = UUID.randomUUID().toString();
+  private final Function<List<JsonObject>, Future<List<JsonObject>>> writer;
+  private final int maxQueueSize;
+  private final int flushSize;
+  private final boolean spill;
+  private final String spillDir;
+  private final long timerId;
+
+  private final Deque<JsonObject> queue = new ArrayDeque<>();
+  private final List<JsonObject> spillBuffer = new ArrayList<>();
+  private final Deque<String> spillFiles = new ArrayDeque<>();
+  private final AtomicLong depth;
+  private boolean flushing = false;
+  private boolean reloading = false;
+
+  private final Timer successTimer;
+  private final Timer failureTimer;
+  private final Counter droppedCounter;
+  private final Counter spilledCounter;
+
+  /**
+   * Create a queue. Must be called on the Vert.x context the queue is used from.
+   *
+   * @param vertx the Vert.x instance
+   * @param sink name of the sink, used for metrics and the spill directory
+   * @param config the verticle config
+   * @param writer writes a batch of records to the sink, returning the records that could not be
+   *        written
+   */
+  public MeteringBatchQueue(Vertx vertx, String sink, JsonObject config,
+      Function<List<JsonObject>, Future<List<JsonObject>>> writer) {
+    JsonObject batchConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.vertx = vertx;
+    this.sink = sink;
+    this.writer = writer;
+    this.maxQueueSize = batchConfig.getInteger("maxQueueSize", DEFAULT_MAX_QUEUE_SIZE);
+    this.flushSize = batchConfig.getInteger("flushSize", DEFAULT_FLUSH_SIZE);
+    this.spill = "spill".equals(batchConfig.getString("overflowPolicy", "drop"));
+    String sinkSpillDir = batchConfig.getString("spillDir", DEFAULT_SPILL_DIR) + "/" + sink;
+    this.spillDir = sinkSpillDir + "/" + queueId;
+    this.depth = DEPTHS.computeIfAbsent(sink, k -> new AtomicLong());
+
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      registry = new SimpleMeterRegistry();
+    }
+    this.successTimer = Timer.builder("ogc.metering.flush.duration").tag("sink", sink)
+        .tag("outcome", "success").description("Time taken to write a batch of metering records")
+        .register(registry);
+    this.failureTimer = Timer.builder("ogc.metering.flush.duration").tag("sink", sink)
+        .tag("outcome", "failure").description("Time taken to write a batch of metering records")
+        .register(registry);
+    this.droppedCounter = Counter.builder("ogc.metering.records.dropped").tag("sink", sink)
+        .description("Metering records dropped as the queue was full").register(registry);
+    this.spilledCounter = Counter.builder("ogc.metering.records.spilled").tag("sink", sink)
+        .description("Metering records spilled to disk as the queue was full").register(registry);
+    Gauge.builder("ogc.metering.queue.depth", depth, AtomicLong::get).tag("sink", sink)
+        .description("Metering records waiting to be written").register(registry);
+
+    if (spill) {
+      LIVE_QUEUES.add(queueId);
+      vertx.fileSystem().mkdirsBlocking(spillDir);
+      claimOrphanSpillFiles(sinkSpillDir);
+      if (!spillFiles.isEmpty()) {
+        LOGGER.info("Claimed {} spilled {} metering files", spillFiles.size(), sink);
+      }
+    }
+
+    long flushIntervalMillis =
+        batchConfig.getLong("flushIntervalMillis", DEFAULT_FLUSH_INTERVAL_MILLIS);
+    this.timerId = vertx.setPeriodic(flushIntervalMillis, id -> flush());
+  }
+
+  /**
+   * Add a record to the queue.
+   *
+   * @param record the record
+   * @return <code>false</code> if the queue is full and the record was dropped
+   */
+  public boolean offer(JsonObject record) {
+    if (queue.size() >= maxQueueSize) {
+      if (!spill) {
+        droppedCounter.increment();
+        return false;
+      }
+      spillBuffer.add(record);
+      spilledCounter.increment();
+      if (spillBuffer.size() >= flushSize) {
+        writeSpillFile();
+      }
+      return true;
+    }
+
+    queue.add(record);
+    depth.incrementAndGet();
+    if (queue.size() >= flushSize) {
+      flush();
+    }
+    return true;
+  }
+
+  /**
+   * Check if a record offered now would be dropped, i.e. the queue is full and the overflow policy
+   * is <em>drop</em>. Used to offer a record to several queues only if all of them accept it.
+   *
+   * @return <code>true</code> if {@link #offer(JsonObject)} would reject a record
+   */
+  public boolean isFull() {
+    return !spill && queue.size() >= maxQueueSize;
+  }
+
+  /**
+   * @return number of records in the queue
+   */
+  public int size() {
+    return queue.size();
+  }
+
+  /**
+   * Write the next batch of queued records, if a batch is not already being written.
+   *
+   * @return future completed once the batch is written
+   */
+  public Future<Void> flush() {
+    if (!spillBuffer.isEmpty()) {
+      writeSpillFile();
+    }
+    if (!spillFiles.isEmpty() && !reloading && queue.size() <= maxQueueSize - flushSize) {
+      reloadSpillFile();
+    }
+    if (flushing || queue.isEmpty()) {
+      return Future.succeededFuture();
+    }
+
+    List<JsonObject> batch = new ArrayList<>(Math.min(flushSize, queue.size()));
+    while (batch.size() < flushSize && !queue.isEmpty()) {
+      batch.add(queue.poll());
+    }
+    depth.addAndGet(-batch.size());
+    flushing = true;
+
+    long start = System.nanoTime();
+    return writer.apply(batch)
+        .transform(ar -> {
+          List<JsonObject> unwritten = ar.succeeded() ? ar.result() : batch;
+          if (unwritten.isEmpty()) {
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Future.<Void>succeededFuture();
+          }
+
+          failureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          Throwable cause = ar.succeeded()
+              ? new IllegalStateException(unwritten.size() + " records were not written")
+              : ar.cause();
+          LOGGER.error("Failed to write {} of batch of {} {} metering records - {}",
+              unwritten.size(), batch.size(), sink, cause.getMessage());
+          requeue(unwritten);
+          return Future.<Void>failedFuture(cause);
+        })
+        .onComplete(ar -> {
+          flushing = false;
+          // a failed batch is only retried on the next periodic flush
+          if (ar.succeeded() && queue.size() >= flushSize) {
+            flush();
+          }
+        });
+  }
+
+  /**
+   * Put records that could not be written back at the head of the queue, to be retried on the next
+   * flush. The newest records are dropped or spilled if there is no room.
+   *
+   * @param records the records, oldest first
+   */
+  private void requeue(List<JsonObject> records) {
+    for (int i = records.size() - 1; i >= 0; i--) {
+      queue.addFirst(records.get(i));
+      depth.incrementAndGet();
+    }
+    while (queue.size() > maxQueueSize) {
+      JsonObject newest = queue.pollLast();
+      depth.decrementAndGet();
+      if (spill) {
+        spillBuffer.add(newest);
+        spilledCounter.increment();
+      } else {
+        droppedCounter.increment();
+      }
+    }
+  }
+
+  /**
+   * Stop the periodic flush and write all queued records. Records that cannot be written are
+   * spilled to disk if the overflow policy is <em>spill</em>.
+   *
+   * @return future completed once all records are written or spilled, failed if records that
+   *         could not be written could not be spilled either
+   */
+  public Future<Void> close() {
+    vertx.cancelTimer(timerId);
+    Promise<Void> promise = Promise.promise();
+    drain(promise);
+    // files still spilled once closed are claimed by the next queue that starts
+    return promise.future().onComplete(ar -> LIVE_QUEUES.remove(queueId));
+  }
+
+  private void drain(Promise<Void> promise) {
+    if (queue.isEmpty() && !flushing) {
+      if (spillBuffer.isEmpty()) {
+        promise.complete();
+      } else {
+        writeSpillFile().onComplete(promise);
+      }
+      return;
+    }
+    if (flushing) {
+      vertx.setTimer(10, id -> drain(promise));
+      return;
+    }
+    flush().onComplete(ar -> {
+      if (ar.failed()) {
+        if (spill) {
+          spillBuffer.addAll(queue);
+        } else {
+          droppedCounter.increment(queue.size());
+          LOGGER.error("Dropped {} {} metering records that could not be written on close",
+              queue.size(), sink);
+        }
+        depth.addAndGet(-queue.size());
+        queue.clear();
+      }
+      drain(promise);
+    });
+  }
+
+  /**
+   * Move the spill files of queues that are not running into this queue's spill directory. Files
+   * are moved one at a time with an atomic rename, so a file claimed by another queue starting at
+   * the same time is skipped. Files written directly into the sink directory by older versions are
+   * claimed as well.
+   *
+   * @param sinkSpillDir the spill directory of the sink, holding one directory per queue
+   */
+  private void claimOrphanSpillFiles(String sinkSpillDir) {
+    FileSystem fs = vertx.fileSystem();
+    claimSpillFiles(sinkSpillDir);
+    for (String dir : fs.readDirBlocking(sinkSpillDir)) {
+      String owner = dir.substring(dir.lastIndexOf('/') + 1);
+      try {
+        if (LIVE_QUEUES.contains(owner) || !fs.propsBlocking(dir).isDirectory()) {
+          continue;
+        }
+        claimSpillFiles(dir);
+        fs.deleteBlocking(dir);
+      } catch (RuntimeException e) {
+        // already removed by another queue, or a file is still being claimed by it
+        LOGGER.debug("Could not clear orphan spill directory {} - {}", dir, e.getMessage());
+      }
+    }
+  }
+
+  private void claimSpillFiles(String dir) {
+    FileSystem fs = vertx.fileSystem();
+    for (String orphan : fs.readDirBlocking(dir, ".*\\" + SPILL_FILE_SUFFIX)) {
+      String path = spillDir + "/" + orphan.substring(orphan.lastIndexOf('/') + 1);
+      try {
+        Files.move(Path.of(orphan), Path.of(path), StandardCopyOption.ATOMIC_MOVE);
+        spillFiles.add(path);
+      } catch (IOException e) {
+        LOGGER.debug("Spill file {} already claimed - {}", orphan, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Write the records in the spill buffer to a new spill file. Records that cannot be spilled are
+   * dropped.
+   *
+   * @return future completed once the file is written, failed if the records were dropped
+   */
+  private Future<Void> writeSpillFile() {
+    Buffer buffer = Buffer.buffer();
+    spillBuffer.forEach(record -> buffer.appendString(record.encode()).appendString("\n"));
+    int count = spillBuffer.size();
+    spillBuffer.clear();
+
+    String path = spillDir + "/" + UUID.randomUUID() + SPILL_FILE_SUFFIX;
+    return vertx.fileSystem().writeFile(path, buffer)
+        .onSuccess(v -> spillFiles.add(path))
+        .onFailure(err -> {
+          droppedCounter.increment(count);
+          LOGGER.error("Failed to spill {} {} metering records to {} - {}", count, sink, path,
+              err.getMessage());
+        });
+  }
+
+  private void reloadSpillFile() {
+    String path = spillFiles.poll();
+    reloading = true;
+
+    vertx.fileSystem().readFile(path)
+        .compose(buffer -> {
+          for (String line : buffer.toString().split("\n")) {
+            if (!line.isBlank()) {
+              queue.add(new JsonObject(line));
+              depth.incrementAndGet();
+            }
+          }
+          return vertx.fileSystem().delete(path);
+        })
+        .onFailure(err -> LOGGER.error("Failed to read back spilled {} metering records from {} - {}",
+            sink, path, err.getMessage()))
+        .onComplete(ar -> reloading = false);
+  }
+}
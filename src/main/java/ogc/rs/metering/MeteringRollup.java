@@ -0,0 +1,331 @@
+package ogc.rs.metering;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import ogc.rs.metering.util.MeteringQuery;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hourly and daily rollups of the <em>auditing_ogc</em> table, so that the overview, summary and
+ * count queries of the metering APIs do not need to aggregate the raw audit records of the whole
+ * time range on every call. <br>
+ * The audit records are written to <em>auditing_ogc</em> by the DX auditing server, so the rollups
+ * are maintained by a periodic job. The job aggregates settled hours (older than
+ * <em>settleMinutes</em>) into <em>auditing_ogc_hourly</em>, complete days into
+ * <em>auditing_ogc_daily</em>, and records how far the rollups go in
+ * <em>auditing_ogc_rollup_watermark</em>. Every run re-aggregates the last
+ * <em>lateArrivalHours</em> hours before the watermark to pick up records that arrived late. Only
+ * one server runs the job at a time (using a Postgres advisory lock), the others just read the
+ * watermark. <br>
+ * {@link #auditSource(LocalDateTime, LocalDateTime, MeteringQuery.Builder)} gives the audit records of a time range as a
+ * union of whole days from the daily rollup, whole hours from the hourly rollup and the raw table
+ * for the partial hours at the edges of the range and for the time after the watermark. <br>
+ * The rollups are configured using the <em>meteringRollup</em> config block of the metering
+ * verticle:
+ *
+ * <pre>
+ * "meteringRollup" : {
+ *   "enabled" : true,
+ *   "intervalMinutes" : 5,
+ *   "settleMinutes" : 10,
+ *   "lateArrivalHours" : 2,
+ *   "maxHoursPerRun" : 168
+ * }
+ * </pre>
+ *
+ * When disabled, all queries use the raw table.
+ */
+public class MeteringRollup {
+
+  private static final Logger LOGGER = LogManager.getLogger(MeteringRollup.class);
+
+  public static final String CONFIG_KEY = "meteringRollup";
+  private static final long DEFAULT_INTERVAL_MINUTES = 5;
+  private static final long DEFAULT_SETTLE_MINUTES = 10;
+  private static final long DEFAULT_LATE_ARRIVAL_HOURS = 2;
+  private static final long DEFAULT_MAX_HOURS_PER_RUN = 168;
+
+  private static final String TRY_LOCK = "SELECT pg_try_advisory_xact_lock(hashtext('auditing_ogc_rollup'))";
+  private static final String GET_WATERMARK =
+      "SELECT hourly_until, daily_until FROM auditing_ogc_rollup_watermark WHERE id = 1";
+  private static final String LOCK_WATERMARK = GET_WATERMARK + " FOR UPDATE";
+  private static final String GET_FIRST_DAY = "SELECT date_trunc('day', min(time)) FROM auditing_ogc";
+  private static final String DELETE_HOURLY =
+      "DELETE FROM auditing_ogc_hourly WHERE hour >= $1 AND hour < $2";
+  private static final String INSERT_HOURLY =
+      "INSERT INTO auditing_ogc_hourly (hour, resourceid, userid, providerid, api, hits, size)"
+          + " SELECT date_trunc('hour', time), resourceid, userid, providerid, api, count(*), sum(size)"
+          + " FROM auditing_ogc WHERE time >= $1 AND time < $2 GROUP BY 1, 2, 3, 4, 5";
+  private static final String DELETE_DAILY =
+      "DELETE FROM auditing_ogc_daily WHERE day >= $1 AND day < $2";
+  private static final String INSERT_DAILY =
+      "INSERT INTO auditing_ogc_daily (day, resourceid, userid, providerid, api, hits, size)"
+          + " SELECT date_trunc('day', hour), resourceid, userid, providerid, api, sum(hits), sum(size)"
+          + " FROM auditing_ogc_hourly WHERE hour >= $1 AND hour < $2 GROUP BY 1, 2, 3, 4, 5";
+  private static final String UPDATE_WATERMARK =
+      "UPDATE auditing_ogc_rollup_watermark SET hourly_until = $1, daily_until = $2 WHERE id = 1";
+
+  private static final String RAW_SELECT =
+      "SELECT time, resourceid, userid, providerid, api, 1 AS hits, size FROM auditing_ogc";
+  private static final String HOURLY_SELECT =
+      "SELECT hour AS time, resourceid, userid, providerid, api, hits, size FROM auditing_ogc_hourly";
+  private static final String DAILY_SELECT =
+      "SELECT day AS time, resourceid, userid, providerid, api, hits, size FROM auditing_ogc_daily";
+
+  private final Vertx vertx;
+  private final PgPool client;
+  private final boolean enabled;
+  private final long intervalMillis;
+  private final long settleMinutes;
+  private final long lateArrivalHours;
+  private final long maxHoursPerRun;
+  private long timerId = -1;
+  private boolean running = false;
+
+  private volatile LocalDateTime hourlyUntil;
+  private volatile LocalDateTime dailyUntil;
+
+  public MeteringRollup(Vertx vertx, PgPool client, JsonObject config) {
+    JsonObject rollupConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.vertx = vertx;
+    this.client = client;
+    this.enabled = rollupConfig.getBoolean("enabled", false);
+    this.intervalMillis =
+        rollupConfig.getLong("intervalMinutes", DEFAULT_INTERVAL_MINUTES) * 60 * 1000;
+    this.settleMinutes = rollupConfig.getLong("settleMinutes", DEFAULT_SETTLE_MINUTES);
+    this.lateArrivalHours = rollupConfig.getLong("lateArrivalHours", DEFAULT_LATE_ARRIVAL_HOURS);
+    this.maxHoursPerRun = rollupConfig.getLong("maxHoursPerRun", DEFAULT_MAX_HOURS_PER_RUN);
+  }
+
+  /**
+   * Start the periodic rollup job, if enabled.
+   */
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    LOGGER.info("Starting metering rollup job every {} ms", intervalMillis);
+    run();
+    timerId = vertx.setPeriodic(intervalMillis, id -> run());
+  }
+
+  /**
+   * Stop the periodic rollup job.
+   */
+  public void stop() {
+    if (timerId != -1) {
+      vertx.cancelTimer(timerId);
+    }
+  }
+
+  /**
+   * Run the rollup job once, if a run is not already in progress. Catching up with a large
+   * backlog is spread over many runs of at most <em>maxHoursPerRun</em> hours each.
+   *
+   * @return future completed once the run is done
+   */
+  public Future<Void> run() {
+    if (running) {
+      return Future.succeededFuture();
+    }
+    running = true;
+
+    return client
+        .withTransaction(conn -> conn.query(TRY_LOCK).execute()
+            .compose(rows -> rows.iterator().next().getBoolean(0)
+                ? rollup(conn)
+                : conn.query(GET_WATERMARK).execute().map(r -> r.iterator().next())))
+        .onSuccess(row -> setWatermarks(row.getLocalDateTime(0), row.getLocalDateTime(1)))
+        .onFailure(err -> LOGGER.error("Metering rollup failed - {}", err.getMessage()))
+        .onComplete(ar -> running = false)
+        .mapEmpty();
+  }
+
+  private Future<Row> rollup(SqlConnection conn) {
+    LocalDateTime target = LocalDateTime.now(ZoneOffset.UTC).minusMinutes(settleMinutes)
+        .truncatedTo(ChronoUnit.HOURS);
+
+    return conn.query(LOCK_WATERMARK).execute().map(rows -> rows.iterator().next())
+        .compose(watermark -> {
+          LocalDateTime hourly = watermark.getLocalDateTime(0);
+          if (hourly != null) {
+            return rollup(conn, hourly.minusHours(lateArrivalHours), target, watermark);
+          }
+          // first run, start from the oldest audit record
+          return conn.query(GET_FIRST_DAY).execute().compose(rows -> {
+            LocalDateTime firstDay = rows.iterator().next().getLocalDateTime(0);
+            return rollup(conn, firstDay == null ? target : firstDay, target, watermark);
+          });
+        });
+  }
+
+  private Future<Row> rollup(SqlConnection conn, LocalDateTime from, LocalDateTime target,
+      Row watermark) {
+    LocalDateTime oldHourly = watermark.getLocalDateTime(0);
+    LocalDateTime oldDaily = watermark.getLocalDateTime(1);
+    LocalDateTime to =
+        min(target, (oldHourly == null ? from : oldHourly).plusHours(maxHoursPerRun));
+    if (to.isBefore(from)) {
+      return Future.succeededFuture(watermark);
+    }
+
+    LocalDateTime hourly = max(oldHourly, to);
+    LocalDateTime dayFrom = from.truncatedTo(ChronoUnit.DAYS);
+    LocalDateTime dayTo = to.truncatedTo(ChronoUnit.DAYS);
+    LocalDateTime daily = max(oldDaily, dayTo);
+    LOGGER.debug("Rolling up audit records from {} to {}, days from {} to {}", from, to, dayFrom,
+        dayTo);
+
+    return conn.preparedQuery(DELETE_HOURLY).execute(Tuple.of(from, to))
+        .compose(r -> conn.preparedQuery(INSERT_HOURLY).execute(Tuple.of(from, to)))
+        .compose(r -> conn.preparedQuery(DELETE_DAILY).execute(Tuple.of(dayFrom, dayTo)))
+        .compose(r -> conn.preparedQuery(INSERT_DAILY).execute(Tuple.of(dayFrom, dayTo)))
+        .compose(r -> conn.preparedQuery(UPDATE_WATERMARK).execute(Tuple.of(hourly, daily)))
+        .compose(r -> conn.query(GET_WATERMARK).execute())
+        .map(rows -> rows.iterator().next());
+  }
+
+  void setWatermarks(LocalDateTime hourlyUntil, LocalDateTime dailyUntil) {
+    this.hourlyUntil = hourlyUntil;
+    this.dailyUntil = dailyUntil;
+  }
+
+  /**
+   * Append an SQL subquery (aliased as <em>audit</em>) with the audit records of a time range to a
+   * query, with the columns <em>time, resourceid, userid, providerid, api, hits, size</em>. Rolled
+   * up rows have the start of the hour or day as the time and the number of records as the hits,
+   * raw records have 1 hit. Times are compared with the <em>time</em> column as local date-times,
+   * as is done by Postgres when casting a string with an offset to a timestamp.
+   *
+   * @param start start of the time range (inclusive), <code>null</code> if unbounded
+   * @param end end of the time range (inclusive), <code>null</code> if unbounded
+   * @param query the query to append the subquery and its parameters to
+   */
+  public void auditSource(LocalDateTime start, LocalDateTime end, MeteringQuery.Builder query) {
+    LocalDateTime hourly = hourlyUntil;
+    LocalDateTime daily = dailyUntil;
+
+    LocalDateTime hourStart = start == null ? null : ceil(start, ChronoUnit.HOURS);
+    LocalDateTime hourEnd =
+        hourly == null ? null : end == null ? hourly : min(end.truncatedTo(ChronoUnit.HOURS), hourly);
+    query.append("(");
+    if (!enabled || hourEnd == null || hourStart != null && !hourStart.isBefore(hourEnd)) {
+      select(query, RAW_SELECT, new Range("time", start, end, true));
+      query.append(") AS audit");
+      return;
+    }
+
+    // with no start, there is no leading slice before the rollups, which are read from the start
+    Range trailingRaw = new Range("time", hourEnd, end, true);
+    if (start == null) {
+      select(query, RAW_SELECT, trailingRaw);
+    } else {
+      select(query, RAW_SELECT, new Range("time", start, hourStart, false), trailingRaw);
+    }
+    query.append(" UNION ALL ");
+
+    LocalDateTime dayStart = hourStart == null ? null : ceil(hourStart, ChronoUnit.DAYS);
+    LocalDateTime dayEnd = daily == null ? null : min(hourEnd.truncatedTo(ChronoUnit.DAYS), daily);
+    if (dayEnd != null && (dayStart == null || dayStart.isBefore(dayEnd))) {
+      select(query, DAILY_SELECT, new Range("day", dayStart, dayEnd, false));
+      query.append(" UNION ALL ");
+      Range trailingHours = new Range("hour", dayEnd, hourEnd, false);
+      if (start == null) {
+        select(query, HOURLY_SELECT, trailingHours);
+      } else {
+        select(query, HOURLY_SELECT, new Range("hour", hourStart, dayStart, false), trailingHours);
+      }
+    } else {
+      select(query, HOURLY_SELECT, new Range("hour", hourStart, hourEnd, false));
+    }
+    query.append(") AS audit");
+  }
+
+  /* select rows in any of the ranges */
+  private static void select(MeteringQuery.Builder query, String select, Range... ranges) {
+    query.append(select);
+    List<Range> nonEmpty = new ArrayList<>();
+    for (Range range : ranges) {
+      if (range.isUnbounded()) {
+        return;
+      }
+      if (!range.isEmpty()) {
+        nonEmpty.add(range);
+      }
+    }
+    if (nonEmpty.isEmpty()) {
+      query.append(" WHERE false");
+      return;
+    }
+    query.append(" WHERE ");
+    for (int i = 0; i < nonEmpty.size(); i++) {
+      if (nonEmpty.size() > 1) {
+        query.append(i == 0 ? "(" : " OR (");
+      }
+      nonEmpty.get(i).append(query);
+      if (nonEmpty.size() > 1) {
+        query.append(")");
+      }
+    }
+  }
+
+  private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+    LocalDateTime truncated = time.truncatedTo(unit);
+    return truncated.equals(time) ? time : truncated.plus(1, unit);
+  }
+
+  private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+    return a.isBefore(b) ? a : b;
+  }
+
+  private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+    return a == null || a.isBefore(b) ? b : a;
+  }
+
+  /* from <= column < to (or <= to), a null bound is unbounded */
+  private static class Range {
+    private final String column;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final boolean inclusiveEnd;
+
+    private Range(String column, LocalDateTime from, LocalDateTime to, boolean inclusiveEnd) {
+      this.column = column;
+      this.from = from;
+      this.to = to;
+      this.inclusiveEnd = inclusiveEnd;
+    }
+
+    private boolean isUnbounded() {
+      return from == null && to == null;
+    }
+
+    private boolean isEmpty() {
+      return from != null && to != null && (from.isAfter(to) || !inclusiveEnd && from.equals(to));
+    }
+
+    private void append(MeteringQuery.Builder query) {
+      if (from != null) {
+        query.append(column + " >= ").param(from);
+      }
+      if (from != null && to != null) {
+        query.append(" AND ");
+      }
+      if (to != null) {
+        query.append(column + (inclusiveEnd ? " <= " : " < ")).param(to);
+      }
+    }
+  }
+}
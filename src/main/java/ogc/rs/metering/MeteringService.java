@@ -24,6 +24,8 @@ public interface MeteringService {
 
     Future<JsonObject> insertMeteringValuesInRmq(JsonObject request);
 
+    Future<Void> queueAuditRecord(JsonObject postgresRecord, JsonObject rmqRequest);
+
     Future<JsonObject> monthlyOverview(JsonObject request);
 
     Future<JsonObject> summaryOverview(JsonObject request);
@@ -1,12 +1,14 @@
 package ogc.rs.metering;
 
 import static ogc.rs.metering.util.MeteringConstant.*;
+import static ogc.rs.common.Constants.METERING_USAGE_ADDRESS;
 
 import io.vertx.core.*;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.SqlResult;
 
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
@@ -18,6 +20,7 @@ import io.vertx.sqlclient.Tuple;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.catalogue.CatalogueService;
 import ogc.rs.metering.util.DateValidation;
+import ogc.rs.metering.util.MeteringQuery;
 import ogc.rs.metering.util.ParamsValidation;
 import ogc.rs.metering.util.QueryBuilder;
 import org.apache.logging.log4j.LogManager;
@@ -25,22 +28,18 @@ import org.apache.logging.log4j.Logger;
 
 public class MeteringServiceImpl implements MeteringService {
   private static final Logger LOGGER = LogManager.getLogger(MeteringServiceImpl.class);
-  private final QueryBuilder queryBuilder = new QueryBuilder();
+  private final QueryBuilder queryBuilder;
   private final DateValidation dateValidation = new DateValidation();
   private final ParamsValidation paramValidation = new ParamsValidation();
-  DataBrokerService dataBrokerService;
-  CatalogueService catalogueService;
-  JsonObject validationCheck = new JsonObject();
-  String queryCount;
-  long total;
-  String queryPg;
-  String queryOverview;
-  String summaryOverview;
-  JsonArray jsonArray;
-  JsonArray resultJsonArray;
-  int loopi;
-  PgPool meteringPgClient;
-  PgPool ogcPgClient;
+  // no per-request state is kept in fields, requests are served concurrently
+  private final DataBrokerService dataBrokerService;
+  private final CatalogueService catalogueService;
+  private final PgPool meteringPgClient;
+  private final PgPool ogcPgClient;
+  private final Vertx vertx;
+  private final MeteringBatchQueue auditRecordQueue;
+  private final MeteringBatchQueue rmqMessageQueue;
+  private final MeteringRollup rollup;
 
     public MeteringServiceImpl(
       Vertx vertx,
@@ -48,10 +47,29 @@ public class MeteringServiceImpl implements MeteringService {
       PgPool ogcPgClient,
       JsonObject config,
       DataBrokerService dataBrokerService) {
+    this.vertx = vertx;
     this.dataBrokerService = dataBrokerService;
     this.meteringPgClient = meteringPgClient;
     this.ogcPgClient = ogcPgClient;
-    catalogueService = new CatalogueService(vertx, config);
+    catalogueService = CatalogueService.getOrCreate(vertx, config);
+    this.rollup = new MeteringRollup(vertx, meteringPgClient, config);
+    this.queryBuilder = new QueryBuilder(rollup);
+    rollup.start();
+    this.auditRecordQueue = new MeteringBatchQueue(vertx, "postgres", config,
+        records -> writeAuditRecords(records).map(inserted -> List.of()));
+    this.rmqMessageQueue = new MeteringBatchQueue(vertx, "rmq", config,
+        messages -> dataBrokerService.publishMessages(EXCHANGE_NAME, ROUTING_KEY, messages));
+  }
+
+  /**
+   * Stop the rollup job and write queued audit records and messages that have not been written
+   * yet.
+   *
+   * @return future completed once the queues are drained
+   */
+  public Future<Void> close() {
+    rollup.stop();
+    return Future.join(auditRecordQueue.close(), rmqMessageQueue.close()).mapEmpty();
   }
 
   @Override
@@ -59,7 +77,7 @@ public class MeteringServiceImpl implements MeteringService {
     Promise<JsonObject> promise = Promise.promise();
     LOGGER.trace("Info: Read Query" + request.toString());
 
-    validationCheck = paramValidation.paramsCheck(request);
+    JsonObject validationCheck = paramValidation.paramsCheck(request);
     if (validationCheck != null && validationCheck.containsKey(ERROR)) {
       promise.fail("Error : " + validationCheck.getString(ERROR));
       return promise.future();
@@ -104,8 +122,7 @@ public class MeteringServiceImpl implements MeteringService {
                 promise.complete(jsonObjectResult);
                 return;
               } else {
-                request.put(TOTALHITS, successCount);
-                readMethod(request).onSuccess(promise::complete);
+                readMethod(request, successCount).onComplete(promise);
               }
             })
         .onFailure(
@@ -116,15 +133,15 @@ public class MeteringServiceImpl implements MeteringService {
     return promise.future();
   }
 
-  private Future<JsonObject> readMethod(JsonObject request) {
+  private Future<JsonObject> readMethod(JsonObject request, long totalHits) {
     Promise<JsonObject> promise = Promise.promise();
     int offset = request.getInteger(OFFSETPARAM);
     int limit = request.getInteger(LIMITPARAM);
 
-    queryPg = queryBuilder.buildReadQueryForPg(request);
-    LOGGER.info("read query = {}", queryPg);
+    MeteringQuery readQuery = queryBuilder.buildReadQueryForPg(request);
+    LOGGER.info("read query = {}", readQuery);
 
-    Future<JsonObject> resultsPg = executeQueryDatabaseOperation(queryPg);
+    Future<JsonObject> resultsPg = executeQueryDatabaseOperation(readQuery);
     resultsPg.onComplete(
         readHandler -> {
           if (readHandler.succeeded()) {
@@ -132,7 +149,7 @@ public class MeteringServiceImpl implements MeteringService {
             JsonObject resultJsonObject = readHandler.result();
             resultJsonObject.put(LIMITPARAM, limit);
             resultJsonObject.put(OFFSETPARAM, offset);
-            resultJsonObject.put(TOTALHITS, request.getLong(TOTALHITS));
+            resultJsonObject.put(TOTALHITS, totalHits);
             promise.complete(resultJsonObject);
           } else {
             LOGGER.debug("Could not read from DB : " + readHandler.cause());
@@ -144,26 +161,27 @@ public class MeteringServiceImpl implements MeteringService {
 
   private Future<Long> countQuery(JsonObject request) {
     Promise<Long> promise = Promise.promise();
-    queryCount = queryBuilder.buildCountReadQueryFromPg(request);
-    LOGGER.info("count query = {}", queryCount);
-    Future<JsonObject> resultCountPg = executeQueryDatabaseOperation(queryCount);
+    MeteringQuery countQuery = queryBuilder.buildCountReadQueryFromPg(request);
+    LOGGER.info("count query = {}", countQuery);
+    Future<JsonObject> resultCountPg = executeQueryDatabaseOperation(countQuery);
     resultCountPg.onComplete(
         countHandler -> {
-          if (countHandler.succeeded()) {
-            try {
-              var countHandle = countHandler.result().getJsonArray("result");
-              total = countHandle.getJsonObject(0).getInteger("count");
-              LOGGER.info("total {}", total);
-              if (total == 0) {
-                OgcException ogcException = new OgcException(204, "No Content", "Zero count");
-                LOGGER.info(ogcException.getJson().toString());
-                promise.complete(total);
-              } else {
-                promise.complete(total);
-              }
-            } catch (NullPointerException nullPointerException) {
-              LOGGER.debug(nullPointerException.toString());
+          if (countHandler.failed()) {
+            promise.fail(countHandler.cause());
+            return;
+          }
+          try {
+            var countHandle = countHandler.result().getJsonArray("result");
+            long total = countHandle.getJsonObject(0).getLong("count");
+            LOGGER.info("total {}", total);
+            if (total == 0) {
+              OgcException ogcException = new OgcException(204, "No Content", "Zero count");
+              LOGGER.info(ogcException.getJson().toString());
             }
+            promise.complete(total);
+          } catch (NullPointerException nullPointerException) {
+            LOGGER.debug(nullPointerException.toString());
+            promise.fail(nullPointerException);
           }
         });
     return promise.future();
@@ -195,6 +213,8 @@ public class MeteringServiceImpl implements MeteringService {
                 .execute(Tuple.of(userId, collectionId, apiPath, timestamp, respSize))
                 .onSuccess(res -> {
                     LOGGER.debug("Inserted into Postgres metering table");
+                    // keeps the usage counters used to enforce token limits up to date
+                    vertx.eventBus().publish(METERING_USAGE_ADDRESS, request);
                     promise.complete();
                 })
                 .onFailure(err -> {
@@ -205,6 +225,80 @@ public class MeteringServiceImpl implements MeteringService {
         return promise.future();
     }
 
+    /**
+     * Queues an audit record for the PostgreSQL metering table and the corresponding RMQ message.
+     * Both are written in batches by {@link MeteringBatchQueue}s, so the returned future completes
+     * as soon as they are queued.
+     *
+     * @param postgresRecord the record for the metering table, as for {@link #insertIntoPostgresAuditTable(JsonObject)}
+     * @param rmqRequest the message for RMQ, as for {@link #insertMeteringValuesInRmq(JsonObject)}
+     * @return A {@link Future<Void>} which fails if the record is invalid or a queue is full.
+     */
+    @Override
+    public Future<Void> queueAuditRecord(JsonObject postgresRecord, JsonObject rmqRequest) {
+        try {
+            UUID.fromString(postgresRecord.getString("user_id"));
+            UUID.fromString(postgresRecord.getString("collection_id"));
+            ZonedDateTime.parse(postgresRecord.getString("timestamp"));
+            postgresRecord.getLong("resp_size").longValue();
+        } catch (RuntimeException e) {
+            LOGGER.error("Invalid metering record {} - {}", postgresRecord, e.getMessage());
+            return Future.failedFuture(new OgcException(400, "Bad Request", "Invalid metering record"));
+        }
+
+        // the record is queued for both sinks or for neither, so that both get the same records
+        boolean queued = !auditRecordQueue.isFull() && !rmqMessageQueue.isFull();
+        if (queued) {
+            queued = auditRecordQueue.offer(postgresRecord);
+        }
+        if (queued) {
+            queued = rmqMessageQueue.offer(queryBuilder.buildMessageForRmq(rmqRequest));
+        }
+
+        if (!queued) {
+            return Future.failedFuture(
+                new OgcException(503, "Service Unavailable", "Metering queue is full"));
+        }
+        return Future.succeededFuture();
+    }
+
+    /**
+     * Inserts a batch of audit records into the PostgreSQL metering table using a single
+     * multi-row insert.
+     *
+     * @param records records in the format of {@link #insertIntoPostgresAuditTable(JsonObject)}
+     * @return A {@link Future<Void>} which completes when the records are inserted.
+     */
+    private Future<Void> writeAuditRecords(List<JsonObject> records) {
+        String sql = "INSERT INTO metering (user_id, collection_id, api_path, timestamp, resp_size) " +
+                "SELECT * FROM UNNEST($1::uuid[], $2::uuid[], $3::text[], $4::timestamp[], $5::bigint[])";
+
+        int size = records.size();
+        UUID[] userIds = new UUID[size];
+        UUID[] collectionIds = new UUID[size];
+        String[] apiPaths = new String[size];
+        LocalDateTime[] timestamps = new LocalDateTime[size];
+        Long[] respSizes = new Long[size];
+
+        for (int i = 0; i < size; i++) {
+            JsonObject record = records.get(i);
+            userIds[i] = UUID.fromString(record.getString("user_id"));
+            collectionIds[i] = UUID.fromString(record.getString("collection_id"));
+            apiPaths[i] = record.getString("api_path");
+            timestamps[i] = ZonedDateTime.parse(record.getString("timestamp")).toLocalDateTime();
+            respSizes[i] = record.getLong("resp_size");
+        }
+
+        return ogcPgClient.preparedQuery(sql)
+                .execute(Tuple.of(userIds, collectionIds, apiPaths, timestamps, respSizes))
+                .onSuccess(res -> {
+                    LOGGER.debug("Inserted {} records into Postgres metering table", size);
+                    // keeps the usage counters used to enforce token limits up to date
+                    records.forEach(record -> vertx.eventBus().publish(METERING_USAGE_ADDRESS, record));
+                })
+                .mapEmpty();
+    }
+
     @Override
   public Future<JsonObject> insertMeteringValuesInRmq(JsonObject request) {
     Promise<JsonObject> promise = Promise.promise();
@@ -243,7 +337,7 @@ public class MeteringServiceImpl implements MeteringService {
     }
 
     if (startTime != null && endTime != null) {
-      validationCheck = dateValidation.dateParamCheck(request);
+      JsonObject validationCheck = dateValidation.dateParamCheck(request);
 
       if (validationCheck != null && validationCheck.containsKey(ERROR)) {
           LOGGER.debug("Error:" + validationCheck.getString(ERROR));
@@ -254,7 +348,7 @@ public class MeteringServiceImpl implements MeteringService {
 
     String role = request.getString(ROLE);
     if (role.equalsIgnoreCase("admin") || role.equalsIgnoreCase("consumer")) {
-      queryOverview = queryBuilder.buildMonthlyOverview(request);
+      MeteringQuery queryOverview = queryBuilder.buildMonthlyOverview(request);
       LOGGER.debug("query Overview = " + queryOverview);
 
       Future<JsonObject> result = executeQueryDatabaseOperation(queryOverview);
@@ -278,7 +372,7 @@ public class MeteringServiceImpl implements MeteringService {
                 String providerId = providerHandler.getString("provider");
                 request.put("providerid", providerId);
 
-                queryOverview = queryBuilder.buildMonthlyOverview(request);
+                MeteringQuery queryOverview = queryBuilder.buildMonthlyOverview(request);
                 LOGGER.debug("query Overview =" + queryOverview);
 
                 Future<JsonObject> result = executeQueryDatabaseOperation(queryOverview);
@@ -313,7 +407,7 @@ public class MeteringServiceImpl implements MeteringService {
     }
 
     if (startTime != null && endTime != null) {
-      validationCheck = dateValidation.dateParamCheck(request);
+      JsonObject validationCheck = dateValidation.dateParamCheck(request);
       if (validationCheck != null && validationCheck.containsKey(ERROR)) {
         LOGGER.debug("Error:" + validationCheck.getString(ERROR));
           promise.fail(new OgcException(400, "Bad Request", "Bad request"));
@@ -323,13 +417,13 @@ public class MeteringServiceImpl implements MeteringService {
 
     String role = request.getString(ROLE);
     if (role.equalsIgnoreCase("admin") || role.equalsIgnoreCase("consumer")) {
-      summaryOverview = queryBuilder.buildSummaryOverview(request);
+      MeteringQuery summaryOverview = queryBuilder.buildSummaryOverview(request);
       LOGGER.debug("summary query = {}", summaryOverview);
       Future<JsonObject> result = executeQueryDatabaseOperation(summaryOverview);
       result.onComplete(
           handlers -> {
             if (handlers.succeeded()) {
-              jsonArray = handlers.result().getJsonArray("result");
+              JsonArray jsonArray = handlers.result().getJsonArray("result");
               if (jsonArray.size() <= 0) {
                 LOGGER.debug("NO Content");
                 promise.fail(new OgcException(204, "No Content", "Zero count"));
@@ -357,13 +451,13 @@ public class MeteringServiceImpl implements MeteringService {
               providerHandler -> {
                 String providerId = providerHandler.getString("provider");
                 request.put("providerid", providerId);
-                summaryOverview = queryBuilder.buildSummaryOverview(request);
+                MeteringQuery summaryOverview = queryBuilder.buildSummaryOverview(request);
                 LOGGER.debug("summary query {}", summaryOverview);
                 Future<JsonObject> result = executeQueryDatabaseOperation(summaryOverview);
                 result.onComplete(
                     handlers -> {
                       if (handlers.succeeded()) {
-                        jsonArray = handlers.result().getJsonArray("result");
+                        JsonArray jsonArray = handlers.result().getJsonArray("result");
                         if (jsonArray.size() <= 0) {
                           LOGGER.debug("NO Content");
                           promise.fail(new OgcException(204, "No Content", "Zero count"));
@@ -395,36 +489,36 @@ public class MeteringServiceImpl implements MeteringService {
 
   public Future<JsonArray> collectionDetailsCall(JsonArray jsonArray) {
     Promise<JsonArray> promise = Promise.promise();
-    HashMap<String, Integer> resourceCount = new HashMap<>();
-    resultJsonArray = new JsonArray();
-    List<Future> list = new ArrayList<>();
+    Map<String, Integer> resourceCount = new LinkedHashMap<>();
 
-    for (loopi = 0; loopi < jsonArray.size(); loopi++) {
-      var resultJson = jsonArray.getJsonObject(loopi);
-      String resourceId = resultJson.getString("resourceid");
+    for (int i = 0; i < jsonArray.size(); i++) {
+      JsonObject resultJson = jsonArray.getJsonObject(i);
       resourceCount.put(
-          jsonArray.getJsonObject(loopi).getString("resourceid"),
-          Integer.valueOf(jsonArray.getJsonObject(loopi).getString("count")));
-      list.add(catalogueService.getCatItem(resourceId).recover(f -> Future.succeededFuture(null)));
+          resultJson.getString("resourceid"), Integer.valueOf(resultJson.getString("count")));
     }
 
-    CompositeFuture.join(list)
-        .map(CompositeFuture::list)
-        .map(result -> result.stream().filter(Objects::nonNull).collect(Collectors.toList()))
+    catalogueService
+        .getCatItems(resourceCount.keySet())
+        // resources whose catalogue lookup failed are left out, as are unknown resources
         .onSuccess(
-            l -> {
-              for (int i = 0; i < l.size(); i++) {
-                JsonObject result = (JsonObject) l.get(i);
-                JsonObject outputFormat =
-                    new JsonObject()
-                        .put("resourceid", result.getString("id"))
-                        .put("resource_label", result.getString("description"))
-                        .put("publisher", result.getString("name"))
-                        .put("publisher_id", result.getString("provider"))
-                        .put("city", result.getString("instance"))
-                        .put("count", resourceCount.get(result.getString("id")));
-                resultJsonArray.add(outputFormat);
-              }
+            items -> {
+              JsonArray resultJsonArray = new JsonArray();
+              resourceCount.forEach(
+                  (resourceId, count) -> {
+                    JsonObject result = items.get(resourceId);
+                    if (result == null) {
+                      return;
+                    }
+                    JsonObject outputFormat =
+                        new JsonObject()
+                            .put("resourceid", result.getString("id"))
+                            .put("resource_label", result.getString("description"))
+                            .put("publisher", result.getString("name"))
+                            .put("publisher_id", result.getString("provider"))
+                            .put("city", result.getString("instance"))
+                            .put("count", count);
+                    resultJsonArray.add(outputFormat);
+                  });
               promise.complete(resultJsonArray);
             })
         .onFailure(
@@ -435,7 +529,7 @@ public class MeteringServiceImpl implements MeteringService {
     return promise.future();
   }
 
-  private Future<JsonObject> executeQueryDatabaseOperation(String query) {
+  private Future<JsonObject> executeQueryDatabaseOperation(MeteringQuery query) {
     Promise<JsonObject> promise = Promise.promise();
     executeQuery(query)
         .onSuccess(
@@ -450,14 +544,24 @@ public class MeteringServiceImpl implements MeteringService {
     return promise.future();
   }
 
-  public Future<JsonObject> executeQuery(final String query) {
+  /**
+   * Run a query as a prepared statement, which is cached by the connection.
+   *
+   * @param query the query
+   * @return future with the rows as JSON in the <em>result</em> array
+   */
+  public Future<JsonObject> executeQuery(final MeteringQuery query) {
     Promise<JsonObject> promise = Promise.promise();
     Collector<Row, ?, List<JsonObject>> rowCollector =
         Collectors.mapping(row -> row.toJson(), Collectors.toList());
     meteringPgClient
         .withConnection(
             connection ->
-                connection.query(query).collecting(rowCollector).execute().map(row -> row.value()))
+                connection
+                    .preparedQuery(query.getSql())
+                    .collecting(rowCollector)
+                    .execute(query.toTuple())
+                    .map(SqlResult::value))
         .onSuccess(
             successHandler -> {
               JsonArray result = new JsonArray(successHandler);
@@ -3,6 +3,7 @@ package ogc.rs.metering;
 import static ogc.rs.common.Constants.METERING_SERVICE_ADDRESS;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgConnectOptions;
@@ -18,7 +19,7 @@ public class MeteringVerticle extends AbstractVerticle {
   private static final Logger LOGGER = LogManager.getLogger(MeteringVerticle.class);
   private ServiceBinder binder;
   private MessageConsumer<JsonObject> consumer;
-  private MeteringService metering;
+  private MeteringServiceImpl metering;
   private DataBrokerService dataBrokerService;
   private PgConnectOptions meteringConnectOptions;
   private PgConnectOptions dbConnectOptions;
@@ -90,7 +91,8 @@ public class MeteringVerticle extends AbstractVerticle {
             .setUser(meteringDatabaseUserName)
             .setPassword(meteringDatabasePassword)
             .setReconnectAttempts(2)
-            .setReconnectInterval(1000L);
+            .setReconnectInterval(1000L)
+            .setCachePreparedStatements(true);
 
     this.dbConnectOptions =
             new PgConnectOptions()
@@ -116,7 +118,8 @@ public class MeteringVerticle extends AbstractVerticle {
   }
 
   @Override
-  public void stop() {
+  public void stop(Promise<Void> stopPromise) {
     binder.unregister(consumer);
+    metering.close().onComplete(stopPromise);
   }
 }
@@ -21,54 +21,46 @@ public class MeteringConstant {
   public static final String INVALID_DATE_TIME = "invalid date-time";
   public static final String RESOURCE_ID = "resourceId";
   public static final String CONSUMER_ID = "consumerID";
-  public static final String PROVIDERID_TIME_INTERVAL_COUNT_QUERY =
-      "SELECT count(*) FROM auditing_ogc where time between '$1' and '$2' and providerid='$3'";
-  public static final String CONSUMERID_TIME_INTERVAL_COUNT_QUERY =
-      "SELECT count(*) FROM auditing_ogc where time between '$1' and '$2' and userid='$3'";
+  public static final String COUNT_QUERY = "SELECT COALESCE(sum(hits), 0)::bigint AS count FROM ";
   public static final String TOTALHITS = "totalHits";
   public static final String LIMITPARAM = "limit";
   public static final String OFFSETPARAM = "offset";
-  public static final String API_QUERY = " and api='$4' ";
-  public static final String RESOURCEID_QUERY = " and resourceid = '$5' ";
-  public static final String USER_ID_QUERY = " and userid='$6' ";
-  public static final String PROVIDERID_TIME_INTERVAL_READ_QUERY =
-      "SELECT * FROM auditing_ogc where time between '$1' and '$2' and providerid='$3'";
-  public static final String CONSUMERID_TIME_INTERVAL_READ_QUERY =
-      "SELECT * FROM auditing_ogc where time between '$1' and '$2' and userid='$3'";
+  public static final String TIME_INTERVAL_QUERY = " where time between ";
+  public static final String API_QUERY = " and api = ";
+  public static final String RESOURCEID_QUERY = " and resourceid = ";
+  public static final String USER_ID_QUERY = " and userid = ";
+  public static final String PROVIDERID_QUERY = " and providerid = ";
+  public static final String UUID_CAST = "::uuid";
+  public static final String READ_QUERY = "SELECT * FROM auditing_ogc";
   public static final String ORDER_BY = " ORDER BY time";
-  public static final String OFFSET_QUERY = " offset $8";
-  public static final String LIMIT_QUERY = " limit $7";
+  public static final String OFFSET_QUERY = " offset ";
+  public static final String LIMIT_QUERY = " limit ";
   public static final String SUCCESS = "Success";
   public static final String ENDPOINT = "endPoint";
   public static final String ROLE = "role";
   public static final String IID = "iid";
   public static final String STARTT = "starttime";
   public static final String ENDT = "endtime";
-  public static final String OVERVIEW_QUERY =
+  public static final String OVERVIEW_SERIES_QUERY =
       "SELECT month,year,COALESCE(counts, 0) as counts\n"
           + "FROM  (\n"
           + "   SELECT day::date ,to_char(date_trunc('month', day),'FMmonth') as month"
           + ",extract('year' from day) as year\n"
-          + "   FROM   generate_series(timestamp '$0'\n"
-          + "                        , timestamp '$1'\n"
-          + "                        , interval  '1 month') day\n"
+          + "   FROM   generate_series(";
+  public static final String OVERVIEW_COUNTS_QUERY =
+      "\n                        , interval  '1 month') day\n"
           + "   ) d\n"
           + "LEFT  JOIN (\n"
           + "   SELECT date_trunc('month', time)::date AS day\n"
-          + "        , count(api) as counts \n"
-          + "   FROM   auditing_ogc \n"
-          + "   WHERE  time between '$2'\n"
-          + "   AND '$3'\n";
+          + "        , sum(hits)::bigint as counts \n"
+          + "   FROM   ";
+  public static final String OVERVIEW_TIME_INTERVAL_QUERY = " \n   WHERE  time between ";
   public static final String GROUPBY =
       "\n" + "   GROUP  BY 1\n" + "   ) t USING (day)\n" + "ORDER  BY day";
   public static final String COLLECTION_DETAILS_QUERY =
       "select * from collections_details where id = '$1'";
   public static final String SUMMARY_QUERY_FOR_METERING =
-      "select resourceid,count(*) from auditing_ogc ";
-  public static final String USERID_SUMMARY = " and userid = '$9' ";
-  public static final String USERID_SUMMARY_WITHOUT_TIME = " userid = '$9' ";
-  public static final String PROVIDERID_SUMMARY = " and providerid = '$8' ";
-  public static final String PROVIDERID_SUMMARY_WITHOUT_TIME = " providerid = '$8' ";
+      "select resourceid,sum(hits)::bigint as count from ";
   public static final String GROUPBY_RESOURCEID = " group by resourceid";
   public static final String DATABASE_TABLE_NAME = "databaseTableName";
 }
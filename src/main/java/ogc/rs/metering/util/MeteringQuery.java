@@ -0,0 +1,82 @@
+package ogc.rs.metering.util;
+
+import io.vertx.sqlclient.Tuple;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An SQL query of the metering APIs together with its parameters. Request values are never
+ * concatenated into the SQL, they are always bound as parameters (<em>$1, $2, ...</em>), so that
+ * the query can be run as a (cached) prepared statement. Instances are immutable and built per
+ * request using {@link Builder}.
+ */
+public class MeteringQuery {
+  private final String sql;
+  private final List<Object> params;
+
+  private MeteringQuery(String sql, List<Object> params) {
+    this.sql = sql;
+    this.params = Collections.unmodifiableList(params);
+  }
+
+  /**
+   * @return the SQL with <em>$n</em> placeholders
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * @return the parameters in the order of their placeholders
+   */
+  public List<Object> getParams() {
+    return params;
+  }
+
+  /**
+   * @return the parameters as a {@link Tuple}
+   */
+  public Tuple toTuple() {
+    return Tuple.from(params);
+  }
+
+  @Override
+  public String toString() {
+    return sql + " " + params;
+  }
+
+  /**
+   * Builds a {@link MeteringQuery} by appending SQL and parameters in the order they appear in the
+   * query.
+   */
+  public static class Builder {
+    private final StringBuilder sql = new StringBuilder();
+    private final List<Object> params = new ArrayList<>();
+
+    /**
+     * @param fragment SQL to append as is, must not contain request values
+     * @return this builder
+     */
+    public Builder append(String fragment) {
+      sql.append(fragment);
+      return this;
+    }
+
+    /**
+     * Append the placeholder of a new parameter.
+     *
+     * @param value the parameter value
+     * @return this builder
+     */
+    public Builder param(Object value) {
+      params.add(value);
+      sql.append('$').append(params.size());
+      return this;
+    }
+
+    public MeteringQuery build() {
+      return new MeteringQuery(sql.toString(), new ArrayList<>(params));
+    }
+  }
+}
@@ -8,14 +8,27 @@ import io.vertx.core.json.JsonObject;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.UUID;
+import ogc.rs.metering.MeteringRollup;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/**
+ * Builds the queries of the metering APIs. The builder holds no per-request state, every method
+ * returns a new {@link MeteringQuery} with the request values bound as parameters, so a single
+ * instance is shared by all concurrent requests.
+ */
 public class QueryBuilder {
   private static final Logger LOGGER = LogManager.getLogger(QueryBuilder.class);
-  StringBuilder monthQuery;
-  long today;
+  private final MeteringRollup rollup;
+
+  /**
+   * @param rollup the rollups that the overview, summary and count queries read from
+   */
+  public QueryBuilder(MeteringRollup rollup) {
+    this.rollup = rollup;
+  }
 
   public JsonObject buildMessageForRmq(JsonObject request) {
 
@@ -28,244 +41,133 @@ public class QueryBuilder {
     return request;
   }
 
-  public String buildCountReadQueryFromPg(JsonObject request) {
-    String startTime = request.getString(START_TIME);
-    String endTime = request.getString(END_TIME);
-    String resourceId = request.getString(RESOURCE_ID);
-    String userId = request.getString(USER_ID);
-    String api = request.getString(API);
+  public MeteringQuery buildCountReadQueryFromPg(JsonObject request) {
+    LocalDateTime startTime = toLocalDateTime(request.getString(START_TIME));
+    LocalDateTime endTime = toLocalDateTime(request.getString(END_TIME));
     String providerId = request.getString(PROVIDER_ID);
-    String consumerId = request.getString(CONSUMER_ID);
-    StringBuilder query = null;
 
-    if (providerId != null) {
-      query =
-          new StringBuilder(
-              PROVIDERID_TIME_INTERVAL_COUNT_QUERY
-                  .replace("$1", startTime)
-                  .replace("$2", endTime)
-                  .replace("$3", providerId));
-      if (api != null) {
-        query = query.append(API_QUERY.replace("$4", api));
-      }
-      if (resourceId != null) {
-        query = query.append(RESOURCEID_QUERY.replace("$5", resourceId));
-      }
-      if (consumerId != null) {
-        query = query.append(USER_ID_QUERY.replace("$6", consumerId));
-      }
-    } else {
-      query =
-          new StringBuilder(
-              CONSUMERID_TIME_INTERVAL_COUNT_QUERY
-                  .replace("$1", startTime)
-                  .replace("$2", endTime)
-                  .replace("$3", userId));
-      if (api != null) {
-        query = query.append(API_QUERY.replace("$4", api));
-      }
-      if (resourceId != null) {
-        query = query.append(RESOURCEID_QUERY.replace("$5", resourceId));
-      }
-    }
-    return query.toString();
+    MeteringQuery.Builder query = new MeteringQuery.Builder().append(COUNT_QUERY);
+    rollup.auditSource(startTime, endTime, query);
+    query.append(TIME_INTERVAL_QUERY).param(startTime).append(" and ").param(endTime);
+    appendFilters(query, request, providerId != null);
+    return query.build();
   }
 
-  public String buildReadQueryForPg(JsonObject jsonObject) {
-
-    StringBuilder query;
-    String checkProvider = jsonObject.getString(PROVIDER_ID);
-
-    if (checkProvider != null) {
-      String startTime = jsonObject.getString(START_TIME);
-      String endTime = jsonObject.getString(END_TIME);
-      String resourceId = jsonObject.getString(RESOURCE_ID);
-      String api = jsonObject.getString(API);
-      String providerId = jsonObject.getString(PROVIDER_ID);
-
-      query =
-          new StringBuilder(
-              PROVIDERID_TIME_INTERVAL_READ_QUERY
-                  .replace("$1", startTime)
-                  .replace("$2", endTime)
-                  .replace("$3", providerId));
-
-      if (resourceId != null) {
-        query.append(RESOURCEID_QUERY.replace("$5", resourceId));
-      }
+  public MeteringQuery buildReadQueryForPg(JsonObject request) {
+    String providerId = request.getString(PROVIDER_ID);
 
-      if (api != null) {
-        query.append(API_QUERY.replace("$4", api));
-      }
+    MeteringQuery.Builder query = new MeteringQuery.Builder()
+        .append(READ_QUERY)
+        .append(TIME_INTERVAL_QUERY)
+        .param(toLocalDateTime(request.getString(START_TIME)))
+        .append(" and ")
+        .param(toLocalDateTime(request.getString(END_TIME)));
+    appendFilters(query, request, providerId != null);
+
+    return query.append(ORDER_BY)
+        .append(LIMIT_QUERY).param(request.getInteger(LIMITPARAM))
+        .append(OFFSET_QUERY).param(request.getInteger(OFFSETPARAM))
+        .build();
+  }
 
-      String consumerId = jsonObject.getString(CONSUMER_ID);
-      if (consumerId != null) {
-        query.append(USER_ID_QUERY.replace("$6", consumerId));
-      }
+  /* provider (and optionally consumer) or user filter, followed by the API and resource filters */
+  private static void appendFilters(MeteringQuery.Builder query, JsonObject request,
+      boolean provider) {
+    if (provider) {
+      query.append(PROVIDERID_QUERY).param(request.getString(PROVIDER_ID)).append(UUID_CAST);
     } else {
-      String startTime = jsonObject.getString(START_TIME);
-      String endTime = jsonObject.getString(END_TIME);
-      String resourceId = jsonObject.getString(RESOURCE_ID);
-      String userId = jsonObject.getString(USER_ID);
-      String api = jsonObject.getString(API);
-
-      query =
-          new StringBuilder(
-              CONSUMERID_TIME_INTERVAL_READ_QUERY
-                  .replace("$1", startTime)
-                  .replace("$2", endTime)
-                  .replace("$3", userId));
-      if (resourceId != null) {
-        query.append(RESOURCEID_QUERY.replace("$5", resourceId));
-      }
-      if (api != null) {
-        query.append(API_QUERY.replace("$4", api));
-      }
+      query.append(USER_ID_QUERY).param(request.getString(USER_ID)).append(UUID_CAST);
+    }
+    String api = request.getString(API);
+    if (api != null) {
+      query.append(API_QUERY).param(api);
+    }
+    String resourceId = request.getString(RESOURCE_ID);
+    if (resourceId != null) {
+      query.append(RESOURCEID_QUERY).param(resourceId).append(UUID_CAST);
+    }
+    String consumerId = request.getString(CONSUMER_ID);
+    if (provider && consumerId != null) {
+      query.append(USER_ID_QUERY).param(consumerId).append(UUID_CAST);
     }
-    query.append(ORDER_BY);
-    int limit = Integer.parseInt(jsonObject.getString(LIMITPARAM));
-    int offset = Integer.parseInt(jsonObject.getString(OFFSETPARAM));
-    query.append(LIMIT_QUERY.replace("$7", Integer.toString(limit)));
-    query.append(OFFSET_QUERY.replace("$8", Integer.toString(offset)));
-
-    return query.toString();
   }
 
-  public String buildMonthlyOverview(JsonObject request) {
-    String role = request.getString(ROLE);
-
-    String current = ZonedDateTime.now().toString();
-    LOGGER.debug("zone IST =" + ZonedDateTime.now());
-    ZonedDateTime zonedDateTimeUtc = ZonedDateTime.parse(current);
-    zonedDateTimeUtc = zonedDateTimeUtc.withZoneSameInstant(ZoneId.of("UTC"));
-    LOGGER.debug("zonedDateTimeUTC UTC = " + zonedDateTimeUtc);
-    LocalDateTime utcTime = zonedDateTimeUtc.toLocalDateTime();
-    LOGGER.debug("UTCtime =" + utcTime);
-    today = zonedDateTimeUtc.getDayOfMonth();
-    String timeYearBack =
-        utcTime
-            .minusYears(1)
-            .minusDays(today)
-            .plusDays(1)
-            .withHour(0)
-            .withMinute(0)
-            .withSecond(0)
-            .toString();
-    LOGGER.debug("Year back =" + timeYearBack);
+  public MeteringQuery buildMonthlyOverview(JsonObject request) {
     String startTime = request.getString(STARTT);
     String endTime = request.getString(ENDT);
+
+    LocalDateTime seriesStart;
+    LocalDateTime rangeStart;
+    LocalDateTime rangeEnd;
     if (startTime != null && endTime != null) {
-      ZonedDateTime timeSeries = ZonedDateTime.parse(startTime);
-      String timeSeriesToFirstDay = String.valueOf(timeSeries.withDayOfMonth(1));
-      LOGGER.debug("Time series = " + timeSeriesToFirstDay);
-      if (role.equalsIgnoreCase("admin")) {
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(GROUPBY)
-                    .replace("$0", timeSeriesToFirstDay)
-                    .replace("$1", endTime)
-                    .replace("$2", startTime)
-                    .replace("$3", endTime));
-      } else if (role.equalsIgnoreCase("consumer")) {
-        String userId = request.getString(USER_ID);
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(" and userid = '$4' ")
-                    .concat(GROUPBY)
-                    .replace("$0", timeSeriesToFirstDay)
-                    .replace("$1", endTime)
-                    .replace("$2", startTime)
-                    .replace("$3", endTime)
-                    .replace("$4", userId));
-      } else if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
-        String providerId = request.getString("providerid");
-        LOGGER.debug("Provider = {}", providerId);
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(" and providerid = '$4' ")
-                    .concat(GROUPBY)
-                    .replace("$0", timeSeriesToFirstDay)
-                    .replace("$1", endTime)
-                    .replace("$2", startTime)
-                    .replace("$3", endTime)
-                    .replace("$4", providerId));
-      }
+      seriesStart = ZonedDateTime.parse(startTime).withDayOfMonth(1).toLocalDateTime();
+      rangeStart = toLocalDateTime(startTime);
+      rangeEnd = toLocalDateTime(endTime);
     } else {
-      if (role.equalsIgnoreCase("admin")) {
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(GROUPBY)
-                    .replace("$0", timeYearBack)
-                    .replace("$1", utcTime.toString())
-                    .replace("$2", timeYearBack)
-                    .replace("$3", utcTime.toString()));
-      } else if (role.equalsIgnoreCase("consumer")) {
-        String userId = request.getString(USER_ID);
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(" and userid = '$4' ")
-                    .concat(GROUPBY)
-                    .replace("$0", timeYearBack)
-                    .replace("$1", utcTime.toString())
-                    .replace("$2", timeYearBack)
-                    .replace("$3", utcTime.toString())
-                    .replace("$4", userId));
-      } else if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
-        String providerId = request.getString("providerid");
-        LOGGER.debug("Provider = {}", providerId);
-        monthQuery =
-            new StringBuilder(
-                OVERVIEW_QUERY
-                    .concat(" and providerid = '$4' ")
-                    .concat(GROUPBY)
-                    .replace("$0", timeYearBack)
-                    .replace("$1", utcTime.toString())
-                    .replace("$2", timeYearBack)
-                    .replace("$3", utcTime.toString())
-                    .replace("$4", providerId));
-      }
+      LocalDateTime utcTime = ZonedDateTime.now(ZoneId.of("UTC")).toLocalDateTime();
+      LOGGER.debug("UTCtime =" + utcTime);
+      seriesStart =
+          utcTime
+              .minusYears(1)
+              .minusDays(utcTime.getDayOfMonth())
+              .plusDays(1)
+              .withHour(0)
+              .withMinute(0)
+              .withSecond(0);
+      rangeStart = seriesStart;
+      rangeEnd = utcTime;
     }
-
-    return monthQuery.toString();
+    LOGGER.debug("Time series from {} to {}", seriesStart, rangeEnd);
+
+    MeteringQuery.Builder query = new MeteringQuery.Builder()
+        .append(OVERVIEW_SERIES_QUERY)
+        .param(seriesStart).append("::timestamp, ").param(rangeEnd).append("::timestamp")
+        .append(OVERVIEW_COUNTS_QUERY);
+    rollup.auditSource(rangeStart, rangeEnd, query);
+    query.append(OVERVIEW_TIME_INTERVAL_QUERY).param(rangeStart).append(" AND ").param(rangeEnd);
+    appendRoleFilter(query, request);
+    return query.append(GROUPBY).build();
   }
 
-  public String buildSummaryOverview(JsonObject request) {
+  public MeteringQuery buildSummaryOverview(JsonObject request) {
     String startTime = request.getString(STARTT);
     String endTime = request.getString(ENDT);
+    boolean timeSeries = startTime != null && endTime != null;
+    LocalDateTime rangeStart = timeSeries ? toLocalDateTime(startTime) : null;
+    LocalDateTime rangeEnd = timeSeries ? toLocalDateTime(endTime) : null;
+
+    MeteringQuery.Builder query = new MeteringQuery.Builder().append(SUMMARY_QUERY_FOR_METERING);
+    rollup.auditSource(rangeStart, rangeEnd, query);
+    if (timeSeries) {
+      query.append(TIME_INTERVAL_QUERY).param(rangeStart).append(" AND ").param(rangeEnd);
+    } else {
+      query.append(" where true");
+    }
+    appendRoleFilter(query, request);
+    return query.append(GROUPBY_RESOURCEID).build();
+  }
+
+  /* providers and delegates see the usage of their provider, consumers their own usage */
+  private static void appendRoleFilter(MeteringQuery.Builder query, JsonObject request) {
     String role = request.getString(ROLE);
+    if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
+      String providerId = request.getString("providerid");
+      LOGGER.debug("Provider = {}", providerId);
+      query.append(PROVIDERID_QUERY).param(providerId).append(UUID_CAST);
+    } else if (role.equalsIgnoreCase("consumer")) {
+      query.append(USER_ID_QUERY).param(request.getString(USER_ID)).append(UUID_CAST);
+    }
+  }
 
-    StringBuilder summaryQuery = new StringBuilder(SUMMARY_QUERY_FOR_METERING);
-    if (startTime != null && endTime != null) {
-      summaryQuery.append(
-          " where time between '$2' AND '$3' ".replace("$2", startTime).replace("$3", endTime));
-      if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
-        String providerId = request.getString("providerid");
-        LOGGER.debug("Provider = {}", providerId);
-        summaryQuery.append(PROVIDERID_SUMMARY.replace("$8", providerId));
-      }
-      if (role.equalsIgnoreCase("consumer")) {
-        String userid = request.getString(USER_ID);
-        summaryQuery.append(USERID_SUMMARY.replace("$9", userid));
-      }
-    } else {
-      if (role.equalsIgnoreCase("provider") || role.equalsIgnoreCase("delegate")) {
-        String providerId = request.getString("providerid");
-        LOGGER.debug("Provider = {}", providerId);
-        summaryQuery.append(" where ");
-        summaryQuery.append(PROVIDERID_SUMMARY_WITHOUT_TIME.replace("$8", providerId));
-      }
-      if (role.equalsIgnoreCase("consumer")) {
-        String userid = request.getString(USER_ID);
-        summaryQuery.append(" where ");
-        summaryQuery.append(USERID_SUMMARY_WITHOUT_TIME.replace("$9", userid));
-      }
+  /* the time column is compared as a local date-time, any offset is ignored (as by Postgres) */
+  private static LocalDateTime toLocalDateTime(String time) {
+    if (time == null) {
+      return null;
+    }
+    try {
+      return ZonedDateTime.parse(time).toLocalDateTime();
+    } catch (DateTimeParseException e) {
+      return LocalDateTime.parse(time);
     }
-    summaryQuery.append(GROUPBY_RESOURCEID);
-    return summaryQuery.toString();
   }
 }
@@ -30,7 +30,7 @@ public class ProcessVerticle extends AbstractVerticle {
   private String databaseUserName;
   private String databasePassword;
   private int poolSize;
-  private ProcessesRunnerService processService;
+  private ProcessesRunnerImpl processService;
   private HttpClient httpClient;
 
   static WebClient createWebClient(Vertx vertx) {
@@ -80,6 +80,7 @@ public class ProcessVerticle extends AbstractVerticle {
   @Override
   public void stop() {
     binder.unregister(consumer);
+    processService.close();
   }
 
 }
@@ -11,6 +11,7 @@ import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.Tuple;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.common.S3ClientRegistry;
 import ogc.rs.common.S3Config;
 import ogc.rs.common.S3ConfigsHolder;
 import ogc.rs.processes.featureCollectionAppending.FeatureCollectionAppendingProcess;
@@ -25,6 +26,7 @@ import ogc.rs.processes.tilesMetaDataOnboarding.TilesMetaDataOnboardingProcess;
 import ogc.rs.processes.s3PreSignedURLGeneration.S3PreSignedURLGenerationProcess;
 import ogc.rs.processes.tilesOnboardingFromExistingFeature.TilesOnboardingFromExistingFeatureProcess;
 import ogc.rs.processes.userDatasetUsageCheck.UserDatasetUsageCheckProcess;
+import ogc.rs.processes.util.JobScheduler;
 import ogc.rs.processes.util.Status;
 import ogc.rs.processes.util.UtilClass;
 import org.apache.logging.log4j.LogManager;
@@ -36,7 +38,12 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 import static ogc.rs.common.Constants.processException404;
 import static ogc.rs.common.Constants.processException500;
+import static ogc.rs.processes.util.Constants.JOB_QUEUED_MESSAGE;
+import static ogc.rs.processes.util.Constants.JOB_QUEUE_FULL_MESSAGE;
+import static ogc.rs.processes.util.Constants.JOB_RECOVERY_FAILURE_MESSAGE;
+import static ogc.rs.processes.util.Constants.PROCESS_ACCEPTED_RESPONSE;
 import static ogc.rs.processes.util.Constants.PROCESS_EXIST_CHECK_QUERY;
+import static ogc.rs.processes.util.Constants.QUEUED_JOBS_QUERY;
 import static ogc.rs.processes.util.Constants.NO_S3_CONF_FOUND_FOR_BUCKET_ID;
 
 /**
@@ -54,6 +61,8 @@ public class ProcessesRunnerImpl implements ProcessesRunnerService {
   private final JsonObject config;
   private final Vertx vertx;
   private final S3ConfigsHolder s3conf;
+  private final S3ClientRegistry s3ClientRegistry;
+  private final JobScheduler jobScheduler;
   Logger LOGGER = LogManager.getLogger(ProcessesRunnerImpl.class);
 
   /**
@@ -71,6 +80,19 @@ public class ProcessesRunnerImpl implements ProcessesRunnerService {
     this.config = config;
     this.vertx = vertx;
     this.s3conf = S3ConfigsHolder.createFromServerConfig(config.getJsonObject(S3ConfigsHolder.S3_CONFIGS_BLOCK_KEY_NAME));
+    this.s3ClientRegistry = S3ClientRegistry.getOrCreate(vertx, config);
+    this.jobScheduler = JobScheduler.getOrCreate(vertx, config);
+
+    if (jobScheduler.startRecovery()) {
+      recoverQueuedJobs();
+    }
+  }
+
+  /**
+   * Release the resources shared with other verticles, called when the verticle is stopped.
+   */
+  void close() {
+    s3ClientRegistry.release();
   }
 
   /**
@@ -144,51 +166,18 @@ public class ProcessesRunnerImpl implements ProcessesRunnerService {
         return;
       }
 
-      ProcessService processService;
-
-      // Switch case to handle different processes
-      switch (processName) {
-        case "CollectionOnboarding":
-          processService = new FeatureCollectionOnboardingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
-          break;
-        case "CollectionAppending":
-          processService = new FeatureCollectionAppendingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
-          break;
-        case "S3PreSignedURLGeneration":
-          processService = new S3PreSignedURLGenerationProcess(pgPool, webClient, config, processSpecificS3Conf);
-          break;
-        case "S3InitiateMultipartUpload":
-          processService = new S3InitiateMultiPartUploadProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
-          break;
-        case "S3CompleteMultipartUpload":
-          processService = new S3CompleteMultiPartUploadProcess(pgPool, processSpecificS3Conf);
-          break;
-          case "AuditLogsIngestion":
-              processService = new AuditLogsIngestionProcess(pgPool);
-              break;
-        case "TilesMetaDataOnboarding":
-          processService = new TilesMetaDataOnboardingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
-          break;
-        case "MapCollectionOnboarding":
-          processService =
-              new MapCollectionOnboardingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
-          break;
-        case "TilesOnboardingFromExistingFeature":
-          processService = new TilesOnboardingFromExistingFeatureProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
-          break;
-        case "FeatureAttributesExtraction":
-          processService = new FeatureAttributesExtractionProcess(pgPool);
-          break;
-          case "UserDatasetUsageCheck":
-              processService = new UserDatasetUsageCheckProcess(pgPool);
-              break;
-        case "Hello World":
-          processService = new EchoProcess(pgPool);
-          break;
-        default:
-          LOGGER.error("No method specified for process {}", processName);
-          handler.handle(Future.failedFuture("Process could not be executed: no method specified for process " + processName));
-          return;
+      ProcessService processService = createProcessService(processName, processSpecificS3Conf);
+
+      if (processService == null) {
+        LOGGER.error("No method specified for process {}", processName);
+        handler.handle(Future.failedFuture("Process could not be executed: no method specified for process " + processName));
+        return;
+      }
+
+      if (isAsync && jobScheduler.isFull()) {
+        LOGGER.error("Job queue is full, rejecting job of process {}", processName);
+        handler.handle(Future.failedFuture(new OgcException(503, "Service Unavailable", JOB_QUEUE_FULL_MESSAGE)));
+        return;
       }
 
       ProcessService finalProcessService = processService;
@@ -199,18 +188,21 @@ public class ProcessesRunnerImpl implements ProcessesRunnerService {
           // Handle async process
           LOGGER.info("Async Job started in DB with jobId {} for process with processId {}",
                   jobStarted.getValue("jobId"), input.getString("processId"));
+          // Start async process, or queue it if the limits of the scheduler are reached
+          boolean queued = submitJob(jobStarted.getString("jobId"), processName,
+                  finalProcessService, input);
           handler.handle(Future.succeededFuture(
                   new JsonObject()
                           .put("jobId", jobStarted.getValue("jobId"))
                           .put("processId", input.getString("processId"))
                           .put("type", "PROCESS")
                           .put("status", Status.ACCEPTED)
+                          .put("message", queued ? JOB_QUEUED_MESSAGE : PROCESS_ACCEPTED_RESPONSE)
                           .put("location",
                                   config.getString("hostName")
                                           .concat("/jobs/")
                                           .concat(jobStarted.getString("jobId")))
           ));
-          finalProcessService.execute(input); // Start async process
         } else {
           // Handle sync process
           LOGGER.info("Sync Job started in DB with jobId {} for process with processId {}",
@@ -235,6 +227,126 @@ public class ProcessesRunnerImpl implements ProcessesRunnerService {
     return this;
   }
 
+  /**
+   * Creates the {@link ProcessService} of a process.
+   *
+   * @param processName           the name (title) of the process
+   * @param processSpecificS3Conf the S3 config of the bucket given in the process input, if any
+   * @return the {@link ProcessService}, or <code>null</code> if there is no method for the process
+   */
+  private ProcessService createProcessService(String processName, S3Config processSpecificS3Conf) {
+    ProcessService processService;
+
+    // Switch case to handle different processes
+    switch (processName) {
+      case "CollectionOnboarding":
+        processService = new FeatureCollectionOnboardingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
+        break;
+      case "CollectionAppending":
+        processService = new FeatureCollectionAppendingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
+        break;
+      case "S3PreSignedURLGeneration":
+        processService = new S3PreSignedURLGenerationProcess(pgPool, webClient, config, processSpecificS3Conf, s3ClientRegistry);
+        break;
+      case "S3InitiateMultipartUpload":
+        processService = new S3InitiateMultiPartUploadProcess(pgPool, webClient, config, processSpecificS3Conf, vertx, s3ClientRegistry);
+        break;
+      case "S3CompleteMultipartUpload":
+        processService = new S3CompleteMultiPartUploadProcess(pgPool, processSpecificS3Conf, s3ClientRegistry);
+        break;
+        case "AuditLogsIngestion":
+            processService = new AuditLogsIngestionProcess(pgPool);
+            break;
+      case "TilesMetaDataOnboarding":
+        processService = new TilesMetaDataOnboardingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
+        break;
+      case "MapCollectionOnboarding":
+        processService =
+            new MapCollectionOnboardingProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
+        break;
+      case "TilesOnboardingFromExistingFeature":
+        processService = new TilesOnboardingFromExistingFeatureProcess(pgPool, webClient, config, processSpecificS3Conf, vertx);
+        break;
+      case "FeatureAttributesExtraction":
+        processService = new FeatureAttributesExtractionProcess(pgPool, config, processSpecificS3Conf, s3ClientRegistry);
+        break;
+        case "UserDatasetUsageCheck":
+            processService = new UserDatasetUsageCheckProcess(pgPool);
+            break;
+      case "Hello World":
+        processService = new EchoProcess(pgPool);
+        break;
+      default:
+        processService = null;
+    }
+
+
+    return processService;
+  }
+
+  /**
+   * Submits an async job to the scheduler. The job is claimed in the jobs table when the scheduler
+   * starts it, and is skipped if it was already claimed by another server, so that a job submitted
+   * both by this server and by a server recovering its queued jobs runs only once.
+   *
+   * @param jobId          the job ID
+   * @param processName    the name (title) of the process
+   * @param processService the process of the job
+   * @param input          the process input
+   * @return <code>true</code> if the job was queued, <code>false</code> if it was started
+   */
+  private boolean submitJob(String jobId, String processName, ProcessService processService,
+                            JsonObject input) {
+    return jobScheduler.submit(jobId, processName, () -> utilClass.claimAcceptedJob(jobId)
+            .compose(claimed -> {
+              if (!claimed) {
+                LOGGER.info("Job {} of process {} was already claimed, skipping it", jobId,
+                        processName);
+                return Future.succeededFuture();
+              }
+              return processService.execute(input);
+            }));
+  }
+
+  /**
+   * Submits the async jobs that were queued when the server was stopped to the scheduler. Jobs
+   * still in the <em>ACCEPTED</em> status may also be queued on other running servers, so each
+   * job is claimed before it is run (see {@link #submitJob}). Jobs whose process cannot be started
+   * anymore are claimed and marked as failed.
+   */
+  private void recoverQueuedJobs() {
+    pgPool.withConnection(conn -> conn.preparedQuery(QUEUED_JOBS_QUERY).execute())
+        .onSuccess(rows -> {
+          LOGGER.info("Recovering {} queued jobs", rows.rowCount());
+          for (Row row : rows) {
+            String jobId = row.getUUID("id").toString();
+            String processName = row.getString("title");
+            JsonObject input = row.getJsonObject("input").put("jobId", jobId);
+
+            ProcessService processService;
+            try {
+              processService = createProcessService(processName, getS3Config(input));
+            } catch (OgcException e) {
+              processService = null;
+            }
+
+            if (processService == null) {
+              LOGGER.error("Cannot recover job {} of process {}", jobId, processName);
+              utilClass.claimAcceptedJob(jobId).onSuccess(claimed -> {
+                if (claimed) {
+                  utilClass.updateJobTableStatus(input, Status.FAILED,
+                          JOB_RECOVERY_FAILURE_MESSAGE);
+                }
+              });
+              continue;
+            }
+
+            submitJob(jobId, processName, processService, input);
+          }
+        })
+        .onFailure(err -> LOGGER.error("Failed to recover queued jobs: {}", err.getMessage()));
+  }
+
   /**
    * Checks if the process exists in the database.
    *
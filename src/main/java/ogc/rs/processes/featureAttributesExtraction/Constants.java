@@ -5,6 +5,14 @@ package ogc.rs.processes.featureAttributesExtraction;
  */
 public class Constants {
 
+    public static final String CONFIG_KEY = "featureAttributesExtraction";
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final long DEFAULT_PART_SIZE_BYTES = 8L * 1024 * 1024;
+
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    // collection ID and job ID
+    public static final String FEATURE_ATTRIBUTES_OBJECT_KEY_FORMAT = "featureAttributes/%s/%s.ndjson";
+
     // Process status messages
     public static final String STARTING_FEATURE_EXTRACTION_MESSAGE =
             "Starting feature attributes extraction process";
@@ -2,12 +2,17 @@ package ogc.rs.processes.featureAttributesExtraction;
 
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Cursor;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.Tuple;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.common.S3ClientRegistry;
+import ogc.rs.common.S3Config;
+import ogc.rs.common.S3MultipartWriter;
 import ogc.rs.processes.ProcessService;
 import ogc.rs.processes.util.Status;
 import ogc.rs.processes.util.UtilClass;
@@ -23,16 +28,48 @@ import static ogc.rs.processes.featureAttributesExtraction.Constants.*;
 /**
  * FeatureAttributesExtractionProcess extracts feature attributes for all features
  * from a given collection. It returns only the specified properties/attributes without geometry data.
+ * <br>
+ * If the process input has an S3 bucket identifier, the features are read using a cursor and
+ * written as newline-delimited JSON to an object in the bucket, so that memory use does not depend
+ * on the number of features. The result then only has the location of the object and the number
+ * of features. This is configured using the <em>featureAttributesExtraction</em> config block:
+ *
+ * <pre>
+ * "featureAttributesExtraction" : {
+ *   "fetchSize" : 1000,
+ *   "partSizeBytes" : 8388608
+ * }
+ * </pre>
  */
 public class FeatureAttributesExtractionProcess implements ProcessService {
 
     private static final Logger LOGGER = LogManager.getLogger(FeatureAttributesExtractionProcess.class);
     private final UtilClass utilClass;
     private final PgPool pgPool;
+    private final S3Config s3conf;
+    private final S3ClientRegistry s3ClientRegistry;
+    private final int fetchSize;
+    private final long partSizeBytes;
 
-    public FeatureAttributesExtractionProcess(PgPool pgPool) {
+    /**
+     * Constructor for the FeatureAttributesExtractionProcess.
+     *
+     * @param pgPool           The PostgreSQL connection pool.
+     * @param config           The configuration object.
+     * @param s3conf           S3 config of the bucket the features are written to, <code>null</code>
+     *                         to return the features in the result.
+     * @param s3ClientRegistry The registry of shared S3 clients.
+     */
+    public FeatureAttributesExtractionProcess(PgPool pgPool, JsonObject config, S3Config s3conf,
+                                              S3ClientRegistry s3ClientRegistry) {
         this.pgPool = pgPool;
         this.utilClass = new UtilClass(pgPool);
+        this.s3conf = s3conf;
+        this.s3ClientRegistry = s3ClientRegistry;
+
+        JsonObject extractionConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+        this.fetchSize = extractionConfig.getInteger("fetchSize", DEFAULT_FETCH_SIZE);
+        this.partSizeBytes = extractionConfig.getLong("partSizeBytes", DEFAULT_PART_SIZE_BYTES);
     }
 
     @Override
@@ -54,7 +91,8 @@ public class FeatureAttributesExtractionProcess implements ProcessService {
                 .compose(attributeHandler -> utilClass.updateJobTableProgress(
                         requestInput.put("progress", calculateProgress(3))
                                 .put("message", "Attributes validated successfully")))
-                .compose(progressHandler -> extractFeatureAttributes(requestInput))
+                .compose(progressHandler -> s3conf == null ? extractFeatureAttributes(requestInput)
+                        : streamFeatureAttributesToS3(requestInput))
                 .compose(extractionHandler -> utilClass.updateJobTableProgress(
                         requestInput.put("progress", calculateProgress(4))
                                 .put("message", FEATURE_EXTRACTION_SUCCESS_MESSAGE)))
@@ -172,7 +210,98 @@ public class FeatureAttributesExtractionProcess implements ProcessService {
     private Future<JsonObject> extractFeatureAttributes(JsonObject requestInput) {
         Promise<JsonObject> promise = Promise.promise();
 
+        List<String> requestedAttributes = getRequestedAttributes(requestInput);
+        String extractionQuery = buildExtractionQuery(requestInput, requestedAttributes);
+
+        pgPool.withConnection(conn ->
+                conn.preparedQuery(extractionQuery)
+                        .execute()
+        ).onSuccess(result -> {
+            JsonArray features = new JsonArray();
+
+            for (Row row : result) {
+                features.add(toFeature(row, requestedAttributes));
+            }
+
+            JsonObject extractionResult = new JsonObject()
+                    .put("features", features);
+
+            requestInput.put("extractionResult", extractionResult);
+
+            LOGGER.debug("Successfully extracted {} features", features.size());
+            promise.complete(extractionResult);
+
+        }).onFailure(error -> {
+            LOGGER.error("Error extracting feature attributes: {}", error.getMessage());
+            promise.fail(new OgcException(500, "Internal Server Error", FEATURE_ATTRIBUTES_EXTRACTION_FAILURE_MESSAGE));
+        });
+
+        return promise.future();
+    }
+
+    /**
+     * Extracts feature attributes for all features in the collection using a cursor and writes them
+     * as newline-delimited JSON to S3, one fetch at a time. The next fetch is only done once the
+     * previous one has been written, so at most one fetch and one part are held in memory.
+     */
+    private Future<JsonObject> streamFeatureAttributesToS3(JsonObject requestInput) {
         String collectionId = requestInput.getString("collectionId");
+        String objectKey = String.format(FEATURE_ATTRIBUTES_OBJECT_KEY_FORMAT, collectionId,
+                requestInput.getString("jobId"));
+
+        List<String> requestedAttributes = getRequestedAttributes(requestInput);
+        String extractionQuery = buildExtractionQuery(requestInput, requestedAttributes);
+
+        S3MultipartWriter writer = new S3MultipartWriter(s3ClientRegistry, s3conf, objectKey,
+                NDJSON_CONTENT_TYPE, partSizeBytes);
+        long[] featureCount = {0};
+
+        // cursors need a transaction
+        Future<Long> written = pgPool.withTransaction(conn -> conn.prepare(extractionQuery)
+                .compose(preparedStatement -> {
+                    Cursor cursor = preparedStatement.cursor();
+                    return writeFromCursor(cursor, writer, requestedAttributes, featureCount)
+                            .eventually(() -> cursor.close());
+                }))
+                .compose(res -> writer.end());
+
+        return written.map(size -> {
+            JsonObject extractionResult = new JsonObject()
+                    .put("s3BucketIdentifier", requestInput.getString("s3BucketIdentifier"))
+                    .put("objectKey", objectKey)
+                    .put("type", NDJSON_CONTENT_TYPE)
+                    .put("size", size)
+                    .put("numberOfFeatures", featureCount[0]);
+
+            requestInput.put("extractionResult", extractionResult);
+
+            LOGGER.debug("Successfully extracted {} features to {}", featureCount[0], objectKey);
+            return extractionResult;
+        }).recover(error -> {
+            LOGGER.error("Error extracting feature attributes to S3: {}", error.getMessage());
+            return writer.abort().compose(res -> Future.failedFuture(
+                    new OgcException(500, "Internal Server Error", FEATURE_ATTRIBUTES_EXTRACTION_FAILURE_MESSAGE)));
+        });
+    }
+
+    private Future<Void> writeFromCursor(Cursor cursor, S3MultipartWriter writer,
+                                         List<String> requestedAttributes, long[] featureCount) {
+        return cursor.read(fetchSize).compose(rows -> {
+            Buffer lines = Buffer.buffer();
+            for (Row row : rows) {
+                lines.appendBuffer(toFeature(row, requestedAttributes).toBuffer()).appendByte((byte) '\n');
+            }
+            featureCount[0] += rows.size();
+            return writer.write(lines);
+        }).compose(res -> cursor.hasMore()
+                ? writeFromCursor(cursor, writer, requestedAttributes, featureCount)
+                : Future.succeededFuture());
+    }
+
+    /**
+     * Gets the columns to be selected, the feature ID is always selected first if not requested
+     */
+    private List<String> getRequestedAttributes(JsonObject requestInput) {
         JsonArray attributesArray = requestInput.getJsonArray("attributes");
 
         List<String> requestedAttributes = attributesArray.stream()
@@ -183,6 +312,11 @@ public class FeatureAttributesExtractionProcess implements ProcessService {
         if (!requestedAttributes.contains("id")) {
             requestedAttributes.add(0, "id");
         }
+        return requestedAttributes;
+    }
+
+    private String buildExtractionQuery(JsonObject requestInput, List<String> requestedAttributes) {
+        String collectionId = requestInput.getString("collectionId");
 
         String selectClause = requestedAttributes.stream()
                 .map(attr -> String.format("\"%s\"", attr))
@@ -194,49 +328,27 @@ public class FeatureAttributesExtractionProcess implements ProcessService {
         );
 
         LOGGER.debug("Extraction query: {}", extractionQuery);
+        return extractionQuery;
+    }
 
-        pgPool.withConnection(conn ->
-                conn.preparedQuery(extractionQuery)
-                        .execute()
-        ).onSuccess(result -> {
-            JsonArray features = new JsonArray();
+    private JsonObject toFeature(Row row, List<String> requestedAttributes) {
+        JsonObject properties = new JsonObject();
+        Integer idValue = null;
 
-            for (Row row : result) {
-                JsonObject properties = new JsonObject();
-                Integer idValue = null;
-
-                for (int i = 0; i < requestedAttributes.size(); i++) {
-                    String attr = requestedAttributes.get(i);
-                    Object value = row.getValue(i);
-
-                    if ("id".equals(attr)) {
-                        idValue = (Integer) value;
-                    } else if (value != null) {
-                        properties.put(attr, value);
-                    }
-                }
-
-                JsonObject feature = new JsonObject()
-                        .put("id", idValue)
-                        .put("properties", properties);
+        for (int i = 0; i < requestedAttributes.size(); i++) {
+            String attr = requestedAttributes.get(i);
+            Object value = row.getValue(i);
 
-                features.add(feature);
+            if ("id".equals(attr)) {
+                idValue = (Integer) value;
+            } else if (value != null) {
+                properties.put(attr, value);
             }
+        }
 
-            JsonObject extractionResult = new JsonObject()
-                    .put("features", features);
-
-            requestInput.put("extractionResult", extractionResult);
-
-            LOGGER.debug("Successfully extracted {} features", features.size());
-            promise.complete(extractionResult);
-
-        }).onFailure(error -> {
-            LOGGER.error("Error extracting feature attributes: {}", error.getMessage());
-            promise.fail(new OgcException(500, "Internal Server Error", FEATURE_ATTRIBUTES_EXTRACTION_FAILURE_MESSAGE));
-        });
-
-        return promise.future();
+        return new JsonObject()
+                .put("id", idValue)
+                .put("properties", properties);
     }
 
     /**
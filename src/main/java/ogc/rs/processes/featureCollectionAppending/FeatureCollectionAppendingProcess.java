@@ -31,6 +31,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import static ogc.rs.common.Constants.FEATURE_COLLECTION_UPDATED_ADDRESS;
 import static ogc.rs.processes.featureCollectionAppending.Constants.*;
 
 
@@ -133,6 +134,8 @@ public class FeatureCollectionAppendingProcess implements ProcessService {
                 .compose(progressUpdateHandler->collectionOnboarding.ogr2ogrCmdExtent(requestInput))
                 .compose(checkDbHandler -> utilClass.updateJobTableStatus(requestInput, Status.SUCCESSFUL,BBOX_UPDATE_MESSAGE))
                 .onSuccess(successHandler -> {
+                    // vector tiles generated from the collection no longer have all its features
+                    vertx.eventBus().publish(FEATURE_COLLECTION_UPDATED_ADDRESS, tableID);
                     deleteTempTable(requestInput)
                             .onComplete(deleteHandler ->
                                     LOGGER.debug(APPEND_SUCCESS_MESSAGE)
@@ -626,7 +626,7 @@ public class FeatureCollectionOnboardingProcess implements ProcessService {
                                         return conn.preparedQuery(
                                                 RouterManager
                                                     .TRIGGER_SPEC_UPDATE_AND_ROUTER_REGEN_SQL
-                                                    .apply("demo"))
+                                                    .apply(collectionsDetailsTableName))
                                             .execute();
                                       } else {
                                         LOGGER.error(TABLE_NOT_EXIST_ERROR);
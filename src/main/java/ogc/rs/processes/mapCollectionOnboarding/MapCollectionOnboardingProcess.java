@@ -1,5 +1,6 @@
 package ogc.rs.processes.mapCollectionOnboarding;
 
+import static ogc.rs.common.Constants.MAP_RENDER_CACHE_INVALIDATION_ADDRESS;
 import static ogc.rs.processes.mapCollectionOnboarding.Constants.*;
 import static ogc.rs.processes.mapCollectionOnboarding.SqlConstants.*;
 
@@ -122,6 +123,9 @@ public class MapCollectionOnboardingProcess implements ProcessService {
         .onSuccess(
             v -> {
               LOGGER.info(MAP_COLLECTION_ONBOARDING_SUCCESS_MESSAGE);
+              // drop maps rendered for an earlier collection with the same ID
+              vertx.eventBus().publish(
+                  MAP_RENDER_CACHE_INVALIDATION_ADDRESS, requestInput.getString("resourceId"));
               promise.complete();
             })
         .onFailure(err -> handleFailure(requestInput, err.getMessage(), promise));
@@ -6,20 +6,15 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
 import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.common.S3ClientRegistry;
 import ogc.rs.common.S3Config;
 import ogc.rs.processes.ProcessService;
 import ogc.rs.processes.util.Status;
 import ogc.rs.processes.util.UtilClass;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.model.*;
 
-import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,7 +27,7 @@ import static ogc.rs.processes.s3MultiPartUploadForStacOnboarding.Constants.*;
 public class S3CompleteMultiPartUploadProcess implements ProcessService {
     private static final Logger LOGGER = LogManager.getLogger(S3CompleteMultiPartUploadProcess.class);
     private final UtilClass utilClass;
-    private final S3Client s3Client;
+    private final S3ClientRegistry s3ClientRegistry;
     private S3Config s3conf;
 
     /**
@@ -40,20 +35,12 @@ public class S3CompleteMultiPartUploadProcess implements ProcessService {
      *
      * @param pgPool  PgPool instance for database interactions.
      * @param s3conf  S3 config of the bucket to be operated upon.
+     * @param s3ClientRegistry  The registry of shared S3 clients.
      */
-    public S3CompleteMultiPartUploadProcess(PgPool pgPool, S3Config s3conf) {
+    public S3CompleteMultiPartUploadProcess(PgPool pgPool, S3Config s3conf, S3ClientRegistry s3ClientRegistry) {
         this.utilClass = new UtilClass(pgPool);
         this.s3conf = s3conf;
-        this.s3Client = S3Client.builder()
-                .region(Region.of(s3conf.getRegion()))
-                .endpointOverride(URI.create(s3conf.getEndpoint()))
-                .credentialsProvider(StaticCredentialsProvider.create(
-                        AwsBasicCredentials.create(s3conf.getAccessKey(), s3conf.getSecretKey())
-                ))
-                .serviceConfiguration(S3Configuration.builder()
-                        .pathStyleAccessEnabled(s3conf.isPathBasedAccess())
-                        .build())
-                .build();
+        this.s3ClientRegistry = s3ClientRegistry;
     }
 
     /**
@@ -128,16 +115,17 @@ public class S3CompleteMultiPartUploadProcess implements ProcessService {
                 .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
                 .build();
 
-        try {
-            CompleteMultipartUploadResponse response = s3Client.completeMultipartUpload(completeRequest);
-            LOGGER.info("Multipart upload completed successfully: {}", response.location());
-            promise.complete(new JsonObject()
-                    .put("message", COMPLETE_MULTIPART_UPLOAD_PROCESS_SUCCESS_MESSAGE)
-                    .put("location", response.location()));
-        } catch (Exception e) {
-            LOGGER.error("Failed to complete S3 multipart upload completion: {}", e.getMessage(), e);
-            promise.fail(new OgcException(500, "Internal Server Error", COMPLETE_MULTIPART_UPLOAD_FAILURE_MESSAGE));
-        }
+        s3ClientRegistry.toFuture(s3ClientRegistry.getClient(s3conf).completeMultipartUpload(completeRequest))
+                .onSuccess(response -> {
+                    LOGGER.info("Multipart upload completed successfully: {}", response.location());
+                    promise.complete(new JsonObject()
+                            .put("message", COMPLETE_MULTIPART_UPLOAD_PROCESS_SUCCESS_MESSAGE)
+                            .put("location", response.location()));
+                })
+                .onFailure(e -> {
+                    LOGGER.error("Failed to complete S3 multipart upload completion: {}", e.getMessage(), e);
+                    promise.fail(new OgcException(500, "Internal Server Error", COMPLETE_MULTIPART_UPLOAD_FAILURE_MESSAGE));
+                });
 
         return promise.future();
     }
@@ -14,6 +14,7 @@ import io.vertx.sqlclient.RowSet;
 import io.vertx.sqlclient.Tuple;
 import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.common.DataFromS3;
+import ogc.rs.common.S3ClientRegistry;
 import ogc.rs.common.S3Config;
 import ogc.rs.processes.ProcessService;
 import ogc.rs.processes.featureCollectionOnboarding.FeatureCollectionOnboardingProcess;
@@ -21,16 +22,10 @@ import ogc.rs.processes.util.Status;
 import ogc.rs.processes.util.UtilClass;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedUploadPartRequest;
 
-import java.net.URI;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,7 +43,7 @@ public class S3InitiateMultiPartUploadProcess implements ProcessService {
     private final DataFromS3 dataFromS3;
     private final S3Config s3conf;
     private final PgPool pgPool;
-    private final S3Client s3Client;
+    private final S3ClientRegistry s3ClientRegistry;
     private final S3Presigner s3Presigner;
 
     private static final long MB = 1024L * 1024L;
@@ -66,37 +61,19 @@ public class S3InitiateMultiPartUploadProcess implements ProcessService {
      * @param config          The configuration object containing S3 credentials and settings.
      * @param s3conf          S3 config of the bucket to be operated upon.
      * @param vertx           The Vertx instance for asynchronous operations.
+     * @param s3ClientRegistry The registry of shared S3 clients and presigners.
      */
-    public S3InitiateMultiPartUploadProcess(PgPool pgPool, WebClient webClient, JsonObject config, S3Config s3conf, Vertx vertx) {
+    public S3InitiateMultiPartUploadProcess(PgPool pgPool, WebClient webClient, JsonObject config, S3Config s3conf, Vertx vertx,
+        S3ClientRegistry s3ClientRegistry) {
         this.pgPool = pgPool;
         this.utilClass = new UtilClass(pgPool);
         this.s3conf = s3conf;
         this.dataFromS3 = new DataFromS3(vertx.createHttpClient(new HttpClientOptions().setShared(true)), s3conf);
         this.collectionOnboarding = new FeatureCollectionOnboardingProcess(pgPool, webClient, config, s3conf, vertx);
 
-        // Initialize S3 Client & S3 Presigner
-        this.s3Client = S3Client.builder()
-                .region(Region.of(s3conf.getRegion()))
-                .endpointOverride(URI.create(s3conf.getEndpoint()))
-                .credentialsProvider(StaticCredentialsProvider.create(
-                        AwsBasicCredentials.create(s3conf.getAccessKey(), s3conf.getSecretKey())
-                ))
-                .serviceConfiguration(S3Configuration.builder()
-                        .pathStyleAccessEnabled(s3conf.isPathBasedAccess())
-                        .build())
-                .build();
-
-        this.s3Presigner = S3Presigner.builder()
-                .region(Region.of(s3conf.getRegion()))
-                .endpointOverride(URI.create(s3conf.getEndpoint()))
-                .credentialsProvider(StaticCredentialsProvider.create(
-                        AwsBasicCredentials.create(s3conf.getAccessKey(), s3conf.getSecretKey())
-                ))
-                .serviceConfiguration(S3Configuration.builder()
-                        .pathStyleAccessEnabled(s3conf.isPathBasedAccess())
-                        .build())
-                .build();
-
+        // Use the shared S3 Client & S3 Presigner of the bucket
+        this.s3ClientRegistry = s3ClientRegistry;
+        this.s3Presigner = s3ClientRegistry.getPresigner(s3conf);
     }
 
     /**
@@ -309,8 +286,6 @@ public class S3InitiateMultiPartUploadProcess implements ProcessService {
      * @return A future that resolves with the upload ID.
      */
     private Future<String> initiateMultipartUpload(String key, String filename, String filetype) {
-        Promise<String> promise = Promise.promise();
-
         CreateMultipartUploadRequest createRequest = CreateMultipartUploadRequest.builder()
                 .bucket(s3conf.getBucket())
                 .key(key)
@@ -320,17 +295,16 @@ public class S3InitiateMultiPartUploadProcess implements ProcessService {
                         "content-type", filetype
                 ))
                 .build();
-        try {
-            CreateMultipartUploadResponse response = s3Client.createMultipartUpload(createRequest);
-            String uploadId = response.uploadId();
-            LOGGER.info("Multipart upload initiated: Upload ID = {}", uploadId);
-            promise.complete(uploadId);
-        } catch (Exception e) {
-            LOGGER.error("Failed to initiate S3 multipart upload: {}", e.getMessage(), e);
-            promise.fail(new OgcException(500, "Internal Server Error", INITIATE_MULTIPART_UPLOAD_FAILURE_MESSAGE));
-        }
-
-        return promise.future();
+        return s3ClientRegistry.toFuture(s3ClientRegistry.getClient(s3conf).createMultipartUpload(createRequest))
+                .map(response -> {
+                    String uploadId = response.uploadId();
+                    LOGGER.info("Multipart upload initiated: Upload ID = {}", uploadId);
+                    return uploadId;
+                })
+                .recover(e -> {
+                    LOGGER.error("Failed to initiate S3 multipart upload: {}", e.getMessage(), e);
+                    return Future.failedFuture(new OgcException(500, "Internal Server Error", INITIATE_MULTIPART_UPLOAD_FAILURE_MESSAGE));
+                });
     }
 
     /**
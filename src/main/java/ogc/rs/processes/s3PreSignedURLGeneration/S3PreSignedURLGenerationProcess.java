@@ -7,6 +7,7 @@ import io.vertx.ext.web.client.WebClient;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.Tuple;
+import ogc.rs.common.S3ClientRegistry;
 import ogc.rs.common.S3Config;
 import ogc.rs.processes.ProcessService;
 import ogc.rs.processes.util.Status;
@@ -14,16 +15,11 @@ import ogc.rs.apiserver.util.OgcException;
 import ogc.rs.processes.util.UtilClass;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
-import java.net.URI;
 import java.time.Duration;
 import java.util.Map;
 
@@ -40,6 +36,7 @@ public class S3PreSignedURLGenerationProcess implements ProcessService {
     private final WebClient webClient;
     private final PgPool pgPool;
     private S3Config s3conf;
+    private final S3ClientRegistry s3ClientRegistry;
     private String catServerHost;
     private String catRequestUri;
     private int catServerPort;
@@ -51,12 +48,15 @@ public class S3PreSignedURLGenerationProcess implements ProcessService {
      * @param webClient  The WebClient instance for making HTTP requests.
      * @param config  The configuration containing AWS and database details.
      * @param s3conf  The S3Config instance i.e. config to access bucket requested in process input.
+     * @param s3ClientRegistry  The registry of shared S3 clients and presigners.
      */
-    public S3PreSignedURLGenerationProcess(PgPool pgPool, WebClient webClient,  JsonObject config, S3Config s3conf) {
+    public S3PreSignedURLGenerationProcess(PgPool pgPool, WebClient webClient,  JsonObject config, S3Config s3conf,
+        S3ClientRegistry s3ClientRegistry) {
         this.pgPool = pgPool;
         this.utilClass = new UtilClass(pgPool);
         this.webClient = webClient;
         this.s3conf = s3conf;
+        this.s3ClientRegistry = s3ClientRegistry;
         initializeConfig(config);
     }
 
@@ -268,40 +268,29 @@ public class S3PreSignedURLGenerationProcess implements ProcessService {
     private Future<JsonObject> generatePreSignedUrl(JsonObject requestInput) {
         Promise<JsonObject> promise = Promise.promise();
         try {
-            // Create AWS credentials and presigner
-            Region region = Region.of(s3conf.getRegion());
-            AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(s3conf.getAccessKey(), s3conf.getSecretKey());
-
-            try (S3Presigner preSigner = S3Presigner.builder()
-                    .region(region)
-                    .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-                    .endpointOverride(URI.create(s3conf.getEndpoint()))
-                    .serviceConfiguration(S3Configuration.builder()
-                        .pathStyleAccessEnabled(s3conf.isPathBasedAccess())
-                        .build())
-                    .build()) {
-
-                // Create the S3 PutObjectRequest
-                PutObjectRequest objectRequest = PutObjectRequest.builder()
-                        .bucket(s3conf.getBucket())
-                        .key(requestInput.getString("objectKeyName"))
-                        .build();
-
-                // Create the S3 Pre-Signed URL request
-                PutObjectPresignRequest preSignRequest = PutObjectPresignRequest.builder()
-                        .signatureDuration(Duration.ofMinutes(5)) // Set URL expiration time
-                        .putObjectRequest(objectRequest)
-                        .build();
-
-                // Generate the Pre-Signed URL
-                PresignedPutObjectRequest preSignedRequest = preSigner.presignPutObject(preSignRequest);
-                String preSignedUrl = preSignedRequest.url().toString();
-
-                // Log and return the generated Pre-Signed URL
-                JsonObject result = new JsonObject().put("preSignedUrl", preSignedUrl);
-                LOGGER.debug("Generated pre-signed URL: {}", preSignedUrl);
-                promise.complete(result);
-            }
+            // Use the shared presigner of the bucket
+            S3Presigner preSigner = s3ClientRegistry.getPresigner(s3conf);
+
+            // Create the S3 PutObjectRequest
+            PutObjectRequest objectRequest = PutObjectRequest.builder()
+                    .bucket(s3conf.getBucket())
+                    .key(requestInput.getString("objectKeyName"))
+                    .build();
+
+            // Create the S3 Pre-Signed URL request
+            PutObjectPresignRequest preSignRequest = PutObjectPresignRequest.builder()
+                    .signatureDuration(Duration.ofMinutes(5)) // Set URL expiration time
+                    .putObjectRequest(objectRequest)
+                    .build();
+
+            // Generate the Pre-Signed URL
+            PresignedPutObjectRequest preSignedRequest = preSigner.presignPutObject(preSignRequest);
+            String preSignedUrl = preSignedRequest.url().toString();
+
+            // Log and return the generated Pre-Signed URL
+            JsonObject result = new JsonObject().put("preSignedUrl", preSignedUrl);
+            LOGGER.debug("Generated pre-signed URL: {}", preSignedUrl);
+            promise.complete(result);
         } catch (Exception e) {
             LOGGER.error(S3_PRE_SIGNED_URL_GENERATOR_FAILURE_MESSAGE +  e);
             promise.fail(new OgcException(500, "Internal Server Error", S3_PRE_SIGNED_URL_GENERATOR_FAILURE_MESSAGE));
@@ -15,5 +15,19 @@ public class Constants {
       "SELECT * FROM PROCESSES_TABLE WHERE ID=$1";
   public static final String PROCESS_ACCEPTED_RESPONSE =
       "Process accepted. Starting the execution..";
+  public static final String QUEUED_JOBS_QUERY =
+      "SELECT jobs_table.id, jobs_table.input, processes_table.title FROM jobs_table"
+          + " JOIN processes_table ON jobs_table.process_id = processes_table.id"
+          + " WHERE jobs_table.status = 'ACCEPTED' AND jobs_table.type = 'PROCESS'"
+          + " AND 'async-execute' = ANY(processes_table.mode) ORDER BY jobs_table.created_at";
+  public static final String CLAIM_ACCEPTED_JOB_QUERY =
+      "UPDATE JOBS_TABLE SET UPDATED_AT = NOW(), STARTED_AT = NOW(), STATUS = 'RUNNING'"
+          + " WHERE ID = $1 AND STATUS = 'ACCEPTED' RETURNING ID;";
+  public static final String JOB_QUEUED_MESSAGE =
+      "Process accepted. The job is queued and will be started once running jobs complete..";
+  public static final String JOB_QUEUE_FULL_MESSAGE =
+      "Too many jobs are queued, please try again later";
+  public static final String JOB_RECOVERY_FAILURE_MESSAGE =
+      "Job could not be started again after server restart";
   public static final String NO_S3_CONF_FOUND_FOR_BUCKET_ID = "No S3 config exists for bucket identifier : ";
 }
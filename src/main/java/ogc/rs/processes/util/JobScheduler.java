@@ -0,0 +1,241 @@
+package ogc.rs.processes.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Scheduler of async process jobs. Jobs are run in order of the priority of their process, and in
+ * order of submission (FIFO) for the same priority. The total number of running jobs and the
+ * number of running jobs of each process are limited, so that heavy jobs like collection
+ * onboarding do not take up all of the DB and CPU. A job whose process is at its limit does not
+ * hold up jobs of other processes. <br>
+ * The queue is bounded: {@link #isFull()} is checked before a job is created, and the job is
+ * rejected if the queue is full. Queued jobs have the <em>ACCEPTED</em> status in the jobs table,
+ * so they can be submitted again after a restart, which is done once per Vert.x instance (see
+ * {@link #startRecovery()}). <br>
+ * The scheduler is shared by all process verticle instances of a Vert.x instance, and jobs are run
+ * on the context they were submitted from. It is configured using the <em>jobScheduler</em>
+ * config block:
+ *
+ * <pre>
+ * "jobScheduler" : {
+ *   "maxRunningJobs" : 4,
+ *   "maxQueuedJobs" : 100,
+ *   "defaultProcessLimit" : 2,
+ *   "processLimits" : {
+ *     "CollectionOnboarding" : 1
+ *   },
+ *   "processPriorities" : {
+ *     "S3InitiateMultipartUpload" : 10
+ *   }
+ * }
+ * </pre>
+ *
+ * The number of queued and running jobs are published to the default Micrometer registry as
+ * <em>ogc.jobs.queued</em> and <em>ogc.jobs.running</em>.
+ */
+public class JobScheduler {
+
+  private static final Logger LOGGER = LogManager.getLogger(JobScheduler.class);
+
+  public static final String CONFIG_KEY = "jobScheduler";
+  private static final int DEFAULT_MAX_RUNNING_JOBS = 4;
+  private static final int DEFAULT_MAX_QUEUED_JOBS = 100;
+  private static final int DEFAULT_PROCESS_LIMIT = 2;
+  private static final int DEFAULT_PRIORITY = 0;
+
+  private static final Map<Vertx, JobScheduler> SCHEDULERS = new ConcurrentHashMap<>();
+
+  private final int maxRunningJobs;
+  private final int maxQueuedJobs;
+  private final int defaultProcessLimit;
+  private final JsonObject processLimits;
+  private final JsonObject processPriorities;
+
+  private final TreeSet<QueuedJob> queue = new TreeSet<>(Comparator
+      .comparingInt((QueuedJob job) -> -job.priority).thenComparingLong(job -> job.sequence));
+  private final Map<String, Integer> runningByProcess = new HashMap<>();
+  private int running = 0;
+  private long sequence = 0;
+  private boolean recoveryStarted = false;
+
+  /**
+   * Get the scheduler of a Vert.x instance, creating it using the config if it does not exist.
+   *
+   * @param vertx the Vert.x instance
+   * @param config the verticle config
+   * @return the {@link JobScheduler}
+   */
+  public static JobScheduler getOrCreate(Vertx vertx, JsonObject config) {
+    return SCHEDULERS.computeIfAbsent(vertx, v -> {
+      JobScheduler scheduler = new JobScheduler(config);
+      scheduler.registerMetrics();
+      return scheduler;
+    });
+  }
+
+  JobScheduler(JsonObject config) {
+    JsonObject schedulerConfig = config.getJsonObject(CONFIG_KEY, new JsonObject());
+
+    this.maxRunningJobs = schedulerConfig.getInteger("maxRunningJobs", DEFAULT_MAX_RUNNING_JOBS);
+    this.maxQueuedJobs = schedulerConfig.getInteger("maxQueuedJobs", DEFAULT_MAX_QUEUED_JOBS);
+    this.defaultProcessLimit =
+        schedulerConfig.getInteger("defaultProcessLimit", DEFAULT_PROCESS_LIMIT);
+    this.processLimits = schedulerConfig.getJsonObject("processLimits", new JsonObject());
+    this.processPriorities = schedulerConfig.getJsonObject("processPriorities", new JsonObject());
+  }
+
+  /**
+   * @return <code>true</code> if no more jobs can be queued
+   */
+  public synchronized boolean isFull() {
+    return queue.size() >= maxQueuedJobs;
+  }
+
+  /**
+   * Check if queued jobs of a previous run are to be recovered. Returns <code>true</code> only
+   * for the first caller, so that jobs are recovered once even with many verticle instances.
+   *
+   * @return <code>true</code> if the caller must recover queued jobs
+   */
+  public synchronized boolean startRecovery() {
+    if (recoveryStarted) {
+      return false;
+    }
+    recoveryStarted = true;
+    return true;
+  }
+
+  /**
+   * Submit a job. The job is started right away if the limits allow it, else it is queued. Must
+   * be called on a Vert.x context, which the job is run on.
+   *
+   * @param jobId the job ID
+   * @param processName the name (title) of the process
+   * @param task starts the job, the future completes once the job has completed
+   * @return <code>true</code> if the job was queued, <code>false</code> if it was started
+   */
+  public boolean submit(String jobId, String processName, Supplier<Future<?>> task) {
+    QueuedJob job = new QueuedJob(jobId, processName,
+        processPriorities.getInteger(processName, DEFAULT_PRIORITY), task,
+        Vertx.currentContext());
+    List<QueuedJob> toStart;
+
+    synchronized (this) {
+      job.sequence = sequence++;
+      queue.add(job);
+      toStart = takeStartableJobs();
+    }
+
+    toStart.forEach(this::start);
+    boolean queued = !toStart.contains(job);
+    if (queued) {
+      LOGGER.info("Job {} of process {} queued, {} jobs in queue", jobId, processName, queuedJobs());
+    }
+    return queued;
+  }
+
+  /**
+   * @return the number of queued jobs
+   */
+  public synchronized int queuedJobs() {
+    return queue.size();
+  }
+
+  /**
+   * @return the number of running jobs
+   */
+  public synchronized int runningJobs() {
+    return running;
+  }
+
+  /* must be called holding the lock */
+  private List<QueuedJob> takeStartableJobs() {
+    List<QueuedJob> startable = new ArrayList<>();
+    Iterator<QueuedJob> it = queue.iterator();
+    while (running < maxRunningJobs && it.hasNext()) {
+      QueuedJob job = it.next();
+      int runningOfProcess = runningByProcess.getOrDefault(job.processName, 0);
+      if (runningOfProcess < processLimits.getInteger(job.processName, defaultProcessLimit)) {
+        it.remove();
+        runningByProcess.put(job.processName, runningOfProcess + 1);
+        running++;
+        startable.add(job);
+      }
+    }
+    return startable;
+  }
+
+  private void start(QueuedJob job) {
+    LOGGER.debug("Starting job {} of process {}", job.jobId, job.processName);
+    Runnable run = () -> {
+      Future<?> result;
+      try {
+        result = job.task.get();
+      } catch (RuntimeException e) {
+        result = Future.failedFuture(e);
+      }
+      result.onComplete(ar -> finished(job));
+    };
+
+    if (job.context != null) {
+      job.context.runOnContext(v -> run.run());
+    } else {
+      run.run();
+    }
+  }
+
+  private void finished(QueuedJob job) {
+    List<QueuedJob> toStart;
+    synchronized (this) {
+      running--;
+      runningByProcess.merge(job.processName, -1, Integer::sum);
+      toStart = takeStartableJobs();
+    }
+    toStart.forEach(this::start);
+  }
+
+  private void registerMetrics() {
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry == null) {
+      registry = new SimpleMeterRegistry();
+    }
+    Gauge.builder("ogc.jobs.queued", this, JobScheduler::queuedJobs).register(registry);
+    Gauge.builder("ogc.jobs.running", this, JobScheduler::runningJobs).register(registry);
+  }
+
+  private static class QueuedJob {
+    private final String jobId;
+    private final String processName;
+    private final int priority;
+    private final Supplier<Future<?>> task;
+    private final Context context;
+    private long sequence;
+
+    private QueuedJob(String jobId, String processName, int priority, Supplier<Future<?>> task,
+        Context context) {
+      this.jobId = jobId;
+      this.processName = processName;
+      this.priority = priority;
+      this.task = task;
+      this.context = context;
+    }
+  }
+}
@@ -51,6 +51,24 @@ public class UtilClass {
     return promise.future();
   }
 
+  /**
+   * Claims an accepted job before it is started, by atomically moving it from the
+   * <em>ACCEPTED</em> to the <em>RUNNING</em> status. A job that is submitted by more than one
+   * server (e.g. when queued jobs are recovered after a restart) is claimed by only one of them.
+   *
+   * @param jobId the job ID
+   * @return a future with <code>true</code> if the job was claimed, <code>false</code> if it is no
+   *         longer in the <em>ACCEPTED</em> status
+   */
+  public Future<Boolean> claimAcceptedJob(String jobId) {
+    return pgPool.withConnection(sqlConnection -> sqlConnection
+        .preparedQuery(CLAIM_ACCEPTED_JOB_QUERY)
+        .execute(Tuple.of(UUID.fromString(jobId))))
+      .map(rows -> rows.rowCount() > 0)
+      .onFailure(failureHandler ->
+        LOGGER.error("Failed to claim job {}: {}", jobId, failureHandler.getMessage()));
+  }
+
   /**
    * Updates the status of a job in the database.
    *
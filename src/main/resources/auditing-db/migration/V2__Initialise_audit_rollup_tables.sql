@@ -0,0 +1,50 @@
+---
+-- hourly and daily rollups of the ogc audit table, maintained by the metering verticle
+---
+
+CREATE TABLE IF NOT EXISTS auditing_ogc_hourly
+(
+    hour TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    resourceid UUID NOT NULL,
+    userid UUID NOT NULL,
+    providerid UUID NOT NULL,
+    api VARCHAR NOT NULL,
+    hits BIGINT NOT NULL,
+    size NUMERIC NOT NULL,
+    PRIMARY KEY (hour, resourceid, userid, providerid, api)
+);
+
+CREATE TABLE IF NOT EXISTS auditing_ogc_daily
+(
+    day TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    resourceid UUID NOT NULL,
+    userid UUID NOT NULL,
+    providerid UUID NOT NULL,
+    api VARCHAR NOT NULL,
+    hits BIGINT NOT NULL,
+    size NUMERIC NOT NULL,
+    PRIMARY KEY (day, resourceid, userid, providerid, api)
+);
+
+CREATE INDEX ogc_hourly_userid_index ON auditing_ogc_hourly (userid, hour);
+CREATE INDEX ogc_hourly_providerid_index ON auditing_ogc_hourly (providerid, hour);
+CREATE INDEX ogc_daily_userid_index ON auditing_ogc_daily (userid, day);
+CREATE INDEX ogc_daily_providerid_index ON auditing_ogc_daily (providerid, day);
+
+-- the rollups are complete up to (not including) these times
+CREATE TABLE IF NOT EXISTS auditing_ogc_rollup_watermark
+(
+    id INTEGER PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    hourly_until TIMESTAMP WITHOUT TIME ZONE,
+    daily_until TIMESTAMP WITHOUT TIME ZONE
+);
+
+INSERT INTO auditing_ogc_rollup_watermark (id) VALUES (1) ON CONFLICT DO NOTHING;
+
+ALTER TABLE auditing_ogc_hourly OWNER TO ${flyway:user};
+ALTER TABLE auditing_ogc_daily OWNER TO ${flyway:user};
+ALTER TABLE auditing_ogc_rollup_watermark OWNER TO ${flyway:user};
+
+GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE auditing_ogc_hourly TO ${rsUser};
+GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE auditing_ogc_daily TO ${rsUser};
+GRANT SELECT,INSERT,UPDATE,DELETE ON TABLE auditing_ogc_rollup_watermark TO ${rsUser};
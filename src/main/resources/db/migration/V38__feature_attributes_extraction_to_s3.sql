@@ -0,0 +1,5 @@
+-- s3BucketIdentifier is an optional input of FeatureAttributesExtraction, if given the features are
+-- written as newline-delimited JSON to the bucket and only the object location is returned.
+UPDATE processes_table
+SET description = 'Process to extract attributes of a feature collection. If s3BucketIdentifier is given, the features are written as newline-delimited JSON to the S3 bucket and the result has the object key and number of features'
+WHERE title = 'FeatureAttributesExtraction';
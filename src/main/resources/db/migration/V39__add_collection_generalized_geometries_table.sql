@@ -0,0 +1,12 @@
+-- Precomputed generalized geometry columns of feature collection tables. A column is used in place of
+-- simplifying geom when features are requested at a scale denominator >= min_scale_denominator.
+-- Column names must start with geom_ so that they can be used unquoted in feature queries.
+CREATE TABLE collection_generalized_geometries (
+    collection_id UUID NOT NULL
+        REFERENCES collections_details(id) ON DELETE CASCADE,
+    column_name VARCHAR(63) NOT NULL CHECK (column_name ~ '^geom_[a-z0-9_]+$'),
+    min_scale_denominator DOUBLE PRECISION NOT NULL CHECK (min_scale_denominator > 0),
+    PRIMARY KEY (collection_id, column_name)
+);
+
+GRANT SELECT, INSERT, UPDATE, DELETE ON collection_generalized_geometries TO ${ogcUser};
@@ -0,0 +1,85 @@
+package ogc.rs.apiserver.router.gisentities.ogcfeatures;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.Map;
+import ogc.rs.apiserver.util.OgcException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OgcFeaturesMetadataTest {
+
+  private static final String CRS84 = "http://www.opengis.net/def/crs/OGC/1.3/CRS84";
+  private static final String EPSG_4326 = "http://www.opengis.net/def/crs/EPSG/0/4326";
+
+  private OgcFeaturesMetadata metadata;
+  private Map<PostgisGeomTypes, Integer> maxLimits;
+
+  @BeforeEach
+  void setUp() {
+    metadata = new OgcFeaturesMetadata(new JsonObject()
+        .put("id", "5d568f6f-4a7a-4fd5-a4de-ad1a4e2a0e13")
+        .put("supported_crs", new JsonArray().add(CRS84).add(EPSG_4326))
+        .put("geometry_type", "POINT")
+        .put("attributes", new JsonObject().put("district", "character varying")
+            .put("population", "integer")));
+    maxLimits = OgcFeaturesMetadata.getGeomSpecificMaxLimits(
+        new JsonObject().put("geomSpecificMaxLimits", new JsonObject().put("POINT", 1000)));
+  }
+
+  private static JsonObject validatedQuery() {
+    return new JsonObject().put("crs", CRS84).put("bbox-crs", CRS84).put("offset", 1)
+        .put("limit", null);
+  }
+
+  @Test
+  @DisplayName("Attribute params are checked and the limit defaults to the max of the geometry")
+  void testValidItemsQuery() {
+    MultiMap request = MultiMap.caseInsensitiveMultiMap().add("population", "20000")
+        .add("district", "Pune");
+
+    Map<String, String> params =
+        metadata.validateQueryParams(validatedQuery(), request, true, maxLimits);
+
+    assertEquals("20000", params.get("population"));
+    assertEquals("Pune", params.get("district"));
+    assertEquals("1000", params.get("limit"));
+    assertEquals("1", params.get("offset"));
+    assertEquals(CRS84, params.get("crs"));
+  }
+
+  @Test
+  @DisplayName("Params that are invalid for the collection are rejected")
+  void testInvalidItemsQuery() {
+    OgcException unknown = assertThrows(OgcException.class,
+        () -> metadata.validateQueryParams(validatedQuery(),
+            MultiMap.caseInsensitiveMultiMap().add("colour", "red"), true, maxLimits));
+    assertEquals(400, unknown.getStatusCode());
+
+    assertThrows(OgcException.class, () -> metadata.validateQueryParams(validatedQuery(),
+        MultiMap.caseInsensitiveMultiMap().add("population", "many"), true, maxLimits));
+
+    assertThrows(OgcException.class, () -> metadata.validateQueryParams(
+        validatedQuery().put("limit", 1001), MultiMap.caseInsensitiveMultiMap(), true, maxLimits));
+
+    assertThrows(OgcException.class, () -> metadata.validateQueryParams(
+        validatedQuery().put("crs", "http://www.opengis.net/def/crs/EPSG/0/3857"),
+        MultiMap.caseInsensitiveMultiMap(), true, maxLimits));
+  }
+
+  @Test
+  @DisplayName("Only the crs param is allowed when getting a single feature")
+  void testSpecificFeatureQuery() {
+    Map<String, String> params = metadata.validateQueryParams(new JsonObject().put("crs", EPSG_4326),
+        MultiMap.caseInsensitiveMultiMap().add("crs", EPSG_4326), false, maxLimits);
+    assertEquals(Map.of("crs", EPSG_4326), params);
+
+    assertThrows(OgcException.class, () -> metadata.validateQueryParams(
+        new JsonObject().put("crs", CRS84), MultiMap.caseInsensitiveMultiMap().add("district", "Pune"),
+        false, maxLimits));
+  }
+}
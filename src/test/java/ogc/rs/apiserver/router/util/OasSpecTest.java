@@ -0,0 +1,75 @@
+package ogc.rs.apiserver.router.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OasSpecTest {
+
+  private static final String COLLECTION_A = "/collections/5d568f6f-4a7a-4fd5-a4de-ad1a4e2a0e13";
+  private static final String COLLECTION_B = "/collections/0c8d0e4c-9a3a-4b07-9a8c-a8c46c6d9d0a";
+
+  private OasSpec spec;
+
+  private static JsonObject path(String summary) {
+    return new JsonObject().put("get", new JsonObject().put("summary", summary));
+  }
+
+  @BeforeEach
+  void setUp() {
+    JsonObject template = new JsonObject()
+        .put("openapi", "3.0.2")
+        .put("paths", new JsonObject().put("/", path("landing")).put("/collections", path("all")))
+        .put("components", new JsonObject().put("schemas", new JsonObject()));
+    spec = new OasSpec(template);
+    spec.setSpec(spec.withPaths(new JsonObject().put(COLLECTION_A, path("a"))));
+  }
+
+  @Test
+  @DisplayName("Paths are added without modifying the current spec")
+  void testWithPaths() {
+    JsonObject current = spec.getSpec();
+    JsonObject updated = spec.withPaths(
+        OasSpec.collectPaths(List.of(new JsonObject().put(COLLECTION_B, path("b")))));
+
+    assertEquals(Set.of("/", "/collections", COLLECTION_A), current.getJsonObject("paths").fieldNames());
+    assertEquals(Set.of("/", "/collections", COLLECTION_A, COLLECTION_B),
+        updated.getJsonObject("paths").fieldNames());
+    assertSame(current.getJsonObject("components"), updated.getJsonObject("components"));
+  }
+
+  @Test
+  @DisplayName("Delta spec has the template paths and only the new paths")
+  void testDeltaSpec() {
+    JsonObject delta = spec.deltaSpec(new JsonObject().put(COLLECTION_B, path("b")));
+
+    assertEquals(Set.of("/", "/collections", COLLECTION_B), delta.getJsonObject("paths").fieldNames());
+    assertEquals("3.0.2", delta.getString("openapi"));
+    assertTrue(delta.containsKey("components"));
+  }
+
+  @Test
+  @DisplayName("Paths that replace existing paths are detected")
+  void testHasAnyPath() {
+    assertTrue(spec.hasAnyPath(new JsonObject().put(COLLECTION_A, path("a2"))));
+    assertTrue(spec.hasAnyPath(new JsonObject().put("/", path("landing"))));
+    assertFalse(spec.hasAnyPath(new JsonObject().put(COLLECTION_B, path("b"))));
+  }
+
+  @Test
+  @DisplayName("Paths that would be routed to an existing parameterized path are detected")
+  void testMatchesParameterizedPath() {
+    spec.setSpec(spec.withPaths(new JsonObject().put("/collections/{collectionId}/items", path("p"))
+        .put(COLLECTION_A + "/items/{featureId}", path("f"))));
+
+    assertTrue(spec.matchesParameterizedPath(new JsonObject().put(COLLECTION_B + "/items", path("b"))));
+    assertFalse(spec.matchesParameterizedPath(
+        new JsonObject().put(COLLECTION_B + "/items/{featureId}", path("b"))));
+    assertFalse(spec.matchesParameterizedPath(new JsonObject().put(COLLECTION_B, path("b"))));
+  }
+}
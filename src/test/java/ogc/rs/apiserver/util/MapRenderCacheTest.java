@@ -0,0 +1,67 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(VertxExtension.class)
+public class MapRenderCacheTest {
+
+  private static final String COLLECTION_ID = "map-collection";
+
+  @Test
+  @DisplayName("Concurrent requests share one render, invalidation forces a new render")
+  void testRenderCoalescedAndInvalidated(Vertx vertx, VertxTestContext testContext,
+      @TempDir Path tempDir) {
+    MapRenderCache cache = new MapRenderCache(vertx, new JsonObject().put(MapRenderCache.CONFIG_KEY,
+        new JsonObject().put("enabled", true).put("dir", tempDir.resolve("cache").toString())));
+
+    AtomicInteger renders = new AtomicInteger();
+    Promise<Void> firstRenderGate = Promise.promise();
+    Function<String, Future<Long>> renderer = path -> {
+      renders.incrementAndGet();
+      return firstRenderGate.future()
+          .compose(v -> vertx.fileSystem().writeFile(path, Buffer.buffer("tiff")))
+          .map(4L);
+    };
+
+    vertx.runOnContext(v -> {
+      Future<String> first = cache.getOrRender(COLLECTION_ID, "key", renderer);
+      Future<String> second = cache.getOrRender(COLLECTION_ID, "key", renderer);
+      firstRenderGate.complete();
+
+      Future.all(first, second)
+          .compose(done -> {
+            testContext.verify(() -> {
+              assertEquals(first.result(), second.result());
+              assertEquals("tiff", vertx.fileSystem().readFileBlocking(first.result()).toString());
+              assertEquals(1, renders.get());
+            });
+            return cache.getOrRender(COLLECTION_ID, "key", renderer);
+          })
+          .compose(cached -> {
+            testContext.verify(() -> assertEquals(1, renders.get()));
+            cache.invalidate(COLLECTION_ID);
+            return cache.getOrRender(COLLECTION_ID, "key", renderer);
+          })
+          .onComplete(testContext.succeeding(rerendered -> testContext.verify(() -> {
+            assertEquals(2, renders.get());
+            assertNotEquals(first.result(), rerendered);
+            testContext.completeNow();
+          })));
+    });
+  }
+}
@@ -0,0 +1,73 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class MapRenderPoolTest {
+
+  @Test
+  @DisplayName("Process output is read chunk by chunk only when there is demand")
+  void testProcessOutputBackpressure(Vertx vertx, VertxTestContext testContext) {
+    byte[] output = new byte[200 * 1024];
+    MapRenderPool.ProcessOutputStream stream = new MapRenderPool.ProcessOutputStream(
+        vertx.createSharedWorkerExecutor("test-map-render", 1), new ByteArrayInputStream(output));
+
+    vertx.runOnContext(v -> {
+      Buffer received = Buffer.buffer();
+      stream.pause();
+      stream.endHandler(end -> testContext.verify(() -> {
+        assertEquals(output.length, received.length());
+        testContext.completeNow();
+      }));
+      stream.handler(chunk -> {
+        received.appendBuffer(chunk);
+        stream.pause();
+        vertx.setTimer(1, id -> stream.fetch(1));
+      });
+      stream.fetch(1);
+    });
+  }
+
+  @Test
+  @DisplayName("Renders beyond the concurrency limit and queue are rejected with 503")
+  void testAdmissionControl(Vertx vertx, VertxTestContext testContext) {
+    MapRenderPool pool = new MapRenderPool(vertx, new JsonObject().put(MapRenderPool.CONFIG_KEY,
+        new JsonObject().put("maxConcurrentRenders", 1).put("maxQueuedRenders", 0)));
+
+    HttpServerResponse response = mock(HttpServerResponse.class);
+    when(response.end()).thenReturn(Future.succeededFuture());
+
+    vertx.runOnContext(v -> {
+      Future<Long> running = pool.render(List.of("sleep", "1"), Map.of(), response, res -> {});
+      Future<Long> rejected = pool.render(List.of("true"), Map.of(),
+          mock(HttpServerResponse.class), res -> {});
+
+      testContext.verify(() -> {
+        assertTrue(rejected.failed());
+        assertEquals(503, ((OgcException) rejected.cause()).getStatusCode());
+        assertEquals(1, pool.getActive());
+      });
+
+      running.onComplete(ar -> testContext.verify(() -> {
+        assertTrue(ar.succeeded());
+        assertEquals(0, pool.getActive());
+        testContext.completeNow();
+      }));
+    });
+  }
+}
@@ -0,0 +1,83 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import ogc.rs.apiserver.util.StacCatalogCache.StacCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class StacCatalogCacheTest {
+
+  private List<Promise<StacCatalog>> builds;
+  private StacCatalogCache cache;
+
+  @BeforeEach
+  void setUp() {
+    builds = new ArrayList<>();
+    cache = new StacCatalogCache(new JsonObject(), () -> {
+      Promise<StacCatalog> build = Promise.promise();
+      builds.add(build);
+      return build.future();
+    });
+  }
+
+  private static StacCatalog catalog(String id) {
+    return new StacCatalog(Buffer.buffer(id), Buffer.buffer(id + "-collections"));
+  }
+
+  @Test
+  @DisplayName("Documents are built once, concurrent requests wait on the same build")
+  void testBuiltOnce() {
+    Future<StacCatalog> first = cache.get();
+    Future<StacCatalog> second = cache.get();
+    assertEquals(1, builds.size());
+
+    builds.get(0).complete(catalog("a"));
+
+    assertEquals("a", first.result().getCatalog().toString());
+    assertEquals("a-collections", second.result().getCollections().toString());
+    assertEquals("a", cache.get().result().getCatalog().toString());
+    assertEquals(1, builds.size());
+  }
+
+  @Test
+  @DisplayName("Invalidation rebuilds the documents and discards builds started before it")
+  void testInvalidateAll() {
+    cache.get();
+    builds.get(0).complete(catalog("a"));
+
+    Future<StacCatalog> stale = cache.get();
+    cache.invalidateAll();
+    Future<StacCatalog> inFlight = cache.get();
+    assertEquals(2, builds.size());
+    cache.invalidateAll();
+    builds.get(1).complete(catalog("b"));
+
+    assertEquals("a", stale.result().getCatalog().toString());
+    assertEquals("b", inFlight.result().getCatalog().toString());
+    // built before the last invalidation, so it is not cached
+    cache.get();
+    assertEquals(3, builds.size());
+    builds.get(2).complete(catalog("c"));
+    assertEquals("c", cache.get().result().getCatalog().toString());
+    assertEquals(3, builds.size());
+  }
+
+  @Test
+  @DisplayName("Failed builds are not cached")
+  void testFailureNotCached() {
+    Future<StacCatalog> failed = cache.get();
+    builds.get(0).fail(new OgcException(404, "Not Found", "Collection table is Empty!"));
+    assertTrue(failed.failed());
+
+    cache.get();
+    assertEquals(2, builds.size());
+  }
+}
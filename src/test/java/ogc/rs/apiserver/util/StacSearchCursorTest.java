@@ -0,0 +1,49 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class StacSearchCursorTest {
+
+  private final StacSearchCursor cursor =
+      new StacSearchCursor(new JsonObject().put(StacSearchCursor.CONFIG_KEY, "secret"));
+
+  private static StacItemSearchParams params(String collection, int limit, int offset) {
+    return new StacItemSearchParams(new JsonObject()
+        .put("collections", new JsonArray().add(collection))
+        .put("limit", limit)
+        .put("offset", offset));
+  }
+
+  @Test
+  @DisplayName("Token holds the last p_id and is valid for any page of the same search")
+  void testRoundTrip() {
+    String token = cursor.encode(1234, params("a", 11, 1));
+
+    assertEquals(1234, cursor.decode(token, params("a", 10, 1)));
+    assertEquals(1234, cursor.decode(token, params("a", 5, 500)));
+    // signed using the same configured secret on another server
+    assertEquals(1234, new StacSearchCursor(new JsonObject().put(StacSearchCursor.CONFIG_KEY, "secret"))
+        .decode(token, params("a", 10, 1)));
+  }
+
+  @Test
+  @DisplayName("Tokens of other searches, edited or signed using another key are rejected")
+  void testInvalidTokens() {
+    String token = cursor.encode(1234, params("a", 10, 1));
+
+    assertThrows(OgcException.class, () -> cursor.decode(token, params("b", 10, 1)));
+
+    String edited = cursor.encode(1, params("a", 10, 1)).split("\\.")[0] + "." + token.split("\\.")[1];
+    assertThrows(OgcException.class, () -> cursor.decode(edited, params("a", 10, 1)));
+
+    assertThrows(OgcException.class, () -> new StacSearchCursor(new JsonObject())
+        .decode(token, params("a", 10, 1)));
+    assertThrows(OgcException.class, () -> cursor.decode("not-a-token", params("a", 10, 1)));
+    assertThrows(OgcException.class, () -> cursor.decode("%%%.%%%", params("a", 10, 1)));
+  }
+}
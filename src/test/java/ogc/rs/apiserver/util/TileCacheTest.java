@@ -0,0 +1,74 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TileCacheTest {
+
+  private Vertx vertx;
+  private TileCache cache;
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+    JsonObject config = new JsonObject().put(TileCache.CONFIG_KEY,
+        new JsonObject().put("enabled", true).put("maxSizeBytes", 10).put("maxEntrySizeBytes", 6)
+            .put("collections", new JsonObject().put("basemap",
+                new JsonObject().put("maxAgeSeconds", 86400))));
+    cache = new TileCache(vertx, config);
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  @DisplayName("Least recently used objects are evicted once the size bound is exceeded")
+  void testSizeBoundedLru() {
+    cache.put("a", Buffer.buffer("aaaa"), "image/png", "\"a\"", null);
+    cache.put("b", Buffer.buffer("bbbb"), "image/png", "\"b\"", null);
+    assertNotNull(cache.get("a").result());
+
+    cache.put("c", Buffer.buffer("cccc"), "image/png", "\"c\"", null);
+    assertNull(cache.get("b").result());
+    assertEquals("aaaa", cache.get("a").result().getBody().toString());
+    assertEquals("\"c\"", cache.get("c").result().getEtag());
+
+    cache.put("d", Buffer.buffer("ddddddd"), "image/png", null, null);
+    assertNull(cache.get("d").result());
+  }
+
+  @Test
+  @DisplayName("If-None-Match matching and per collection Cache-Control")
+  void testEtagAndCacheControl() {
+    assertTrue(TileCache.etagMatches("\"x\", W/\"abc\"", "\"abc\""));
+    assertTrue(TileCache.etagMatches("*", "\"abc\""));
+    assertFalse(TileCache.etagMatches("\"x\"", "\"abc\""));
+    assertFalse(TileCache.etagMatches(null, "\"abc\""));
+
+    assertEquals("public, max-age=86400", cache.getCacheControl("basemap"));
+    assertEquals("private, no-cache", cache.getCacheControl("restricted"));
+  }
+
+  @Test
+  @DisplayName("Invalidating a collection removes its tiles and coverage only")
+  void testInvalidateCollection() {
+    cache.put("c1/WebMercatorQuad/0/0/0.pbf", Buffer.buffer("t1"), "image/png", null, null);
+    cache.put(TileCache.coverageKey("c1"), Buffer.buffer("cov1"), "application/json", null, null);
+    cache.put(TileCache.coverageKey("c2"), Buffer.buffer("cov2"), "application/json", null, null);
+
+    cache.invalidateCollection("c1");
+
+    assertNull(cache.get("c1/WebMercatorQuad/0/0/0.pbf").result());
+    assertNull(cache.get(TileCache.coverageKey("c1")).result());
+    assertEquals("cov2", cache.get(TileCache.coverageKey("c2")).result().getBody().toString());
+  }
+}
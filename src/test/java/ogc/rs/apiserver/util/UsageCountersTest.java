@@ -0,0 +1,58 @@
+package ogc.rs.apiserver.util;
+
+import static ogc.rs.common.Constants.METERING_USAGE_ADDRESS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import ogc.rs.database.DatabaseService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class UsageCountersTest {
+
+  private static final String USER_ID = "4d5c1e2a-1c2f-4e3b-9d6a-7f8e9a0b1c2d";
+  private static final String COLLECTION_ID = "0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d";
+  private static final String API_PATH = "/collections/" + COLLECTION_ID + "/items";
+
+  @Test
+  @DisplayName("Totals are loaded from the DB once and then kept up to date from audit records")
+  void testLoadOnceAndRecord(Vertx vertx, VertxTestContext testContext) {
+    DatabaseService dbService = mock(DatabaseService.class);
+    when(dbService.getTotalApiHits(anyString(), anyString(), anyString(), anyLong()))
+        .thenReturn(Future.succeededFuture(5L));
+    when(dbService.getTotalDataUsage(anyString(), anyString(), anyString(), anyLong()))
+        .thenReturn(Future.succeededFuture(500L));
+
+    vertx.runOnContext(v -> {
+      UsageCounters counters = new UsageCounters(vertx, dbService, new JsonObject());
+
+      counters.getUsage(USER_ID, API_PATH, COLLECTION_ID, 1000L)
+          .compose(usage -> {
+            testContext.verify(() -> {
+              assertEquals(5, usage.getApiHits());
+              assertEquals(500, usage.getDataUsage());
+            });
+            vertx.eventBus().publish(METERING_USAGE_ADDRESS, new JsonObject()
+                .put("user_id", USER_ID).put("collection_id", COLLECTION_ID)
+                .put("api_path", API_PATH).put("resp_size", 100L));
+            return vertx.timer(50);
+          })
+          .compose(t -> counters.getUsage(USER_ID, API_PATH, COLLECTION_ID, 1000L))
+          .onComplete(testContext.succeeding(usage -> testContext.verify(() -> {
+            assertEquals(6, usage.getApiHits());
+            assertEquals(600, usage.getDataUsage());
+            verify(dbService, times(1)).getTotalApiHits(anyString(), anyString(), anyString(),
+                anyLong());
+            testContext.completeNow();
+          })));
+    });
+  }
+}
@@ -0,0 +1,66 @@
+package ogc.rs.apiserver.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.json.JsonObject;
+import java.util.UUID;
+import ogc.rs.apiserver.util.VerifiedTokenCache.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class VerifiedTokenCacheTest {
+
+  private VerifiedTokenCache cache;
+
+  @BeforeEach
+  void setUp() {
+    cache = new VerifiedTokenCache(new JsonObject().put(VerifiedTokenCache.CONFIG_KEY,
+        new JsonObject().put("maxSize", 2).put("maxTtlSeconds", 300)));
+  }
+
+  private static AuthInfo user(long exp) {
+    return AuthInfo.createUser(new JsonObject().put("sub", UUID.randomUUID().toString())
+        .put("role", "consumer").put("iid", "ri:" + UUID.randomUUID())
+        .put("cons", new JsonObject()).put("exp", exp));
+  }
+
+  private static long inSeconds(long seconds) {
+    return System.currentTimeMillis() / 1000 + seconds;
+  }
+
+  @Test
+  @DisplayName("Verified tokens are returned with a copy of the user")
+  void testHit() {
+    AuthInfo user = user(inSeconds(60));
+    Limits limits = Limits.fromJson(new JsonObject().put("apiHits", 10));
+    cache.put("token-a", user, limits);
+
+    VerifiedToken cached = cache.get("token-a");
+    assertNotNull(cached);
+    assertEquals(user.getUserId(), cached.getUser().getUserId());
+    assertEquals(10, cached.getLimits().getApiHitsLimit());
+
+    cached.getUser().setResourceId(UUID.randomUUID());
+    assertEquals(user.getResourceId(), cache.get("token-a").getUser().getResourceId());
+    assertNull(cache.get("token-b"));
+  }
+
+  @Test
+  @DisplayName("Expired tokens are not cached and the least recently used token is evicted")
+  void testExpiryAndEviction() {
+    cache.put("expired", user(inSeconds(-1)), null);
+    assertNull(cache.get("expired"));
+    assertEquals(0, cache.size());
+
+    cache.put("token-a", user(inSeconds(60)), null);
+    cache.put("token-b", user(inSeconds(60)), null);
+    cache.get("token-a");
+    cache.put("token-c", user(inSeconds(60)), null);
+
+    assertEquals(2, cache.size());
+    assertNotNull(cache.get("token-a"));
+    assertNull(cache.get("token-b"));
+    assertNotNull(cache.get("token-c"));
+  }
+}
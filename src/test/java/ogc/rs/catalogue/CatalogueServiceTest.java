@@ -0,0 +1,92 @@
+package ogc.rs.catalogue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class CatalogueServiceTest {
+
+  @Test
+  @DisplayName("Concurrent lookups share a catalogue call, items and missing IDs are cached")
+  void testCoalescingAndCaching(Vertx vertx, VertxTestContext testContext) {
+    List<String> searchedValues = new ArrayList<>();
+
+    vertx.createHttpServer().requestHandler(req -> {
+      String value = req.getParam("value");
+      searchedValues.add(value);
+      JsonArray results = new JsonArray();
+      for (String id : value.replaceAll("[\\[\\]]", "").split(",")) {
+        if (!id.startsWith("missing")) {
+          results.add(new JsonObject().put("id", id).put("provider", "provider-" + id));
+        }
+      }
+      req.response().putHeader("Content-Type", "application/json")
+          .end(new JsonObject().put("totalHits", results.size()).put("results", results).encode());
+    }).listen(0).onComplete(testContext.succeeding(server -> vertx.runOnContext(v -> {
+      CatalogueService catalogueService = new CatalogueService(vertx, new JsonObject()
+          .put("catServerHost", "localhost").put("catServerPort", server.actualPort())
+          .put("dxCatalogueBasePath", "/iudx/cat/v1"));
+      CatalogueService.catWebClient = WebClient.create(vertx);
+
+      Future.all(catalogueService.getCatItem("a"), catalogueService.getCatItem("a"))
+          .compose(both -> {
+            testContext.verify(() -> {
+              assertEquals("provider-a", both.<JsonObject>resultAt(1).getString("provider"));
+              assertEquals(List.of("[[a]]"), searchedValues);
+            });
+            return catalogueService.getCatItems(List.of("a", "b", "missing-c"));
+          })
+          .compose(items -> {
+            testContext.verify(() -> {
+              assertEquals(Set.of("a", "b"), items.keySet());
+              assertEquals(List.of("[[a]]", "[[b,missing-c]]"), searchedValues);
+            });
+            return catalogueService.getCatItem("missing-c");
+          })
+          .onComplete(testContext.failing(err -> testContext.verify(() -> {
+            assertEquals(2, searchedValues.size());
+            testContext.completeNow();
+          })));
+    })));
+  }
+
+  @Test
+  @DisplayName("A failed catalogue batch only leaves out the IDs of that batch")
+  void testPartialBatchFailure(Vertx vertx, VertxTestContext testContext) {
+    vertx.createHttpServer().requestHandler(req -> {
+      String id = req.getParam("value").replaceAll("[\\[\\]]", "");
+      if (id.startsWith("broken")) {
+        req.response().setStatusCode(500).end();
+        return;
+      }
+      JsonArray results = new JsonArray().add(new JsonObject().put("id", id));
+      req.response().putHeader("Content-Type", "application/json")
+          .end(new JsonObject().put("totalHits", 1).put("results", results).encode());
+    }).listen(0).onComplete(testContext.succeeding(server -> vertx.runOnContext(v -> {
+      CatalogueService catalogueService = new CatalogueService(vertx, new JsonObject()
+          .put("catServerHost", "localhost").put("catServerPort", server.actualPort())
+          .put("dxCatalogueBasePath", "/iudx/cat/v1")
+          .put(CatalogueService.CONFIG_KEY, new JsonObject().put("batchSize", 1)));
+      CatalogueService.catWebClient = WebClient.create(vertx);
+
+      catalogueService.getCatItems(List.of("a", "broken-b", "c"))
+          .onComplete(testContext.succeeding(items -> testContext.verify(() -> {
+            assertEquals(Set.of("a", "c"), items.keySet());
+            testContext.completeNow();
+          })));
+    })));
+  }
+}
@@ -0,0 +1,76 @@
+package ogc.rs.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class S3ClientRegistryTest {
+
+  @Test
+  @DisplayName("Clients are shared per bucket config and HEAD results of existing objects are cached")
+  void testSharedClientAndHeadCache(Vertx vertx, VertxTestContext testContext) {
+    AtomicInteger heads = new AtomicInteger();
+
+    vertx.createHttpServer().requestHandler(req -> {
+      heads.incrementAndGet();
+      if (req.path().endsWith("/map.tif")) {
+        req.response().putHeader("ETag", "\"abc\"").putHeader("Content-Length", "0").end();
+      } else {
+        req.response().setStatusCode(404).putHeader("Content-Length", "0").end();
+      }
+    }).listen(0).onComplete(testContext.succeeding(server -> {
+      S3Config conf = new S3Config(new JsonObject().put("bucket", "maps").put("region", "us-east-1")
+          .put("endpoint", "http://localhost:" + server.actualPort()).put("accessKey", "access")
+          .put("secretKey", "secret").put("readAccess", "PRIVATE").put("pathBasedAccess", true));
+      S3Config otherBucket = new S3Config(conf.toJson().copy().put("bucket", "other"));
+      S3ClientRegistry registry = new S3ClientRegistry(vertx, new JsonObject());
+
+      testContext.verify(
+          () -> assertSame(registry.getClient(conf), registry.getClient(otherBucket)));
+
+      vertx.runOnContext(v -> registry.getObjectETag(conf, "map.tif")
+          .compose(etag -> {
+            testContext.verify(() -> assertEquals(Optional.of("\"abc\""), etag));
+            return registry.getObjectETag(conf, "map.tif");
+          })
+          .compose(etag -> {
+            testContext.verify(() -> {
+              assertEquals(Optional.of("\"abc\""), etag);
+              assertEquals(1, heads.get());
+            });
+            return registry.getObjectETag(conf, "missing.tif");
+          })
+          .onComplete(testContext.succeeding(etag -> testContext.verify(() -> {
+            assertTrue(etag.isEmpty());
+            assertEquals(2, heads.get());
+            registry.close();
+            testContext.completeNow();
+          }))));
+    }));
+  }
+
+  @Test
+  @DisplayName("The shared registry is only closed once all its users have released it")
+  void testRelease(Vertx vertx) {
+    S3ClientRegistry registry = S3ClientRegistry.getOrCreate(vertx, new JsonObject());
+    assertSame(registry, S3ClientRegistry.getOrCreate(vertx, new JsonObject()));
+
+    registry.release();
+    assertSame(registry, S3ClientRegistry.getOrCreate(vertx, new JsonObject()));
+    registry.release();
+    registry.release();
+
+    S3ClientRegistry created = S3ClientRegistry.getOrCreate(vertx, new JsonObject());
+    assertNotSame(registry, created);
+    created.release();
+  }
+}
@@ -0,0 +1,187 @@
+package ogc.rs.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+@ExtendWith(VertxExtension.class)
+public class S3MultipartWriterTest {
+
+  private static final int MIB = 1024 * 1024;
+  private static final S3Config CONF = new S3Config(new JsonObject().put("bucket", "bucket")
+      .put("region", "us-east-1").put("endpoint", "http://localhost:9000")
+      .put("accessKey", "access").put("secretKey", "secret").put("readAccess", "PRIVATE")
+      .put("pathBasedAccess", true));
+
+  @Test
+  @DisplayName("Objects smaller than a part are uploaded using a single PUT")
+  void testSinglePut(Vertx vertx, VertxTestContext testContext) {
+    FakeS3Client s3 = new FakeS3Client();
+    S3MultipartWriter writer = newWriter(vertx, s3);
+
+    vertx.runOnContext(v -> writer.write(Buffer.buffer(new byte[1024]))
+        .compose(res -> writer.write(Buffer.buffer(new byte[1024])))
+        .compose(res -> writer.end())
+        .onComplete(testContext.succeeding(size -> testContext.verify(() -> {
+          assertEquals(2048L, size);
+          assertEquals(List.of("put:obj.ndjson:2048"), s3.calls);
+          testContext.completeNow();
+        }))));
+  }
+
+  @Test
+  @DisplayName("Larger objects are uploaded in numbered parts that are completed with their ETags")
+  void testMultipartUpload(Vertx vertx, VertxTestContext testContext) {
+    FakeS3Client s3 = new FakeS3Client();
+    S3MultipartWriter writer = newWriter(vertx, s3);
+
+    vertx.runOnContext(v -> writer.write(Buffer.buffer(new byte[3 * MIB]))
+        .compose(res -> writer.write(Buffer.buffer(new byte[3 * MIB])))
+        .compose(res -> writer.write(Buffer.buffer(new byte[3 * MIB])))
+        .compose(res -> writer.write(Buffer.buffer(new byte[3 * MIB])))
+        .compose(res -> writer.write(Buffer.buffer(new byte[MIB])))
+        .compose(res -> writer.end())
+        .onComplete(testContext.succeeding(size -> testContext.verify(() -> {
+          assertEquals(13L * MIB, size);
+          assertEquals(List.of("create:obj.ndjson", "part:upload-1:1:" + 6 * MIB,
+              "part:upload-1:2:" + 6 * MIB, "part:upload-1:3:" + MIB, "complete:upload-1"),
+              s3.calls);
+          assertEquals(List.of(part(1), part(2), part(3)), s3.completedParts);
+          testContext.completeNow();
+        }))));
+  }
+
+  @Test
+  @DisplayName("The multipart upload is aborted if a part cannot be uploaded")
+  void testAbortOnWriteFailure(Vertx vertx, VertxTestContext testContext) {
+    FakeS3Client s3 = new FakeS3Client();
+    s3.failPart = 2;
+    S3MultipartWriter writer = newWriter(vertx, s3);
+
+    vertx.runOnContext(v -> writer.write(Buffer.buffer(new byte[5 * MIB]))
+        .compose(res -> writer.write(Buffer.buffer(new byte[5 * MIB])))
+        .onComplete(testContext.failing(err -> writer.abort().onComplete(
+            testContext.succeeding(res -> testContext.verify(() -> {
+              assertEquals(List.of("create:obj.ndjson", "part:upload-1:1:" + 5 * MIB,
+                  "part:upload-1:2:" + 5 * MIB, "abort:upload-1"), s3.calls);
+              testContext.completeNow();
+            }))))));
+  }
+
+  @Test
+  @DisplayName("The multipart upload is aborted if it cannot be completed")
+  void testAbortOnEndFailure(Vertx vertx, VertxTestContext testContext) {
+    FakeS3Client s3 = new FakeS3Client();
+    s3.failComplete = true;
+    S3MultipartWriter writer = newWriter(vertx, s3);
+
+    vertx.runOnContext(v -> writer.write(Buffer.buffer(new byte[5 * MIB]))
+        .compose(res -> writer.write(Buffer.buffer(new byte[MIB])))
+        .compose(res -> writer.end())
+        .onComplete(testContext.failing(err -> testContext.verify(() -> {
+          assertEquals(List.of("create:obj.ndjson", "part:upload-1:1:" + 5 * MIB,
+              "part:upload-1:2:" + MIB, "complete:upload-1", "abort:upload-1"), s3.calls);
+          testContext.completeNow();
+        }))));
+  }
+
+  private static S3MultipartWriter newWriter(Vertx vertx, S3AsyncClient s3) {
+    S3ClientRegistry registry = new S3ClientRegistry(vertx, new JsonObject()) {
+      @Override
+      public S3AsyncClient getClient(S3Config conf) {
+        return s3;
+      }
+    };
+    return new S3MultipartWriter(registry, CONF, "obj.ndjson", "application/x-ndjson",
+        S3MultipartWriter.MIN_PART_SIZE_BYTES);
+  }
+
+  private static CompletedPart part(int partNumber) {
+    return CompletedPart.builder().partNumber(partNumber).eTag("etag-" + partNumber).build();
+  }
+
+  /** Records the calls made by the writer, and fails the calls it is asked to. */
+  private static class FakeS3Client implements S3AsyncClient {
+    private final List<String> calls = new ArrayList<>();
+    private List<CompletedPart> completedParts;
+    private int failPart = 0;
+    private boolean failComplete = false;
+
+    @Override
+    public CompletableFuture<PutObjectResponse> putObject(PutObjectRequest request,
+        AsyncRequestBody body) {
+      calls.add("put:" + request.key() + ":" + body.contentLength().orElse(-1L));
+      return CompletableFuture.completedFuture(PutObjectResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<CreateMultipartUploadResponse> createMultipartUpload(
+        CreateMultipartUploadRequest request) {
+      calls.add("create:" + request.key());
+      return CompletableFuture.completedFuture(
+          CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+    }
+
+    @Override
+    public CompletableFuture<UploadPartResponse> uploadPart(UploadPartRequest request,
+        AsyncRequestBody body) {
+      calls.add("part:" + request.uploadId() + ":" + request.partNumber() + ":"
+          + body.contentLength().orElse(-1L));
+      if (request.partNumber() == failPart) {
+        return CompletableFuture.failedFuture(new RuntimeException("part failed"));
+      }
+      return CompletableFuture.completedFuture(
+          UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build());
+    }
+
+    @Override
+    public CompletableFuture<CompleteMultipartUploadResponse> completeMultipartUpload(
+        CompleteMultipartUploadRequest request) {
+      calls.add("complete:" + request.uploadId());
+      completedParts = request.multipartUpload().parts();
+      if (failComplete) {
+        return CompletableFuture.failedFuture(new RuntimeException("complete failed"));
+      }
+      return CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<AbortMultipartUploadResponse> abortMultipartUpload(
+        AbortMultipartUploadRequest request) {
+      calls.add("abort:" + request.uploadId());
+      return CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build());
+    }
+
+    @Override
+    public String serviceName() {
+      return "s3";
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
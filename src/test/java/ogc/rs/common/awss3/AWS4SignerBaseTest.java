@@ -0,0 +1,22 @@
+package ogc.rs.common.awss3;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AWS4SignerBaseTest {
+
+  private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+
+  @Test
+  @DisplayName("Signing key matches the AWS SigV4 example and is derived once per day")
+  void testSigningKeyCached() {
+    byte[] key = AWS4SignerBase.getSigningKey(SECRET_KEY, "20120215", "us-east-1", "iam");
+    assertEquals("f4780e2d9f65fa895f9c67b32ce1baf0b0d8a43505a000a1a9e090d414db404d",
+        BinaryUtils.toHex(key));
+
+    assertSame(key, AWS4SignerBase.getSigningKey(SECRET_KEY, "20120215", "us-east-1", "iam"));
+    assertNotSame(key, AWS4SignerBase.getSigningKey(SECRET_KEY, "20120216", "us-east-1", "iam"));
+  }
+}
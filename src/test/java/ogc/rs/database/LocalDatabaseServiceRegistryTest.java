@@ -0,0 +1,46 @@
+package ogc.rs.database;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class LocalDatabaseServiceRegistryTest {
+
+  private static final String ADDRESS = "test.database.service";
+
+  private Vertx vertx;
+
+  @BeforeEach
+  void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterEach
+  void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  @DisplayName("Bound services are used round-robin and the proxy is used once they are removed")
+  void testLocalOrProxy() {
+    DatabaseService first = mock(DatabaseService.class);
+    DatabaseService second = mock(DatabaseService.class);
+
+    assertTrue(DatabaseService.createLocalOrProxy(vertx, ADDRESS) instanceof DatabaseServiceVertxEBProxy);
+
+    LocalDatabaseServiceRegistry.register(vertx, ADDRESS, first);
+    LocalDatabaseServiceRegistry.register(vertx, ADDRESS, second);
+    assertSame(first, DatabaseService.createLocalOrProxy(vertx, ADDRESS));
+    assertSame(second, DatabaseService.createLocalOrProxy(vertx, ADDRESS));
+    assertSame(first, DatabaseService.createLocalOrProxy(vertx, ADDRESS));
+
+    LocalDatabaseServiceRegistry.unregister(vertx, ADDRESS, first);
+    LocalDatabaseServiceRegistry.unregister(vertx, ADDRESS, second);
+    assertTrue(DatabaseService.createLocalOrProxy(vertx, ADDRESS) instanceof DatabaseServiceVertxEBProxy);
+  }
+}
@@ -0,0 +1,130 @@
+package ogc.rs.database.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import java.util.UUID;
+import ogc.rs.apiserver.util.OgcException;
+import ogc.rs.database.util.CollectionMetadataCache.CollectionMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class CollectionMetadataCacheTest {
+
+  private static final String COLLECTION_ID = UUID.randomUUID().toString();
+
+  @Mock Pool pool;
+  @Mock PreparedQuery<RowSet<Row>> preparedQuery;
+  @Mock RowSet<Row> rowSet;
+  @Mock RowIterator<Row> rowIterator;
+  @Mock Row row;
+
+  private CollectionMetadataCache cache;
+
+  @BeforeEach
+  void setUp() {
+    when(pool.preparedQuery(anyString())).thenReturn(preparedQuery);
+    cache = new CollectionMetadataCache(pool, new JsonObject());
+  }
+
+  private void mockCollectionRow() {
+    when(rowSet.rowCount()).thenReturn(1);
+    when(rowSet.iterator()).thenReturn(rowIterator);
+    when(rowIterator.next()).thenReturn(row);
+    when(row.getInteger("storage_srid")).thenReturn(4326);
+    when(row.getString("datetime_key")).thenReturn("timestamp");
+    when(row.getValue("supported_crs")).thenReturn(
+        new JsonObject().put("http://www.opengis.net/def/crs/OGC/1.3/CRS84", 4326));
+    when(row.getValue("tile_bucket_ids")).thenReturn(new JsonObject().put("WorldCRS84Quad", "default"));
+  }
+
+  @Test
+  @DisplayName("Metadata is loaded once and then served from the cache")
+  void testMetadataCached() {
+    mockCollectionRow();
+    when(preparedQuery.execute(any(Tuple.class))).thenReturn(Future.succeededFuture(rowSet));
+
+    CollectionMetadata metadata = cache.get(COLLECTION_ID).result();
+    assertEquals(4326, metadata.getStorageSrid());
+    assertEquals("timestamp", metadata.getDatetimeKey());
+    assertEquals("default", metadata.getTileBucketIds().get("WorldCRS84Quad"));
+    assertEquals(4326, metadata.getSupportedCrs().get("http://www.opengis.net/def/crs/OGC/1.3/CRS84"));
+
+    assertSame(metadata, cache.get(COLLECTION_ID).result());
+    verify(preparedQuery, times(1)).execute(any(Tuple.class));
+  }
+
+  @Test
+  @DisplayName("Metadata is reloaded after the cache is invalidated")
+  void testInvalidateAll() {
+    mockCollectionRow();
+    when(preparedQuery.execute(any(Tuple.class))).thenReturn(Future.succeededFuture(rowSet));
+
+    cache.get(COLLECTION_ID);
+    cache.invalidateAll();
+    cache.get(COLLECTION_ID);
+
+    verify(preparedQuery, times(2)).execute(any(Tuple.class));
+  }
+
+  @Test
+  @DisplayName("Concurrent requests for a collection being loaded share the same load")
+  void testConcurrentLoadsCoalesced() {
+    mockCollectionRow();
+    Promise<RowSet<Row>> pending = Promise.promise();
+    when(preparedQuery.execute(any(Tuple.class))).thenReturn(pending.future());
+
+    Future<CollectionMetadata> first = cache.get(COLLECTION_ID);
+    Future<CollectionMetadata> second = cache.get(COLLECTION_ID);
+    pending.complete(rowSet);
+
+    assertTrue(first.succeeded());
+    assertSame(first.result(), second.result());
+    verify(preparedQuery, times(1)).execute(any(Tuple.class));
+  }
+
+  @Test
+  @DisplayName("Unknown collection fails with 404 and is not cached")
+  void testUnknownCollection() {
+    when(rowSet.rowCount()).thenReturn(0);
+    when(preparedQuery.execute(any(Tuple.class))).thenReturn(Future.succeededFuture(rowSet));
+
+    Future<CollectionMetadata> result = cache.get(COLLECTION_ID);
+    assertTrue(result.failed());
+    assertEquals(404, ((OgcException) result.cause()).getStatusCode());
+
+    cache.get(COLLECTION_ID);
+    verify(preparedQuery, times(2)).execute(any(Tuple.class));
+  }
+
+  @Test
+  @DisplayName("Tile matrix sets without tiles are remembered until the cache is invalidated")
+  void testMissingTileMatrixSet() {
+    mockCollectionRow();
+    when(preparedQuery.execute(any(Tuple.class))).thenReturn(Future.succeededFuture(rowSet));
+
+    CollectionMetadata metadata = cache.get(COLLECTION_ID).result();
+    assertFalse(metadata.isTileMatrixSetMissing("WebMercatorQuad"));
+    metadata.markTileMatrixSetMissing("WebMercatorQuad");
+    assertTrue(cache.get(COLLECTION_ID).result().isTileMatrixSetMissing("WebMercatorQuad"));
+
+    cache.invalidateAll();
+    assertFalse(cache.get(COLLECTION_ID).result().isTileMatrixSetMissing("WebMercatorQuad"));
+  }
+}
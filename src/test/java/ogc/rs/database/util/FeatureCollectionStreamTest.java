@@ -0,0 +1,147 @@
+package ogc.rs.database.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class FeatureCollectionStreamTest {
+
+  @Mock SqlConnection conn;
+  @Mock Transaction tx;
+  @Mock RowStream<Row> rows;
+
+  private ArgumentCaptor<Handler<Void>> endCaptor;
+  private ArgumentCaptor<Handler<Row>> rowCaptor;
+  private Handler<Void> rowsEndHandler;
+  private Handler<Row> rowsHandler;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    endCaptor = ArgumentCaptor.forClass(Handler.class);
+    rowCaptor = ArgumentCaptor.forClass(Handler.class);
+    when(rows.endHandler(endCaptor.capture())).thenReturn(rows);
+    when(rows.exceptionHandler(any())).thenReturn(rows);
+    lenient().when(rows.handler(rowCaptor.capture())).thenReturn(rows);
+    lenient().when(tx.commit()).thenReturn(Future.succeededFuture());
+    lenient().when(conn.close()).thenReturn(Future.succeededFuture());
+  }
+
+  private Row featureRow(int id) {
+    Row row = mock(Row.class);
+    when(row.toJson()).thenReturn(new JsonObject().put("id", id).put("type", "Feature")
+        .put("geometry", new JsonObject().put("type", "Point")
+            .put("coordinates", new JsonArray().add(77.5).add(12.9)))
+        .put("properties", new JsonObject().put("name", "feature-" + id)));
+    return row;
+  }
+
+  @Test
+  @DisplayName("Streamed chunks form a valid FeatureCollection with trailing members")
+  void testStreamedFeatureCollection() {
+    FeatureCollectionStream stream = new FeatureCollectionStream(conn, tx, rows, 3, 10);
+    rowsEndHandler = endCaptor.getValue();
+
+    Buffer body = Buffer.buffer();
+    stream.trailer(s -> new JsonObject().put("lastId", s.getLastId()));
+    stream.handler(body::appendBuffer);
+    rowsHandler = rowCaptor.getValue();
+
+    rowsHandler.handle(featureRow(1));
+    rowsHandler.handle(featureRow(2));
+    rowsEndHandler.handle(null);
+
+    JsonObject result = body.toJsonObject();
+    assertEquals("FeatureCollection", result.getString("type"));
+    assertEquals(2, result.getJsonArray("features").size());
+    assertEquals(2, result.getInteger("numberReturned"));
+    assertEquals(3, result.getInteger("numberMatched"));
+    assertEquals(2, result.getInteger("lastId"));
+    assertFalse(stream.hasMore());
+    verify(tx).commit();
+    verify(conn).close();
+  }
+
+  @Test
+  @DisplayName("Empty result is streamed as an empty FeatureCollection")
+  void testEmptyFeatureCollection() {
+    FeatureCollectionStream stream = new FeatureCollectionStream(conn, tx, rows, 0, 10);
+    rowsEndHandler = endCaptor.getValue();
+
+    Buffer body = Buffer.buffer();
+    stream.handler(body::appendBuffer);
+    rowsEndHandler.handle(null);
+
+    JsonObject result = body.toJsonObject();
+    assertTrue(result.getJsonArray("features").isEmpty());
+    assertEquals(0, result.getInteger("numberReturned"));
+    assertNull(stream.getLastId());
+  }
+
+  @Test
+  @DisplayName("Extra feature from the limit + 1 probe is not emitted and numberMatched is omitted")
+  void testLimitProbeWithoutCount() {
+    FeatureCollectionStream stream = new FeatureCollectionStream(conn, tx, rows, null, 2);
+    rowsEndHandler = endCaptor.getValue();
+
+    Buffer body = Buffer.buffer();
+    stream.handler(body::appendBuffer);
+    rowsHandler = rowCaptor.getValue();
+
+    rowsHandler.handle(featureRow(1));
+    rowsHandler.handle(featureRow(2));
+    rowsHandler.handle(mock(Row.class));
+    rowsEndHandler.handle(null);
+
+    JsonObject result = body.toJsonObject();
+    assertEquals(2, result.getJsonArray("features").size());
+    assertFalse(result.containsKey("numberMatched"));
+    assertTrue(stream.hasMore());
+    assertEquals(2, stream.getLastId());
+  }
+
+  @Test
+  @DisplayName("Rows are mapped to features and the last key is read from the key column")
+  void testFeatureMapperAndKeyColumn() {
+    FeatureCollectionStream stream = new FeatureCollectionStream(conn, tx, rows, null, 10)
+        .keyColumn("p_id")
+        .featureMapper(feature -> {
+          feature.remove("p_id");
+          return feature.put("stac_version", "1.0.0");
+        });
+    rowsEndHandler = endCaptor.getValue();
+
+    Buffer body = Buffer.buffer();
+    stream.handler(body::appendBuffer);
+    rowsHandler = rowCaptor.getValue();
+
+    Row row = mock(Row.class);
+    when(row.toJson()).thenReturn(new JsonObject().put("id", "item-1").put("p_id", 42));
+    rowsHandler.handle(row);
+    rowsEndHandler.handle(null);
+
+    JsonObject feature = body.toJsonObject().getJsonArray("features").getJsonObject(0);
+    assertEquals("item-1", feature.getString("id"));
+    assertEquals("1.0.0", feature.getString("stac_version"));
+    assertFalse(feature.containsKey("p_id"));
+    assertEquals(42, stream.getLastId());
+  }
+}
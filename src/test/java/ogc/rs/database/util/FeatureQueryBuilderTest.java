@@ -0,0 +1,61 @@
+package ogc.rs.database.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FeatureQueryBuilderTest {
+
+  @Test
+  @DisplayName("The aggregated query wraps the features query and leaves out the probe feature")
+  void testAggregatedSqlString() {
+    FeatureQueryBuilder featureQuery = new FeatureQueryBuilder("collection-table");
+    featureQuery.setLimit(11);
+    featureQuery.setOffset(20);
+
+    String features = featureQuery.buildSqlString();
+    String aggregated = featureQuery.buildAggregatedSqlString(10);
+
+    assertTrue(aggregated.contains("from (" + features + ") page"));
+    assertTrue(aggregated.contains("order by id) filter (where rn <= 10), '[]')::text as features"));
+    assertTrue(aggregated.contains("count(*) as fetched"));
+    assertTrue(aggregated.contains("max(id) filter (where rn <= 10) as last_id"));
+    assertTrue(features.endsWith("where id > 19 ORDER BY id limit 11"));
+  }
+
+  @Test
+  @DisplayName("Generalized geometries fall back to simplifying geom and are not properties")
+  void testGeneralization() {
+    FeatureQueryBuilder featureQuery = new FeatureQueryBuilder("collection-table");
+    featureQuery.setCrs("4326");
+    featureQuery.setGeneralization("geom_city", 0.001, 4);
+    featureQuery.setExcludedColumns(List.of("geom_city"));
+
+    String features = featureQuery.buildSqlString();
+
+    assertTrue(features.contains("cast(st_asgeojson(coalesce(st_transform(geom_city,4326), "
+        + "ST_SimplifyPreserveTopology(st_transform(geom,4326), 0.001)), 4,0) as json) as geometry"));
+    assertTrue(features.contains("'id' - 'geom' - 'geom_city') as properties"));
+  }
+
+  @Test
+  @DisplayName("Count and features queries do not depend on the order they are built in")
+  void testBuildOrderIndependent() {
+    FeatureQueryBuilder featureQuery = new FeatureQueryBuilder("collection-table");
+    featureQuery.setLimit(11);
+    featureQuery.setOffset(1);
+    featureQuery.setBboxCrsSrid("4326");
+    featureQuery.setBbox("0,0,1,1", "4326");
+
+    String features = featureQuery.buildSqlString();
+    String count = featureQuery.buildSqlString("count");
+    String cappedCount = featureQuery.buildCappedCountSqlString(100);
+
+    assertEquals(features, featureQuery.buildSqlString());
+    assertEquals(count, featureQuery.buildSqlString("count"));
+    assertEquals(cappedCount, featureQuery.buildCappedCountSqlString(100));
+    assertTrue(count.startsWith("select count(id) from \"collection-table\" where st_intersects"));
+  }
+}
@@ -0,0 +1,52 @@
+package ogc.rs.database.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import ogc.rs.apiserver.util.OgcException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class GeometryGeneralizationTest {
+
+  @Test
+  @DisplayName("Zoom levels are converted to WebMercatorQuad scale denominators")
+  void testFromQueryParams() {
+    assertNull(GeometryGeneralization.fromQueryParams(Map.of("limit", "10")));
+
+    GeometryGeneralization zoom = GeometryGeneralization.fromQueryParams(Map.of("zoom-level", "10"));
+    assertEquals(545978.7734655447, zoom.getScaleDenominator(), 1e-6);
+
+    GeometryGeneralization scale =
+        GeometryGeneralization.fromQueryParams(Map.of("scale-denominator", "50000"));
+    assertEquals(50000, scale.getScaleDenominator());
+
+    OgcException e = assertThrows(OgcException.class, () -> GeometryGeneralization
+        .fromQueryParams(Map.of("zoom-level", "10", "scale-denominator", "50000")));
+    assertEquals(400, e.getStatusCode());
+  }
+
+  @Test
+  @DisplayName("The tolerance is one pixel at the scale and coordinates are rounded to a tenth of it")
+  void testToleranceAndDecimalDigits() {
+    GeometryGeneralization generalization = new GeometryGeneralization(50000);
+
+    assertEquals(14, generalization.getTolerance(false), 1e-9);
+    assertEquals(0, generalization.getDecimalDigits(false));
+    assertEquals(14 / 111319.49079327357, generalization.getTolerance(true), 1e-12);
+    assertEquals(5, generalization.getDecimalDigits(true));
+
+    assertEquals(9, new GeometryGeneralization(0.01).getDecimalDigits(true));
+  }
+
+  @Test
+  @DisplayName("The coarsest precomputed column allowed at the scale is selected")
+  void testSelectColumn() {
+    Map<String, Double> columns = Map.of("geom_city", 100000.0, "geom_country", 5000000.0);
+
+    assertNull(new GeometryGeneralization(50000).selectColumn(columns));
+    assertEquals("geom_city", new GeometryGeneralization(250000).selectColumn(columns));
+    assertEquals("geom_country", new GeometryGeneralization(10000000).selectColumn(columns));
+    assertNull(new GeometryGeneralization(10000000).selectColumn(Map.of()));
+  }
+}
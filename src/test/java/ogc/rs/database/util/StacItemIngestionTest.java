@@ -0,0 +1,120 @@
+package ogc.rs.database.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class StacItemIngestionTest {
+
+  private static final String COLLECTION_ID = UUID.randomUUID().toString();
+
+  @Mock Pool pool;
+  @Mock SqlConnection conn;
+  @Mock PreparedQuery<RowSet<Row>> itemQuery;
+  @Mock PreparedQuery<RowSet<Row>> assetQuery;
+  @Mock RowSet<Row> rowSet;
+
+  private StacItemIngestion ingestion;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    when(pool.withTransaction(any())).thenAnswer(invocation ->
+        ((Function<SqlConnection, Future<?>>) invocation.getArgument(0)).apply(conn));
+    when(conn.preparedQuery(startsWith("INSERT INTO stac_collections_part"))).thenReturn(itemQuery);
+    ingestion = new StacItemIngestion(pool,
+        new JsonObject().put(StacItemIngestion.CONFIG_KEY, new JsonObject().put("batchSize", 2)));
+  }
+
+  private static List<JsonObject> items(int count) {
+    List<JsonObject> items = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      items.add(new JsonObject().put("id", "item-" + i)
+          .put("geometry", new JsonObject().put("type", "Point").put("coordinates", new JsonArray().add(0).add(0)))
+          .put("assets", new JsonObject().put(UUID.randomUUID().toString(),
+              new JsonObject().put("href", "item-" + i + ".tif").put("s3BucketId", "default"))));
+    }
+    return items;
+  }
+
+  @Test
+  @DisplayName("Items and their assets are inserted using a batch per chunk, a transaction per chunk")
+  @SuppressWarnings("unchecked")
+  void testChunkedBatchInsert() {
+    when(conn.preparedQuery(startsWith("INSERT INTO stac_items_assets"))).thenReturn(assetQuery);
+    when(itemQuery.executeBatch(anyList())).thenReturn(Future.succeededFuture(rowSet));
+    when(assetQuery.executeBatch(anyList())).thenReturn(Future.succeededFuture(rowSet));
+
+    JsonArray report = ingestion.insertItems(COLLECTION_ID, items(5)).result();
+
+    assertEquals(5, report.size());
+    report.forEach(item -> assertEquals(StacItemIngestion.STATUS_CREATED, ((JsonObject) item).getString("status")));
+    assertEquals("item-4", report.getJsonObject(4).getString("id"));
+    verify(pool, times(3)).withTransaction(any());
+
+    ArgumentCaptor<List<Tuple>> batches = ArgumentCaptor.forClass(List.class);
+    verify(itemQuery, times(3)).executeBatch(batches.capture());
+    assertEquals(List.of(2, 2, 1), batches.getAllValues().stream().map(List::size).collect(Collectors.toList()));
+    verify(assetQuery, times(3)).executeBatch(anyList());
+  }
+
+  @Test
+  @DisplayName("Items of a failed chunk are inserted one by one, only the bad item is reported as failed")
+  void testFailedChunkReported() {
+    when(conn.preparedQuery(startsWith("INSERT INTO stac_items_assets"))).thenReturn(assetQuery);
+    when(itemQuery.executeBatch(anyList())).thenAnswer(invocation -> {
+      List<Tuple> tuples = invocation.getArgument(0);
+      return tuples.stream().anyMatch(tuple -> "item-1".equals(tuple.getString(0)))
+          ? Future.failedFuture("duplicate key value violates unique constraint")
+          : Future.succeededFuture(rowSet);
+    });
+    when(assetQuery.executeBatch(anyList())).thenReturn(Future.succeededFuture(rowSet));
+
+    JsonArray report = ingestion.insertItems(COLLECTION_ID, items(3)).result();
+
+    assertEquals(3, report.size());
+    assertEquals(StacItemIngestion.STATUS_CREATED, report.getJsonObject(0).getString("status"));
+    assertEquals("item-1", report.getJsonObject(1).getString("id"));
+    assertEquals(StacItemIngestion.STATUS_FAILED, report.getJsonObject(1).getString("status"));
+    assertTrue(report.getJsonObject(1).getString("error").contains("duplicate key"));
+    assertEquals(StacItemIngestion.STATUS_CREATED, report.getJsonObject(2).getString("status"));
+    // the failed chunk, then each of its items, then the last chunk
+    verify(pool, times(4)).withTransaction(any());
+  }
+
+  @Test
+  @DisplayName("Fails if none of the items could be inserted")
+  void testAllChunksFailed() {
+    when(itemQuery.executeBatch(anyList())).thenReturn(Future.failedFuture("connection closed"));
+
+    Future<JsonArray> result = ingestion.insertItems(COLLECTION_ID, items(3));
+
+    assertTrue(result.failed());
+    assertEquals("connection closed", result.cause().getMessage());
+  }
+}
@@ -0,0 +1,44 @@
+package ogc.rs.database.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TileGridTest {
+
+  @Test
+  @DisplayName("The tile grid is picked using the CRS of the tile matrix set")
+  void testForCrs() {
+    assertEquals(TileGrid.WEB_MERCATOR_QUAD,
+        TileGrid.forCrs("http://www.opengis.net/def/crs/EPSG/0/3857"));
+    assertEquals(TileGrid.WORLD_CRS84_QUAD,
+        TileGrid.forCrs("http://www.opengis.net/def/crs/OGC/1.3/CRS84"));
+    assertEquals(TileGrid.WORLD_CRS84_QUAD, TileGrid.forCrs("EPSG:4326"));
+    assertNull(TileGrid.forCrs("http://www.opengis.net/def/crs/EPSG/0/32643"));
+    assertNull(TileGrid.forCrs(null));
+  }
+
+  @Test
+  @DisplayName("Tile envelopes are computed with rows counted from the top of the grid")
+  void testEnvelope() {
+    double[] envelope = TileGrid.WEB_MERCATOR_QUAD.getEnvelope(1, 0, 1);
+    assertArrayEquals(new double[] {0, 0, 20037508.342789244, 20037508.342789244}, envelope, 1e-6);
+
+    double[] lonLat = TileGrid.WEB_MERCATOR_QUAD.getLonLatEnvelope(0, 0, 0);
+    assertArrayEquals(new double[] {-180, -85.0511287798, 180, 85.0511287798}, lonLat, 1e-6);
+
+    envelope = TileGrid.WORLD_CRS84_QUAD.getEnvelope(0, 0, 1);
+    assertArrayEquals(new double[] {0, -90, 180, 90}, envelope, 1e-9);
+  }
+
+  @Test
+  @DisplayName("Tiles outside the grid are not contained in it")
+  void testContains() {
+    assertTrue(TileGrid.WEB_MERCATOR_QUAD.contains(2, 3, 3));
+    assertFalse(TileGrid.WEB_MERCATOR_QUAD.contains(2, 3, 4));
+    assertTrue(TileGrid.WORLD_CRS84_QUAD.contains(2, 3, 7));
+    assertFalse(TileGrid.WORLD_CRS84_QUAD.contains(2, 4, 7));
+    assertFalse(TileGrid.WORLD_CRS84_QUAD.contains(TileGrid.MAX_TILE_MATRIX + 1, 0, 0));
+  }
+}
@@ -0,0 +1,192 @@
+package ogc.rs.metering;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(VertxExtension.class)
+public class MeteringBatchQueueTest {
+
+  @Test
+  @DisplayName("Records are written in batches of flush size, the rest on the periodic flush")
+  void testBatching(Vertx vertx, VertxTestContext testContext) {
+    List<Integer> batchSizes = new ArrayList<>();
+    JsonObject config = new JsonObject().put(MeteringBatchQueue.CONFIG_KEY,
+        new JsonObject().put("flushSize", 3).put("flushIntervalMillis", 100));
+
+    vertx.runOnContext(v -> {
+      MeteringBatchQueue queue = new MeteringBatchQueue(vertx, "test-batching", config, batch -> {
+        batchSizes.add(batch.size());
+        return Future.succeededFuture(List.of());
+      });
+      for (int i = 0; i < 7; i++) {
+        assertTrue(queue.offer(new JsonObject().put("i", i)));
+      }
+      testContext.verify(() -> assertEquals(List.of(3, 3), batchSizes));
+
+      vertx.setTimer(300, id -> testContext.verify(() -> {
+        assertEquals(List.of(3, 3, 1), batchSizes);
+        testContext.completeNow();
+      }));
+    });
+  }
+
+  @Test
+  @DisplayName("Records offered to a full queue are dropped or spilled to disk and read back")
+  void testOverflowPolicies(Vertx vertx, VertxTestContext testContext, @TempDir Path tempDir)
+      throws InterruptedException {
+    Promise<List<JsonObject>> firstWrite = Promise.promise();
+    List<JsonObject> written = new ArrayList<>();
+
+    vertx.runOnContext(v -> {
+      MeteringBatchQueue dropping = new MeteringBatchQueue(vertx, "test-drop",
+          new JsonObject().put(MeteringBatchQueue.CONFIG_KEY,
+              new JsonObject().put("maxQueueSize", 2).put("flushSize", 10)),
+          batch -> Promise.<List<JsonObject>>promise().future());
+      testContext.verify(() -> {
+        assertTrue(dropping.offer(new JsonObject()));
+        assertFalse(dropping.isFull());
+        assertTrue(dropping.offer(new JsonObject()));
+        assertTrue(dropping.isFull());
+        assertFalse(dropping.offer(new JsonObject()));
+      });
+
+      MeteringBatchQueue spilling = new MeteringBatchQueue(vertx, "test-spill",
+          new JsonObject().put(MeteringBatchQueue.CONFIG_KEY,
+              new JsonObject().put("maxQueueSize", 2).put("flushSize", 2)
+                  .put("flushIntervalMillis", 50).put("overflowPolicy", "spill")
+                  .put("spillDir", tempDir.toString())),
+          batch -> {
+            written.addAll(batch);
+            return written.size() == batch.size() ? firstWrite.future()
+                : Future.succeededFuture(List.of());
+          });
+      for (int i = 0; i < 6; i++) {
+        assertTrue(spilling.offer(new JsonObject().put("i", i)));
+      }
+      testContext.verify(() -> assertFalse(spilling.isFull()));
+      firstWrite.complete(List.of());
+    });
+
+    vertx.setPeriodic(50, id -> {
+      if (written.size() == 6) {
+        vertx.cancelTimer(id);
+        testContext.verify(() -> {
+          assertEquals(0, spillFileCount(vertx, tempDir.resolve("test-spill").toString()));
+          testContext.completeNow();
+        });
+      }
+    });
+    assertTrue(testContext.awaitCompletion(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @DisplayName("Queues sharing a spill directory read back records spilled by a previous run once")
+  void testSharedSpillDir(Vertx vertx, VertxTestContext testContext, @TempDir Path tempDir)
+      throws InterruptedException {
+    Path sinkDir = tempDir.resolve("test-shared");
+    vertx.fileSystem().mkdirsBlocking(sinkDir.resolve("crashed-queue").toString());
+    vertx.fileSystem().writeFileBlocking(sinkDir.resolve("crashed-queue/a.ndjson").toString(),
+        Buffer.buffer("{\"i\":0}\n{\"i\":1}\n{\"i\":2}\n"));
+    vertx.fileSystem().writeFileBlocking(sinkDir.resolve("crashed-queue/b.ndjson").toString(),
+        Buffer.buffer("{\"i\":3}\n{\"i\":4}\n"));
+    vertx.fileSystem().writeFileBlocking(sinkDir.resolve("c.ndjson").toString(),
+        Buffer.buffer("{\"i\":5}\n"));
+
+    List<JsonObject> written = new ArrayList<>();
+    JsonObject config = new JsonObject().put(MeteringBatchQueue.CONFIG_KEY,
+        new JsonObject().put("flushSize", 2).put("flushIntervalMillis", 50)
+            .put("overflowPolicy", "spill").put("spillDir", tempDir.toString()));
+
+    vertx.runOnContext(v -> {
+      for (int i = 0; i < 2; i++) {
+        new MeteringBatchQueue(vertx, "test-shared", config, batch -> {
+          written.addAll(batch);
+          return Future.succeededFuture(List.of());
+        });
+      }
+    });
+
+    vertx.setTimer(500, id -> testContext.verify(() -> {
+      assertEquals(6, written.size());
+      assertEquals(6, written.stream().map(record -> record.getInteger("i")).distinct().count());
+      assertEquals(0, spillFileCount(vertx, sinkDir.toString()));
+      assertFalse(vertx.fileSystem().existsBlocking(sinkDir.resolve("crashed-queue").toString()));
+      testContext.completeNow();
+    }));
+    assertTrue(testContext.awaitCompletion(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @DisplayName("Only the records of a batch that were not written are retried")
+  void testPartialWrite(Vertx vertx, VertxTestContext testContext) {
+    List<JsonObject> written = new ArrayList<>();
+    JsonObject config = new JsonObject().put(MeteringBatchQueue.CONFIG_KEY,
+        new JsonObject().put("flushSize", 4).put("flushIntervalMillis", 50));
+
+    vertx.runOnContext(v -> {
+      MeteringBatchQueue queue = new MeteringBatchQueue(vertx, "test-partial", config, batch -> {
+        // every other record of the first batch is not written
+        boolean first = written.isEmpty();
+        List<JsonObject> unwritten = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+          if (first && i % 2 == 1) {
+            unwritten.add(batch.get(i));
+          } else {
+            written.add(batch.get(i));
+          }
+        }
+        return Future.succeededFuture(unwritten);
+      });
+      for (int i = 0; i < 4; i++) {
+        queue.offer(new JsonObject().put("i", i));
+      }
+      testContext.verify(() -> assertEquals(2, queue.size()));
+
+      vertx.setTimer(300, id -> testContext.verify(() -> {
+        assertEquals(List.of(0, 2, 1, 3),
+            written.stream().map(record -> record.getInteger("i")).collect(Collectors.toList()));
+        assertEquals(0, queue.size());
+        testContext.completeNow();
+      }));
+    });
+  }
+
+  @Test
+  @DisplayName("Records that cannot be written on close are dropped if they are not spilled")
+  void testCloseWithFailedWrite(Vertx vertx, VertxTestContext testContext) {
+    vertx.runOnContext(v -> {
+      MeteringBatchQueue queue = new MeteringBatchQueue(vertx, "test-close", new JsonObject(),
+          batch -> Future.failedFuture("sink is down"));
+      queue.offer(new JsonObject());
+      queue.offer(new JsonObject());
+      queue.close().onComplete(testContext.succeeding(closed -> testContext.verify(() -> {
+        assertEquals(0, queue.size());
+        testContext.completeNow();
+      })));
+    });
+  }
+
+  private static long spillFileCount(Vertx vertx, String dir) {
+    return vertx.fileSystem().readDirBlocking(dir).stream()
+        .mapToLong(path -> vertx.fileSystem().propsBlocking(path).isDirectory()
+            ? spillFileCount(vertx, path)
+            : 1)
+        .sum();
+  }
+}
@@ -0,0 +1,79 @@
+package ogc.rs.metering;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.json.JsonObject;
+import java.time.LocalDateTime;
+import java.util.List;
+import ogc.rs.metering.util.MeteringQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class MeteringRollupTest {
+
+  private static final LocalDateTime START = LocalDateTime.parse("2024-03-01T10:30:00");
+  private static final LocalDateTime END = LocalDateTime.parse("2024-03-20T00:00:00");
+
+  @Test
+  @DisplayName("Whole days and hours are read from the rollups, the edges and the rest from the raw table")
+  void testAuditSource() {
+    MeteringRollup rollup = new MeteringRollup(null, null,
+        new JsonObject().put(MeteringRollup.CONFIG_KEY, new JsonObject().put("enabled", true)));
+    rollup.setWatermarks(LocalDateTime.parse("2024-03-10T12:00"), LocalDateTime.parse("2024-03-10T00:00"));
+
+    MeteringQuery query = auditSource(rollup);
+    String source = query.getSql();
+    assertTrue(source.contains("FROM auditing_ogc WHERE (time >= $1 AND time < $2)"
+        + " OR (time >= $3 AND time <= $4)"));
+    assertTrue(source.contains("FROM auditing_ogc_daily WHERE day >= $5 AND day < $6"));
+    assertTrue(source.contains("FROM auditing_ogc_hourly WHERE (hour >= $7 AND hour < $8)"
+        + " OR (hour >= $9 AND hour < $10)"));
+    assertEquals(List.of(START, LocalDateTime.parse("2024-03-01T11:00"),
+        LocalDateTime.parse("2024-03-10T12:00"), END,
+        LocalDateTime.parse("2024-03-02T00:00"), LocalDateTime.parse("2024-03-10T00:00"),
+        LocalDateTime.parse("2024-03-01T11:00"), LocalDateTime.parse("2024-03-02T00:00"),
+        LocalDateTime.parse("2024-03-10T00:00"), LocalDateTime.parse("2024-03-10T12:00")),
+        query.getParams());
+
+    // before the first rollup run, or for a range within an hour, only the raw table is read
+    rollup.setWatermarks(null, null);
+    query = auditSource(rollup);
+    assertEquals("(SELECT time, resourceid, userid, providerid, api, 1 AS hits, size FROM auditing_ogc"
+        + " WHERE time >= $1 AND time <= $2) AS audit", query.getSql());
+    assertEquals(List.of(START, END), query.getParams());
+  }
+
+  @Test
+  @DisplayName("Without a start and end, each record is read from one source only")
+  void testUnboundedAuditSource() {
+    MeteringRollup rollup = new MeteringRollup(null, null,
+        new JsonObject().put(MeteringRollup.CONFIG_KEY, new JsonObject().put("enabled", true)));
+    rollup.setWatermarks(LocalDateTime.parse("2024-03-10T12:00"), LocalDateTime.parse("2024-03-10T00:00"));
+
+    MeteringQuery.Builder builder = new MeteringQuery.Builder();
+    rollup.auditSource(null, null, builder);
+    MeteringQuery query = builder.build();
+
+    assertEquals("(SELECT time, resourceid, userid, providerid, api, 1 AS hits, size FROM auditing_ogc"
+        + " WHERE time >= $1", query.getSql().substring(0, query.getSql().indexOf(" UNION ALL ")));
+    assertTrue(query.getSql().contains("FROM auditing_ogc_daily WHERE day < $2"));
+    assertTrue(query.getSql().contains("FROM auditing_ogc_hourly WHERE hour >= $3 AND hour < $4"));
+    assertEquals(List.of(LocalDateTime.parse("2024-03-10T12:00"),
+        LocalDateTime.parse("2024-03-10T00:00"), LocalDateTime.parse("2024-03-10T00:00"),
+        LocalDateTime.parse("2024-03-10T12:00")), query.getParams());
+
+    // before the first daily rollup, hours are read from the start
+    rollup.setWatermarks(LocalDateTime.parse("2024-03-10T12:00"), null);
+    builder = new MeteringQuery.Builder();
+    rollup.auditSource(null, null, builder);
+    query = builder.build();
+    assertTrue(query.getSql().contains("FROM auditing_ogc WHERE time >= $1 UNION ALL "));
+    assertTrue(query.getSql().contains("FROM auditing_ogc_hourly WHERE hour < $2)"));
+  }
+
+  private static MeteringQuery auditSource(MeteringRollup rollup) {
+    MeteringQuery.Builder query = new MeteringQuery.Builder();
+    rollup.auditSource(START, END, query);
+    return query.build();
+  }
+}
@@ -52,7 +52,9 @@ public class MeteringServiceImplTest {
           .put("verticleInstances", 1)
           .put("catServerHost", "api.cat-test.iudx.io")
           .put("catServerPort", 443)
-          .put(DATABASE_TABLE_NAME, "auditing_ogc");
+          .put(DATABASE_TABLE_NAME, "auditing_ogc")
+          // every test mocks its own catalogue response
+          .put("catalogueCache", new JsonObject().put("ttlSeconds", 0).put("negativeTtlSeconds", 0));
   static JsonObject requestJson = new JsonObject().put(USER_ID, "123-1243-56546-13424");
   private static MeteringServiceImpl meteringService;
   private static Vertx vertxObj;
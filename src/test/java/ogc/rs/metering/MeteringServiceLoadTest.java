@@ -0,0 +1,141 @@
+package ogc.rs.metering;
+
+import static ogc.rs.common.Constants.*;
+import static ogc.rs.common.Constants.ROLE;
+import static ogc.rs.common.Constants.USER_ID;
+import static ogc.rs.metering.util.MeteringConstant.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.SqlResult;
+import io.vertx.sqlclient.Tuple;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Fires concurrent metering requests of different users at a single {@link MeteringServiceImpl}.
+ * The mocked database answers every prepared query after a random delay with rows derived from its
+ * bound user id, so any state shared between requests shows up as a response for the wrong user.
+ */
+@ExtendWith(VertxExtension.class)
+public class MeteringServiceLoadTest {
+  private static final int REQUESTS = 200;
+  private final Random random = new Random();
+  private MeteringServiceImpl meteringService;
+
+  @AfterEach
+  void close() {
+    if (meteringService != null) {
+      meteringService.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Concurrent read and overview requests get the results of their own user")
+  @SuppressWarnings("unchecked")
+  void testConcurrentRequests(Vertx vertx, VertxTestContext testContext) {
+    SqlConnection connection = mock(SqlConnection.class);
+    when(connection.preparedQuery(any())).thenAnswer(invocation -> preparedQuery(vertx,
+        invocation.getArgument(0)));
+    PgPool meteringPgClient = mock(PgPool.class);
+    when(meteringPgClient.withConnection(any())).thenAnswer(invocation ->
+        ((Function<SqlConnection, Future<?>>) invocation.getArgument(0)).apply(connection));
+
+    JsonObject config = new JsonObject()
+        .put("catServerHost", "localhost")
+        .put("catServerPort", 443)
+        .put(DATABASE_TABLE_NAME, "auditing_ogc");
+    meteringService = new MeteringServiceImpl(vertx, meteringPgClient, mock(PgPool.class), config,
+        mock(DataBrokerService.class));
+
+    List<Future<Void>> checks = new ArrayList<>();
+    for (int i = 0; i < REQUESTS; i++) {
+      String userId = UUID.randomUUID().toString();
+      if (i % 2 == 0) {
+        checks.add(meteringService.executeReadQuery(readRequest(userId)).map(result -> {
+          testContext.verify(() -> {
+            assertEquals(count(userId), result.getLong(TOTALHITS));
+            assertEquals(userId, result.getJsonArray("result").getJsonObject(0).getString("userid"));
+          });
+          return null;
+        }));
+      } else {
+        JsonObject request = new JsonObject().put(USER_ID, userId).put(ROLE, "consumer");
+        checks.add(meteringService.monthlyOverview(request).map(result -> {
+          JsonArray rows = result.getJsonArray("result");
+          testContext.verify(() -> {
+            assertEquals(1, rows.size());
+            assertEquals(userId, rows.getJsonObject(0).getString("userid"));
+          });
+          return null;
+        }));
+      }
+    }
+    Future.all(checks).onComplete(testContext.succeedingThenComplete());
+  }
+
+  private static JsonObject readRequest(String userId) {
+    return new JsonObject()
+        .put(USER_ID, userId)
+        .put(START_TIME, "2022-05-29T05:30:00+05:30")
+        .put(END_TIME, "2022-06-04T02:00:00+05:30")
+        .put(TIME_RELATION, DURING)
+        .put(LIMITPARAM, 10)
+        .put(OFFSETPARAM, 0);
+  }
+
+  private static long count(String userId) {
+    return Math.abs(userId.hashCode() % 1000) + 1;
+  }
+
+  /* a prepared query whose result is a function of its SQL and the user id bound to it */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private PreparedQuery preparedQuery(Vertx vertx, String sql) {
+    return mock(PreparedQuery.class, invocation -> {
+      switch (invocation.getMethod().getName()) {
+        case "collecting":
+          return invocation.getMock();
+        case "execute":
+          String userId = userId(invocation.getArgument(0));
+          JsonObject row = sql.startsWith(COUNT_QUERY)
+              ? new JsonObject().put("count", count(userId))
+              : new JsonObject().put("userid", userId);
+          SqlResult<List<JsonObject>> result = mock(SqlResult.class);
+          when(result.value()).thenReturn(List.of(row));
+          Promise<SqlResult<List<JsonObject>>> promise = Promise.promise();
+          vertx.setTimer(1 + random.nextInt(20), timer -> promise.complete(result));
+          return promise.future();
+        default:
+          return null;
+      }
+    });
+  }
+
+  /* the requests have no string parameters other than the user id */
+  private static String userId(Tuple tuple) {
+    for (int i = 0; i < tuple.size(); i++) {
+      if (tuple.getValue(i) instanceof String) {
+        return (String) tuple.getValue(i);
+      }
+    }
+    throw new IllegalStateException("no user id bound");
+  }
+}
@@ -0,0 +1,83 @@
+package ogc.rs.processes.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class JobSchedulerTest {
+
+  private JobScheduler scheduler;
+  private List<String> started;
+  private Map<String, Promise<Void>> jobs;
+
+  @BeforeEach
+  void setUp() {
+    scheduler = new JobScheduler(new JsonObject().put(JobScheduler.CONFIG_KEY, new JsonObject()
+        .put("maxRunningJobs", 2)
+        .put("maxQueuedJobs", 3)
+        .put("defaultProcessLimit", 2)
+        .put("processLimits", new JsonObject().put("CollectionOnboarding", 1))
+        .put("processPriorities", new JsonObject().put("S3InitiateMultipartUpload", 10))));
+    started = new ArrayList<>();
+    jobs = new HashMap<>();
+  }
+
+  private boolean submit(String jobId, String processName) {
+    return scheduler.submit(jobId, processName, () -> {
+      started.add(jobId);
+      Promise<Void> job = Promise.promise();
+      jobs.put(jobId, job);
+      return job.future();
+    });
+  }
+
+  @Test
+  @DisplayName("Jobs of a process at its limit are queued without holding up other processes")
+  void testProcessLimit() {
+    assertFalse(submit("onboard-1", "CollectionOnboarding"));
+    assertTrue(submit("onboard-2", "CollectionOnboarding"));
+    assertFalse(submit("append-1", "CollectionAppending"));
+
+    assertEquals(List.of("onboard-1", "append-1"), started);
+    assertEquals(2, scheduler.runningJobs());
+    assertEquals(1, scheduler.queuedJobs());
+
+    jobs.get("onboard-1").fail("failed");
+    assertEquals(List.of("onboard-1", "append-1", "onboard-2"), started);
+    assertEquals(0, scheduler.queuedJobs());
+  }
+
+  @Test
+  @DisplayName("Queued jobs are started in order of priority, then in order of submission")
+  void testPriorityAndFifo() {
+    submit("append-1", "CollectionAppending");
+    submit("append-2", "CollectionAppending");
+    submit("append-3", "CollectionAppending");
+    submit("append-4", "CollectionAppending");
+    submit("upload-1", "S3InitiateMultipartUpload");
+    assertTrue(scheduler.isFull());
+
+    jobs.get("append-1").complete();
+    jobs.get("append-2").complete();
+    jobs.get("upload-1").complete();
+
+    assertEquals(List.of("append-1", "append-2", "upload-1", "append-3", "append-4"), started);
+    assertFalse(scheduler.isFull());
+  }
+
+  @Test
+  @DisplayName("Queued jobs are recovered only once")
+  void testStartRecovery() {
+    assertTrue(scheduler.startRecovery());
+    assertFalse(scheduler.startRecovery());
+  }
+}